@@ -1,10 +1,26 @@
 package com.mycompany.javagrid4;
 
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.archive.PositionIndex;
 import com.mycompany.javagrid4.audio.SoundManager;
-import com.mycompany.javagrid4.commands.CommandHistory;
-import com.mycompany.javagrid4.commands.MoveCommand;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.bots.TimedBot;
+import com.mycompany.javagrid4.commands.MoveJournal;
 import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+import com.mycompany.javagrid4.net.GameClient;
+import com.mycompany.javagrid4.net.MovePredictor;
+import com.mycompany.javagrid4.net.NetProtocol;
+import com.mycompany.javagrid4.net.OnlineMatch;
+import com.mycompany.javagrid4.protocol.ExternalEngineBot;
+import com.mycompany.javagrid4.replay.Replay;
+import com.mycompany.javagrid4.replay.ReplayPlayer;
+import com.mycompany.javagrid4.session.RecoveredGame;
+import com.mycompany.javagrid4.session.SavedGame;
+import com.mycompany.javagrid4.session.WriteAheadLog;
+import com.mycompany.javagrid4.tournament.BotSpec;
 import com.mycompany.javagrid4.ui.components.CustomGridCell;
+import com.mycompany.javagrid4.ui.components.ExplorerPanel;
 import com.mycompany.javagrid4.ui.components.ScoreCard;
 import com.mycompany.javagrid4.ui.components.ControlCard;
 import com.mycompany.javagrid4.ui.components.TurnIndicator;
@@ -15,22 +31,70 @@ import com.mycompany.javagrid4.ui.effects.ScoreIncrementAnimation;
 import com.mycompany.javagrid4.ui.effects.GameOverOverlay;
 import com.mycompany.javagrid4.ui.dialogs.HelpDialog;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Main GUI controller for JavaGrid4.
  * Handles all visual components, layout, and user interactions.
  * Delegates game logic to GameEngine.
  * 
+ * Either player may be a bot. Bot moves are computed on a background
+ * thread under a per-move time budget, so the interface stays responsive
+ * and a slow bot only forfeits its move to a fallback.
+ * 
+ * A history slider under the board jumps to any earlier position of the
+ * game; jumps, like multi-move undo against a bot, restore a checkpoint in
+ * one pass and refresh the board once. Playing a different move after an
+ * undo keeps the old line as a variation, and Alt+Left/Alt+Right (or the
+ * arrows beside the slider) switch between the lines tried for the last
+ * human move.
+ * 
+ * Every move, jump and restart of a live game is also appended to a
+ * write-ahead log by a background thread, so a game cut short by a crash
+ * can be resumed on the next start; the log is deleted when the game ends
+ * or is left.
+ * 
+ * Ctrl+S (or the Save button) saves the game in progress, history
+ * included, to continue later from the menu.
+ * 
+ * When a position index has been built from the game archive, an
+ * explorer card beside the board shows how often the position on the
+ * board occurred and how each move from it scored; it is looked up again
+ * after every move, jump and replay step (E shows or hides it).
+ * 
+ * In an online game the opponent plays on another machine through a game
+ * server. The server decides every move, but a click does not wait for it:
+ * the move is played at once as a prediction and sent, and the server's
+ * answer confirms it or, if the server did something else first or turned
+ * it down, the move is taken back (see {@link MovePredictor}). Every
+ * change the server hands back comes as the cells it changed, which are
+ * written over the board so it always shows the server's. A move that
+ * would end the game waits for the server. Ctrl+Z asks the server to take
+ * back one's own last move until the opponent has replied. Restart, pause
+ * and saving are off, and leaving the game or losing the connection ends
+ * it for both players.
+ * 
+ * Finished games are saved as replays. In replay mode the panel shows a
+ * recorded game instead, with a timeline slider in place of the game
+ * controls; Ctrl+Z/Ctrl+Y step one move back and forward.
+ * 
  * Keyboard shortcuts:
  * - ESC: Return to menu (with confirmation)
  * - R: Restart game (with confirmation)
  * - P: Pause/Resume game
+ * - Ctrl+S: Save game
  * - Ctrl+Z: Undo last move
  * - Ctrl+Y: Redo last undone move
+ * - Alt+Left/Alt+Right: Previous/next line for the last move
+ * - E: Show/hide the opening explorer
  */
 public class GamePanel extends JPanel {
     private final PropertyChangeSupport propertyChangeSupport;
@@ -38,10 +102,42 @@ public class GamePanel extends JPanel {
     private CustomGridCell[][] gridCells;
     private GameConfig config;
     private boolean isPaused;
-    private CommandHistory commandHistory;
+    private MoveJournal moveJournal;
     private GameTimer gameTimer;
     private boolean gameStarted;
     
+    // Bot players (null entries are human) and the move being computed
+    private final Bot[] bots = new Bot[2];
+    private SwingWorker<Integer, Void> botWorker;
+    private int positionVersion;
+    
+    private long gameStartMillis;
+    
+    // Crash recovery log of a live game (null in replay and online mode)
+    private final WriteAheadLog writeAheadLog;
+    
+    // Online game (null when both players are at this screen)
+    private final OnlineMatch onlineMatch;
+    private final MovePredictor onlinePredictor;
+    private boolean onlineMovePending;
+    
+    // Replay mode (null when playing a live game)
+    private final ReplayPlayer replayPlayer;
+    private JSlider replaySlider;
+    private JLabel replayMoveLabel;
+    
+    // History slider over the move journal
+    private JPanel historyPanel;
+    private JSlider historySlider;
+    private JLabel historyMoveLabel;
+    private JButton previousLineButton;
+    private JButton nextLineButton;
+    private boolean syncingHistorySlider;
+    
+    // Opening explorer over the archive's position index
+    private final PositionIndex positionIndex = PositionIndex.getDefault();
+    private ExplorerPanel explorerPanel;
+    
     // GUI Components
     private JPanel topPanel;
     private JPanel centerPanel;
@@ -69,6 +165,7 @@ public class GamePanel extends JPanel {
     private ControlCard helpCard;
     private ControlCard menuCard;
     private ControlCard pauseCard;
+    private ControlCard saveCard;
     
     // Legacy buttons (kept for compatibility)
     private JButton restartButton;
@@ -82,13 +179,67 @@ public class GamePanel extends JPanel {
      * @param config Game configuration with player names, colors, and board size
      */
     public GamePanel(GameConfig config) {
+        this(config, null, new GameEngine(config.getBoardSize()), null, System.currentTimeMillis(), null);
+    }
+    
+    /**
+     * Creates a GamePanel in replay mode, showing the final position.
+     * @param replay Recorded game to show
+     */
+    public GamePanel(Replay replay) {
+        this(replay.toConfig(), new ReplayPlayer(replay), new GameEngine(replay.getSize()), null,
+             replay.getStartMillis(), null);
+    }
+    
+    /**
+     * Creates a GamePanel that resumes a game recovered after a crash.
+     * @param recovered Game read back from its write-ahead log
+     */
+    public GamePanel(RecoveredGame recovered) {
+        this(recovered.toConfig(), null, new GameEngine(recovered.getSize()), null, recovered.getStartMillis(), null);
+        recovered.apply(gameEngine, moveJournal);
+        writeAheadLog.adopt(recovered);
+        startRestoredGame(recovered.getStartMillis(), recovered.getElapsedSeconds());
+    }
+    
+    /**
+     * Creates a GamePanel that continues a saved game. The panel takes over
+     * the engine and history rebuilt when the save was read.
+     * @param saved Game loaded with {@link SavedGame#load}
+     * @throws IllegalArgumentException if the game was not read from a file
+     */
+    public GamePanel(SavedGame saved) {
+        this(saved.toConfig(), null, requireLoaded(saved).getEngine(), saved.getJournal(), saved.getStartMillis(), null);
+        writeAheadLog.logSnapshot(saved.getHistory(), saved.getElapsedSeconds());
+        startRestoredGame(saved.getStartMillis(), saved.getElapsedSeconds());
+    }
+    
+    /**
+     * Creates a GamePanel for a game against a player on another machine.
+     * The panel takes over the match's server connection.
+     * @param match Game started through the server
+     */
+    public GamePanel(OnlineMatch match) {
+        this(match.toConfig(), null, new GameEngine(match.getBoardSize()), null, System.currentTimeMillis(), match);
+        setupOnlineControls();
+        match.getClient().setListener(new OnlineListener());
+    }
+    
+    private GamePanel(GameConfig config, ReplayPlayer replayPlayer, GameEngine engine, MoveJournal journal,
+                      long startMillis, OnlineMatch onlineMatch) {
         this.propertyChangeSupport = new PropertyChangeSupport(this);
         this.config = config;
-        this.gameEngine = new GameEngine(config.getBoardSize());
-        this.commandHistory = new CommandHistory();
+        this.replayPlayer = replayPlayer;
+        this.gameEngine = engine;
+        this.moveJournal = journal != null ? journal : new MoveJournal(gameEngine);
         this.isPaused = false;
         this.gameTimer = new GameTimer();
         this.gameStarted = false;
+        this.onlineMatch = onlineMatch;
+        this.onlinePredictor = onlineMatch == null ? null : new MovePredictor(gameEngine, moveJournal,
+            cell -> playMove(cell / gameEngine.getGridSize(), cell % gameEngine.getGridSize()));
+        this.writeAheadLog = replayPlayer != null || onlineMatch != null
+            ? null : WriteAheadLog.start(config, startMillis);
         
         // Enable glassmorphism background
         setOpaque(false);
@@ -98,6 +249,38 @@ public class GamePanel extends JPanel {
         createGrid(config.getBoardSize());
         setupKeyboardShortcuts();
         updateDisplay();
+        
+        if (replayPlayer != null) {
+            setupReplayControls();
+            showReplayPosition(replayPlayer.getLength());
+            return;
+        }
+        createBots();
+        SwingUtilities.invokeLater(this::startBotTurnIfNeeded);
+    }
+    
+    private static SavedGame requireLoaded(SavedGame saved) {
+        if (saved.getJournal() == null) {
+            throw new IllegalArgumentException("Saved game has not been read from a file");
+        }
+        return saved;
+    }
+    
+    /**
+     * Continues a recovered or loaded game: the clock runs on from its
+     * saved value and the screen shows the restored position.
+     * @param startMillis Original game start time
+     * @param elapsedSeconds Game clock to continue from
+     */
+    private void startRestoredGame(long startMillis, int elapsedSeconds) {
+        gameStartMillis = startMillis;
+        gameTimer.setElapsedSeconds(elapsedSeconds);
+        gameTimer.start();
+        gameStarted = true;
+        positionVersion++;
+        syncGridWithEngine();
+        updateDisplay();
+        updateUndoRedoButtons();
     }
     
     /**
@@ -263,6 +446,7 @@ public class GamePanel extends JPanel {
         redoCard = new ControlCard("Redo", "⟳", new Color(100, 100, 120), this::handleRedo);
         menuCard = new ControlCard("Menu", "≡", new Color(100, 130, 200), this::handleBackToMenu);
         pauseCard = new ControlCard("Pause", "⏸", new Color(150, 100, 200), this::handlePause);
+        saveCard = new ControlCard("Save", "⤓", new Color(80, 150, 120), this::handleSave);
         
         // Initial states
         undoCard.setEnabled(false);
@@ -273,8 +457,47 @@ public class GamePanel extends JPanel {
         controlPanel.add(redoCard);
         controlPanel.add(restartCard);
         controlPanel.add(pauseCard);
+        controlPanel.add(saveCard);
         controlPanel.add(menuCard);
         
+        // History slider (enabled once there is a move to go back to)
+        historySlider = new JSlider(0, 0, 0);
+        historySlider.setOpaque(false);
+        historySlider.setPreferredSize(new Dimension(420, 40));
+        historySlider.setEnabled(false);
+        historySlider.addChangeListener(e -> {
+            if (!syncingHistorySlider) {
+                handleHistorySeek(historySlider.getValue(), historySlider.getValueIsAdjusting());
+            }
+        });
+        
+        historyMoveLabel = new JLabel("Move 0 / 0");
+        historyMoveLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        historyMoveLabel.setForeground(new Color(80, 80, 100));
+        
+        // Variation arrows (shown once a move has alternatives)
+        previousLineButton = createControlButton("‹", new Color(100, 100, 120));
+        previousLineButton.setPreferredSize(new Dimension(40, 30));
+        previousLineButton.setToolTipText("Previous line for the last move (Alt+Left)");
+        previousLineButton.addActionListener(e -> handleVariation(-1));
+        previousLineButton.setVisible(false);
+        nextLineButton = createControlButton("›", new Color(100, 100, 120));
+        nextLineButton.setPreferredSize(new Dimension(40, 30));
+        nextLineButton.setToolTipText("Next line for the last move (Alt+Right)");
+        nextLineButton.addActionListener(e -> handleVariation(1));
+        nextLineButton.setVisible(false);
+        
+        historyPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 12, 0));
+        historyPanel.setOpaque(false);
+        historyPanel.add(historySlider);
+        historyPanel.add(previousLineButton);
+        historyPanel.add(historyMoveLabel);
+        historyPanel.add(nextLineButton);
+        
+        // Opening explorer (only shown when there is an index to query)
+        explorerPanel = new ExplorerPanel();
+        explorerPanel.setVisible(positionIndex.getPositionCount() > 0);
+        
         // Legacy buttons (kept hidden for compatibility)
         restartButton = createControlButton("Restart (R)", new Color(220, 100, 100));
         restartButton.addActionListener(e -> handleRestart());
@@ -405,10 +628,12 @@ public class GamePanel extends JPanel {
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.add(topPanel, BorderLayout.NORTH);
         mainPanel.add(gridContainer, BorderLayout.CENTER); // Use Material Design container
+        mainPanel.add(explorerPanel, BorderLayout.EAST);
         
         // Combine bottom panel and control panel
         JPanel bottomContainer = new JPanel(new BorderLayout());
         bottomContainer.add(bottomPanel, BorderLayout.NORTH);
+        bottomContainer.add(historyPanel, BorderLayout.CENTER);
         bottomContainer.add(controlPanel, BorderLayout.SOUTH);
         mainPanel.add(bottomContainer, BorderLayout.SOUTH);
         
@@ -458,7 +683,7 @@ public class GamePanel extends JPanel {
      * @param clickedCell The cell that was clicked
      */
     private void handleCellClick(CustomGridCell clickedCell) {
-        if (gameEngine.isGameOver() || isPaused) {
+        if (replayPlayer != null || gameEngine.isGameOver() || isPaused || isBotTurn() || isRemoteTurn()) {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
             return;
         }
@@ -480,10 +705,24 @@ public class GamePanel extends JPanel {
             return; // Don't change turn, don't process move
         }
         
+        if (onlineMatch != null) {
+            sendOnlineMove(row * gameEngine.getGridSize() + col);
+            return;
+        }
+        playMove(row, col);
+    }
+    
+    /**
+     * Plays a legal move for the current player, human or bot.
+     * @param row Cell row
+     * @param col Cell column
+     */
+    private void playMove(int row, int col) {
         // Start timer on first move
         if (!gameStarted) {
             gameTimer.start();
             gameStarted = true;
+            gameStartMillis = System.currentTimeMillis();
         }
         
         Player currentPlayer = gameEngine.getGameState().getCurrentPlayer();
@@ -500,9 +739,11 @@ public class GamePanel extends JPanel {
         valuesBefore[3] = col > 0 ? gameEngine.getCellValue(row, col - 1) : -1;
         valuesBefore[4] = col < gridSize - 1 ? gameEngine.getCellValue(row, col + 1) : -1;
         
-        // Create and execute move command (supports undo/redo)
-        MoveCommand moveCommand = new MoveCommand(gameEngine, row, col, currentPlayer);
-        commandHistory.executeCommand(moveCommand);
+        // Play the move through the journal (supports undo/redo)
+        moveJournal.executeMove(row, col, currentPlayer);
+        if (writeAheadLog != null) {
+            writeAheadLog.logMove(row * gridSize + col, currentPlayer, gameTimer.getElapsedSeconds());
+        }
         
         // Check if any cells were JUST claimed (changed from <4 to 4)
         boolean cellsClaimed = checkForNewlyClaimedCells(row, col, valuesBefore);
@@ -522,9 +763,321 @@ public class GamePanel extends JPanel {
         // Update undo/redo button states
         updateUndoRedoButtons();
         
+        positionVersion++;
+        
         // Check if game ended
         if (gameEngine.isGameOver()) {
             handleGameEnd();
+        } else {
+            startBotTurnIfNeeded();
+        }
+    }
+    
+    /**
+     * Creates the bots configured for either player. A bot that cannot be
+     * created is reported and its player is left to a human.
+     */
+    private void createBots() {
+        PlayerConfig[] players = { config.getPlayer1(), config.getPlayer2() };
+        for (int i = 0; i < players.length; i++) {
+            if (!players[i].isBot()) {
+                continue;
+            }
+            try {
+                Bot bot = new BotSpec(players[i].getBotSpec()).create();
+                // Never let a bot block the game without a budget; external engines keep their own clock
+                bots[i] = bot instanceof TimedBot || bot instanceof ExternalEngineBot
+                        ? bot : new TimedBot(bot, BotSpec.DEFAULT_BUDGET);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Could not create bot for " + players[i].getName() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the current player is a bot.
+     * @return true if a bot is to move
+     */
+    private boolean isBotTurn() {
+        return bots[gameEngine.getGameState().getCurrentPlayer() == Player.PLAYER_ONE ? 0 : 1] != null;
+    }
+    
+    /**
+     * Checks whether a bot moves at a ply of the history while a human
+     * takes part, i.e. whether undo and redo should step past that ply.
+     * @param ply Ply in the move journal
+     * @return true if the ply belongs to a bot facing a human
+     */
+    private boolean isBotToMoveAt(long ply) {
+        Player player = moveJournal.getPlayerToMove(ply);
+        return hasHumanPlayer() && bots[player == Player.PLAYER_ONE ? 0 : 1] != null;
+    }
+    
+    /**
+     * Checks whether at least one player is human.
+     * @return true if a human takes part
+     */
+    private boolean hasHumanPlayer() {
+        return bots[0] == null || bots[1] == null;
+    }
+    
+    /**
+     * Starts computing a bot move in the background if a bot is to move.
+     * The result is dropped if the position changed in the meantime
+     * (undo, restart, leaving the game).
+     */
+    private void startBotTurnIfNeeded() {
+        if (botWorker != null || isPaused || gameEngine.isGameOver() || !isBotTurn()
+                || historySlider.getValueIsAdjusting()) {
+            return;
+        }
+        Bot bot = bots[gameEngine.getGameState().getCurrentPlayer() == Player.PLAYER_ONE ? 0 : 1];
+        CompactBoard board = CompactBoard.fromEngine(gameEngine);
+        int version = positionVersion;
+        botWorker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return bot.chooseMove(board);
+            }
+            
+            @Override
+            protected void done() {
+                botWorker = null;
+                if (version != positionVersion || isPaused || gameEngine.isGameOver()) {
+                    startBotTurnIfNeeded();
+                    return;
+                }
+                int move;
+                try {
+                    move = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println(bot.getName() + " could not move: " + e.getMessage());
+                    move = -1;
+                }
+                if (!board.isLegal(move)) {
+                    move = TimedBot.fallbackMove(board);
+                }
+                int size = gameEngine.getGridSize();
+                playMove(move / size, move % size);
+            }
+        };
+        botWorker.execute();
+    }
+    
+    /**
+     * Stops all bot threads and closes the server connection of an online
+     * game. Called when the game ends or is abandoned.
+     */
+    public void shutdownBots() {
+        positionVersion++;
+        for (Bot bot : bots) {
+            if (bot instanceof TimedBot) {
+                ((TimedBot) bot).close();
+            } else if (bot instanceof ExternalEngineBot) {
+                ((ExternalEngineBot) bot).close();
+            }
+        }
+        if (onlineMatch != null) {
+            onlineMatch.getClient().close();
+        }
+    }
+    
+    /**
+     * Checks whether the player to move in an online game is the remote
+     * one, or the local player's move is still on its way to the server.
+     * @return true if a click must not send a move
+     */
+    private boolean isRemoteTurn() {
+        if (onlineMatch == null) {
+            return false;
+        }
+        if (onlineMatch.isSpectator()) {
+            return true;
+        }
+        Player local = onlineMatch.getLocalPlayerId() == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+        return onlineMovePending || gameEngine.getGameState().getCurrentPlayer() != local;
+    }
+    
+    /**
+     * Plays the local player's move at once and sends it to the server,
+     * which confirms or overrides it. A move that would end the game is
+     * only played once the server hands it back.
+     * @param cell Cell index (row * size + col)
+     */
+    private void sendOnlineMove(int cell) {
+        int ply = onlinePredictor.getConfirmedPly();
+        if (!onlinePredictor.predict(cell)) {
+            onlineMovePending = true;
+        }
+        try {
+            onlineMatch.getClient().sendMove(ply, cell);
+        } catch (IOException e) {
+            onlineMovePending = false;
+            endOnlineGame("Lost connection to the server: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Asks the server to take back the local player's last move, which it
+     * allows while the opponent has not replied.
+     */
+    private void requestOnlineUndo() {
+        if (onlineMatch.isSpectator() || onlineMovePending || onlinePredictor.isPending() || gameEngine.isGameOver()
+                || moveJournal.getPly() == 0 || !isRemoteTurn()) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            return;
+        }
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        onlineMovePending = true;
+        try {
+            onlineMatch.getClient().requestUndo((int) moveJournal.getPly());
+        } catch (IOException e) {
+            onlineMovePending = false;
+            endOnlineGame("Lost connection to the server: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reconciles the board with a move or undo the server accepted: the
+     * predicted move is confirmed, or taken back if the server did
+     * something else first, and the server's cells are written over the
+     * board, which leaves it untouched unless the two disagree.
+     * @param ply Moves played once the batch is applied
+     * @param cell Cell played or taken back
+     * @param undo Whether the batch takes back a move
+     * @param batch The server's cells
+     */
+    private void applyOnlineDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+        if (gameEngine.isGameOver()) {
+            return;
+        }
+        MovePredictor.Outcome outcome;
+        try {
+            outcome = onlinePredictor.onDelta(ply, cell, undo, batch);
+        } catch (RuntimeException e) {
+            endOnlineGame("The server sent an invalid board: " + e.getMessage());
+            return;
+        }
+        if (outcome == MovePredictor.Outcome.IGNORED) {
+            return;
+        }
+        onlineMovePending = false;
+        if (outcome == MovePredictor.Outcome.ROLLED_BACK) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            System.err.println("Server played another move first; predicted move taken back");
+        }
+        if (onlinePredictor.getCorrectedCells() > 0) {
+            System.err.println("Board differed from the server's in " + onlinePredictor.getCorrectedCells() + " cells");
+        }
+        if (outcome == MovePredictor.Outcome.CONFIRMED && onlinePredictor.getCorrectedCells() == 0) {
+            return;
+        }
+        positionVersion++;
+        if (gameEngine.isGameOver()) {
+            return;
+        }
+        syncGridWithEngine();
+        updateDisplay();
+        updateUndoRedoButtons();
+    }
+    
+    /**
+     * Checks the board against a keyframe of the server's and takes the
+     * server's board if they differ.
+     * @param ply Moves played at the keyframe
+     * @param keyframe The server's board
+     */
+    private void checkOnlineKeyframe(int ply, ByteBuffer keyframe) {
+        if (gameEngine.isGameOver()) {
+            return;
+        }
+        try {
+            int corrected = onlinePredictor.onKeyframe(ply, keyframe);
+            if (corrected == 0) {
+                return;
+            }
+            System.err.println("Board out of sync with the server at move " + ply + ", " + corrected + " cells reset");
+        } catch (RuntimeException e) {
+            endOnlineGame("The server sent an invalid board: " + e.getMessage());
+            return;
+        }
+        positionVersion++;
+        syncGridWithEngine();
+        updateDisplay();
+    }
+    
+    /**
+     * Ends an online game that cannot go on and returns to the menu.
+     * @param message Reason shown to the player
+     */
+    private void endOnlineGame(String message) {
+        if (gameEngine.isGameOver() || !isDisplayable()) {
+            return;
+        }
+        shutdownBots();
+        gameTimer.stop();
+        SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+        com.mycompany.javagrid4.ui.dialogs.SimpleDialog.showMessageDialog(this, message, "Online Game");
+        propertyChangeSupport.firePropertyChange("backToMenu", null, null);
+    }
+    
+    /**
+     * Replaces the game controls of a local game with those that make
+     * sense online: only the way back to the menu stays.
+     */
+    private void setupOnlineControls() {
+        titleLabel.setText("Online · Game " + onlineMatch.getGameId());
+        controlPanel.removeAll();
+        controlPanel.add(menuCard);
+        historyPanel.setVisible(false);
+    }
+    
+    /**
+     * Plays the server's messages on the event dispatch thread.
+     */
+    private final class OnlineListener implements GameClient.Listener {
+        @Override
+        public void onDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+            ByteBuffer copy = copyOf(batch);
+            SwingUtilities.invokeLater(() -> applyOnlineDelta(ply, cell, undo, copy));
+        }
+        
+        @Override
+        public void onKeyframe(int ply, ByteBuffer keyframe) {
+            ByteBuffer copy = copyOf(keyframe);
+            SwingUtilities.invokeLater(() -> checkOnlineKeyframe(ply, copy));
+        }
+        
+        /** Copies a message out of the client's read buffer. */
+        private ByteBuffer copyOf(ByteBuffer payload) {
+            ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+            copy.put(payload).flip();
+            return copy;
+        }
+        
+        @Override
+        public void onRejected(int ply, int reason) {
+            SwingUtilities.invokeLater(() -> {
+                onlineMovePending = false;
+                SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+                System.err.println("Server turned down request at move " + ply + ": " + NetProtocol.describe(reason));
+                if (!gameEngine.isGameOver() && onlinePredictor.onRejected(ply)) {
+                    positionVersion++;
+                    syncGridWithEngine();
+                    updateDisplay();
+                    updateUndoRedoButtons();
+                }
+            });
+        }
+        
+        @Override
+        public void onOpponentLeft() {
+            SwingUtilities.invokeLater(() -> endOnlineGame("Your opponent left the game."));
+        }
+        
+        @Override
+        public void onDisconnected(IOException cause) {
+            SwingUtilities.invokeLater(() -> endOnlineGame("Lost connection to the server: " + cause.getMessage()));
         }
     }
     
@@ -722,12 +1275,44 @@ public class GamePanel extends JPanel {
             currentPlayerLabel.setText("Current: " + player2Name);
             currentPlayerLabel.setForeground(player2Color);
         }
+        
+        updateExplorer();
+    }
+    
+    /**
+     * Looks up the position on the board in the position index and shows
+     * its archive statistics in the explorer card.
+     */
+    private void updateExplorer() {
+        if (!explorerPanel.isVisible()) {
+            return;
+        }
+        CompactBoard board = CompactBoard.fromEngine(gameEngine);
+        explorerPanel.showPosition(positionIndex.probe(board), board.getSize(), positionIndex.getGameCount());
+    }
+    
+    /**
+     * Handles the explorer shortcut: shows or hides the explorer card.
+     */
+    private void toggleExplorer() {
+        if (positionIndex.getPositionCount() == 0) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            return;
+        }
+        explorerPanel.setVisible(!explorerPanel.isVisible());
+        updateExplorer();
+        revalidate();
     }
     
     /**
      * Handles game end scenario - shows overlay then transitions to results screen.
      */
     private void handleGameEnd() {
+        shutdownBots();
+        if (writeAheadLog != null) {
+            writeAheadLog.discard();
+        }
+        
         // Stop the timer and get elapsed time
         gameTimer.stop();
         int elapsedSeconds = gameTimer.getElapsedSeconds();
@@ -738,6 +1323,8 @@ public class GamePanel extends JPanel {
         Player winner = gameEngine.getGameState().getWinner();
         int player1Score = gameEngine.getScore(Player.PLAYER_ONE);
         int player2Score = gameEngine.getScore(Player.PLAYER_TWO);
+        Replay replay = saveReplay(elapsedSeconds);
+        int moveCount = (int) moveJournal.getPly();
         
         // Create game over overlay with 2 second display time
         GameOverOverlay overlay = new GameOverOverlay(
@@ -750,7 +1337,7 @@ public class GamePanel extends JPanel {
             config.getPlayer2().getColor(),
             () -> {
                 // After overlay completes, transition to results with elapsed time
-                Object[] results = new Object[] { config, winner, player1Score, player2Score, elapsedSeconds };
+                Object[] results = new Object[] { config, winner, player1Score, player2Score, elapsedSeconds, replay, moveCount };
                 propertyChangeSupport.firePropertyChange("gameEnded", null, results);
             }
         );
@@ -764,6 +1351,82 @@ public class GamePanel extends JPanel {
         overlay.start();
     }
     
+    /**
+     * Records the finished game and writes it to the replay directory in
+     * the background.
+     * @param elapsedSeconds Game duration
+     * @return Replay of the game, or null if it could not be recorded
+     */
+    private Replay saveReplay(int elapsedSeconds) {
+        if (moveJournal.getFirstPly() > 0) {
+            System.err.println("Could not record replay: the start of the game was dropped from the history");
+            return null;
+        }
+        int[] moves = new int[(int) moveJournal.getPly()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = moveJournal.getMove(ply);
+        }
+        Replay replay;
+        try {
+            replay = Replay.record(config, moves, moves.length, gameStartMillis, elapsedSeconds);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Could not record replay: " + e.getMessage());
+            return null;
+        }
+        Thread writer = new Thread(() -> {
+            try {
+                replay.save(Replay.getDefaultDirectory());
+            } catch (IOException e) {
+                System.err.println("Could not save replay: " + e.getMessage());
+            }
+        }, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return replay;
+    }
+    
+    /**
+     * Replaces the game controls with the replay timeline.
+     */
+    private void setupReplayControls() {
+        titleLabel.setText("Replay");
+        gameTimer.setVisible(false);
+        
+        int length = replayPlayer.getLength();
+        replaySlider = new JSlider(0, length, length);
+        replaySlider.setOpaque(false);
+        replaySlider.setPreferredSize(new Dimension(420, 40));
+        replaySlider.setMajorTickSpacing(Math.max(1, replayPlayer.getReplay().getCheckpointInterval()));
+        replaySlider.setPaintTicks(true);
+        replaySlider.addChangeListener(e -> showReplayPosition(replaySlider.getValue()));
+        
+        replayMoveLabel = new JLabel();
+        replayMoveLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        replayMoveLabel.setForeground(new Color(80, 80, 100));
+        
+        historyPanel.setVisible(false);
+        controlPanel.removeAll();
+        controlPanel.add(replaySlider);
+        controlPanel.add(replayMoveLabel);
+        controlPanel.add(menuCard);
+        controlPanel.revalidate();
+    }
+    
+    /**
+     * Shows the replay position after a number of moves.
+     * @param moveNumber Move number (0 = empty board)
+     */
+    private void showReplayPosition(int moveNumber) {
+        replayPlayer.seek(moveNumber);
+        replayPlayer.getBoard().copyTo(gameEngine);
+        syncGridWithEngine();
+        updateDisplay();
+        replayMoveLabel.setText(String.format("Move %d / %d", moveNumber, replayPlayer.getLength()));
+        if (replaySlider.getValue() != moveNumber) {
+            replaySlider.setValue(moveNumber);
+        }
+    }
+    
     /**
      * Sets up keyboard shortcuts for game controls.
      */
@@ -799,6 +1462,15 @@ public class GamePanel extends JPanel {
             }
         });
         
+        // Ctrl+S - Save game
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK), "saveGame");
+        actionMap.put("saveGame", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleSave();
+            }
+        });
+        
         // Ctrl+Z - Undo
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
         actionMap.put("undo", new AbstractAction() {
@@ -817,6 +1489,31 @@ public class GamePanel extends JPanel {
             }
         });
         
+        // Alt+Left / Alt+Right - Switch line
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, InputEvent.ALT_DOWN_MASK), "previousLine");
+        actionMap.put("previousLine", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleVariation(-1);
+            }
+        });
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, InputEvent.ALT_DOWN_MASK), "nextLine");
+        actionMap.put("nextLine", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleVariation(1);
+            }
+        });
+        
+        // E - Show/hide explorer
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_E, 0), "explorer");
+        actionMap.put("explorer", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                toggleExplorer();
+            }
+        });
+        
         // F1 - Help Dialog
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_F1, 0), "help");
         actionMap.put("help", new AbstractAction() {
@@ -832,9 +1529,13 @@ public class GamePanel extends JPanel {
      * Shows confirmation dialog before restarting.
      */
     private void handleRestart() {
-        if (isPaused) {
+        if (replayPlayer != null) {
+            showReplayPosition(0);
+            return;
+        }
+        if (isPaused || onlineMatch != null) {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
-            return; // Don't allow restart while paused
+            return; // Don't allow restart while paused or online
         }
         
         SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
@@ -849,13 +1550,63 @@ public class GamePanel extends JPanel {
         
         if (choice == JOptionPane.YES_OPTION) {
             gameEngine.resetBoard();
-            commandHistory.clear(); // Clear undo/redo history
+            moveJournal.clear(); // Clear undo/redo history
+            if (writeAheadLog != null) {
+                writeAheadLog.logRestart();
+            }
             gameTimer.reset();
             gameStarted = false;
+            positionVersion++;
             syncGridWithEngine();
             updateDisplay();
             updateUndoRedoButtons();
+            startBotTurnIfNeeded();
+        }
+    }
+    
+    /**
+     * Handles save button/shortcut. The game is captured when the button is
+     * pressed; the file is written in the background.
+     */
+    private void handleSave() {
+        if (replayPlayer != null || onlineMatch != null || gameEngine.isGameOver()) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            return;
+        }
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        
+        SavedGame saved = SavedGame.capture(config, gameEngine, moveJournal,
+            gameStarted ? gameStartMillis : System.currentTimeMillis(), gameTimer.getElapsedSeconds());
+        Path directory = SavedGame.getDefaultDirectory();
+        JFileChooser chooser = new JFileChooser(directory.toFile());
+        chooser.setDialogTitle("Save Game");
+        chooser.setFileFilter(new FileNameExtensionFilter("JavaGrid4 saved games", SavedGame.EXTENSION.substring(1)));
+        chooser.setSelectedFile(saved.suggestFile(directory).toFile());
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        Path chosen = chooser.getSelectedFile().toPath();
+        Path file = chosen.getFileName().toString().endsWith(SavedGame.EXTENSION)
+            ? chosen : chosen.resolveSibling(chosen.getFileName() + SavedGame.EXTENSION);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                saved.save(file);
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    com.mycompany.javagrid4.ui.dialogs.SimpleDialog.showMessageDialog(
+                        GamePanel.this, "Could not save game: " + cause.getMessage(), "Save Game");
+                }
+            }
+        }.execute();
     }
     
     /**
@@ -863,22 +1614,30 @@ public class GamePanel extends JPanel {
      * Undoes the last move if available.
      */
     private void handleUndo() {
+        if (replayPlayer != null) {
+            showReplayPosition(Math.max(0, replayPlayer.getPosition() - 1));
+            return;
+        }
+        if (onlineMatch != null) {
+            requestOnlineUndo();
+            return;
+        }
         if (isPaused || gameEngine.isGameOver()) {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
-            return; // Can't undo while paused or game over
+            return; // Can't undo while paused, online or game over
         }
         
-        if (commandHistory.undo()) {
+        if (moveJournal.canUndo()) {
             // Play button sound
             SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
             
-            // Switch player back
-            gameEngine.getGameState().switchPlayer();
-            
-            // Update display
-            syncGridWithEngine();
-            updateDisplay();
-            updateUndoRedoButtons();
+            // Against a bot, go back past its replies to a human's turn, in one jump
+            long target = moveJournal.getPly() - 1;
+            while (target > moveJournal.getFirstPly() && isBotToMoveAt(target)) {
+                target--;
+            }
+            showHistoryPly(target);
+            startBotTurnIfNeeded();
         } else {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
         }
@@ -889,33 +1648,115 @@ public class GamePanel extends JPanel {
      * Redoes the last undone move if available.
      */
     private void handleRedo() {
-        if (isPaused || gameEngine.isGameOver()) {
+        if (replayPlayer != null) {
+            showReplayPosition(Math.min(replayPlayer.getLength(), replayPlayer.getPosition() + 1));
+            return;
+        }
+        if (isPaused || onlineMatch != null || gameEngine.isGameOver()) {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
-            return; // Can't redo while paused or game over
+            return; // Can't redo while paused, online or game over
         }
         
-        if (commandHistory.redo()) {
+        if (moveJournal.canRedo()) {
             // Play button sound
             SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
             
-            // Switch player forward
-            gameEngine.getGameState().switchPlayer();
-            
-            // Update display
-            syncGridWithEngine();
-            updateDisplay();
-            updateUndoRedoButtons();
+            // Against a bot, also redo its replies up to the next human turn, in one jump
+            long target = moveJournal.getPly() + 1;
+            while (target < moveJournal.getLastPly() && isBotToMoveAt(target)) {
+                target++;
+            }
+            showHistoryPly(target);
+            startBotTurnIfNeeded();
         } else {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
         }
     }
     
+    /**
+     * Handles a move of the history slider. While dragging, the board
+     * follows the slider; on release it settles on a human's turn and any
+     * bot to move starts thinking.
+     * @param ply Slider position
+     * @param adjusting true while the slider is being dragged
+     */
+    private void handleHistorySeek(long ply, boolean adjusting) {
+        if (isPaused || gameEngine.isGameOver()) {
+            return;
+        }
+        if (!adjusting) {
+            while (ply > moveJournal.getFirstPly() && isBotToMoveAt(ply)) {
+                ply--;
+            }
+        }
+        showHistoryPly(ply);
+        if (!adjusting) {
+            startBotTurnIfNeeded();
+        }
+    }
+    
+    /**
+     * Handles the line arrows/shortcuts. Replaces the last human move with
+     * another move tried in the same position and follows that line up to
+     * the next human turn.
+     * @param offset 1 for the next line, -1 for the previous one
+     */
+    private void handleVariation(int offset) {
+        long ply = variationPly();
+        if (replayPlayer != null || onlineMatch != null || isPaused || gameEngine.isGameOver()
+                || moveJournal.getVariationCount(ply) < 2) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            return;
+        }
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        moveJournal.jumpTo(ply);
+        moveJournal.switchVariation(offset);
+        if (writeAheadLog != null) {
+            writeAheadLog.logJump(ply);
+            writeAheadLog.logVariation(offset);
+        }
+        long target = ply;
+        while (target < moveJournal.getLastPly() && isBotToMoveAt(target)) {
+            target++;
+        }
+        showHistoryPly(target);
+        startBotTurnIfNeeded();
+    }
+    
+    /**
+     * Gets the ply after the last move a human made, stepping back over bot
+     * replies, which is where the line arrows switch variations.
+     * @return Ply of the current line
+     */
+    private long variationPly() {
+        long ply = moveJournal.getPly();
+        while (ply > moveJournal.getFirstPly() + 1 && isBotToMoveAt(ply - 1)) {
+            ply--;
+        }
+        return ply;
+    }
+    
+    /**
+     * Moves the game to a ply of the history and refreshes the board once.
+     * @param ply Ply in the move journal
+     */
+    private void showHistoryPly(long ply) {
+        moveJournal.jumpTo(ply);
+        if (writeAheadLog != null) {
+            writeAheadLog.logJump(ply);
+        }
+        positionVersion++;
+        syncGridWithEngine();
+        updateDisplay();
+        updateUndoRedoButtons();
+    }
+    
     /**
      * Updates the enabled state of undo/redo buttons.
      */
     private void updateUndoRedoButtons() {
-        boolean canUndo = commandHistory.canUndo() && !gameEngine.isGameOver();
-        boolean canRedo = commandHistory.canRedo() && !gameEngine.isGameOver();
+        boolean canUndo = moveJournal.canUndo() && !gameEngine.isGameOver();
+        boolean canRedo = moveJournal.canRedo() && !gameEngine.isGameOver();
         
         // Update Material Design cards
         undoCard.setEnabled(canUndo);
@@ -924,6 +1765,24 @@ public class GamePanel extends JPanel {
         // Update legacy buttons (kept for compatibility)
         undoButton.setEnabled(canUndo);
         redoButton.setEnabled(canRedo);
+        
+        // Keep the history slider in step without triggering a jump
+        int ply = (int) moveJournal.getPly();
+        int last = (int) moveJournal.getLastPly();
+        syncingHistorySlider = true;
+        historySlider.getModel().setRangeProperties(ply, 0, (int) moveJournal.getFirstPly(), last,
+            historySlider.getValueIsAdjusting());
+        syncingHistorySlider = false;
+        historySlider.setEnabled((canUndo || canRedo) && !isPaused && hasHumanPlayer());
+        
+        long variationPly = variationPly();
+        int lines = gameEngine.isGameOver() ? 0 : moveJournal.getVariationCount(variationPly);
+        previousLineButton.setVisible(lines > 1);
+        nextLineButton.setVisible(lines > 1);
+        historyMoveLabel.setText(lines > 1
+            ? String.format("Move %d / %d  ·  Line %d of %d", ply, last,
+                moveJournal.getVariationIndex(variationPly) + 1, lines)
+            : String.format("Move %d / %d", ply, last));
     }
     
     /**
@@ -931,13 +1790,14 @@ public class GamePanel extends JPanel {
      * Toggles game pause state.
      */
     private void handlePause() {
-        if (gameEngine.isGameOver()) {
+        if (replayPlayer != null || onlineMatch != null || gameEngine.isGameOver()) {
             SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
-            return; // Can't pause if game is over
+            return; // Can't pause if game is over or the opponent is remote
         }
         
         SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
         isPaused = !isPaused;
+        updateUndoRedoButtons();
         
         if (isPaused) {
             gameTimer.pause();
@@ -983,6 +1843,9 @@ public class GamePanel extends JPanel {
                     gridCells[row][col].setEnabled(true);
                 }
             }
+            
+            // A bot move dropped while paused is recomputed
+            startBotTurnIfNeeded();
         }
         
         repaint();
@@ -1010,8 +1873,9 @@ public class GamePanel extends JPanel {
     private void handleBackToMenu() {
         SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
         
-        if (gameEngine.isGameOver()) {
-            // If game is over, just go back without confirmation
+        if (replayPlayer != null || gameEngine.isGameOver()) {
+            // If game is over or only replayed, just go back without confirmation
+            shutdownBots();
             propertyChangeSupport.firePropertyChange("backToMenu", null, null);
             return;
         }
@@ -1025,6 +1889,10 @@ public class GamePanel extends JPanel {
         );
         
         if (choice == JOptionPane.YES_OPTION) {
+            shutdownBots();
+            if (writeAheadLog != null) {
+                writeAheadLog.discard();
+            }
             propertyChangeSupport.firePropertyChange("backToMenu", null, null);
         }
     }
@@ -1,11 +1,23 @@
 package com.mycompany.javagrid4;
 
+import com.mycompany.javagrid4.history.MatchHistory;
+import com.mycompany.javagrid4.history.MatchRecord;
+import com.mycompany.javagrid4.history.PlayerProfiles;
 import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.net.OnlineMatch;
+import com.mycompany.javagrid4.replay.Replay;
+import com.mycompany.javagrid4.session.RecoveredGame;
+import com.mycompany.javagrid4.session.SavedGame;
+import com.mycompany.javagrid4.session.WriteAheadLog;
+import com.mycompany.javagrid4.ui.dialogs.SimpleDialog;
 import com.mycompany.javagrid4.ui.screens.MenuPanel;
 import com.mycompany.javagrid4.ui.screens.ResultsPanel;
 import com.mycompany.javagrid4.ui.transitions.FadeTransition;
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Entry point for JavaGrid4 - A two-player strategy grid game.
@@ -16,6 +28,11 @@ import java.awt.*;
  * 
  * Features smooth fade transitions between screens.
  * 
+ * On startup, a game left unfinished by a crash is offered for resuming
+ * from its write-ahead log. Every finished game is added to the match
+ * history and rated, and the menu and results screens show lifetime
+ * statistics, ratings and a leaderboard from them.
+ * 
  * @author JavaGrid4 Team
  * @version 1.0
  */
@@ -32,6 +49,8 @@ public class JavaGrid4 extends JFrame {
     private MenuPanel menuPanel;
     private GamePanel gamePanel;
     private ResultsPanel resultsPanel;
+    private MatchHistory matchHistory;
+    private PlayerProfiles playerProfiles;
     
     /**
      * Main entry point - launches the JavaGrid4 game window.
@@ -77,6 +96,90 @@ public class JavaGrid4 extends JFrame {
         // Start on menu screen (no fade on first show)
         cardLayout.show(mainContainer, MENU_SCREEN);
         setTitle("JavaGrid4 - Menu");
+        
+        offerRecovery();
+        openMatchHistory();
+    }
+    
+    /**
+     * Reads the match history and player ratings in the background and
+     * hands them to the menu and results screens. Games finished before
+     * they are open are not stored.
+     */
+    private void openMatchHistory() {
+        new SwingWorker<PlayerProfiles, Void>() {
+            private MatchHistory history;
+            
+            @Override
+            protected PlayerProfiles doInBackground() throws IOException {
+                history = MatchHistory.open();
+                return PlayerProfiles.open(MatchHistory.getDefaultDirectory(), history);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    playerProfiles = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Could not open the match history: " + e.getMessage());
+                    return;
+                }
+                matchHistory = history;
+                // Let queued results reach the disk when the window is closed
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    matchHistory.close();
+                    playerProfiles.close();
+                }, "javagrid4-history-close"));
+                menuPanel.setMatchHistory(matchHistory);
+                menuPanel.setPlayerProfiles(playerProfiles);
+                resultsPanel.setMatchHistory(matchHistory);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Looks for a game left unfinished by a crash in the background and, if
+     * there is one, asks whether to resume it.
+     */
+    private void offerRecovery() {
+        new SwingWorker<RecoveredGame, Void>() {
+            @Override
+            protected RecoveredGame doInBackground() throws IOException {
+                return WriteAheadLog.recover(WriteAheadLog.getDefaultDirectory());
+            }
+            
+            @Override
+            protected void done() {
+                RecoveredGame recovered;
+                try {
+                    recovered = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Could not look for an unfinished game: " + e.getMessage());
+                    return;
+                }
+                if (recovered == null) {
+                    return;
+                }
+                int choice = SimpleDialog.showConfirmDialog(
+                    JavaGrid4.this,
+                    "The last game (" + recovered.getName(Player.PLAYER_ONE) + " vs "
+                        + recovered.getName(Player.PLAYER_TWO) + ", move " + recovered.getPly()
+                        + ") did not finish. Resume it?",
+                    "Resume Game",
+                    "Resume",
+                    "Discard"
+                );
+                if (choice == JOptionPane.YES_OPTION) {
+                    showGamePanel(() -> new GamePanel(recovered), "JavaGrid4 - Game in Progress");
+                } else {
+                    try {
+                        recovered.discard();
+                    } catch (IOException e) {
+                        System.err.println("Could not delete " + recovered.getFile() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }.execute();
     }
     
     /**
@@ -105,6 +208,24 @@ public class JavaGrid4 extends JFrame {
             startNewGame(config);
         });
         
+        // Listen for "watchReplay" event from MenuPanel (saved replays)
+        menuPanel.addPropertyChangeListener("watchReplay", evt -> {
+            Replay replay = (Replay) evt.getNewValue();
+            showGamePanel(() -> new GamePanel(replay), "JavaGrid4 - Replay");
+        });
+        
+        // Listen for "loadGame" event from MenuPanel (saved games)
+        menuPanel.addPropertyChangeListener("loadGame", evt -> {
+            SavedGame saved = (SavedGame) evt.getNewValue();
+            showGamePanel(() -> new GamePanel(saved), "JavaGrid4 - Game in Progress");
+        });
+        
+        // Listen for "playOnline" event from MenuPanel (game started on a server)
+        menuPanel.addPropertyChangeListener("playOnline", evt -> {
+            OnlineMatch match = (OnlineMatch) evt.getNewValue();
+            showGamePanel(() -> new GamePanel(match), "JavaGrid4 - Online Game");
+        });
+        
         // Listen for "playAgain" event from ResultsPanel
         resultsPanel.addPropertyChangeListener("playAgain", evt -> {
             GameConfig config = (GameConfig) evt.getNewValue();
@@ -115,6 +236,12 @@ public class JavaGrid4 extends JFrame {
         resultsPanel.addPropertyChangeListener("backToMenu", evt -> {
             showMenuScreen();
         });
+        
+        // Listen for "watchReplay" event from ResultsPanel
+        resultsPanel.addPropertyChangeListener("watchReplay", evt -> {
+            Replay replay = (Replay) evt.getNewValue();
+            showGamePanel(() -> new GamePanel(replay), "JavaGrid4 - Replay");
+        });
     }
     
     /**
@@ -122,6 +249,7 @@ public class JavaGrid4 extends JFrame {
      */
     private void showMenuScreen() {
         fadeTransition.fadeTransition(() -> {
+            menuPanel.updateMatchStats();
             cardLayout.show(mainContainer, MENU_SCREEN);
             setTitle("JavaGrid4 - Menu");
         }, null);
@@ -132,14 +260,24 @@ public class JavaGrid4 extends JFrame {
      * @param config Game configuration from menu
      */
     private void startNewGame(GameConfig config) {
+        showGamePanel(() -> new GamePanel(config), "JavaGrid4 - Game in Progress");
+    }
+    
+    /**
+     * Replaces the game screen with a new game panel and shows it.
+     * @param factory Creates the panel (called during the transition)
+     * @param title Window title for the game screen
+     */
+    private void showGamePanel(Supplier<GamePanel> factory, String title) {
         fadeTransition.fadeTransition(() -> {
             // Create new game panel with configuration
-            gamePanel = new GamePanel(config);
+            gamePanel = factory.get();
             
             // Remove old game panel if exists
             Component[] components = mainContainer.getComponents();
             for (Component comp : components) {
                 if (comp instanceof GamePanel) {
+                    ((GamePanel) comp).shutdownBots();
                     mainContainer.remove(comp);
                 }
             }
@@ -150,8 +288,11 @@ public class JavaGrid4 extends JFrame {
             // Listen for game end event
             gamePanel.addPropertyChangeListener("gameEnded", evt -> {
                 Object[] results = (Object[]) evt.getNewValue();
+                recordMatch((GameConfig) results[0], (Integer) results[2], (Integer) results[3],
+                            (Integer) results[4], (Integer) results[6]);
                 showResults((GameConfig) results[0], (Player) results[1], 
-                           (Integer) results[2], (Integer) results[3], (Integer) results[4]);
+                           (Integer) results[2], (Integer) results[3], (Integer) results[4],
+                           (Replay) results[5]);
             });
             
             // Listen for back to menu event from game
@@ -161,10 +302,32 @@ public class JavaGrid4 extends JFrame {
             
             // Switch to game screen
             cardLayout.show(mainContainer, GAME_SCREEN);
-            setTitle("JavaGrid4 - Game in Progress");
+            setTitle(title);
         }, null);
     }
     
+    /**
+     * Adds a finished game to the match history and rates it, if the
+     * history is open.
+     * @param config Game configuration
+     * @param player1Score Player 1's final score
+     * @param player2Score Player 2's final score
+     * @param elapsedSeconds Game duration in seconds
+     * @param moveCount Moves played
+     */
+    private void recordMatch(GameConfig config, int player1Score, int player2Score,
+                             int elapsedSeconds, int moveCount) {
+        if (matchHistory == null) {
+            return;
+        }
+        MatchRecord match = new MatchRecord(System.currentTimeMillis(), config.getBoardSize(),
+            config.getPlayer1().getName(), config.getPlayer1().getColor().getRGB(), player1Score,
+            config.getPlayer2().getName(), config.getPlayer2().getColor().getRGB(), player2Score,
+            elapsedSeconds, moveCount);
+        matchHistory.append(match);
+        playerProfiles.record(match);
+    }
+    
     /**
      * Shows results screen with game outcome.
      * @param config Game configuration
@@ -172,10 +335,13 @@ public class JavaGrid4 extends JFrame {
      * @param player1Score Player 1's final score
      * @param player2Score Player 2's final score
      * @param elapsedSeconds Game duration in seconds
+     * @param replay Recorded game (or null if it could not be recorded)
      */
-    private void showResults(GameConfig config, Player winner, int player1Score, int player2Score, int elapsedSeconds) {
+    private void showResults(GameConfig config, Player winner, int player1Score, int player2Score,
+                             int elapsedSeconds, Replay replay) {
         fadeTransition.fadeTransition(() -> {
             resultsPanel.setResults(config, winner, player1Score, player2Score, elapsedSeconds);
+            resultsPanel.setReplay(replay);
             cardLayout.show(mainContainer, RESULTS_SCREEN);
             setTitle("JavaGrid4 - Results");
         }, null);
@@ -0,0 +1,114 @@
+package com.mycompany.javagrid4;
+
+import com.mycompany.javagrid4.ai.OpeningBookBuilder;
+import com.mycompany.javagrid4.archive.ArchiveTool;
+import com.mycompany.javagrid4.archive.PositionIndexBuilder;
+import com.mycompany.javagrid4.bots.BotRegistry;
+import com.mycompany.javagrid4.net.BlockingGameServer;
+import com.mycompany.javagrid4.net.GameServer;
+import com.mycompany.javagrid4.net.MatchmakerBenchmark;
+import com.mycompany.javagrid4.net.ReconciliationHarness;
+import com.mycompany.javagrid4.net.ServerBenchmark;
+import com.mycompany.javagrid4.protocol.EngineServer;
+import com.mycompany.javagrid4.tournament.TournamentRunner;
+import com.mycompany.javagrid4.tuning.DatasetTool;
+import com.mycompany.javagrid4.tuning.EvalTuner;
+
+import java.util.Arrays;
+
+/**
+ * Application entry point that chooses between the game window and the
+ * command-line tools.
+ *
+ * Without arguments the Swing game starts as before. With
+ * {@code --headless} the JVM runs with {@code java.awt.headless=true} and
+ * dispatches to a tool; nothing on that path touches Swing, AWT or
+ * javax.sound, so the tools start as fast as a plain JVM program and run
+ * on machines without a display or audio device.
+ *
+ * Usage:
+ * <pre>
+ * java -jar JavaGrid4.jar                                   start the game
+ * java -jar JavaGrid4.jar --headless engine [options]       engine protocol server
+ * java -jar JavaGrid4.jar --headless tournament [options]   bot-vs-bot match
+ * java -jar JavaGrid4.jar --headless tune [options]         evaluation tuner
+ * java -jar JavaGrid4.jar --headless book [options]         opening book builder
+ * java -jar JavaGrid4.jar --headless dataset [options]      self-play dataset writer/reader
+ * java -jar JavaGrid4.jar --headless archive [options]      game record import/export
+ * java -jar JavaGrid4.jar --headless index [options]        position index builder
+ * java -jar JavaGrid4.jar --headless server [options]       online game server
+ * java -jar JavaGrid4.jar --headless blocking-server [opts] online game server, thread per connection
+ * java -jar JavaGrid4.jar --headless netbench [options]     online game server load test
+ * java -jar JavaGrid4.jar --headless matchbench [options]   matchmaking queue load test
+ * java -jar JavaGrid4.jar --headless reconcile [options]    move prediction check over a slow link
+ * java -jar JavaGrid4.jar --headless bots                   list plugin bots
+ * </pre>
+ *
+ * This class must not reference any UI class other than through
+ * {@link #startGame(String[])}, which is only reached without --headless.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Launcher {
+
+    private Launcher() {
+    }
+
+    /**
+     * Main entry point.
+     * @param args --headless TOOL [tool options], or nothing for the game window
+     * @throws Exception if a tool fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !"--headless".equals(args[0])) {
+            startGame(args);
+            return;
+        }
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            printUsage();
+            System.exit(2);
+        }
+        String[] toolArgs = Arrays.copyOfRange(args, 2, args.length);
+        switch (args[1]) {
+            case "engine": EngineServer.main(toolArgs); break;
+            case "tournament": TournamentRunner.main(toolArgs); break;
+            case "tune": EvalTuner.main(toolArgs); break;
+            case "book": OpeningBookBuilder.main(toolArgs); break;
+            case "dataset": DatasetTool.main(toolArgs); break;
+            case "archive": ArchiveTool.main(toolArgs); break;
+            case "index": PositionIndexBuilder.main(toolArgs); break;
+            case "server": GameServer.main(toolArgs); break;
+            case "blocking-server": BlockingGameServer.main(toolArgs); break;
+            case "netbench": ServerBenchmark.main(toolArgs); break;
+            case "matchbench": MatchmakerBenchmark.main(toolArgs); break;
+            case "reconcile": ReconciliationHarness.main(toolArgs); break;
+            case "bots": listBots(); break;
+            default:
+                System.err.println("Unknown tool: " + args[1]);
+                printUsage();
+                System.exit(2);
+        }
+    }
+
+    /**
+     * Starts the Swing game. Kept separate so the UI classes are only
+     * loaded when this method actually runs.
+     */
+    private static void startGame(String[] args) {
+        JavaGrid4.main(args);
+    }
+
+    private static void listBots() {
+        System.out.println("search (built-in)");
+        System.out.println("engine (built-in, external process or socket)");
+        for (String id : BotRegistry.getDefault().getIds()) {
+            System.out.println(id);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: --headless engine|tournament|tune|book|dataset|archive|index|server|blocking-server|netbench|matchbench|reconcile|bots [options]");
+    }
+}
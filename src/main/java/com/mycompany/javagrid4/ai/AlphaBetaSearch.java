@@ -0,0 +1,306 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Iterative-deepening principal variation search (negamax with alpha-beta
+ * pruning) with a small transposition table and history move ordering.
+ * Scores are in hundredths of a point from the side to move's point of
+ * view; leaves are scored by an {@link Evaluator}.
+ *
+ * Once few live cells and few plies remain, an {@link EndgameSolver}
+ * replaces the heuristic search: at the root it picks the provably best
+ * move, and inside a deep enough tree it returns exact values for late
+ * subtrees.
+ *
+ * An instance is not thread-safe; give each thread its own search.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class AlphaBetaSearch {
+
+    /** Score units per board point. */
+    public static final int POINT = 100;
+
+    /** Default live-cell count at or below which the endgame solver takes over. */
+    public static final int DEFAULT_ENDGAME_CELLS = 12;
+
+    /**
+     * Most plies the endgame solver may face. Few live cells can still mean a
+     * long game when they hold low values, and those trees explode.
+     */
+    public static final int ENDGAME_MAX_PLIES = 20;
+
+    private static final int INFINITY = 1_000_000;
+    private static final int MAX_PLY = CompactBoard.MAX_CELLS * CompactBoard.MAX_VALUE + 1;
+    private static final int TT_BITS = 18;
+    private static final int TT_MASK = (1 << TT_BITS) - 1;
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+
+    private final int[][] moveBuffers = new int[MAX_PLY][CompactBoard.MAX_CELLS];
+    private final int[][] orderKeys = new int[MAX_PLY][CompactBoard.MAX_CELLS];
+    private final long[] ttKeys = new long[1 << TT_BITS];
+    private final long[] ttData = new long[1 << TT_BITS];
+    private final int[] history = new int[CompactBoard.MAX_CELLS];
+    private final Evaluator evaluator;
+    private final EndgameSolver solver = new EndgameSolver();
+    private int endgameCells = DEFAULT_ENDGAME_CELLS;
+
+    private volatile boolean stopRequested;
+    private long deadline;
+    private long nodes;
+    private boolean aborted;
+    private int rootBestMove;
+
+    /**
+     * Creates a search using the default pattern evaluator.
+     */
+    public AlphaBetaSearch() {
+        this(new PatternEvaluator());
+    }
+
+    /**
+     * Creates a search with a specific leaf evaluator.
+     * @param evaluator Static evaluator
+     */
+    public AlphaBetaSearch(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Sets the live-cell count at or below which positions are solved exactly,
+     * provided at most {@link #ENDGAME_MAX_PLIES} plies can remain.
+     * @param cells Threshold, or 0 to disable the endgame solver
+     */
+    public void setEndgameCells(int cells) {
+        if (cells < 0) {
+            throw new IllegalArgumentException("Endgame threshold must not be negative: " + cells);
+        }
+        this.endgameCells = cells;
+    }
+
+    /**
+     * Gets the live-cell count at or below which positions are solved exactly.
+     * @return Threshold
+     */
+    public int getEndgameCells() {
+        return endgameCells;
+    }
+
+    /**
+     * Requests that a running search stops as soon as possible.
+     * The best move of the last completed iteration is returned.
+     * Interrupting the searching thread has the same effect. The request
+     * stays in force until {@link #clearStop()}, so a stop that arrives
+     * just before a search starts still stops it.
+     */
+    public void stop() {
+        stopRequested = true;
+        solver.stop();
+    }
+
+    /**
+     * Clears an earlier stop request so the next search runs. Call it
+     * before handing a search to another thread, not on that thread.
+     */
+    public void clearStop() {
+        stopRequested = false;
+        solver.clearStop();
+    }
+
+    /**
+     * Searches the position to a fixed depth or until the time limit.
+     * The board is restored before returning.
+     *
+     * @param board Position to search
+     * @param maxDepth Maximum depth in plies
+     * @param timeLimitMillis Time limit, or 0 for none
+     * @return Best move found
+     */
+    public SearchResult search(CompactBoard board, int maxDepth, long timeLimitMillis) {
+        long start = System.nanoTime();
+        deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+        aborted = false;
+        nodes = 0;
+        java.util.Arrays.fill(history, 0);
+        solver.setDeadline(deadline);
+        long solverStart = solver.getNodes();
+
+        int bestMove = -1;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int limit = Math.min(maxDepth, board.getLiveCells() * CompactBoard.MAX_VALUE);
+
+        if (!board.isGameOver() && isEndgame(board)) {
+            int move = solver.solveRoot(board);
+            if (!solver.isAborted()) {
+                long elapsed = (System.nanoTime() - start) / 1_000_000L;
+                return new SearchResult(move, solver.getRootScore() * POINT,
+                    board.getLiveCells() * CompactBoard.MAX_VALUE, solver.getNodes() - solverStart, elapsed);
+            }
+            // Out of time before the solve finished: fall back to the first legal move
+            limit = 0;
+            aborted = true;
+        }
+
+        for (int depth = 1; depth <= limit || (depth == 1 && !aborted); depth++) {
+            int score = negamax(board, depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            bestScore = score;
+            bestMove = rootBestMove;
+            completedDepth = depth;
+        }
+
+        if (bestMove < 0 || !board.isLegal(bestMove)) {
+            bestMove = firstLegalMove(board);
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        return new SearchResult(bestMove, bestScore, completedDepth,
+            nodes + solver.getNodes() - solverStart, elapsed);
+    }
+
+    /**
+     * Negamax with alpha-beta pruning.
+     */
+    private int negamax(CompactBoard board, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & 4095) == 0 && (stopRequested || System.nanoTime() > deadline
+                || Thread.currentThread().isInterrupted())) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (board.isGameOver()) {
+            return board.getMargin() * POINT;
+        }
+        // Inside the tree, solve only where the nominal depth already reaches near the end;
+        // exact solves at a shallow horizon cost more than they gain
+        if (ply > 0 && depth * 2 >= board.getLiveCells() && isEndgame(board)) {
+            return solveExact(board, alpha, beta);
+        }
+        if (depth == 0) {
+            return evaluator.evaluate(board);
+        }
+
+        long key = board.getHash();
+        int slot = (int) key & TT_MASK;
+        int ttMove = -1;
+        if (ttKeys[slot] == key) {
+            long data = ttData[slot];
+            ttMove = (int) (data & 0x3F);
+            int ttDepth = (int) ((data >>> 6) & 0xFF);
+            int ttFlag = (int) ((data >>> 14) & 0x3);
+            int ttScore = (int) (data >> 32);
+            if (ttDepth >= depth && ply > 0) {
+                if (ttFlag == EXACT
+                        || (ttFlag == LOWER && ttScore >= beta)
+                        || (ttFlag == UPPER && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = orderMoves(board, moves, orderKeys[ply], ttMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            board.applyMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // Principal variation search: prove the move is worse with a null window
+                score = -negamax(board, depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            board.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                history[move] = Math.min(history[move] + depth * depth, 1 << 20);
+                break;
+            }
+        }
+
+        int flag = best <= originalAlpha ? UPPER : (best >= beta ? LOWER : EXACT);
+        ttKeys[slot] = key;
+        ttData[slot] = ((long) best << 32) | ((long) flag << 14) | ((long) depth << 6) | bestMove;
+        return best;
+    }
+
+    private boolean isEndgame(CompactBoard board) {
+        return board.getLiveCells() <= endgameCells && board.getHeadroom() <= ENDGAME_MAX_PLIES;
+    }
+
+    /**
+     * Replaces a subtree with the exact solver. The window is widened to
+     * whole points, so fail-low and fail-high results stay valid bounds.
+     */
+    private int solveExact(CompactBoard board, int alpha, int beta) {
+        int low = Math.max(Math.floorDiv(alpha, POINT), -CompactBoard.MAX_CELLS - 1);
+        int high = Math.min(-Math.floorDiv(-beta, POINT), CompactBoard.MAX_CELLS + 1);
+        int score = solver.solve(board, low, high);
+        if (solver.isAborted()) {
+            aborted = true;
+            return 0;
+        }
+        return score * POINT;
+    }
+
+    /**
+     * Generates legal moves ordered by TT move first, then by immediate
+     * claims, then by how often the move caused a cutoff (history heuristic).
+     */
+    private int orderMoves(CompactBoard board, int[] moves, int[] keys, int ttMove) {
+        int count = board.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            keys[i] = move == ttMove ? Integer.MAX_VALUE : (board.claimsFor(move) << 21) + history[move];
+        }
+        // Insertion sort, descending by key (move lists are short)
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int k = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < k) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = k;
+        }
+        return count;
+    }
+
+    private static int firstLegalMove(CompactBoard board) {
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isLegal(cell)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * A computer player that picks moves for the side to move.
+ *
+ * Implementations may apply and undo moves on the board while thinking,
+ * but must leave it in the position they received.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public interface Bot {
+
+    /**
+     * Gets a short display name for this bot.
+     * @return Bot name
+     */
+    String getName();
+
+    /**
+     * Chooses a move for the side to move.
+     * @param board Current position (not game over)
+     * @return Cell index of a legal move
+     */
+    int chooseMove(CompactBoard board);
+}
@@ -0,0 +1,208 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Exact solver for positions with few live cells left.
+ *
+ * Runs a full-depth negamax on the final score margin (in points), with
+ * alpha-beta, a dedicated transposition table storing exact and bound
+ * values, and bound pruning: no line can change the margin by more than
+ * the number of live cells, so windows outside that range cut at once.
+ *
+ * An instance is not thread-safe; each {@link AlphaBetaSearch} owns one.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class EndgameSolver {
+
+    private static final int TT_BITS = 19;
+    private static final int TT_MASK = (1 << TT_BITS) - 1;
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+    private static final int MAX_PLY = CompactBoard.MAX_CELLS * CompactBoard.MAX_VALUE + 1;
+
+    private final long[] ttKeys = new long[1 << TT_BITS];
+    private final int[] ttData = new int[1 << TT_BITS];
+    private final int[][] moveBuffers = new int[MAX_PLY][CompactBoard.MAX_CELLS];
+    private final int[][] orderKeys = new int[MAX_PLY][CompactBoard.MAX_CELLS];
+
+    private volatile boolean stopRequested;
+    private long deadline = Long.MAX_VALUE;
+    private boolean aborted;
+    private long nodes;
+    private int bestRootMove;
+    private int rootScore;
+
+    /**
+     * Sets the wall-clock deadline after which solving aborts.
+     * @param deadlineNanos Deadline in System.nanoTime() units
+     */
+    public void setDeadline(long deadlineNanos) {
+        this.deadline = deadlineNanos;
+        this.aborted = false;
+    }
+
+    /**
+     * Requests that solving stops as soon as possible. The request stays
+     * in force until {@link #clearStop()}.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Clears an earlier stop request so the next solve runs.
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Checks whether the last solve was cut short.
+     * @return true if the result must be discarded
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Gets the number of nodes visited since the solver was created.
+     * @return Node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Solves a position exactly and returns the best move.
+     * @param board Position (restored before returning)
+     * @return Optimal cell index
+     */
+    public int solveRoot(CompactBoard board) {
+        bestRootMove = -1;
+        rootScore = search(board, -CompactBoard.MAX_CELLS - 1, CompactBoard.MAX_CELLS + 1, 0);
+        return bestRootMove;
+    }
+
+    /**
+     * Gets the exact final margin found by the last {@link #solveRoot}.
+     * @return Margin for the side to move, in points
+     */
+    public int getRootScore() {
+        return rootScore;
+    }
+
+    /**
+     * Gets the exact final margin with alpha-beta semantics: a result at or
+     * below alpha is an upper bound, at or above beta a lower bound.
+     *
+     * @param board Position (restored before returning)
+     * @param alpha Lower window bound in points
+     * @param beta Upper window bound in points
+     * @return Final margin for the side to move, in points
+     */
+    public int solve(CompactBoard board, int alpha, int beta) {
+        return search(board, alpha, beta, 1);
+    }
+
+    private int search(CompactBoard board, int alpha, int beta, int ply) {
+        if ((++nodes & 4095) == 0 && (stopRequested || System.nanoTime() > deadline
+                || Thread.currentThread().isInterrupted())) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        int margin = board.getMargin();
+        int live = board.getLiveCells();
+        if (live == 0) {
+            return margin;
+        }
+        // Every remaining cell goes to one side, so the final margin is within margin ± live
+        if (margin + live <= alpha) {
+            return margin + live;
+        }
+        if (margin - live >= beta) {
+            return margin - live;
+        }
+
+        long key = board.getHash();
+        int slot = (int) key & TT_MASK;
+        int ttMove = -1;
+        if (ttKeys[slot] == key) {
+            int data = ttData[slot];
+            ttMove = data & 0x3F;
+            int flag = (data >>> 6) & 0x3;
+            int value = data >> 8;
+            if (ply > 0) {
+                if (flag == EXACT
+                        || (flag == LOWER && value >= beta)
+                        || (flag == UPPER && value <= alpha)) {
+                    return value;
+                }
+                if (flag == LOWER) {
+                    alpha = Math.max(alpha, value);
+                } else if (flag == UPPER) {
+                    beta = Math.min(beta, value);
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] keys = orderKeys[ply];
+        int count = board.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            keys[i] = moves[i] == ttMove ? Integer.MAX_VALUE : board.claimsFor(moves[i]);
+        }
+        sort(moves, keys, count);
+
+        int originalAlpha = alpha;
+        int best = -CompactBoard.MAX_CELLS - 1;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            board.applyMove(move);
+            int score = -search(board, -beta, -alpha, ply + 1);
+            board.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    bestRootMove = move;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+
+        int flag = best <= originalAlpha ? UPPER : (best >= beta ? LOWER : EXACT);
+        ttKeys[slot] = key;
+        ttData[slot] = best << 8 | flag << 6 | bestMove;
+        return best;
+    }
+
+    private static void sort(int[] moves, int[] keys, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int k = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < k) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = k;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.mycompany.javagrid4.ai;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Weights of the pattern evaluator, one per feature.
+ * Stored as a small properties file so tuned values can be swapped in
+ * without rebuilding.
+ *
+ * Features of a live cell's 3×3 pattern (claimed cells score nothing):
+ * - hot: cell is at 3 and can be claimed by the next move
+ * - warm: cell is at 2
+ * - cold: cell is at 0
+ * - combo: at a hot cell, number of hot orthogonal neighbours claimed with it
+ * - liveNeighbours: orthogonal neighbours still below 4
+ * - diagonalHot: diagonal neighbours at 3
+ * - oddParity: cell needs an odd number of increments to be claimed
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class EvalWeights {
+
+    /** System property naming the default weights file. */
+    public static final String WEIGHTS_PROPERTY = "javagrid4.weights";
+    private static final String DEFAULT_FILE = "javagrid4-weights.properties";
+
+    public static final int SCORE = 0;
+    public static final int HOT = 1;
+    public static final int WARM = 2;
+    public static final int COLD = 3;
+    public static final int COMBO = 4;
+    public static final int LIVE_NEIGHBOURS = 5;
+    public static final int DIAGONAL_HOT = 6;
+    public static final int ODD_PARITY = 7;
+    public static final int COUNT = 8;
+
+    private static final String[] NAMES = {
+        "score", "hot", "warm", "cold", "combo", "liveNeighbours", "diagonalHot", "oddParity"
+    };
+
+    private static final double[] DEFAULTS = {
+        100.0, 45.0, -10.0, 0.0, 25.0, 2.0, -5.0, 5.0
+    };
+
+    private final double[] values;
+
+    /**
+     * Creates weights from an array of values.
+     * @param values One value per feature (length {@link #COUNT})
+     */
+    public EvalWeights(double[] values) {
+        if (values.length != COUNT) {
+            throw new IllegalArgumentException("Expected " + COUNT + " weights");
+        }
+        this.values = values.clone();
+    }
+
+    /**
+     * Gets the built-in hand-tuned weights.
+     * @return Default weights
+     */
+    public static EvalWeights defaults() {
+        return new EvalWeights(DEFAULTS);
+    }
+
+    /**
+     * Loads the default weights: the file named by the
+     * {@value #WEIGHTS_PROPERTY} system property, or
+     * "javagrid4-weights.properties" in the working directory.
+     * Falls back to the built-in weights if neither is usable.
+     *
+     * @return Loaded weights
+     */
+    public static EvalWeights loadDefault() {
+        Path path = Paths.get(System.getProperty(WEIGHTS_PROPERTY, DEFAULT_FILE));
+        if (!Files.isRegularFile(path)) {
+            return defaults();
+        }
+        try {
+            return load(path);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to load evaluation weights: " + e.getMessage());
+            return defaults();
+        }
+    }
+
+    /**
+     * Loads weights from a properties file. Missing keys keep their defaults.
+     * @param path Weights file
+     * @return Loaded weights
+     * @throws IOException if the file cannot be read
+     */
+    public static EvalWeights load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        double[] values = DEFAULTS.clone();
+        for (int i = 0; i < COUNT; i++) {
+            String value = properties.getProperty(NAMES[i]);
+            if (value != null) {
+                values[i] = Double.parseDouble(value.trim());
+            }
+        }
+        return new EvalWeights(values);
+    }
+
+    /**
+     * Saves the weights to a properties file.
+     * @param path Destination file
+     * @param comment Header comment
+     * @throws IOException if writing fails
+     */
+    public void save(Path path, String comment) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < COUNT; i++) {
+            properties.setProperty(NAMES[i], String.format(java.util.Locale.ROOT, "%.4f", values[i]));
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    /**
+     * Gets one weight.
+     * @param feature Feature index
+     * @return Weight value
+     */
+    public double get(int feature) {
+        return values[feature];
+    }
+
+    /**
+     * Gets a copy of all weights.
+     * @return Weight values indexed by feature
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Gets the name of a feature as used in the weights file.
+     * @param feature Feature index
+     * @return Feature name
+     */
+    public static String nameOf(int feature) {
+        return NAMES[feature];
+    }
+
+    @Override
+    public String toString() {
+        return "EvalWeights" + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,22 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Static evaluation of a search leaf.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public interface Evaluator {
+
+    /** Evaluates by raw score margin only. */
+    Evaluator MARGIN = board -> board.getMargin() * AlphaBetaSearch.POINT;
+
+    /**
+     * Evaluates a position that is not game over.
+     * @param board Position to evaluate
+     * @return Score in {@link AlphaBetaSearch#POINT} units from the side to move's point of view
+     */
+    int evaluate(CompactBoard board);
+}
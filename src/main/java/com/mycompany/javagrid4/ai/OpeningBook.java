@@ -0,0 +1,171 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.BoardSymmetry;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.board.Zobrist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book backed by a memory-mapped file.
+ *
+ * File layout (big-endian):
+ * - Header (16 bytes): magic "JG4B", version, entry count, reserved
+ * - Entries (16 bytes each, sorted by hash): canonical hash (long),
+ *   canonical move (short), score (short), search depth (int)
+ *
+ * Positions are keyed by their canonical Zobrist hash, so each group of
+ * symmetric positions is stored once. Lookups binary-search the mapped
+ * buffer directly and never copy entries onto the heap.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    static final int MAGIC = 0x4A473442; // "JG4B"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    /** System property naming the default book file. */
+    public static final String BOOK_PROPERTY = "javagrid4.book";
+    private static final String DEFAULT_FILE = "javagrid4.book";
+
+    private static final OpeningBook EMPTY = new OpeningBook(null, null, 0);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int entryCount;
+
+    private OpeningBook(FileChannel channel, ByteBuffer buffer, int entryCount) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Gets a book with no entries.
+     * @return Shared empty book
+     */
+    public static OpeningBook empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Memory-maps a book file.
+     * @param path Book file
+     * @return Opened book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported opening book version " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            if ((long) HEADER_BYTES + (long) count * ENTRY_BYTES > buffer.capacity()) {
+                throw new IOException("Truncated opening book: " + path);
+            }
+            return new OpeningBook(channel, buffer, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the default book: the file named by the {@value #BOOK_PROPERTY}
+     * system property, or "javagrid4.book" in the working directory.
+     * Falls back to an empty book if neither is usable.
+     *
+     * @return Default book
+     */
+    public static OpeningBook loadDefault() {
+        Path path = Paths.get(System.getProperty(BOOK_PROPERTY, DEFAULT_FILE));
+        if (!Files.isRegularFile(path)) {
+            return EMPTY;
+        }
+        try {
+            return open(path);
+        } catch (IOException e) {
+            System.err.println("Failed to load opening book: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Gets the number of positions in the book.
+     * @return Entry count
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Looks up the book move for a position.
+     * @param board Position to look up
+     * @return Cell index of the book move, or -1 if the position is not in the book
+     */
+    public int probe(CompactBoard board) {
+        if (entryCount == 0) {
+            return -1;
+        }
+        int size = board.getSize();
+        int sym = BoardSymmetry.canonicalSymmetry(board);
+        long key = Zobrist.hash(board, BoardSymmetry.forward(size, sym));
+        int index = find(key);
+        if (index < 0) {
+            return -1;
+        }
+        int canonicalMove = buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8);
+        if (canonicalMove < 0 || canonicalMove >= board.getCellCount()) {
+            return -1;
+        }
+        int move = BoardSymmetry.inverse(size, sym)[canonicalMove];
+        return board.isLegal(move) ? move : -1;
+    }
+
+    /**
+     * Binary-searches the mapped entries for a hash.
+     * @param key Canonical hash
+     * @return Entry index or -1
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.BoardSymmetry;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.board.Zobrist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline tool that builds an {@link OpeningBook}.
+ *
+ * Enumerates every distinct (up to symmetry) position reachable within a
+ * number of plies from the start, searches each one deeply on a thread
+ * pool, and writes the results sorted by canonical hash.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.ai.OpeningBookBuilder \
+ *     --size 5 --plies 3 --depth 8 --out javagrid4.book
+ * </pre>
+ * Several sizes can share one book; pass --size more than once.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class OpeningBookBuilder {
+
+    private final int plies;
+    private final int depth;
+    private final int threads;
+
+    /**
+     * Creates a builder.
+     * @param plies Number of opening plies to cover
+     * @param depth Search depth for each book position
+     * @param threads Worker thread count
+     */
+    public OpeningBookBuilder(int plies, int depth, int threads) {
+        this.plies = plies;
+        this.depth = depth;
+        this.threads = threads;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --size N (repeatable), --plies P, --depth D, --threads T, --out FILE
+     * @throws Exception if building or writing fails
+     */
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        int plies = 3;
+        int depth = 8;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = Paths.get("javagrid4.book");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size": sizes.add(Integer.parseInt(args[++i])); break;
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(5);
+            sizes.add(7);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth, threads);
+        List<long[]> entries = new ArrayList<>();
+        for (int size : sizes) {
+            entries.addAll(builder.build(size));
+        }
+        write(out, entries);
+        System.out.printf("Wrote %d positions to %s%n", entries.size(), out);
+    }
+
+    /**
+     * Builds book entries for one board size.
+     * @param size Board size
+     * @return Entries as {canonicalHash, canonicalMove, score, depth}
+     * @throws Exception if a search task fails
+     */
+    public List<long[]> build(int size) throws Exception {
+        List<CompactBoard> positions = enumerate(size);
+        System.out.printf("%dx%d: searching %d positions to depth %d on %d threads%n",
+            size, size, positions.size(), depth, threads);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<AlphaBetaSearch> searches = ThreadLocal.withInitial(AlphaBetaSearch::new);
+        AtomicInteger done = new AtomicInteger();
+        try {
+            List<Future<long[]>> futures = new ArrayList<>(positions.size());
+            for (CompactBoard position : positions) {
+                futures.add(pool.submit(() -> {
+                    SearchResult result = searches.get().search(position.copy(), depth, 0);
+                    int sym = BoardSymmetry.canonicalSymmetry(position);
+                    long key = Zobrist.hash(position,
+                        BoardSymmetry.forward(size, sym));
+                    int canonicalMove = BoardSymmetry.forward(size, sym)[result.getMove()];
+                    int finished = done.incrementAndGet();
+                    if (finished % 100 == 0) {
+                        System.out.printf("  %d/%d%n", finished, positions.size());
+                    }
+                    return new long[] { key, canonicalMove, result.getScore(), result.getDepth() };
+                }));
+            }
+            List<long[]> entries = new ArrayList<>(futures.size());
+            for (Future<long[]> future : futures) {
+                entries.add(future.get());
+            }
+            return entries;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Collects one representative of each canonical position within the ply limit.
+     */
+    private List<CompactBoard> enumerate(int size) {
+        List<CompactBoard> positions = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<CompactBoard> frontier = new ArrayList<>();
+        CompactBoard start = new CompactBoard(size);
+        frontier.add(start);
+        seen.add(BoardSymmetry.canonicalHash(start));
+
+        int[] moves = new int[start.getCellCount()];
+        for (int ply = 0; ply <= plies && !frontier.isEmpty(); ply++) {
+            positions.addAll(frontier);
+            if (ply == plies) {
+                break;
+            }
+            List<CompactBoard> next = new ArrayList<>();
+            for (CompactBoard board : frontier) {
+                int count = board.legalMoves(moves);
+                for (int i = 0; i < count; i++) {
+                    board.applyMove(moves[i]);
+                    if (!board.isGameOver() && seen.add(BoardSymmetry.canonicalHash(board))) {
+                        CompactBoard child = board.copy();
+                        child.clearHistory();
+                        next.add(child);
+                    }
+                    board.undoMove();
+                }
+            }
+            frontier = next;
+        }
+        return positions;
+    }
+
+    /**
+     * Writes entries to a book file, sorted by hash, via a temp file and rename.
+     * @param out Destination file
+     * @param entries Entries as {canonicalHash, canonicalMove, score, depth}
+     * @throws IOException if writing fails
+     */
+    public static void write(Path out, List<long[]> entries) throws IOException {
+        long[][] sorted = entries.toArray(new long[0][]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a[0], b[0]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES
+                + sorted.length * OpeningBook.ENTRY_BYTES).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(0).putInt(0);
+        int count = 0;
+        long previous = 0;
+        for (long[] entry : sorted) {
+            if (count > 0 && entry[0] == previous) {
+                continue; // Duplicate position (identical hash), keep the first
+            }
+            buffer.putLong(entry[0])
+                  .putShort((short) entry[1])
+                  .putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, entry[2])))
+                  .putInt((int) entry[3]);
+            previous = entry[0];
+            count++;
+        }
+        buffer.putInt(8, count);
+        buffer.flip();
+
+        Path temp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Evaluator combining the score margin with 3×3 pattern values.
+ *
+ * The first time a board is evaluated the pattern table is attached to it;
+ * from then on the board keeps the pattern sum up to date on every move,
+ * so each evaluation is a couple of field reads.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class PatternEvaluator implements Evaluator {
+
+    private final PatternTable table;
+    private final double scoreWeight;
+
+    /**
+     * Creates an evaluator using the default pattern table.
+     */
+    public PatternEvaluator() {
+        this(PatternTable.getDefault());
+    }
+
+    /**
+     * Creates an evaluator using a specific pattern table.
+     * @param table Pattern table
+     */
+    public PatternEvaluator(PatternTable table) {
+        this.table = table;
+        this.scoreWeight = table.getWeights().get(EvalWeights.SCORE);
+    }
+
+    @Override
+    public int evaluate(CompactBoard board) {
+        if (board.getPatternTable() != table.values()) {
+            board.attachPatternTable(table.values());
+        }
+        return (int) Math.round(scoreWeight * board.getMargin()) + board.getPatternSum();
+    }
+}
@@ -0,0 +1,125 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Precomputed values for every 3×3 cell pattern.
+ *
+ * A pattern is the centre cell and its eight neighbours, each reduced to a
+ * digit: value 0-3, or 4 for claimed and off-board cells. Ownership of
+ * claimed cells never changes again, so it is left to the score term and
+ * does not need its own digits. With five digits the table has 5^9 entries
+ * (about 8 MB), built once from {@link EvalWeights}.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PatternTable {
+
+    private static volatile PatternTable defaultTable;
+
+    private final EvalWeights weights;
+    private final int[] values;
+
+    private PatternTable(EvalWeights weights, int[] values) {
+        this.weights = weights;
+        this.values = values;
+    }
+
+    /**
+     * Gets the table built from {@link EvalWeights#loadDefault()}.
+     * Built on first use and shared afterwards.
+     * @return Default table
+     */
+    public static PatternTable getDefault() {
+        PatternTable table = defaultTable;
+        if (table == null) {
+            synchronized (PatternTable.class) {
+                table = defaultTable;
+                if (table == null) {
+                    table = build(EvalWeights.loadDefault());
+                    defaultTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Builds a table from feature weights.
+     * @param weights Evaluation weights
+     * @return New table
+     */
+    public static PatternTable build(EvalWeights weights) {
+        int[] values = new int[CompactBoard.PATTERN_COUNT];
+        int[] features = new int[EvalWeights.COUNT];
+        double[] w = weights.toArray();
+        for (int pattern = 0; pattern < values.length; pattern++) {
+            if (extractFeatures(pattern, features)) {
+                double sum = 0;
+                for (int f = 1; f < EvalWeights.COUNT; f++) {
+                    sum += w[f] * features[f];
+                }
+                values[pattern] = (int) Math.round(sum);
+            }
+        }
+        return new PatternTable(weights, values);
+    }
+
+    /**
+     * Decodes the features of one pattern.
+     * Index {@link EvalWeights#SCORE} is always left at zero.
+     *
+     * @param pattern Pattern index
+     * @param out Feature counts (length {@link EvalWeights#COUNT})
+     * @return false if the centre is dead and the pattern has no features
+     */
+    public static boolean extractFeatures(int pattern, int[] out) {
+        java.util.Arrays.fill(out, 0);
+        int centre = (pattern / 625) % CompactBoard.PATTERN_DIGITS;
+        if (centre == CompactBoard.DEAD_DIGIT) {
+            return false;
+        }
+        int hotOrthogonal = 0;
+        int liveOrthogonal = 0;
+        int hotDiagonal = 0;
+        int remaining = pattern;
+        for (int k = 0; k < 9; k++) {
+            int digit = remaining % CompactBoard.PATTERN_DIGITS;
+            remaining /= CompactBoard.PATTERN_DIGITS;
+            if (k == 4) {
+                continue;
+            }
+            if ((k & 1) == 1) { // 1, 3, 5, 7 are N, W, E, S
+                if (digit != CompactBoard.DEAD_DIGIT) liveOrthogonal++;
+                if (digit == 3) hotOrthogonal++;
+            } else if (digit == 3) {
+                hotDiagonal++;
+            }
+        }
+        out[EvalWeights.HOT] = centre == 3 ? 1 : 0;
+        out[EvalWeights.WARM] = centre == 2 ? 1 : 0;
+        out[EvalWeights.COLD] = centre == 0 ? 1 : 0;
+        out[EvalWeights.COMBO] = centre == 3 ? hotOrthogonal : 0;
+        out[EvalWeights.LIVE_NEIGHBOURS] = liveOrthogonal;
+        out[EvalWeights.DIAGONAL_HOT] = hotDiagonal;
+        out[EvalWeights.ODD_PARITY] = (CompactBoard.MAX_VALUE - centre) & 1;
+        return true;
+    }
+
+    /**
+     * Gets the weights this table was built from.
+     * @return Evaluation weights
+     */
+    public EvalWeights getWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets the raw table for attaching to a board.
+     * @return Shared values array; do not modify
+     */
+    int[] values() {
+        return values;
+    }
+}
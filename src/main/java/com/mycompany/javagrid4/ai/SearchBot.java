@@ -0,0 +1,76 @@
+package com.mycompany.javagrid4.ai;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Bot that plays book moves when available and otherwise runs an
+ * alpha-beta search with a depth and time limit.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class SearchBot implements Bot {
+
+    private final int maxDepth;
+    private final long moveTimeMillis;
+    private final OpeningBook book;
+    private final AlphaBetaSearch search;
+    private SearchResult lastResult;
+
+    /**
+     * Creates a search bot using the default opening book.
+     * @param maxDepth Maximum search depth in plies
+     * @param moveTimeMillis Time limit per move, or 0 for none
+     */
+    public SearchBot(int maxDepth, long moveTimeMillis) {
+        this(maxDepth, moveTimeMillis, OpeningBook.loadDefault());
+    }
+
+    /**
+     * Creates a search bot.
+     * @param maxDepth Maximum search depth in plies
+     * @param moveTimeMillis Time limit per move, or 0 for none
+     * @param book Opening book consulted before searching
+     */
+    public SearchBot(int maxDepth, long moveTimeMillis, OpeningBook book) {
+        this(maxDepth, moveTimeMillis, book, new PatternEvaluator());
+    }
+
+    /**
+     * Creates a search bot with a specific evaluator.
+     * @param maxDepth Maximum search depth in plies
+     * @param moveTimeMillis Time limit per move, or 0 for none
+     * @param book Opening book consulted before searching
+     * @param evaluator Leaf evaluator
+     */
+    public SearchBot(int maxDepth, long moveTimeMillis, OpeningBook book, Evaluator evaluator) {
+        this.maxDepth = maxDepth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.book = book;
+        this.search = new AlphaBetaSearch(evaluator);
+    }
+
+    @Override
+    public String getName() {
+        return "SearchBot(depth=" + maxDepth + ")";
+    }
+
+    @Override
+    public int chooseMove(CompactBoard board) {
+        int bookMove = book.probe(board);
+        if (bookMove >= 0) {
+            lastResult = null;
+            return bookMove;
+        }
+        lastResult = search.search(board.copy(), maxDepth, moveTimeMillis);
+        return lastResult.getMove();
+    }
+
+    /**
+     * Gets the search result of the last move, if it was searched.
+     * @return Last result, or null if the move came from the book
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+}
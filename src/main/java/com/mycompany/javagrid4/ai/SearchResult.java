@@ -0,0 +1,78 @@
+package com.mycompany.javagrid4.ai;
+
+/**
+ * Outcome of a search: best move, its score and search statistics.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedMillis;
+
+    /**
+     * Creates a search result.
+     * @param move Best cell index, or -1 if none
+     * @param score Score from the side to move's point of view
+     * @param depth Deepest fully completed iteration
+     * @param nodes Nodes visited
+     * @param elapsedMillis Wall time spent
+     */
+    public SearchResult(int move, int score, int depth, long nodes, long elapsedMillis) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the best move.
+     * @return Cell index, or -1 if none
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Gets the score of the best move.
+     * @return Score from the side to move's point of view
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the deepest completed iteration.
+     * @return Search depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of nodes visited.
+     * @return Node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the wall time spent searching.
+     * @return Elapsed milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SearchResult[move=%d, score=%d, depth=%d, nodes=%d, ms=%d]",
+            move, score, depth, nodes, elapsedMillis);
+    }
+}
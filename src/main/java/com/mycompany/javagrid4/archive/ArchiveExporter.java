@@ -0,0 +1,92 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.replay.Replay;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams games into a game record archive, one at a time, so exporting
+ * a whole replay directory needs memory for a single game only.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class ArchiveExporter implements Closeable {
+
+    private final Writer out;
+    private int gameCount;
+
+    /**
+     * Creates an exporter.
+     * @param out Destination for the UTF-8 text (closed by {@link #close()})
+     */
+    public ArchiveExporter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Appends a game.
+     * @param replay Game to export
+     * @throws IOException if writing fails
+     */
+    public void write(Replay replay) throws IOException {
+        GameRecordFormat.write(replay, out);
+        gameCount++;
+    }
+
+    /**
+     * Gets the number of games written.
+     * @return Game count
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Exports every replay of a directory, in file name order, to an archive.
+     * Replays that cannot be read are skipped with a warning.
+     * @param directory Directory of ".jg4r" files
+     * @param archive Archive to write (replaced if it exists)
+     * @return Number of games exported
+     * @throws IOException if the directory cannot be listed or the archive cannot be written
+     */
+    public static int exportDirectory(Path directory, Path archive) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + Replay.EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        try (ArchiveExporter exporter = new ArchiveExporter(Files.newOutputStream(archive))) {
+            for (Path file : files) {
+                Replay replay;
+                try {
+                    replay = Replay.load(file);
+                } catch (IOException e) {
+                    System.err.println("Skipping " + file.getFileName() + ": " + e.getMessage());
+                    continue;
+                }
+                exporter.write(replay);
+            }
+            return exporter.getGameCount();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.replay.Replay;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports a game record archive into the replay store, parsing it on
+ * several threads.
+ *
+ * The calling thread reads the archive in chunks and cuts each chunk at
+ * the start of its last game, carrying the partial game over into the
+ * next chunk; a chunk that holds no game start is grown until it does.
+ * Worker threads parse the games of a chunk and write each one as a
+ * ".jg4r" replay. At most two chunks per worker are in memory at once,
+ * so memory stays bounded however large the archive is.
+ *
+ * Replays are named after the archive and the byte offset of the game,
+ * so importing the same archive again skips games that are already
+ * stored rather than duplicating them. Each replay is written to a
+ * temporary file and renamed into place, so a write that fails partway
+ * leaves no truncated replay for the next import to skip.
+ *
+ * The same chunked parsing feeds {@link PositionIndexBuilder}, which
+ * indexes an archive without writing its games out as replays first.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class ArchiveImporter {
+
+    /** Archive bytes read per chunk unless configured otherwise. */
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    /** Largest single game accepted. */
+    public static final int MAX_GAME_BYTES = 1 << 24;
+
+    private static final int MAX_ERRORS = 20;
+
+    private final int threads;
+    private final int chunkBytes;
+
+    /**
+     * Creates an importer.
+     * @param threads Worker threads
+     * @param chunkBytes Archive bytes read per chunk
+     * @throws IllegalArgumentException if a value is not positive
+     */
+    public ArchiveImporter(int threads, int chunkBytes) {
+        if (threads < 1 || chunkBytes < 1) {
+            throw new IllegalArgumentException("Threads and chunk size must be positive");
+        }
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports every game of an archive.
+     * @param archive Archive to read
+     * @param directory Replay directory to write to (created if missing)
+     * @return Counts of imported, skipped and rejected games
+     * @throws IOException if the archive cannot be read
+     */
+    public Result importArchive(Path archive, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String fileName = archive.getFileName().toString();
+        String stem = (fileName.endsWith(GameRecordFormat.EXTENSION)
+            ? fileName.substring(0, fileName.length() - GameRecordFormat.EXTENSION.length())
+            : fileName).replaceAll("[^A-Za-z0-9_-]", "_");
+        return scan(archive, (replay, position) -> {
+            Path file = directory.resolve(String.format("%s-%012d%s", stem, position, Replay.EXTENSION));
+            if (Files.exists(file)) {
+                throw new FileAlreadyExistsException(file.toString());
+            }
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.WRITE))) {
+                    replay.write(out);
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        });
+    }
+
+    /**
+     * Parses every game of an archive and hands it to a sink on the worker
+     * threads.
+     * @param archive Archive to read
+     * @param sink Receiver of the parsed games
+     * @return Counts of accepted, skipped and rejected games
+     * @throws IOException if the archive cannot be read
+     */
+    Result scan(Path archive, GameSink sink) throws IOException {
+        Result result = new Result();
+        long started = System.nanoTime();
+
+        Semaphore inFlight = new Semaphore(threads * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            byte[] carry = new byte[0];
+            long carryOffset = 0;
+            boolean eof = false;
+            while (!eof) {
+                acquire(inFlight);
+                // A carried game that outgrew a chunk doubles the next read
+                int readBytes = Math.max(chunkBytes, carry.length);
+                byte[] chunk = Arrays.copyOf(carry, carry.length + readBytes);
+                int length = carry.length;
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, length, readBytes);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                length = buffer.position();
+                result.bytes.addAndGet(length - carry.length);
+
+                int split = eof ? length : lastGameStart(chunk, length);
+                if (split <= 0) {
+                    // One game spans the whole chunk: keep reading into it
+                    inFlight.release();
+                    if (length > MAX_GAME_BYTES) {
+                        throw new IOException("Game at offset " + carryOffset + " is larger than "
+                            + MAX_GAME_BYTES + " bytes");
+                    }
+                    carry = Arrays.copyOf(chunk, length);
+                    continue;
+                }
+                long offset = carryOffset;
+                int end = split;
+                pool.execute(() -> {
+                    try {
+                        scanChunk(chunk, end, offset, sink, result);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                carry = Arrays.copyOfRange(chunk, split, length);
+                carryOffset += split;
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        result.nanos = System.nanoTime() - started;
+        return result;
+    }
+
+    /**
+     * Parses the games of one chunk and passes them on. Runs on a worker thread.
+     */
+    private void scanChunk(byte[] chunk, int length, long offset, GameSink sink, Result result) {
+        int game = nextGameStart(chunk, 0, length);
+        while (game < length) {
+            int next = nextGameStart(chunk, game + 1, length);
+            long position = offset + game;
+            try {
+                sink.accept(GameRecordFormat.parse(chunk, game, next), position);
+                result.imported.incrementAndGet();
+            } catch (FileAlreadyExistsException e) {
+                result.skipped.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                result.rejected.incrementAndGet();
+                result.addError("Game at offset " + position + ": " + e.getMessage());
+            }
+            game = next;
+        }
+    }
+
+    /**
+     * Finds the start of the first game at or after an offset.
+     * @return Offset of the game's first tag line, or length if there is none
+     */
+    private static int nextGameStart(byte[] data, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if ((i == 0 || data[i - 1] == '\n') && GameRecordFormat.isGameStart(data, i, 0)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Finds the start of the last game that begins after the chunk's first.
+     * @return Offset of the game's first tag line, or 0 if there is none
+     */
+    private static int lastGameStart(byte[] data, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            if (data[i - 1] == '\n' && GameRecordFormat.isGameStart(data, i, 0)) {
+                int previous = 0;
+                while (previous < i && data[previous] <= ' ') {
+                    previous++;
+                }
+                return previous < i ? i : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static void acquire(Semaphore semaphore) throws IOException {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing", e);
+        }
+    }
+
+    /**
+     * Receives parsed games. Called from several worker threads at once.
+     */
+    interface GameSink {
+        /**
+         * Takes one game.
+         * @param replay Parsed game
+         * @param offset Byte offset of the game in the archive
+         * @throws java.nio.file.FileAlreadyExistsException to count the game as skipped
+         * @throws IOException to count the game as rejected
+         */
+        void accept(Replay replay, long offset) throws IOException;
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static final class Result {
+        private final AtomicInteger imported = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private long nanos;
+
+        /**
+         * Gets the number of games written to the replay store.
+         * @return Imported games
+         */
+        public int getImported() {
+            return imported.get();
+        }
+
+        /**
+         * Gets the number of games already in the replay store.
+         * @return Skipped games
+         */
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        /**
+         * Gets the number of games that could not be parsed or replayed.
+         * @return Rejected games
+         */
+        public int getRejected() {
+            return rejected.get();
+        }
+
+        /**
+         * Gets the size of the archive read.
+         * @return Bytes
+         */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /**
+         * Gets the time the import took.
+         * @return Nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Gets the first few rejection reasons.
+         * @return Messages, at most {@value ArchiveImporter#MAX_ERRORS}
+         */
+        public List<String> getErrors() {
+            synchronized (errors) {
+                return new ArrayList<>(errors);
+            }
+        }
+
+        private void addError(String message) {
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(message);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.replay.Replay;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line front end for game record archives.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.archive.ArchiveTool \
+ *     --export games.jgn [--replays DIR]
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.archive.ArchiveTool \
+ *     --import games.jgn [--replays DIR] [--threads T] [--chunk-kb K]
+ * </pre>
+ * Exporting streams every replay of the directory into the archive;
+ * importing parses the archive in parallel into the replay directory,
+ * which defaults to {@link Replay#getDefaultDirectory()}.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class ArchiveTool {
+
+    /**
+     * Command-line entry point.
+     * @param args --export FILE | --import FILE, --replays DIR, --threads T, --chunk-kb K
+     * @throws Exception if reading or writing fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path export = null;
+        Path in = null;
+        Path replays = Replay.getDefaultDirectory();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkBytes = ArchiveImporter.DEFAULT_CHUNK_BYTES;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--export": export = Paths.get(args[++i]); break;
+                case "--import": in = Paths.get(args[++i]); break;
+                case "--replays": replays = Paths.get(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--chunk-kb": chunkBytes = Integer.parseInt(args[++i]) * 1024; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if ((export == null) == (in == null)) {
+            throw new IllegalArgumentException("Give exactly one of --export FILE or --import FILE");
+        }
+
+        long start = System.nanoTime();
+        if (export != null) {
+            int games = ArchiveExporter.exportDirectory(replays, export);
+            System.out.printf("Exported %d games from %s to %s in %.2f s%n",
+                games, replays, export, (System.nanoTime() - start) / 1e9);
+        } else {
+            ArchiveImporter.Result result = new ArchiveImporter(threads, chunkBytes).importArchive(in, replays);
+            double seconds = result.getNanos() / 1e9;
+            System.out.printf("Imported %d games into %s (%d already there, %d rejected)%n",
+                result.getImported(), replays, result.getSkipped(), result.getRejected());
+            System.out.printf("%.1f MB in %.2f s on %d threads (%.1f MB/s)%n",
+                result.getBytes() / 1e6, seconds, threads, result.getBytes() / 1e6 / seconds);
+            for (String error : result.getErrors()) {
+                System.err.println(error);
+            }
+        }
+    }
+}
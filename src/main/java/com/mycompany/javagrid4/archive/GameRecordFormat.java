@@ -0,0 +1,350 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.replay.Replay;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Human-readable game record text (".jgn"), in the spirit of PGN, for
+ * exchanging games with other tools.
+ *
+ * A game is a block of header tags followed by the move text:
+ * <pre>
+ * [Event "JavaGrid4"]
+ * [Date "2026.10.19"]
+ * [Time "14:03:22"]
+ * [Start "1760882602000"]
+ * [Player1 "Ann"]
+ * [Player1Color "#FF6464"]
+ * [Player2 "Bot"]
+ * [Player2Color "#6496FF"]
+ * [Player2Bot "search:depth=4,time=500,budget=2000"]
+ * [BoardSize "5"]
+ * [Duration "185"]
+ * [Result "1-0"]
+ *
+ * 1. c3 b2 2. c3 a1 3. e5 c3 ... 1-0
+ * </pre>
+ * A move is the column letter followed by the row number, with a1 the top
+ * left cell. The tags mirror {@link com.mycompany.javagrid4.models.GameConfig}
+ * plus the game times; Date and Time are UTC, Start keeps the exact epoch
+ * millis (games from other tools without it are dated from Date and
+ * Time). A PlayerNBot tag is only written for a computer player. Result is
+ * "1-0", "0-1", "1/2-1/2" or "*" for an unfinished game, and is worked
+ * out from the moves on import. Games are separated by a blank line.
+ *
+ * When reading, unknown tags are ignored, tag values use PGN escapes
+ * (\" and \\), move numbers and {comments} are skipped, and only
+ * BoardSize is required. Games are read straight from UTF-8 bytes so an
+ * importer can parse slices of a large archive without decoding it.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class GameRecordFormat {
+
+    /** File name extension for game record archives. */
+    public static final String EXTENSION = ".jgn";
+
+    private static final int LINE_WIDTH = 80;
+    private static final String[] DEFAULT_NAMES = { "Player 1", "Player 2" };
+    private static final int[] DEFAULT_COLORS = { 0xFF6464, 0x6496FF };
+
+    private GameRecordFormat() {
+    }
+
+    /**
+     * Writes one game followed by a blank line.
+     * @param replay Game to write
+     * @param out Destination
+     * @throws IOException if writing fails
+     */
+    public static void write(Replay replay, Appendable out) throws IOException {
+        long start = replay.getStartMillis();
+        SimpleDateFormat date = new SimpleDateFormat("yyyy.MM.dd");
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss");
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        time.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String result = resultOf(replay);
+
+        writeTag(out, "Event", "JavaGrid4");
+        writeTag(out, "Date", date.format(new Date(start)));
+        writeTag(out, "Time", time.format(new Date(start)));
+        writeTag(out, "Start", Long.toString(start));
+        for (int p = 0; p < 2; p++) {
+            String prefix = "Player" + (p + 1);
+            writeTag(out, prefix, replay.getName(p));
+            writeTag(out, prefix + "Color", String.format("#%06X", replay.getColor(p)));
+            if (replay.getBotSpec(p) != null) {
+                writeTag(out, prefix + "Bot", replay.getBotSpec(p));
+            }
+        }
+        writeTag(out, "BoardSize", Integer.toString(replay.getSize()));
+        writeTag(out, "Duration", Integer.toString(replay.getElapsedSeconds()));
+        writeTag(out, "Result", result);
+        out.append('\n');
+
+        StringBuilder line = new StringBuilder(LINE_WIDTH + 16);
+        int size = replay.getSize();
+        for (int ply = 0; ply < replay.getMoveCount(); ply++) {
+            String token = ply % 2 == 0 ? (ply / 2 + 1) + ". " : "";
+            token += moveName(replay.getMove(ply), size);
+            line = appendToken(out, line, token);
+        }
+        appendToken(out, line, result);
+        out.append(line).append("\n\n");
+    }
+
+    /**
+     * Parses one game.
+     * @param data Archive bytes (UTF-8)
+     * @param from Offset of the game's first line
+     * @param to Offset just past the game
+     * @return Recorded game
+     * @throws IOException if the game is malformed or a move is illegal
+     */
+    public static Replay parse(byte[] data, int from, int to) throws IOException {
+        String[] names = DEFAULT_NAMES.clone();
+        int[] colors = DEFAULT_COLORS.clone();
+        String[] bots = new String[2];
+        int size = 0;
+        long start = -1;
+        String date = null;
+        String time = "00:00:00";
+        int duration = 0;
+        int[] moves = new int[64];
+        int moveCount = 0;
+
+        int i = from;
+        while (i < to) {
+            byte b = data[i];
+            if (b == '[') {
+                int nameStart = i + 1;
+                int nameEnd = nameStart;
+                while (nameEnd < to && data[nameEnd] != ' ' && data[nameEnd] != '"' && data[nameEnd] != ']') {
+                    nameEnd++;
+                }
+                int quote = nameEnd;
+                while (quote < to && data[quote] == ' ') {
+                    quote++;
+                }
+                if (quote >= to || data[quote] != '"') {
+                    throw new IOException("Malformed tag at offset " + i);
+                }
+                StringBuilder value = new StringBuilder();
+                int end = readQuoted(data, quote + 1, to, value);
+                while (end < to && data[end] != ']' && data[end] != '\n') {
+                    end++;
+                }
+                if (end >= to || data[end] != ']') {
+                    throw new IOException("Unterminated tag at offset " + i);
+                }
+                String tag = new String(data, nameStart, nameEnd - nameStart, StandardCharsets.US_ASCII);
+                String text = value.toString();
+                try {
+                    switch (tag) {
+                        case "Player1": names[0] = text; break;
+                        case "Player2": names[1] = text; break;
+                        case "Player1Color": colors[0] = parseColor(text); break;
+                        case "Player2Color": colors[1] = parseColor(text); break;
+                        case "Player1Bot": bots[0] = text.isEmpty() ? null : text; break;
+                        case "Player2Bot": bots[1] = text.isEmpty() ? null : text; break;
+                        case "BoardSize": size = Integer.parseInt(text); break;
+                        case "Start": start = Long.parseLong(text); break;
+                        case "Date": date = text; break;
+                        case "Time": time = text; break;
+                        case "Duration": duration = Integer.parseInt(text); break;
+                        default: break; // Event, Result and foreign tags
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid " + tag + " value \"" + text + "\"");
+                }
+                i = end + 1;
+            } else if (b == '{') {
+                while (i < to && data[i] != '}') {
+                    i++;
+                }
+                i++;
+            } else if (b == ';') {
+                while (i < to && data[i] != '\n') {
+                    i++;
+                }
+            } else if (b >= 'a' && b <= 'g') {
+                if (size == 0) {
+                    throw new IOException("Move before the BoardSize tag at offset " + i);
+                }
+                int col = b - 'a';
+                int row = 0;
+                int j = i + 1;
+                while (j < to && data[j] >= '0' && data[j] <= '9') {
+                    row = row * 10 + data[j] - '0';
+                    j++;
+                }
+                if (j == i + 1 || col >= size || row < 1 || row > size) {
+                    throw new IOException("Invalid move at offset " + i);
+                }
+                if (moveCount == moves.length) {
+                    moves = Arrays.copyOf(moves, moveCount * 2);
+                }
+                moves[moveCount++] = (row - 1) * size + col;
+                i = j;
+            } else if (b >= '0' && b <= '9' || b == '*') {
+                // Move number ("12." or "12...") or result token
+                while (i < to && data[i] > ' ') {
+                    i++;
+                }
+            } else if (b <= ' ') {
+                i++;
+            } else {
+                throw new IOException("Unexpected '" + (char) b + "' at offset " + i);
+            }
+        }
+        if (size == 0) {
+            throw new IOException("Game at offset " + from + " has no BoardSize tag");
+        }
+        if (start < 0) {
+            start = parseDate(date, time);
+        }
+        try {
+            return Replay.record(size, names, colors, bots, moves, moveCount, start, duration);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Names a move the way the move text writes it.
+     * @param cell Cell index
+     * @param size Board size
+     * @return Column letter followed by row number, e.g. "c3"
+     */
+    public static String moveName(int cell, int size) {
+        return (char) ('a' + cell % size) + Integer.toString(cell / size + 1);
+    }
+
+    /**
+     * Checks whether a line starts a new game: it is a tag line and the
+     * nearest non-blank line above it (down to the lower bound) is not.
+     * @param data Archive bytes
+     * @param line Offset of the start of a line
+     * @param lowerBound Offset not to look above
+     * @return true if a game starts at the line
+     */
+    public static boolean isGameStart(byte[] data, int line, int lowerBound) {
+        if (data[line] != '[') {
+            return false;
+        }
+        int i = line - 1;
+        while (i > lowerBound) {
+            // i is on the newline ending the previous line; find its start
+            int end = i;
+            int begin = end;
+            while (begin > lowerBound && data[begin - 1] != '\n') {
+                begin--;
+            }
+            int first = begin;
+            while (first < end && (data[first] == ' ' || data[first] == '\t' || data[first] == '\r')) {
+                first++;
+            }
+            if (first < end) {
+                return data[first] != '[';
+            }
+            i = begin - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Works out the result from the moves.
+     * @param replay Game
+     * @return "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    static String resultOf(Replay replay) {
+        CompactBoard board = new CompactBoard(replay.getSize());
+        for (int ply = 0; ply < replay.getMoveCount(); ply++) {
+            board.applyMove(replay.getMove(ply));
+        }
+        if (!board.isGameOver()) {
+            return "*";
+        }
+        int margin = board.getScore(0) - board.getScore(1);
+        return margin > 0 ? "1-0" : margin < 0 ? "0-1" : "1/2-1/2";
+    }
+
+    private static StringBuilder appendToken(Appendable out, StringBuilder line, String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > LINE_WIDTH) {
+            out.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        return line.append(token);
+    }
+
+    private static void writeTag(Appendable out, String name, String value) throws IOException {
+        out.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+        out.append("\"]\n");
+    }
+
+    /**
+     * Reads a quoted tag value up to the closing quote.
+     * @return Offset just past the closing quote
+     */
+    private static int readQuoted(byte[] data, int from, int to, StringBuilder value) throws IOException {
+        int i = from;
+        int runStart = i;
+        while (i < to && data[i] != '"' && data[i] != '\n') {
+            if (data[i] == '\\' && i + 1 < to) {
+                value.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+                i++;
+                runStart = i;
+            }
+            i++;
+        }
+        if (i >= to || data[i] != '"') {
+            throw new IOException("Unterminated tag value at offset " + from);
+        }
+        value.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+        return i + 1;
+    }
+
+    /**
+     * Reads the start time of a game that has no Start tag.
+     * @return Epoch millis, or 0 if the date is missing or unreadable
+     */
+    private static long parseDate(String date, String time) {
+        if (date == null) {
+            return 0;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy.MM.dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(date + " " + time).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    private static int parseColor(String text) {
+        String hex = text.startsWith("#") ? text.substring(1) : text;
+        if (hex.length() != 6) {
+            throw new NumberFormatException(text);
+        }
+        return Integer.parseInt(hex, 16);
+    }
+}
@@ -0,0 +1,269 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.board.BoardSymmetry;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.board.Zobrist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only index from positions to the moves played from them across a
+ * game archive, backed by a memory-mapped file built by
+ * {@link PositionIndexBuilder}.
+ *
+ * File layout (big-endian):
+ * - Header (32 bytes): magic "JG4X", version, position count,
+ *   continuation count, Bloom filter words, Bloom hash count, game count,
+ *   reserved
+ * - Bloom filter: one bit array of longs over all position hashes
+ * - Positions (20 bytes each, sorted by hash): canonical hash (long),
+ *   occurrences (int), first continuation (int), continuation count
+ *   (short), reserved (short)
+ * - Continuations (16 bytes each, grouped by position, sorted by move):
+ *   canonical move (short), reserved (short), games (int), wins (int),
+ *   losses (int)
+ *
+ * Like {@link com.mycompany.javagrid4.ai.OpeningBook}, positions are keyed
+ * by their canonical Zobrist hash so rotations and reflections share one
+ * entry. Most positions of a game in progress are not in the index; the
+ * Bloom filter turns those lookups away after a few bit tests without
+ * touching the position table. Hits binary-search the mapped buffer, so
+ * a lookup costs microseconds and never copies the index onto the heap.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PositionIndex implements AutoCloseable {
+
+    static final int MAGIC = 0x4A473458; // "JG4X"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int POSITION_BYTES = 20;
+    static final int CONTINUATION_BYTES = 16;
+
+    /** System property naming the default index file. */
+    public static final String INDEX_PROPERTY = "javagrid4.index";
+    private static final String DEFAULT_FILE = "javagrid4.index";
+
+    private static final PositionIndex EMPTY = new PositionIndex(null, null, 0, 0, 0, 1, 0);
+    private static volatile PositionIndex defaultIndex;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int positionCount;
+    private final int bloomWords;
+    private final int bloomHashes;
+    private final int gameCount;
+    private final int positionsStart;
+    private final int continuationsStart;
+
+    private PositionIndex(FileChannel channel, ByteBuffer buffer, int positionCount, int bloomWords,
+                          int bloomHashes, int gameCount, int continuationCount) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.positionCount = positionCount;
+        this.bloomWords = bloomWords;
+        this.bloomHashes = bloomHashes;
+        this.gameCount = gameCount;
+        this.positionsStart = HEADER_BYTES + bloomWords * 8;
+        this.continuationsStart = positionsStart + positionCount * POSITION_BYTES;
+    }
+
+    /**
+     * Gets an index with no positions.
+     * @return Shared empty index
+     */
+    public static PositionIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Memory-maps an index file.
+     * @param path Index file
+     * @return Opened index
+     * @throws IOException if the file cannot be read or is not a position index
+     */
+    public static PositionIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a position index: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported position index version " + buffer.getInt(4));
+            }
+            int positions = buffer.getInt(8);
+            int continuations = buffer.getInt(12);
+            int words = buffer.getInt(16);
+            int hashes = buffer.getInt(20);
+            if (positions < 0 || continuations < 0 || words < 1 || hashes < 1
+                    || HEADER_BYTES + (long) words * 8 + (long) positions * POSITION_BYTES
+                        + (long) continuations * CONTINUATION_BYTES > buffer.capacity()) {
+                throw new IOException("Truncated position index: " + path);
+            }
+            return new PositionIndex(channel, buffer, positions, words, hashes, buffer.getInt(24), continuations);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the default index: the file named by the {@value #INDEX_PROPERTY}
+     * system property, or "javagrid4.index" in the working directory.
+     * Opened on first use and shared afterwards; falls back to an empty
+     * index if neither file is usable.
+     *
+     * @return Default index
+     */
+    public static PositionIndex getDefault() {
+        PositionIndex index = defaultIndex;
+        if (index == null) {
+            synchronized (PositionIndex.class) {
+                index = defaultIndex;
+                if (index == null) {
+                    index = loadDefault();
+                    defaultIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static PositionIndex loadDefault() {
+        Path path = Paths.get(System.getProperty(INDEX_PROPERTY, DEFAULT_FILE));
+        if (!Files.isRegularFile(path)) {
+            return EMPTY;
+        }
+        try {
+            return open(path);
+        } catch (IOException e) {
+            System.err.println("Failed to load position index: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Gets the number of distinct positions (up to symmetry) in the index.
+     * @return Position count
+     */
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    /**
+     * Gets the number of games the index was built from.
+     * @return Game count
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Looks up a position.
+     * @param board Position to look up
+     * @return Occurrences and continuations, or null if the position never occurred
+     */
+    public PositionStats probe(CompactBoard board) {
+        if (positionCount == 0) {
+            return null;
+        }
+        int size = board.getSize();
+        int sym = BoardSymmetry.canonicalSymmetry(board);
+        long key = Zobrist.hash(board, BoardSymmetry.forward(size, sym));
+        if (!mightContain(key)) {
+            return null;
+        }
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        int entry = positionsStart + index * POSITION_BYTES;
+        int occurrences = buffer.getInt(entry + 8);
+        int first = buffer.getInt(entry + 12);
+        int count = buffer.getShort(entry + 16) & 0xFFFF;
+
+        int[] inverse = BoardSymmetry.inverse(size, sym);
+        List<PositionStats.Continuation> continuations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int at = continuationsStart + (first + i) * CONTINUATION_BYTES;
+            int canonicalMove = buffer.getShort(at);
+            if (canonicalMove < 0 || canonicalMove >= board.getCellCount()) {
+                continue;
+            }
+            continuations.add(new PositionStats.Continuation(inverse[canonicalMove],
+                buffer.getInt(at + 4), buffer.getInt(at + 8), buffer.getInt(at + 12)));
+        }
+        continuations.sort((a, b) -> Integer.compare(b.getGames(), a.getGames()));
+        return new PositionStats(occurrences, continuations);
+    }
+
+    /**
+     * Tests the Bloom filter for a hash.
+     * @param key Canonical hash
+     * @return false if the hash is certainly not in the index
+     */
+    private boolean mightContain(long key) {
+        long bits = (long) bloomWords * 64;
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = bloomBit(key, i, bits);
+            if ((buffer.getLong(HEADER_BYTES + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binary-searches the mapped positions for a hash.
+     * @param key Canonical hash
+     * @return Position index or -1
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = positionCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(positionsStart + mid * POSITION_BYTES);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Picks the i-th Bloom filter bit of a hash by double hashing its two
+     * halves, which are independent since Zobrist hashes are random.
+     * @param key Canonical hash
+     * @param i Hash function number
+     * @param bits Filter size in bits
+     * @return Bit index
+     */
+    static long bloomBit(long key, int i, long bits) {
+        return ((key & 0xFFFFFFFFL) + i * (key >>> 32)) % bits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
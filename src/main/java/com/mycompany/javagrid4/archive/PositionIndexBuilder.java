@@ -0,0 +1,628 @@
+package com.mycompany.javagrid4.archive;
+
+import com.mycompany.javagrid4.board.BoardSymmetry;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.board.Zobrist;
+import com.mycompany.javagrid4.replay.Replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline tool that builds a {@link PositionIndex} from recorded games.
+ *
+ * Every game is replayed; each position on the way is folded onto its
+ * canonical symmetry and counted together with the move played from it
+ * and whether the player making that move went on to win or lose. The
+ * final position of a game counts as an occurrence without a move.
+ *
+ * Counts are aggregated in a fixed-size hash table. When it fills up it
+ * is sorted and spilled to a run file, and the runs are merged into the
+ * index at the end, so an archive of any size is indexed in bounded
+ * memory. The index is written via a temp file and an atomic rename.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.archive.PositionIndexBuilder \
+ *     [--replays DIR] [--archive games.jgn] [--out javagrid4.index] \
+ *     [--threads T] [--buffer-entries N]
+ * </pre>
+ * --archive may be given more than once; without any input the default
+ * replay directory is indexed.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PositionIndexBuilder {
+
+    /** Distinct (position, move) pairs held in memory before spilling. */
+    public static final int DEFAULT_BUFFER_ENTRIES = 1 << 20;
+
+    static final int BLOOM_BITS_PER_POSITION = 10;
+    static final int BLOOM_HASHES = 7;
+
+    /** Move recorded for the final position of a game. */
+    private static final byte END_OF_GAME = -1;
+
+    private final int threads;
+    private final int bufferEntries;
+    private final Path workDirectory;
+
+    // Aggregation table; a slot is free while its game count is 0
+    private final long[] keys;
+    private final byte[] moves;
+    private final int[] games;
+    private final int[] wins;
+    private final int[] losses;
+    private final int mask;
+    private int used;
+
+    private final List<Path> runs = new ArrayList<>();
+    private int gameCount;
+    private int rejectedCount;
+
+    /**
+     * Creates a builder.
+     * @param threads Worker threads for reading and replaying games
+     * @param bufferEntries Distinct (position, move) pairs to aggregate before spilling to disk
+     * @param workDirectory Directory for the temporary run files
+     * @throws IllegalArgumentException if a value is not positive
+     */
+    public PositionIndexBuilder(int threads, int bufferEntries, Path workDirectory) {
+        if (threads < 1 || bufferEntries < 1) {
+            throw new IllegalArgumentException("Threads and buffer size must be positive");
+        }
+        this.threads = threads;
+        this.bufferEntries = bufferEntries;
+        this.workDirectory = workDirectory;
+        int capacity = Integer.highestOneBit(Math.max(16, bufferEntries) * 2 - 1) * 2;
+        keys = new long[capacity];
+        moves = new byte[capacity];
+        games = new int[capacity];
+        wins = new int[capacity];
+        losses = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --replays DIR, --archive FILE (repeatable), --out FILE,
+     *             --threads T, --buffer-entries N
+     * @throws Exception if reading or writing fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path replays = null;
+        List<Path> archives = new ArrayList<>();
+        Path out = Paths.get("javagrid4.index");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int bufferEntries = DEFAULT_BUFFER_ENTRIES;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--replays": replays = Paths.get(args[++i]); break;
+                case "--archive": archives.add(Paths.get(args[++i])); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--buffer-entries": bufferEntries = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (replays == null && archives.isEmpty()) {
+            replays = Replay.getDefaultDirectory();
+        }
+
+        long start = System.nanoTime();
+        Path parent = out.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path work = Files.createTempDirectory(parent, "index-");
+        try {
+            PositionIndexBuilder builder = new PositionIndexBuilder(threads, bufferEntries, work);
+            if (replays != null) {
+                builder.addReplays(replays);
+            }
+            for (Path archive : archives) {
+                ArchiveImporter.Result result = builder.addArchive(archive);
+                for (String error : result.getErrors()) {
+                    System.err.println(error);
+                }
+            }
+            int[] counts = builder.write(out);
+            System.out.printf("Indexed %d games (%d rejected) in %d run%s: %d positions, %d continuations%n",
+                builder.getGameCount(), builder.getRejectedCount(), builder.runs.size(),
+                builder.runs.size() == 1 ? "" : "s", counts[0], counts[1]);
+            System.out.printf("Wrote %s (%.1f MB) in %.2f s%n",
+                out, Files.size(out) / 1e6, (System.nanoTime() - start) / 1e9);
+        } finally {
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(work)) {
+                for (Path file : leftovers) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(work);
+        }
+    }
+
+    /**
+     * Indexes every replay of a directory. Replays that cannot be read are
+     * skipped with a warning.
+     * @param directory Directory of ".jg4r" files
+     * @return Number of games indexed
+     * @throws IOException if the directory cannot be listed or a run cannot be written
+     */
+    public int addReplays(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + Replay.EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> parts = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                parts.add(pool.submit(() -> {
+                    int f;
+                    while ((f = next.getAndIncrement()) < files.size()) {
+                        Replay replay;
+                        try {
+                            replay = Replay.load(files.get(f));
+                            addGame(replay);
+                        } catch (IOException | IllegalArgumentException e) {
+                            System.err.println("Skipping " + files.get(f).getFileName() + ": " + e.getMessage());
+                            synchronized (this) {
+                                rejectedCount++;
+                            }
+                            continue;
+                        }
+                        added.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> part : parts) {
+                try {
+                    part.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while indexing replays", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Indexing replays failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return added.get();
+    }
+
+    /**
+     * Indexes every game of a game record archive, parsing it in parallel
+     * chunks.
+     * @param archive Archive to read
+     * @return Counts of indexed and rejected games
+     * @throws IOException if the archive cannot be read
+     */
+    public ArchiveImporter.Result addArchive(Path archive) throws IOException {
+        ArchiveImporter.Result result = new ArchiveImporter(threads, ArchiveImporter.DEFAULT_CHUNK_BYTES)
+            .scan(archive, (replay, offset) -> addGame(replay));
+        synchronized (this) {
+            rejectedCount += result.getRejected();
+        }
+        return result;
+    }
+
+    /**
+     * Indexes one game. Safe to call from several threads.
+     * @param replay Recorded game
+     * @throws IOException if the table is full and cannot be spilled
+     * @throws IllegalArgumentException if the game contains an illegal move
+     */
+    public void addGame(Replay replay) throws IOException {
+        int size = replay.getSize();
+        int moveCount = replay.getMoveCount();
+        CompactBoard board = new CompactBoard(size);
+        long[] hashes = new long[moveCount + 1];
+        byte[] canonicalMoves = new byte[moveCount + 1];
+        int[] sides = new int[moveCount + 1];
+        for (int ply = 0; ply <= moveCount; ply++) {
+            int sym = BoardSymmetry.canonicalSymmetry(board);
+            int[] forward = BoardSymmetry.forward(size, sym);
+            hashes[ply] = Zobrist.hash(board, forward);
+            sides[ply] = board.getSide();
+            if (ply == moveCount) {
+                canonicalMoves[ply] = END_OF_GAME;
+                break;
+            }
+            int move = replay.getMove(ply);
+            if (!board.isLegal(move)) {
+                throw new IllegalArgumentException("Illegal move " + move + " at ply " + ply);
+            }
+            canonicalMoves[ply] = (byte) forward[move];
+            board.applyMove(move);
+        }
+        // -1 for a tie or an unfinished game, else the winning side
+        int winner = -1;
+        if (board.isGameOver() && board.getScore(0) != board.getScore(1)) {
+            winner = board.getScore(0) > board.getScore(1) ? 0 : 1;
+        }
+
+        synchronized (this) {
+            for (int ply = 0; ply <= moveCount; ply++) {
+                boolean won = winner == sides[ply];
+                boolean lost = winner >= 0 && !won;
+                add(hashes[ply], canonicalMoves[ply], won, lost);
+            }
+            gameCount++;
+        }
+    }
+
+    /**
+     * Gets the number of games indexed so far.
+     * @return Game count
+     */
+    public synchronized int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Gets the number of games that could not be read or replayed.
+     * @return Rejected game count
+     */
+    public synchronized int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Merges everything indexed so far into an index file and deletes the
+     * run files.
+     * @param out Index file to write (replaced if it exists)
+     * @return Number of positions and of continuations written
+     * @throws IOException if writing fails
+     */
+    public synchronized int[] write(Path out) throws IOException {
+        spill();
+        Path positionsFile = workDirectory.resolve("positions.tmp");
+        Path continuationsFile = workDirectory.resolve("continuations.tmp");
+        Path temp = out.resolveSibling(out.getFileName() + ".tmp");
+        try {
+            int[] counts = merge(positionsFile, continuationsFile);
+            int positionCount = counts[0];
+            int continuationCount = counts[1];
+            int words = (int) Math.max(1, ((long) positionCount * BLOOM_BITS_PER_POSITION + 63) / 64);
+            long total = PositionIndex.HEADER_BYTES + (long) words * 8
+                + (long) positionCount * PositionIndex.POSITION_BYTES
+                + (long) continuationCount * PositionIndex.CONTINUATION_BYTES;
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Index of " + positionCount + " positions exceeds 2 GB");
+            }
+            long[] bloom = buildBloom(positionsFile, positionCount, words);
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+                header.putInt(PositionIndex.MAGIC)
+                    .putInt(PositionIndex.VERSION)
+                    .putInt(positionCount)
+                    .putInt(continuationCount)
+                    .putInt(words)
+                    .putInt(BLOOM_HASHES)
+                    .putInt(gameCount)
+                    .putInt(0);
+                header.flip();
+                writeFully(channel, header);
+                ByteBuffer bits = ByteBuffer.allocate(words * 8).order(ByteOrder.BIG_ENDIAN);
+                bits.asLongBuffer().put(bloom);
+                writeFully(channel, bits);
+                append(channel, positionsFile);
+                append(channel, continuationsFile);
+                channel.force(true);
+            }
+            Files.move(temp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return counts;
+        } finally {
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(positionsFile);
+            Files.deleteIfExists(continuationsFile);
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Counts one position and the move played from it. Caller holds the lock.
+     */
+    private void add(long key, byte move, boolean won, boolean lost) throws IOException {
+        int slot = (int) mix(key ^ move * 0x9E3779B97F4A7C15L) & mask;
+        while (games[slot] != 0 && (keys[slot] != key || moves[slot] != move)) {
+            slot = (slot + 1) & mask;
+        }
+        if (games[slot] == 0) {
+            if (used == bufferEntries) {
+                spill();
+                add(key, move, won, lost);
+                return;
+            }
+            keys[slot] = key;
+            moves[slot] = move;
+            used++;
+        }
+        games[slot]++;
+        if (won) {
+            wins[slot]++;
+        } else if (lost) {
+            losses[slot]++;
+        }
+    }
+
+    /**
+     * Writes the table, sorted by hash and move, to a new run file and
+     * empties it.
+     */
+    private void spill() throws IOException {
+        if (used == 0) {
+            return;
+        }
+        int[] order = new int[used];
+        int n = 0;
+        for (int slot = 0; slot < games.length; slot++) {
+            if (games[slot] != 0) {
+                order[n++] = slot;
+            }
+        }
+        sortSlots(order);
+
+        Path run = workDirectory.resolve(String.format("run-%05d.tmp", runs.size()));
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (int slot : order) {
+                out.writeLong(keys[slot]);
+                out.writeByte(moves[slot]);
+                out.writeInt(games[slot]);
+                out.writeInt(wins[slot]);
+                out.writeInt(losses[slot]);
+            }
+        }
+        Arrays.fill(games, 0);
+        Arrays.fill(wins, 0);
+        Arrays.fill(losses, 0);
+        used = 0;
+    }
+
+    /**
+     * Merges the sorted runs, summing equal (position, move) pairs, into a
+     * position table and a continuation table.
+     * @return Number of positions and of continuations written
+     */
+    private int[] merge(Path positionsFile, Path continuationsFile) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        int positionCount = 0;
+        int continuationCount = 0;
+        try (DataOutputStream positions = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(positionsFile), 1 << 16));
+             DataOutputStream continuations = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(continuationsFile), 1 << 16))) {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            boolean open = false;
+            long positionKey = 0;
+            int occurrences = 0;
+            int first = 0;
+            while (!queue.isEmpty()) {
+                RunReader head = queue.poll();
+                long key = head.key;
+                byte move = head.move;
+                int g = head.games;
+                int w = head.wins;
+                int l = head.losses;
+                requeue(queue, head);
+                while (!queue.isEmpty() && queue.peek().key == key && queue.peek().move == move) {
+                    RunReader same = queue.poll();
+                    g += same.games;
+                    w += same.wins;
+                    l += same.losses;
+                    requeue(queue, same);
+                }
+
+                if (!open || key != positionKey) {
+                    if (open) {
+                        writePosition(positions, positionKey, occurrences, first, continuationCount - first);
+                        positionCount++;
+                    }
+                    open = true;
+                    positionKey = key;
+                    occurrences = 0;
+                    first = continuationCount;
+                }
+                occurrences += g;
+                if (move != END_OF_GAME) {
+                    continuations.writeShort(move);
+                    continuations.writeShort(0);
+                    continuations.writeInt(g);
+                    continuations.writeInt(w);
+                    continuations.writeInt(l);
+                    continuationCount++;
+                }
+            }
+            if (open) {
+                writePosition(positions, positionKey, occurrences, first, continuationCount - first);
+                positionCount++;
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        return new int[] { positionCount, continuationCount };
+    }
+
+    private static void requeue(PriorityQueue<RunReader> queue, RunReader reader) throws IOException {
+        if (reader.advance()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    private static void writePosition(DataOutputStream out, long key, int occurrences, int first, int count)
+            throws IOException {
+        out.writeLong(key);
+        out.writeInt(occurrences);
+        out.writeInt(first);
+        out.writeShort(count);
+        out.writeShort(0);
+    }
+
+    /**
+     * Sets the Bloom filter bits of every position in the position table.
+     */
+    private static long[] buildBloom(Path positionsFile, int positionCount, int words) throws IOException {
+        long[] bloom = new long[words];
+        long bits = (long) words * 64;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(positionsFile), 1 << 16))) {
+            for (int p = 0; p < positionCount; p++) {
+                long key = in.readLong();
+                in.skipBytes(PositionIndex.POSITION_BYTES - 8);
+                for (int i = 0; i < BLOOM_HASHES; i++) {
+                    long bit = PositionIndex.bloomBit(key, i, bits);
+                    bloom[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+        return bloom;
+    }
+
+    private static void append(FileChannel channel, Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, channel);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Sorts table slots by hash, then move, with a bottom-up merge sort.
+     */
+    private void sortSlots(int[] order) {
+        int[] from = order;
+        int[] to = new int[order.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int low = 0; low < order.length; low += width * 2) {
+                int mid = Math.min(low + width, order.length);
+                int high = Math.min(low + width * 2, order.length);
+                int i = low;
+                int j = mid;
+                int k = low;
+                while (i < mid && j < high) {
+                    to[k++] = compareSlots(from[j], from[i]) < 0 ? from[j++] : from[i++];
+                }
+                while (i < mid) {
+                    to[k++] = from[i++];
+                }
+                while (j < high) {
+                    to[k++] = from[j++];
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, order.length);
+        }
+    }
+
+    private int compareSlots(int a, int b) {
+        int byKey = Long.compare(keys[a], keys[b]);
+        return byKey != 0 ? byKey : Byte.compare(moves[a], moves[b]);
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    /**
+     * Sequential reader of one sorted run file.
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+        private final DataInputStream in;
+        private long key;
+        private byte move;
+        private int games;
+        private int wins;
+        private int losses;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            move = in.readByte();
+            games = in.readInt();
+            wins = in.readInt();
+            losses = in.readInt();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int byKey = Long.compare(key, other.key);
+            return byKey != 0 ? byKey : Byte.compare(move, other.move);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.javagrid4.archive;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What the game archive knows about one position: how often it occurred
+ * and how each move played from it scored.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PositionStats {
+
+    private final int occurrences;
+    private final List<Continuation> continuations;
+
+    PositionStats(int occurrences, List<Continuation> continuations) {
+        this.occurrences = occurrences;
+        this.continuations = Collections.unmodifiableList(continuations);
+    }
+
+    /**
+     * Gets the number of times the position (or a rotation or reflection
+     * of it) occurred, including games that ended in it.
+     * @return Occurrence count
+     */
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Gets the moves played from the position, most played first.
+     * @return Continuations
+     */
+    public List<Continuation> getContinuations() {
+        return continuations;
+    }
+
+    /**
+     * One move played from a position, scored for the player who made it.
+     */
+    public static final class Continuation {
+        private final int move;
+        private final int games;
+        private final int wins;
+        private final int losses;
+
+        Continuation(int move, int games, int wins, int losses) {
+            this.move = move;
+            this.games = games;
+            this.wins = wins;
+            this.losses = losses;
+        }
+
+        /**
+         * Gets the move, mapped onto the queried board.
+         * @return Cell index
+         */
+        public int getMove() {
+            return move;
+        }
+
+        /**
+         * Gets the number of games in which the move was played.
+         * @return Game count
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the games the player making the move went on to win.
+         * @return Win count
+         */
+        public int getWins() {
+            return wins;
+        }
+
+        /**
+         * Gets the games the player making the move went on to lose.
+         * @return Loss count
+         */
+        public int getLosses() {
+            return losses;
+        }
+
+        /**
+         * Gets the games that were tied or never finished.
+         * @return Remaining game count
+         */
+        public int getOthers() {
+            return games - wins - losses;
+        }
+    }
+}
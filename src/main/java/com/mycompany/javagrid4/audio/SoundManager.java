@@ -59,6 +59,10 @@ public class SoundManager {
      * Creates synthetic sounds if audio files are not available.
      */
     private void initializeSounds() {
+        // No audio lines without a display; playSound then does nothing
+        if (Boolean.getBoolean("java.awt.headless")) {
+            return;
+        }
         // We'll create synthetic sounds programmatically
         // This avoids the need for external audio files
         try {
@@ -0,0 +1,111 @@
+package com.mycompany.javagrid4.board;
+
+/**
+ * The eight rotations and reflections of a square board.
+ * Used to fold symmetric positions onto one canonical hash so that books
+ * and indexes store each position only once.
+ *
+ * A permutation maps a cell of the real board to the cell it occupies in
+ * the transformed board; the inverse maps it back.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class BoardSymmetry {
+
+    public static final int COUNT = 8;
+
+    private static final int[][][] FORWARD = new int[8][][];
+    private static final int[][][] INVERSE = new int[8][][];
+
+    static {
+        for (int size = 3; size <= 7; size += 2) {
+            int cells = size * size;
+            FORWARD[size] = new int[COUNT][cells];
+            INVERSE[size] = new int[COUNT][cells];
+            for (int sym = 0; sym < COUNT; sym++) {
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        int target = transform(sym, row, col, size);
+                        FORWARD[size][sym][row * size + col] = target;
+                        INVERSE[size][sym][target] = row * size + col;
+                    }
+                }
+            }
+        }
+    }
+
+    private BoardSymmetry() {
+    }
+
+    /**
+     * Gets the forward permutation of a symmetry.
+     * @param size Board size
+     * @param sym Symmetry index (0 = identity)
+     * @return Shared permutation array; do not modify
+     */
+    public static int[] forward(int size, int sym) {
+        return FORWARD[size][sym];
+    }
+
+    /**
+     * Gets the inverse permutation of a symmetry.
+     * @param size Board size
+     * @param sym Symmetry index
+     * @return Shared permutation array; do not modify
+     */
+    public static int[] inverse(int size, int sym) {
+        return INVERSE[size][sym];
+    }
+
+    /**
+     * Finds the symmetry giving the smallest hash for a position.
+     * @param board Board to canonicalize
+     * @return Symmetry index
+     */
+    public static int canonicalSymmetry(CompactBoard board) {
+        int best = 0;
+        long bestHash = Zobrist.hash(board, FORWARD[board.getSize()][0]);
+        for (int sym = 1; sym < COUNT; sym++) {
+            long hash = Zobrist.hash(board, FORWARD[board.getSize()][sym]);
+            if (hash < bestHash) {
+                bestHash = hash;
+                best = sym;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes the canonical hash (minimum over all symmetries).
+     * @param board Board to hash
+     * @return Canonical hash
+     */
+    public static long canonicalHash(CompactBoard board) {
+        long best = Long.MAX_VALUE;
+        for (int sym = 0; sym < COUNT; sym++) {
+            best = Math.min(best, Zobrist.hash(board, FORWARD[board.getSize()][sym]));
+        }
+        return best;
+    }
+
+    /**
+     * Maps a cell through one of the eight symmetries.
+     */
+    private static int transform(int sym, int row, int col, int size) {
+        int last = size - 1;
+        int r;
+        int c;
+        switch (sym) {
+            case 0: r = row; c = col; break;
+            case 1: r = col; c = last - row; break;          // rotate 90
+            case 2: r = last - row; c = last - col; break;   // rotate 180
+            case 3: r = last - col; c = row; break;          // rotate 270
+            case 4: r = row; c = last - col; break;          // mirror horizontally
+            case 5: r = last - row; c = col; break;          // mirror vertically
+            case 6: r = col; c = row; break;                 // main diagonal
+            default: r = last - col; c = last - row; break;  // anti-diagonal
+        }
+        return r * size + c;
+    }
+}
@@ -0,0 +1,631 @@
+package com.mycompany.javagrid4.board;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+
+/**
+ * Compact, allocation-free board used by search, bots and data tools.
+ * Mirrors the rules of {@link GameEngine} on a flat byte array so that
+ * positions can be copied, hashed and searched cheaply.
+ *
+ * Each cell holds a single code:
+ * - 0-3: unclaimed cell with that value
+ * - 4: cell at max value claimed by Player 1
+ * - 5: cell at max value claimed by Player 2
+ *
+ * Unlike GameEngine, the side to move switches automatically after
+ * every {@link #applyMove(int)}.
+ *
+ * A pattern table can be attached for fast static evaluation. The board
+ * then tracks, for every cell, the index of its 3×3 neighbourhood pattern
+ * and keeps a running sum of table values, updated as moves change cells.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class CompactBoard {
+
+    public static final int MAX_VALUE = 4;
+    public static final int CODE_P1 = 4;
+    public static final int CODE_P2 = 5;
+    public static final int CODE_COUNT = 6;
+    public static final int MAX_CELLS = 49;
+
+    /** Distinct digits in a 3×3 pattern: values 0-3, or 4 for claimed/off-board. */
+    public static final int PATTERN_DIGITS = 5;
+    /** Number of distinct 3×3 patterns. */
+    public static final int PATTERN_COUNT = 1953125; // 5^9
+    /** Digit used for claimed and off-board cells. */
+    public static final int DEAD_DIGIT = 4;
+
+    private static final int[] PATTERN_POWERS = { 1, 5, 25, 125, 625, 3125, 15625, 78125, 390625 };
+    private static final int[][][] FOOTPRINTS = new int[8][][];
+    private static final int[][][] PATTERN_CENTERS = new int[8][][];
+    private static final int[][][] PATTERN_STEPS = new int[8][][];
+
+    private final int size;
+    private final int cellCount;
+    private final int[][] footprints;
+    private final byte[] cells;
+    private int side;
+    private int score1;
+    private int score2;
+    private int liveCells;
+    private int headroom;
+    private long hash;
+
+    // Undo stack: cell | changedMask << 6 | claimedMask << 11 per ply
+    private int[] undoStack;
+    private int ply;
+
+    // Incremental 3×3 pattern state (null table when not attached)
+    private int[] patternTable;
+    private int[] patternIndex;
+    private int patternSum;
+
+    /**
+     * Creates an empty board with Player 1 to move.
+     * @param size Board size (3, 5, or 7)
+     */
+    public CompactBoard(int size) {
+        if (size < 3 || size > 7 || size % 2 == 0) {
+            throw new IllegalArgumentException("Grid size must be 3, 5, or 7");
+        }
+        this.size = size;
+        this.cellCount = size * size;
+        this.footprints = footprints(size);
+        this.cells = new byte[cellCount];
+        this.undoStack = new int[cellCount * MAX_VALUE];
+        reset();
+    }
+
+    /**
+     * Copy constructor.
+     */
+    private CompactBoard(CompactBoard other) {
+        this.size = other.size;
+        this.cellCount = other.cellCount;
+        this.footprints = other.footprints;
+        this.cells = other.cells.clone();
+        this.side = other.side;
+        this.score1 = other.score1;
+        this.score2 = other.score2;
+        this.liveCells = other.liveCells;
+        this.headroom = other.headroom;
+        this.hash = other.hash;
+        this.undoStack = other.undoStack.clone();
+        this.ply = other.ply;
+        this.patternTable = other.patternTable;
+        this.patternIndex = other.patternIndex == null ? null : other.patternIndex.clone();
+        this.patternSum = other.patternSum;
+    }
+
+    /**
+     * Creates a compact copy of the current engine position.
+     * @param engine Source engine
+     * @return Board with the same cells, scores and side to move
+     */
+    public static CompactBoard fromEngine(GameEngine engine) {
+        int size = engine.getGridSize();
+        CompactBoard board = new CompactBoard(size);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = engine.getCellValue(row, col);
+                Player owner = engine.getCellOwner(row, col);
+                int code = value < MAX_VALUE ? value
+                        : (owner == Player.PLAYER_TWO ? CODE_P2 : CODE_P1);
+                board.setCode(row * size + col, code);
+            }
+        }
+        board.setScores(engine.getScore(Player.PLAYER_ONE), engine.getScore(Player.PLAYER_TWO));
+        board.setSideToMove(engine.getCurrentPlayer());
+        return board;
+    }
+
+    /**
+     * Writes this position into a GameEngine, resizing it if needed.
+     * @param engine Target engine
+     */
+    public void copyTo(GameEngine engine) {
+        if (engine.getGridSize() != size) {
+            engine.changeGridSize(size);
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            engine.setCellValue(row, col, valueOf(cells[cell]));
+            engine.setCellOwner(row, col, ownerOf(cells[cell]));
+        }
+        engine.getGameState().setScore(Player.PLAYER_ONE, score1);
+        engine.getGameState().setScore(Player.PLAYER_TWO, score2);
+        engine.setCurrentPlayer(getSideToMove());
+        engine.setGameOver(isGameOver());
+    }
+
+    /**
+     * Creates an independent copy of this board, including its undo stack.
+     * @return Board copy
+     */
+    public CompactBoard copy() {
+        return new CompactBoard(this);
+    }
+
+    /**
+     * Resets the board to the empty start position.
+     */
+    public void reset() {
+        java.util.Arrays.fill(cells, (byte) 0);
+        side = 0;
+        score1 = 0;
+        score2 = 0;
+        liveCells = cellCount;
+        headroom = cellCount * MAX_VALUE;
+        ply = 0;
+        hash = Zobrist.initialHash(size, cellCount);
+        if (patternTable != null) {
+            rebuildPatterns();
+        }
+    }
+
+    /**
+     * Gets the board size.
+     * @return Size N of the N×N board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of cells.
+     * @return N×N
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the raw code (0-5) of a cell.
+     * @param cell Cell index (row * size + col)
+     * @return Cell code
+     */
+    public int getCode(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Gets the value (0-4) of a cell.
+     * @param cell Cell index
+     * @return Cell value
+     */
+    public int getValue(int cell) {
+        return valueOf(cells[cell]);
+    }
+
+    /**
+     * Gets the owner of a cell.
+     * @param cell Cell index
+     * @return Owner or null if unclaimed
+     */
+    public Player getOwner(int cell) {
+        return ownerOf(cells[cell]);
+    }
+
+    /**
+     * Gets the side to move as an index.
+     * @return 0 for Player 1, 1 for Player 2
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * Gets the side to move.
+     * @return Player whose turn it is
+     */
+    public Player getSideToMove() {
+        return side == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+    }
+
+    /**
+     * Gets a player's score.
+     * @param sideIndex 0 for Player 1, 1 for Player 2
+     * @return Score
+     */
+    public int getScore(int sideIndex) {
+        return sideIndex == 0 ? score1 : score2;
+    }
+
+    /**
+     * Gets the score margin from the side to move's point of view.
+     * @return Own score minus opponent score
+     */
+    public int getMargin() {
+        return side == 0 ? score1 - score2 : score2 - score1;
+    }
+
+    /**
+     * Gets the number of cells still below max value.
+     * @return Live (unclaimed) cell count, which is also the legal move count
+     */
+    public int getLiveCells() {
+        return liveCells;
+    }
+
+    /**
+     * Gets the number of increments the live cells can still take. Every
+     * move uses at least one, so this bounds the number of plies left.
+     * @return Sum of (max value - value) over all cells
+     */
+    public int getHeadroom() {
+        return headroom;
+    }
+
+    /**
+     * Checks if the game is over.
+     * @return true if all cells have reached max value
+     */
+    public boolean isGameOver() {
+        return liveCells == 0;
+    }
+
+    /**
+     * Gets the incremental Zobrist hash of this position.
+     * @return Position hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of moves applied since the last reset.
+     * @return Ply count
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets the cells affected by a move at the given cell
+     * (the cell itself followed by its orthogonal neighbors).
+     * @param cell Cell index
+     * @return Shared footprint array; do not modify
+     */
+    public int[] getFootprint(int cell) {
+        return footprints[cell];
+    }
+
+    /**
+     * Checks whether a move is legal.
+     * @param cell Cell index
+     * @return true if the cell is on the board and below max value
+     */
+    public boolean isLegal(int cell) {
+        return cell >= 0 && cell < cellCount && cells[cell] < MAX_VALUE;
+    }
+
+    /**
+     * Writes all legal moves into the given array.
+     * @param out Destination array (at least getCellCount() long)
+     * @return Number of legal moves written
+     */
+    public int legalMoves(int[] out) {
+        int count = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (cells[cell] < MAX_VALUE) {
+                out[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts how many cells a move would claim without applying it.
+     * @param cell Cell index
+     * @return Number of cells at value 3 in the move's footprint
+     */
+    public int claimsFor(int cell) {
+        int claims = 0;
+        for (int target : footprints[cell]) {
+            if (cells[target] == MAX_VALUE - 1) {
+                claims++;
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Applies a move for the side to move and switches sides.
+     * Increments the cell and its orthogonal neighbors; cells reaching
+     * max value are claimed by the mover.
+     *
+     * @param cell Cell index
+     * @return Number of points awarded
+     */
+    public int applyMove(int cell) {
+        if (cells[cell] >= MAX_VALUE) {
+            throw new IllegalArgumentException("Cell " + cell + " is already at max value");
+        }
+        int[] footprint = footprints[cell];
+        int changed = 0;
+        int claimed = 0;
+        for (int k = 0; k < footprint.length; k++) {
+            int target = footprint[k];
+            int code = cells[target];
+            if (code < MAX_VALUE) {
+                int next = code + 1;
+                if (next == MAX_VALUE) {
+                    next = CODE_P1 + side;
+                    claimed |= 1 << k;
+                    liveCells--;
+                }
+                setCodeInternal(target, code, next);
+                changed |= 1 << k;
+            }
+        }
+        int points = Integer.bitCount(claimed);
+        if (side == 0) {
+            score1 += points;
+        } else {
+            score2 += points;
+        }
+        if (ply == undoStack.length) {
+            undoStack = java.util.Arrays.copyOf(undoStack, ply * 2);
+        }
+        undoStack[ply++] = cell | changed << 6 | claimed << 11;
+        side ^= 1;
+        hash ^= Zobrist.SIDE_KEY;
+        return points;
+    }
+
+    /**
+     * Reverts the last applied move.
+     */
+    public void undoMove() {
+        int entry = undoStack[--ply];
+        int cell = entry & 0x3F;
+        int changed = (entry >>> 6) & 0x1F;
+        int claimed = (entry >>> 11) & 0x1F;
+        side ^= 1;
+        hash ^= Zobrist.SIDE_KEY;
+        int[] footprint = footprints[cell];
+        for (int k = 0; k < footprint.length; k++) {
+            if ((changed & (1 << k)) != 0) {
+                int target = footprint[k];
+                int code = cells[target];
+                int previous = (claimed & (1 << k)) != 0 ? MAX_VALUE - 1 : code - 1;
+                setCodeInternal(target, code, previous);
+            }
+        }
+        int points = Integer.bitCount(claimed);
+        liveCells += points;
+        if (side == 0) {
+            score1 -= points;
+        } else {
+            score2 -= points;
+        }
+    }
+
+    /**
+     * Gets the cell of a previously applied move.
+     * @param index Ply index (0 = first move since reset)
+     * @return Cell index
+     */
+    public int getMoveAt(int index) {
+        if (index < 0 || index >= ply) {
+            throw new IndexOutOfBoundsException("No move at ply " + index);
+        }
+        return undoStack[index] & 0x3F;
+    }
+
+    /**
+     * Sets a cell code directly (used when loading positions).
+     * Live-cell count and hash are kept consistent; scores are not.
+     * @param cell Cell index
+     * @param code New code (0-5)
+     */
+    public void setCode(int cell, int code) {
+        if (code < 0 || code >= CODE_COUNT) {
+            throw new IllegalArgumentException("Cell code must be between 0 and " + (CODE_COUNT - 1));
+        }
+        int old = cells[cell];
+        if (old < MAX_VALUE && code >= MAX_VALUE) {
+            liveCells--;
+        } else if (old >= MAX_VALUE && code < MAX_VALUE) {
+            liveCells++;
+        }
+        setCodeInternal(cell, old, code);
+    }
+
+    /**
+     * Sets both scores directly (used when loading positions).
+     * @param player1Score Player 1 score
+     * @param player2Score Player 2 score
+     */
+    public void setScores(int player1Score, int player2Score) {
+        this.score1 = player1Score;
+        this.score2 = player2Score;
+    }
+
+    /**
+     * Sets the side to move directly (used when loading positions).
+     * @param player Player to move
+     */
+    public void setSideToMove(Player player) {
+        int newSide = player == Player.PLAYER_TWO ? 1 : 0;
+        if (newSide != side) {
+            side = newSide;
+            hash ^= Zobrist.SIDE_KEY;
+        }
+    }
+
+    /**
+     * Attaches a 3×3 pattern value table and computes every cell's pattern.
+     * From then on the pattern sum is updated incrementally by every
+     * cell change, so reading it costs nothing.
+     *
+     * @param table Values indexed by pattern (length {@link #PATTERN_COUNT})
+     */
+    public void attachPatternTable(int[] table) {
+        if (table.length != PATTERN_COUNT) {
+            throw new IllegalArgumentException("Pattern table must have " + PATTERN_COUNT + " entries");
+        }
+        this.patternTable = table;
+        rebuildPatterns();
+    }
+
+    /**
+     * Gets the pattern table currently attached.
+     * @return Table, or null if none
+     */
+    public int[] getPatternTable() {
+        return patternTable;
+    }
+
+    /**
+     * Gets the sum of pattern table values over all cells.
+     * @return Pattern sum (0 if no table is attached)
+     */
+    public int getPatternSum() {
+        return patternSum;
+    }
+
+    /**
+     * Gets the 3×3 pattern index centred on a cell.
+     * Digits are ordered row-major from the top-left neighbour, with the
+     * top-left as the least significant digit.
+     *
+     * @param cell Cell index
+     * @return Pattern index in [0, PATTERN_COUNT)
+     */
+    public int getPatternIndex(int cell) {
+        if (patternIndex != null) {
+            return patternIndex[cell];
+        }
+        return computePattern(cell);
+    }
+
+    /**
+     * Discards the undo stack so the current position becomes the root.
+     */
+    public void clearHistory() {
+        ply = 0;
+    }
+
+    private void setCodeInternal(int cell, int oldCode, int newCode) {
+        cells[cell] = (byte) newCode;
+        headroom += Math.min(oldCode, MAX_VALUE) - Math.min(newCode, MAX_VALUE);
+        hash ^= Zobrist.key(cell, oldCode) ^ Zobrist.key(cell, newCode);
+        if (patternTable != null) {
+            int delta = patternDigit(newCode) - patternDigit(oldCode);
+            if (delta != 0) {
+                int[] centers = PATTERN_CENTERS[size][cell];
+                int[] steps = PATTERN_STEPS[size][cell];
+                for (int i = 0; i < centers.length; i++) {
+                    int center = centers[i];
+                    int before = patternIndex[center];
+                    int after = before + delta * steps[i];
+                    patternIndex[center] = after;
+                    patternSum += patternTable[after] - patternTable[before];
+                }
+            }
+        }
+    }
+
+    private void rebuildPatterns() {
+        if (patternIndex == null) {
+            patternIndex = new int[cellCount];
+        }
+        patternSum = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            patternIndex[cell] = computePattern(cell);
+            patternSum += patternTable[patternIndex[cell]];
+        }
+    }
+
+    private int computePattern(int cell) {
+        int row = cell / size;
+        int col = cell % size;
+        int index = 0;
+        int k = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                int r = row + dr;
+                int c = col + dc;
+                int digit = (r < 0 || r >= size || c < 0 || c >= size)
+                        ? DEAD_DIGIT : patternDigit(cells[r * size + c]);
+                index += digit * PATTERN_POWERS[k++];
+            }
+        }
+        return index;
+    }
+
+    private static int patternDigit(int code) {
+        return code < MAX_VALUE ? code : DEAD_DIGIT;
+    }
+
+    private static int valueOf(int code) {
+        return code < MAX_VALUE ? code : MAX_VALUE;
+    }
+
+    private static Player ownerOf(int code) {
+        if (code == CODE_P1) {
+            return Player.PLAYER_ONE;
+        }
+        return code == CODE_P2 ? Player.PLAYER_TWO : null;
+    }
+
+    /**
+     * Gets (and caches) the move footprints for a board size.
+     */
+    private static synchronized int[][] footprints(int size) {
+        if (FOOTPRINTS[size] == null) {
+            int[][] table = new int[size * size][];
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int[] tmp = new int[5];
+                    int n = 0;
+                    tmp[n++] = row * size + col;
+                    if (row > 0) tmp[n++] = (row - 1) * size + col;
+                    if (row < size - 1) tmp[n++] = (row + 1) * size + col;
+                    if (col > 0) tmp[n++] = row * size + col - 1;
+                    if (col < size - 1) tmp[n++] = row * size + col + 1;
+                    table[row * size + col] = java.util.Arrays.copyOf(tmp, n);
+                }
+            }
+            FOOTPRINTS[size] = table;
+            buildPatternNeighbourhoods(size);
+        }
+        return FOOTPRINTS[size];
+    }
+
+    /**
+     * For every cell, lists the pattern centres that see it and the
+     * digit weight it has in each of those patterns.
+     */
+    private static void buildPatternNeighbourhoods(int size) {
+        int[][] centers = new int[size * size][];
+        int[][] steps = new int[size * size][];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int[] tmpCenters = new int[9];
+                int[] tmpSteps = new int[9];
+                int n = 0;
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        int r = row - dr;
+                        int c = col - dc;
+                        if (r >= 0 && r < size && c >= 0 && c < size) {
+                            tmpCenters[n] = r * size + c;
+                            tmpSteps[n] = PATTERN_POWERS[(dr + 1) * 3 + (dc + 1)];
+                            n++;
+                        }
+                    }
+                }
+                centers[row * size + col] = java.util.Arrays.copyOf(tmpCenters, n);
+                steps[row * size + col] = java.util.Arrays.copyOf(tmpSteps, n);
+            }
+        }
+        PATTERN_CENTERS[size] = centers;
+        PATTERN_STEPS[size] = steps;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.javagrid4.board;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hash keys for {@link CompactBoard} positions.
+ * Keys come from a fixed seed so hashes are stable across runs and can be
+ * stored in files such as opening books and position indexes.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x4A61766147726964L; // "JavaGrid"
+
+    private static final long[] CELL_KEYS = new long[CompactBoard.MAX_CELLS * CompactBoard.CODE_COUNT];
+    private static final long[] SIZE_KEYS = new long[8];
+
+    /** Key toggled whenever the side to move changes. */
+    public static final long SIDE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < CELL_KEYS.length; i++) {
+            CELL_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < SIZE_KEYS.length; i++) {
+            SIZE_KEYS[i] = random.nextLong();
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Gets the key for a cell holding a code.
+     * @param cell Cell index
+     * @param code Cell code (0-5)
+     * @return Zobrist key
+     */
+    public static long key(int cell, int code) {
+        return CELL_KEYS[cell * CompactBoard.CODE_COUNT + code];
+    }
+
+    /**
+     * Gets the hash of the empty board with Player 1 to move.
+     * @param size Board size
+     * @param cellCount Number of cells
+     * @return Initial hash
+     */
+    static long initialHash(int size, int cellCount) {
+        long hash = SIZE_KEYS[size];
+        for (int cell = 0; cell < cellCount; cell++) {
+            hash ^= key(cell, 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the hash of a board as seen through a symmetry.
+     * @param board Board to hash
+     * @param permutation Cell permutation from {@link BoardSymmetry}
+     * @return Hash of the transformed position
+     */
+    public static long hash(CompactBoard board, int[] permutation) {
+        long hash = SIZE_KEYS[board.getSize()];
+        for (int cell = 0; cell < permutation.length; cell++) {
+            hash ^= key(permutation[cell], board.getCode(cell));
+        }
+        return board.getSide() == 0 ? hash : hash ^ SIDE_KEY;
+    }
+}
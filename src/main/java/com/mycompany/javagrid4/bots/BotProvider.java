@@ -0,0 +1,40 @@
+package com.mycompany.javagrid4.bots;
+
+import com.mycompany.javagrid4.ai.Bot;
+
+import java.util.Map;
+
+/**
+ * Service provider interface for third-party bots.
+ *
+ * Implementations are discovered with {@link java.util.ServiceLoader}:
+ * list the implementing class in
+ * {@code META-INF/services/com.mycompany.javagrid4.bots.BotProvider}
+ * inside the bot's JAR and drop the JAR into the {@code bots/} directory
+ * (or put it on the classpath). Each JAR gets its own class loader, so
+ * bots cannot see each other's classes.
+ *
+ * A provider needs a public no-argument constructor. Bots it creates are
+ * always run through a {@link TimedBot}, so they should poll
+ * {@link Thread#isInterrupted()} in long loops.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public interface BotProvider {
+
+    /**
+     * Gets the identifier used in bot specifications, e.g. "greedy" for
+     * {@code greedy:budget=500}. Must not contain ':' or ','.
+     * @return Bot kind identifier
+     */
+    String getId();
+
+    /**
+     * Creates a new bot instance. Each game thread gets its own instance.
+     * @param options Options from the bot specification (never null)
+     * @return Fresh bot
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    Bot create(Map<String, String> options);
+}
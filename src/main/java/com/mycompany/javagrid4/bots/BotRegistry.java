@@ -0,0 +1,146 @@
+package com.mycompany.javagrid4.bots;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/**
+ * Registry of {@link BotProvider}s found on the classpath and in bot JARs.
+ *
+ * JARs in the bots directory are each loaded with their own
+ * {@link URLClassLoader} whose parent is the application class loader, so
+ * plugins see the game's API but not each other. A JAR that fails to load
+ * is reported and skipped; it never prevents the game from starting.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class BotRegistry {
+
+    /** System property naming the bot JAR directory. */
+    public static final String DIRECTORY_PROPERTY = "javagrid4.bots";
+
+    private static final String DEFAULT_DIRECTORY = "bots";
+    private static volatile BotRegistry defaultRegistry;
+
+    private final Map<String, BotProvider> providers = new TreeMap<>();
+
+    /**
+     * Gets the registry for the classpath and the default bots directory
+     * (system property {@value #DIRECTORY_PROPERTY}, else "bots"), loading
+     * it on first use.
+     * @return Shared registry
+     */
+    public static BotRegistry getDefault() {
+        BotRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (BotRegistry.class) {
+                if (defaultRegistry == null) {
+                    defaultRegistry = load(Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+                }
+                registry = defaultRegistry;
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Loads providers from the classpath and from every JAR in a directory.
+     * @param directory Bot JAR directory (may not exist)
+     * @return New registry
+     */
+    public static BotRegistry load(Path directory) {
+        BotRegistry registry = new BotRegistry();
+        ClassLoader application = BotProvider.class.getClassLoader();
+        registry.register(ServiceLoader.load(BotProvider.class, application), null, "classpath");
+
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> jars = Files.newDirectoryStream(directory, "*.jar")) {
+                for (Path jar : jars) {
+                    registry.loadJar(jar, application);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not list bot directory " + directory + ": " + e.getMessage());
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Finds a provider by identifier.
+     * @param id Bot kind identifier
+     * @return Provider, or null if none is registered
+     */
+    public BotProvider find(String id) {
+        return providers.get(id);
+    }
+
+    /**
+     * Gets the identifiers of all registered providers.
+     * @return Sorted identifiers
+     */
+    public List<String> getIds() {
+        return Collections.unmodifiableList(new ArrayList<>(providers.keySet()));
+    }
+
+    private void loadJar(Path jar, ClassLoader parent) {
+        URL url;
+        try {
+            url = jar.toUri().toURL();
+        } catch (MalformedURLException e) {
+            System.err.println("Skipping bot JAR " + jar + ": " + e.getMessage());
+            return;
+        }
+        // Not closed: the loader must stay open for as long as its bots can be created
+        URLClassLoader loader = new URLClassLoader(new URL[] { url }, parent);
+        register(ServiceLoader.load(BotProvider.class, loader), loader, jar.getFileName().toString());
+    }
+
+    /**
+     * Registers the providers of a service loader. When owner is set, only
+     * providers defined by that loader are taken, so classpath providers
+     * found again through parent delegation are not registered twice.
+     */
+    private void register(ServiceLoader<BotProvider> loader, ClassLoader owner, String source) {
+        for (ServiceLoader.Provider<BotProvider> candidate : iterable(loader, source)) {
+            if (owner != null && candidate.type().getClassLoader() != owner) {
+                continue;
+            }
+            try {
+                BotProvider provider = candidate.get();
+                String id = provider.getId();
+                if (id == null || id.isEmpty() || id.indexOf(':') >= 0 || id.indexOf(',') >= 0) {
+                    System.err.println("Skipping bot with invalid id '" + id + "' from " + source);
+                } else if (providers.containsKey(id) || "search".equals(id) || "engine".equals(id)) {
+                    System.err.println("Skipping duplicate bot id '" + id + "' from " + source);
+                } else {
+                    providers.put(id, provider);
+                }
+            } catch (ServiceConfigurationError | RuntimeException | LinkageError e) {
+                System.err.println("Could not load bot from " + source + ": " + e);
+            }
+        }
+    }
+
+    private static List<ServiceLoader.Provider<BotProvider>> iterable(ServiceLoader<BotProvider> loader, String source) {
+        List<ServiceLoader.Provider<BotProvider>> result = new ArrayList<>();
+        try {
+            loader.stream().forEach(result::add);
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Bad bot provider configuration in " + source + ": " + e.getMessage());
+        }
+        return result;
+    }
+}
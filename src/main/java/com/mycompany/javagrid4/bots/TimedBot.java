@@ -0,0 +1,201 @@
+package com.mycompany.javagrid4.bots;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs another bot under a hard per-move time budget.
+ *
+ * Every move is computed on the bot's own dedicated thread, against a copy
+ * of the board. If the bot does not answer within the budget its thread is
+ * interrupted and a fallback move is played instead; the same happens when
+ * it throws or returns an illegal move. A bot that ignores the interrupt
+ * keeps its thread busy, so later moves fall back immediately until it
+ * returns: the bot is never run on two threads at once.
+ *
+ * The CPU time consumed by the bot's thread is tracked with
+ * {@link ThreadMXBean} where the JVM supports it.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class TimedBot implements Bot, AutoCloseable {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Bot delegate;
+    private final long budgetMillis;
+    private final ExecutorService executor;
+    private volatile Thread worker;
+    // Set while a delegate call runs; a cancelled Future is done at once even if its thread is not
+    private final AtomicBoolean running = new AtomicBoolean();
+    private Future<Integer> pending;
+
+    private volatile long moves;
+    private volatile long timeouts;
+    private volatile long failures;
+    private volatile long lastCpuNanos;
+
+    /**
+     * Wraps a bot with a time budget.
+     * @param delegate Bot to run
+     * @param budgetMillis Wall-clock budget per move in milliseconds
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public TimedBot(Bot delegate, long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Move budget must be positive: " + budgetMillis);
+        }
+        this.delegate = delegate;
+        this.budgetMillis = budgetMillis;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "bot-" + delegate.getName());
+            thread.setDaemon(true);
+            worker = thread;
+            return thread;
+        });
+        if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+            try {
+                THREADS.setThreadCpuTimeEnabled(true);
+            } catch (UnsupportedOperationException | SecurityException e) {
+                System.err.println("Bot CPU accounting unavailable: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public synchronized int chooseMove(CompactBoard board) {
+        moves++;
+        if (running.get()) {
+            // Still stuck in an earlier move that ignored the interrupt
+            timeouts++;
+            return fallbackMove(board);
+        }
+        CompactBoard copy = board.copy();
+        try {
+            pending = executor.submit(() -> {
+                running.set(true);
+                try {
+                    return delegate.chooseMove(copy);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed: keep answering so a game in progress can finish
+            return fallbackMove(board);
+        }
+        try {
+            int move = pending.get(budgetMillis, TimeUnit.MILLISECONDS);
+            if (board.isLegal(move)) {
+                return move;
+            }
+            failures++;
+        } catch (TimeoutException e) {
+            pending.cancel(true);
+            timeouts++;
+        } catch (ExecutionException e) {
+            failures++;
+            System.err.println(getName() + " failed: " + e.getCause());
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return fallbackMove(board);
+    }
+
+    /**
+     * Gets the per-move budget.
+     * @return Budget in milliseconds
+     */
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Gets the number of moves requested.
+     * @return Move count
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the number of moves replaced because the budget ran out.
+     * @return Timeout count
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Gets the number of moves replaced because the bot threw or returned
+     * an illegal move.
+     * @return Failure count
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the CPU time used by the bot's thread so far.
+     * @return CPU time in nanoseconds, or 0 if not measurable
+     */
+    public long getCpuNanos() {
+        Thread thread = worker;
+        if (thread == null || !THREADS.isThreadCpuTimeSupported()) {
+            return lastCpuNanos;
+        }
+        long nanos = THREADS.getThreadCpuTime(thread.getId());
+        if (nanos > 0) {
+            lastCpuNanos = nanos;
+        }
+        return lastCpuNanos;
+    }
+
+    /**
+     * Stops the bot's thread. A running move is interrupted; later moves
+     * are answered with the fallback. Safe to call from any thread.
+     */
+    @Override
+    public void close() {
+        getCpuNanos();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Picks the legal move that claims the most cells, lowest index first.
+     * @param board Position
+     * @return Fallback move, or -1 if the game is over
+     */
+    public static int fallbackMove(CompactBoard board) {
+        int best = -1;
+        int bestClaims = -1;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isLegal(cell)) {
+                int claims = board.claimsFor(cell);
+                if (claims > bestClaims) {
+                    best = cell;
+                    bestClaims = claims;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,900 @@
+package com.mycompany.javagrid4.commands;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Undo/redo history kept as a variation tree of packed {@code long} moves.
+ *
+ * Playing a move where a redo line exists starts a new branch instead of
+ * discarding the old one; lines share their common prefix, and replaying
+ * a move that was tried before continues its old line. Each node stores
+ * only the move that leads to it, as one long:
+ * <pre>
+ * bits  0-15  cell index (row * gridSize + col)
+ * bits 16-30  prior value of each lane, 3 bits each
+ * bits 31-40  prior owner of each lane, 2 bits each (0 none, 1 P1, 2 P2)
+ * bit  41     player who moved
+ * bit  42     player to move before the move
+ * bit  43     game-over flag before the move
+ * bits 44-46  points awarded
+ * </pre>
+ * The lanes are the clicked cell and its four orthogonal neighbours, the
+ * only cells a move touches. Only the mover can score, so the prior scores
+ * are the current ones minus the points awarded. A node, including its
+ * tree links, costs 24 bytes, so thousands of branches never copy a board,
+ * and switching to a sibling line is one undo and one move.
+ *
+ * The current line runs from the root along each node's most recently
+ * used child. Undo, redo and play are O(1). Every K plies the board is also
+ * saved as a checkpoint (5 bits per cell), so {@link #jumpTo(long)} reaches
+ * any ply of the line by restoring the nearest checkpoint and replaying at
+ * most K moves.
+ *
+ * Nodes live in parallel primitive arrays that grow up to a configurable
+ * limit. When the limit is reached, branches off the current line are
+ * discarded, and if the line alone is still too long its oldest moves are
+ * dropped too, so the cost per move stays O(1) amortised.
+ *
+ * Undo restores the player who moved, and redo does not switch players,
+ * so a caller switches players after each move as the game does.
+ * {@link #jumpTo(long)} and {@link #switchVariation(int)} set the side to
+ * move themselves, assuming turns alternate after the last recorded move.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class MoveJournal {
+
+    /** Default limit on stored moves (24 MB of nodes). */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    /** Default number of plies between checkpoints. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+    private static final byte[] MAGIC = { 'J', 'G', '4', 'T' };
+    private static final int VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int LANES = 5;
+    private static final int VALUE_SHIFT = 16;
+    private static final int OWNER_SHIFT = 31;
+    private static final int PLAYER_BIT = 41;
+    private static final int PREVIOUS_PLAYER_BIT = 42;
+    private static final int GAME_OVER_BIT = 43;
+    private static final int POINTS_SHIFT = 44;
+    private static final int CELLS_PER_WORD = 12;
+    private static final int NONE = -1;
+
+    private final GameEngine gameEngine;
+    private final int maxNodes;
+    private final int checkpointInterval;
+
+    // Tree nodes; node 0 is the root, the position at ply 'dropped'
+    private long[] deltas;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] preferred;
+    private int[] checkpointOf;
+    private int nodeCount;
+
+    // Current line: path[0..lineEnd] follows preferred children, the engine is at path[depth]
+    private int[] path;
+    private int depth;
+    private int lineEnd;
+    // Moves dropped from the front once the limit was reached
+    private long dropped;
+
+    // Checkpoint slots of checkpointStride longs each
+    private long[] checkpoints;
+    private int checkpointCount;
+    private int checkpointStride;
+
+    /**
+     * Creates a journal with the default size limit and checkpoint interval.
+     * @param gameEngine Engine the moves are applied to
+     */
+    public MoveJournal(GameEngine gameEngine) {
+        this(gameEngine, DEFAULT_MAX_ENTRIES, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates a journal that keeps at most a given number of moves.
+     * @param gameEngine Engine the moves are applied to
+     * @param maxEntries Limit on stored moves across all lines; memory use is
+     *                   about 24 bytes per move
+     * @param checkpointInterval Plies between board checkpoints (K)
+     * @throws IllegalArgumentException if maxEntries or checkpointInterval
+     *         is not positive
+     */
+    public MoveJournal(GameEngine gameEngine, int maxEntries, int checkpointInterval) {
+        if (maxEntries <= 0 || maxEntries >= 1 << 30) {
+            throw new IllegalArgumentException("Journal limit must be between 1 and 2^30 moves");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.gameEngine = gameEngine;
+        this.maxNodes = maxEntries + 1;
+        this.checkpointInterval = checkpointInterval;
+        allocateNodes(Math.min(INITIAL_CAPACITY, maxNodes));
+        this.path = new int[INITIAL_CAPACITY];
+        this.checkpointStride = strideFor(gameEngine.getGridSize());
+        this.checkpoints = new long[4 * checkpointStride];
+        clear();
+    }
+
+    /**
+     * Plays a move and records it. A different redo line is kept as a
+     * sibling variation; replaying a known move continues its old line.
+     * @param row Cell row
+     * @param col Cell column
+     * @param player Player making the move
+     * @return Points awarded for the move
+     */
+    public int executeMove(int row, int col, Player player) {
+        int cell = row * gameEngine.getGridSize() + col;
+        int node = path[depth];
+        int child = findChild(node, cell, player);
+        if (child == NONE && nodeCount == deltas.length) {
+            if (deltas.length < maxNodes) {
+                growNodes();
+            } else {
+                compact();
+                node = path[depth];
+            }
+        }
+        if ((dropped + depth) % checkpointInterval == 0 && checkpointOf[node] == NONE) {
+            checkpointOf[node] = saveCheckpoint();
+        }
+        int points;
+        if (child != NONE) {
+            points = gameEngine.applyMove(row, col, player);
+        } else {
+            child = nodeCount++;
+            firstChild[child] = NONE;
+            nextSibling[child] = NONE;
+            preferred[child] = NONE;
+            checkpointOf[child] = NONE;
+            points = apply(child, cell, player);
+            appendChild(node, child);
+        }
+        preferred[node] = child;
+        depth++;
+        ensurePath(depth);
+        path[depth] = child;
+        extendLine(depth);
+        return points;
+    }
+
+    /**
+     * Undoes the last move.
+     * @return true if a move was undone, false if nothing to undo
+     */
+    public boolean undo() {
+        if (depth == 0) {
+            return false;
+        }
+        restore(deltas[path[depth]]);
+        depth--;
+        return true;
+    }
+
+    /**
+     * Replays the next move of the current line.
+     * @return true if a move was redone, false if nothing to redo
+     */
+    public boolean redo() {
+        if (depth == lineEnd) {
+            return false;
+        }
+        depth++;
+        play(deltas[path[depth]]);
+        return true;
+    }
+
+    /**
+     * Moves the engine to the position at a ply of the current line in one
+     * pass, keeping the moves on either side for undo and redo. Costs at
+     * most K moves plus one checkpoint restore for checkpoint interval K.
+     * @param ply Target ply, {@link #getFirstPly()} to {@link #getLastPly()}
+     * @throws IllegalArgumentException if the ply is not on the line
+     */
+    public void jumpTo(long ply) {
+        if (ply < getFirstPly() || ply > getLastPly()) {
+            throw new IllegalArgumentException(
+                "Ply " + ply + " is outside " + getFirstPly() + ".." + getLastPly());
+        }
+        int target = (int) (ply - dropped);
+        if (target == depth) {
+            return;
+        }
+        Player toMove = sideToMove(target);
+        if (Math.abs(target - depth) > checkpointInterval) {
+            int start = (int) (ply / checkpointInterval * checkpointInterval - dropped);
+            // The checkpoint at the end of the line is only written by the next move
+            if (start >= 0 && checkpointOf[path[start]] == NONE) {
+                start -= checkpointInterval;
+            }
+            if (start >= 0 && checkpointOf[path[start]] != NONE && (target < depth || start > depth)) {
+                loadCheckpoint(checkpointOf[path[start]]);
+                depth = start;
+            }
+        }
+        while (depth > target) {
+            undo();
+        }
+        if (depth < target) {
+            while (depth < target) {
+                depth++;
+                play(deltas[path[depth]]);
+            }
+            gameEngine.setCurrentPlayer(toMove);
+        }
+    }
+
+    /**
+     * Gets the side to move at a ply of the current line.
+     * @param ply Ply, {@link #getFirstPly()} to {@link #getLastPly()}
+     * @return Player to move at that ply
+     */
+    public Player getPlayerToMove(long ply) {
+        int target = (int) (ply - dropped);
+        return target == depth ? gameEngine.getCurrentPlayer() : sideToMove(target);
+    }
+
+    /**
+     * Gets the move played at a ply of the current line.
+     * @param ply Ply, {@link #getFirstPly()} to {@link #getLastPly()} - 1
+     * @return Cell index (row * gridSize + col)
+     */
+    public int getMove(long ply) {
+        return (int) (deltas[path[(int) (ply - dropped) + 1]] & 0xFFFF);
+    }
+
+    /**
+     * Gets the number of moves tried in the position before a ply, i.e. the
+     * lines {@link #switchVariation(int)} can choose from at that ply.
+     * @param ply Ply of the current line after the move, from
+     *            {@link #getFirstPly()} + 1 to {@link #getLastPly()}
+     * @return Number of sibling lines, 0 for the first ply of the journal
+     */
+    public int getVariationCount(long ply) {
+        int at = (int) (ply - dropped);
+        if (at <= 0 || at > lineEnd) {
+            return 0;
+        }
+        int count = 0;
+        for (int c = firstChild[path[at - 1]]; c != NONE; c = nextSibling[c]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the position of the current line among its siblings at a ply.
+     * @param ply Ply of the current line after the move
+     * @return Index from 0 in the order the lines were first played
+     */
+    public int getVariationIndex(long ply) {
+        int at = (int) (ply - dropped);
+        if (at <= 0 || at > lineEnd) {
+            return 0;
+        }
+        int index = 0;
+        for (int c = firstChild[path[at - 1]]; c != path[at]; c = nextSibling[c]) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Replaces the last move with another move tried in the same position,
+     * continuing along that move's line. Wraps around at either end.
+     * @param offset Number of siblings to move by, e.g. 1 or -1
+     * @return true if the line changed, false if there is no other line
+     */
+    public boolean switchVariation(int offset) {
+        int count = getVariationCount(getPly());
+        if (count < 2 || offset % count == 0) {
+            return false;
+        }
+        int parent = path[depth - 1];
+        int target = Math.floorMod(getVariationIndex(getPly()) + offset, count);
+        int sibling = firstChild[parent];
+        for (int i = 0; i < target; i++) {
+            sibling = nextSibling[sibling];
+        }
+        restore(deltas[path[depth]]);
+        play(deltas[sibling]);
+        path[depth] = sibling;
+        preferred[parent] = sibling;
+        extendLine(depth);
+        gameEngine.setCurrentPlayer(sideToMove(depth));
+        return true;
+    }
+
+    /**
+     * Checks if undo is available.
+     * @return true if there are moves to undo
+     */
+    public boolean canUndo() {
+        return depth > 0;
+    }
+
+    /**
+     * Checks if redo is available.
+     * @return true if there are moves to redo
+     */
+    public boolean canRedo() {
+        return depth < lineEnd;
+    }
+
+    /**
+     * Clears all history, making the engine's current position the root.
+     * Keeps the allocated arrays for the next game.
+     */
+    public void clear() {
+        nodeCount = 1;
+        firstChild[0] = NONE;
+        nextSibling[0] = NONE;
+        preferred[0] = NONE;
+        checkpointOf[0] = NONE;
+        path[0] = 0;
+        depth = 0;
+        lineEnd = 0;
+        dropped = 0;
+        checkpointCount = 0;
+        checkpointStride = strideFor(gameEngine.getGridSize());
+    }
+
+    /**
+     * Gets the number of moves that can be undone.
+     * @return Undo count
+     */
+    public int getUndoCount() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of moves that can be redone.
+     * @return Redo count
+     */
+    public int getRedoCount() {
+        return lineEnd - depth;
+    }
+
+    /**
+     * Gets the number of moves played since the last clear, including any
+     * dropped from the journal because of the size limit.
+     * @return Current ply
+     */
+    public long getPly() {
+        return dropped + depth;
+    }
+
+    /**
+     * Gets the earliest ply that can still be reached.
+     * @return First ply in the journal
+     */
+    public long getFirstPly() {
+        return dropped;
+    }
+
+    /**
+     * Gets the ply at the end of the current line.
+     * @return Last ply of the line
+     */
+    public long getLastPly() {
+        return dropped + lineEnd;
+    }
+
+    /**
+     * Gets the number of moves stored across all lines.
+     * @return Node count, not counting the root
+     */
+    public int getMoveCount() {
+        return nodeCount - 1;
+    }
+
+    /**
+     * Gets the checkpoint interval.
+     * @return Plies between checkpoints
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Gets the bytes currently held by moves and checkpoints.
+     * @return Memory use in bytes
+     */
+    public long getMemoryUsage() {
+        return (long) deltas.length * (Long.BYTES + 4 * Integer.BYTES)
+            + (long) path.length * Integer.BYTES + (long) checkpoints.length * Long.BYTES;
+    }
+
+    /**
+     * Writes the whole tree. The format is magic "JG4T", then varints: the
+     * version, board size, root ply, the root board (one byte per cell, value
+     * plus owner), both scores and a flag byte. Nodes follow in preorder as
+     * (cell * 2 + mover, child count[, index of the child on the current
+     * line if more than one]), the root with no move. The current ply ends
+     * the file. A node takes two or three bytes.
+     * @param out Stream to write to
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + nodeCount * 3);
+        buffer.write(MAGIC, 0, MAGIC.length);
+        writeVarint(buffer, VERSION);
+        int size = gameEngine.getGridSize();
+        writeVarint(buffer, size);
+        writeVarint(buffer, dropped);
+
+        // The root board is not stored anywhere, so visit it
+        int here = depth;
+        jumpTo(dropped);
+        for (int i = 0; i < size * size; i++) {
+            buffer.write(gameEngine.getCellValue(i / size, i % size)
+                | ownerCode(gameEngine.getCellOwner(i / size, i % size)) << 3);
+        }
+        writeVarint(buffer, gameEngine.getScore(Player.PLAYER_ONE));
+        writeVarint(buffer, gameEngine.getScore(Player.PLAYER_TWO));
+        buffer.write((gameEngine.getCurrentPlayer() == Player.PLAYER_TWO ? 1 : 0)
+            | (gameEngine.isGameOver() ? 2 : 0));
+        jumpTo(dropped + here);
+
+        int[] stack = new int[INITIAL_CAPACITY];
+        int top = 0;
+        stack[0] = 0;
+        while (top >= 0) {
+            int node = stack[top--];
+            if (node != 0) {
+                writeVarint(buffer, (deltas[node] & 0xFFFF) << 1 | (deltas[node] >>> PLAYER_BIT & 1));
+            }
+            int children = 0;
+            int chosen = 0;
+            for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+                if (c == preferred[node]) {
+                    chosen = children;
+                }
+                children++;
+            }
+            writeVarint(buffer, children);
+            if (children > 1) {
+                writeVarint(buffer, chosen);
+            }
+            // Push in reverse so the first child is written first
+            if (top + children >= stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + children + 1));
+            }
+            int at = top + children;
+            for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+                stack[at--] = c;
+            }
+            top += children;
+        }
+        writeVarint(buffer, depth);
+        buffer.writeTo(out);
+    }
+
+    /**
+     * Replaces the journal with a tree written by {@link #write(OutputStream)}
+     * and sets the engine to its current position. Every move is replayed
+     * once to rebuild the deltas and checkpoints; the side to move before
+     * each move is taken to be its mover.
+     * @param in Stream to read from
+     * @throws IOException if the data is malformed, for another board size,
+     *         or has more moves than the journal's limit; the journal is then
+     *         cleared and the engine should be reset
+     */
+    public void read(InputStream in) throws IOException {
+        try {
+            readTree(in);
+        } catch (IOException | RuntimeException e) {
+            clear();
+            throw e;
+        }
+    }
+
+    private void readTree(InputStream in) throws IOException {
+        for (byte b : MAGIC) {
+            if (readByte(in) != b) {
+                throw new IOException("Not an analysis tree");
+            }
+        }
+        long version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported analysis tree version " + version);
+        }
+        int size = gameEngine.getGridSize();
+        if (readVarint(in) != size) {
+            throw new IOException("Analysis tree is for another board size");
+        }
+        long rootPly = readVarint(in);
+        clear();
+        dropped = rootPly;
+
+        for (int i = 0; i < size * size; i++) {
+            int code = readByte(in);
+            if ((code & 7) > 4 || code >>> 3 > 2) {
+                throw new IOException("Invalid cell in analysis tree");
+            }
+            gameEngine.setCellValue(i / size, i % size, code & 7);
+            gameEngine.setCellOwner(i / size, i % size, ownerOf(code >>> 3));
+        }
+        gameEngine.getGameState().setScore(Player.PLAYER_ONE, (int) readVarint(in));
+        gameEngine.getGameState().setScore(Player.PLAYER_TWO, (int) readVarint(in));
+        int flags = readByte(in);
+        Player rootPlayer = (flags & 1) == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+        gameEngine.setCurrentPlayer(rootPlayer);
+        gameEngine.setGameOver((flags & 2) != 0);
+
+        // Depth-first rebuild: path[] holds the open nodes, remaining[] their unread children
+        int[] remaining = new int[INITIAL_CAPACITY];
+        int[] chosen = new int[INITIAL_CAPACITY];
+        remaining[0] = readCount(in);
+        chosen[0] = remaining[0] > 1 ? (int) readVarint(in) : 0;
+        int level = 0;
+        while (level >= 0) {
+            int node = path[level];
+            if (remaining[level] == 0) {
+                if (level > 0) {
+                    restore(deltas[node]);
+                }
+                level--;
+                continue;
+            }
+            remaining[level]--;
+            long code = readVarint(in);
+            int cell = (int) (code >>> 1);
+            if (cell >= size * size) {
+                throw new IOException("Invalid move in analysis tree");
+            }
+            Player mover = (code & 1) == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+            if (nodeCount == deltas.length) {
+                if (deltas.length == maxNodes) {
+                    throw new IOException("Analysis tree has more moves than the journal limit");
+                }
+                growNodes();
+            }
+            gameEngine.setCurrentPlayer(mover);
+            if ((dropped + level) % checkpointInterval == 0 && checkpointOf[node] == NONE) {
+                checkpointOf[node] = saveCheckpoint();
+            }
+            int child = nodeCount++;
+            firstChild[child] = NONE;
+            nextSibling[child] = NONE;
+            preferred[child] = NONE;
+            checkpointOf[child] = NONE;
+            apply(child, cell, mover);
+            int index = appendChild(node, child);
+            if (index == chosen[level]) {
+                preferred[node] = child;
+            }
+            level++;
+            ensurePath(level);
+            if (level >= remaining.length) {
+                remaining = Arrays.copyOf(remaining, remaining.length * 2);
+                chosen = Arrays.copyOf(chosen, chosen.length * 2);
+            }
+            path[level] = child;
+            remaining[level] = readCount(in);
+            chosen[level] = remaining[level] > 1 ? (int) readVarint(in) : 0;
+        }
+        gameEngine.setCurrentPlayer(rootPlayer);
+        depth = 0;
+        path[0] = 0;
+        extendLine(0);
+        long current = readVarint(in);
+        if (current > lineEnd) {
+            throw new IOException("Current ply is past the end of the line");
+        }
+        jumpTo(dropped + current);
+    }
+
+    /**
+     * Records the lanes of a move into a node, then plays it.
+     */
+    private int apply(int node, int cell, Player player) {
+        int size = gameEngine.getGridSize();
+        int row = cell / size;
+        int col = cell % size;
+        long entry = cell;
+        for (int lane = 0; lane < LANES; lane++) {
+            int r = laneRow(lane, row);
+            int c = laneCol(lane, col);
+            if (r < 0 || r >= size || c < 0 || c >= size) {
+                continue;
+            }
+            entry |= (long) gameEngine.getCellValue(r, c) << (VALUE_SHIFT + lane * 3);
+            entry |= (long) ownerCode(gameEngine.getCellOwner(r, c)) << (OWNER_SHIFT + lane * 2);
+        }
+        if (player == Player.PLAYER_TWO) {
+            entry |= 1L << PLAYER_BIT;
+        }
+        if (gameEngine.getCurrentPlayer() == Player.PLAYER_TWO) {
+            entry |= 1L << PREVIOUS_PLAYER_BIT;
+        }
+        if (gameEngine.isGameOver()) {
+            entry |= 1L << GAME_OVER_BIT;
+        }
+        int points = gameEngine.applyMove(row, col, player);
+        deltas[node] = entry | (long) points << POINTS_SHIFT;
+        return points;
+    }
+
+    /**
+     * Plays a recorded move again; the position is the one it was recorded in.
+     */
+    private void play(long entry) {
+        int size = gameEngine.getGridSize();
+        int cell = (int) (entry & 0xFFFF);
+        gameEngine.applyMove(cell / size, cell % size, moverOf(entry));
+    }
+
+    /**
+     * Puts the engine back to the state recorded in an entry.
+     */
+    private void restore(long entry) {
+        int size = gameEngine.getGridSize();
+        int cell = (int) (entry & 0xFFFF);
+        int row = cell / size;
+        int col = cell % size;
+        for (int lane = 0; lane < LANES; lane++) {
+            int r = laneRow(lane, row);
+            int c = laneCol(lane, col);
+            if (r < 0 || r >= size || c < 0 || c >= size) {
+                continue;
+            }
+            gameEngine.setCellValue(r, c, (int) (entry >>> (VALUE_SHIFT + lane * 3) & 7));
+            gameEngine.setCellOwner(r, c, ownerOf((int) (entry >>> (OWNER_SHIFT + lane * 2) & 3)));
+        }
+        Player mover = moverOf(entry);
+        int points = (int) (entry >>> POINTS_SHIFT & 7);
+        if (points > 0) {
+            gameEngine.getGameState().setScore(mover, gameEngine.getScore(mover) - points);
+        }
+        gameEngine.setCurrentPlayer((entry >>> PREVIOUS_PLAYER_BIT & 1) == 0
+            ? Player.PLAYER_ONE : Player.PLAYER_TWO);
+        gameEngine.setGameOver((entry >>> GAME_OVER_BIT & 1) != 0);
+    }
+
+    /**
+     * Gets the side to move at a depth of the current line from the move
+     * that follows it, or from the last mover at the end of the line.
+     */
+    private Player sideToMove(int at) {
+        if (at < lineEnd) {
+            return (deltas[path[at + 1]] >>> PREVIOUS_PLAYER_BIT & 1) == 0
+                ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+        }
+        return at > 0 ? moverOf(deltas[path[at]]).getOpponent() : gameEngine.getCurrentPlayer();
+    }
+
+    /**
+     * Finds the child of a node reached by a given move.
+     */
+    private int findChild(int node, int cell, Player player) {
+        long mover = player == Player.PLAYER_TWO ? 1 : 0;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if ((deltas[c] & 0xFFFF) == cell && (deltas[c] >>> PLAYER_BIT & 1) == mover) {
+                return c;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Links a node after its last sibling. A position has at most one child
+     * per cell, so the walk is short.
+     * @return Index of the new child among its siblings
+     */
+    private int appendChild(int parent, int child) {
+        if (firstChild[parent] == NONE) {
+            firstChild[parent] = child;
+            return 0;
+        }
+        int index = 1;
+        int last = firstChild[parent];
+        while (nextSibling[last] != NONE) {
+            last = nextSibling[last];
+            index++;
+        }
+        nextSibling[last] = child;
+        return index;
+    }
+
+    /**
+     * Rebuilds path[] past a depth by following the preferred children.
+     */
+    private void extendLine(int from) {
+        int d = from;
+        while (preferred[path[d]] != NONE) {
+            ensurePath(d + 1);
+            path[d + 1] = preferred[path[d]];
+            d++;
+        }
+        lineEnd = d;
+    }
+
+    /**
+     * Makes room when the node limit is reached: keeps only the current
+     * line, and if that still fills more than half the limit, drops its
+     * oldest moves (and if need be the far end of the redo line).
+     */
+    private void compact() {
+        int keep = Math.max(1, maxNodes / 2);
+        int from = 0;
+        int to = lineEnd;
+        if (to - from + 1 > keep) {
+            from = Math.min(depth, to + 1 - keep);
+        }
+        if (to - from + 1 > keep) {
+            to = from + keep - 1;
+        }
+        int count = to - from + 1;
+        long[] oldDeltas = deltas;
+        int[] oldCheckpointOf = checkpointOf;
+        long[] oldCheckpoints = checkpoints;
+        allocateNodes(deltas.length);
+        checkpoints = new long[oldCheckpoints.length];
+        checkpointCount = 0;
+        for (int i = 0; i < count; i++) {
+            int old = path[from + i];
+            deltas[i] = oldDeltas[old];
+            firstChild[i] = i + 1 < count ? i + 1 : NONE;
+            nextSibling[i] = NONE;
+            preferred[i] = firstChild[i];
+            checkpointOf[i] = NONE;
+            if (oldCheckpointOf[old] != NONE) {
+                checkpointOf[i] = checkpointCount++;
+                System.arraycopy(oldCheckpoints, oldCheckpointOf[old] * checkpointStride,
+                    checkpoints, checkpointOf[i] * checkpointStride, checkpointStride);
+            }
+            path[i] = i;
+        }
+        nodeCount = count;
+        dropped += from;
+        depth -= from;
+        lineEnd = count - 1;
+    }
+
+    /**
+     * Saves the current board in a new checkpoint slot.
+     * Word 0 holds the scores, side to move and game-over flag; the cells
+     * follow at 5 bits each (3 for the value, 2 for the owner).
+     * @return Slot index
+     */
+    private int saveCheckpoint() {
+        if ((checkpointCount + 1) * checkpointStride > checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+        }
+        int slot = checkpointCount++;
+        int base = slot * checkpointStride;
+        int size = gameEngine.getGridSize();
+        checkpoints[base] = gameEngine.getScore(Player.PLAYER_ONE)
+            | (long) gameEngine.getScore(Player.PLAYER_TWO) << 16
+            | (gameEngine.getCurrentPlayer() == Player.PLAYER_TWO ? 1L << 32 : 0)
+            | (gameEngine.isGameOver() ? 1L << 33 : 0);
+        for (int w = 1; w < checkpointStride; w++) {
+            checkpoints[base + w] = 0;
+        }
+        for (int i = 0; i < size * size; i++) {
+            long code = gameEngine.getCellValue(i / size, i % size)
+                | ownerCode(gameEngine.getCellOwner(i / size, i % size)) << 3;
+            checkpoints[base + 1 + i / CELLS_PER_WORD] |= code << (i % CELLS_PER_WORD * 5);
+        }
+        return slot;
+    }
+
+    /**
+     * Restores the board from a checkpoint slot.
+     */
+    private void loadCheckpoint(int slot) {
+        int base = slot * checkpointStride;
+        int size = gameEngine.getGridSize();
+        for (int i = 0; i < size * size; i++) {
+            int code = (int) (checkpoints[base + 1 + i / CELLS_PER_WORD] >>> (i % CELLS_PER_WORD * 5)) & 31;
+            gameEngine.setCellValue(i / size, i % size, code & 7);
+            gameEngine.setCellOwner(i / size, i % size, ownerOf(code >>> 3));
+        }
+        long header = checkpoints[base];
+        gameEngine.getGameState().setScore(Player.PLAYER_ONE, (int) (header & 0xFFFF));
+        gameEngine.getGameState().setScore(Player.PLAYER_TWO, (int) (header >>> 16 & 0xFFFF));
+        gameEngine.setCurrentPlayer((header >>> 32 & 1) == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO);
+        gameEngine.setGameOver((header >>> 33 & 1) != 0);
+    }
+
+    private void allocateNodes(int capacity) {
+        deltas = new long[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        preferred = new int[capacity];
+        checkpointOf = new int[capacity];
+    }
+
+    private void growNodes() {
+        int capacity = (int) Math.min((long) deltas.length * 2, maxNodes);
+        deltas = Arrays.copyOf(deltas, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        preferred = Arrays.copyOf(preferred, capacity);
+        checkpointOf = Arrays.copyOf(checkpointOf, capacity);
+    }
+
+    private void ensurePath(int index) {
+        if (index >= path.length) {
+            path = Arrays.copyOf(path, Math.max(path.length * 2, index + 1));
+        }
+    }
+
+    // Lanes: 0 clicked, 1 up, 2 down, 3 left, 4 right
+    private static int laneRow(int lane, int row) {
+        return lane == 1 ? row - 1 : lane == 2 ? row + 1 : row;
+    }
+
+    private static int laneCol(int lane, int col) {
+        return lane == 3 ? col - 1 : lane == 4 ? col + 1 : col;
+    }
+
+    private static Player moverOf(long entry) {
+        return (entry >>> PLAYER_BIT & 1) == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+    }
+
+    private static int ownerCode(Player owner) {
+        return owner == null ? 0 : owner == Player.PLAYER_ONE ? 1 : 2;
+    }
+
+    private static Player ownerOf(int code) {
+        return code == 0 ? null : code == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+    }
+
+    private static int strideFor(int gridSize) {
+        return 1 + (gridSize * gridSize + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Analysis tree is truncated");
+        }
+        return b;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in analysis tree");
+    }
+
+    private static int readCount(InputStream in) throws IOException {
+        long count = readVarint(in);
+        if (count > 64 * 64) {
+            throw new IOException("Invalid child count in analysis tree");
+        }
+        return (int) count;
+    }
+}
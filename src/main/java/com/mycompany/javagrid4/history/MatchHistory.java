@@ -0,0 +1,636 @@
+package com.mycompany.javagrid4.history;
+
+import com.mycompany.javagrid4.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only store of every finished game, with lifetime statistics per
+ * player and per board size.
+ *
+ * Results are appended to segment files of a few MB ("matches-00001.jg4h",
+ * "matches-00002.jg4h", ...); a full segment is never written again. Each
+ * segment starts with "JG4H" and a varint version, followed by records
+ * framed as varint payload length, payload and a 4-byte CRC32:
+ * <pre>
+ * varint end time (epoch millis), byte board size
+ * per player: string name, 3 bytes RGB, varint score
+ * varint duration (seconds), varint move count
+ * </pre>
+ * A torn record at the end of the last segment (a crash during an append)
+ * is cut off when the store is opened.
+ *
+ * All matches are held in memory as columns, with secondary indexes by
+ * player name (case-insensitive) and by board size: each index keeps the
+ * list of its matches and running totals, so statistics are a map lookup
+ * rather than a scan, even over millions of games. Appends update the
+ * indexes at once and queue the record for a writer thread, which writes
+ * whatever has queued up with one write and one sync.
+ *
+ * One instance at a time appends: it holds a lock on "matches.lock" in
+ * the directory while open. Another instance that opens the store
+ * meanwhile reads the matches stored so far but does not store its own.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class MatchHistory implements Closeable {
+
+    /** File name extension for history segments. */
+    public static final String EXTENSION = ".jg4h";
+    /** System property naming the history directory. */
+    public static final String DIRECTORY_PROPERTY = "javagrid4.history";
+    /** Segment size at which a new segment is started. */
+    public static final int DEFAULT_SEGMENT_BYTES = 4 << 20;
+
+    private static final byte[] MAGIC = { 'J', 'G', '4', 'H' };
+    private static final int VERSION = 1;
+    private static final int MAX_RECORD_LENGTH = 1024;
+    private static final int[] SIZES = { 3, 5, 7 };
+    private static final Object CLOSE = new Object();
+    private static final String LOCK_FILE = "matches.lock";
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    // Match columns, in the order the games ended
+    private int count;
+    private long[] endMillis = new long[1024];
+    private byte[] boardSizes = new byte[1024];
+    private int[] nameIds = new int[2048];
+    private int[] colors = new int[2048];
+    private int[] scores = new int[2048];
+    private int[] durations = new int[1024];
+    private int[] moveCounts = new int[1024];
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIdsByName = new HashMap<>();
+
+    // Secondary indexes
+    private final Map<String, Index> byPlayer = new HashMap<>();
+    private final Map<String, Index[]> byPlayerAndSize = new HashMap<>();
+    private final Index[] bySize = { new Index(), new Index(), new Index() };
+
+    // Append side, used only by the writer thread once the store is open
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private FileChannel lockChannel;
+    private FileChannel segment;
+    // Set once appends are no longer stored: the writer stopped, or another instance holds the lock
+    private volatile boolean closed;
+    private volatile int segmentNumber;
+    private long segmentSize;
+
+    private MatchHistory(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the store in the default directory, reading all stored matches.
+     * @return Open store
+     * @throws IOException if the directory or a segment cannot be read
+     */
+    public static MatchHistory open() throws IOException {
+        return open(getDefaultDirectory(), DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a store, reading all stored matches. Takes a few hundred
+     * milliseconds per million matches, so open it off the EDT.
+     * @param directory Directory of the segments (created if missing)
+     * @param segmentBytes Size at which a new segment is started
+     * @return Open store
+     * @throws IOException if the directory or a segment cannot be read
+     * @throws IllegalArgumentException if segmentBytes is too small for a record
+     */
+    public static MatchHistory open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < MAX_RECORD_LENGTH * 2) {
+            throw new IllegalArgumentException("Segments must hold at least " + MAX_RECORD_LENGTH * 2 + " bytes");
+        }
+        Files.createDirectories(directory);
+        MatchHistory history = new MatchHistory(directory, segmentBytes);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "matches-*" + EXTENSION)) {
+                for (Path path : stream) {
+                    files.add(path);
+                }
+            }
+            Collections.sort(files);
+            long lastValidEnd = 0;
+            for (Path path : files) {
+                lastValidEnd = history.readSegment(Files.readAllBytes(path), path);
+                history.segmentNumber = Math.max(history.segmentNumber, numberOf(path));
+            }
+            if (lock == null) {
+                // Another instance appends to the segments; writing too would overwrite its records
+                System.err.println("Match history is in use by another instance; new matches are not stored");
+                lockChannel.close();
+                history.closed = true;
+                return history;
+            }
+            history.openLastSegment(files, lastValidEnd);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        history.lockChannel = lockChannel;
+        history.writer = new Thread(history::runWriter, "javagrid4-history");
+        history.writer.setDaemon(true);
+        history.writer.start();
+        return history;
+    }
+
+    /**
+     * Opens the last segment for appending, cutting off a torn record, or
+     * starts a new one.
+     */
+    private void openLastSegment(List<Path> files, long lastValidEnd) throws IOException {
+        if (files.isEmpty()) {
+            startSegment(1);
+        } else if (lastValidEnd == 0) {
+            // Shorter than its header, e.g. after a crash right after it was created: start it again
+            Path last = files.get(files.size() - 1);
+            System.err.println("Rewriting the incomplete match history segment " + last.getFileName());
+            Files.delete(last);
+            startSegment(numberOf(last));
+        } else {
+            Path last = files.get(files.size() - 1);
+            segment = FileChannel.open(last, StandardOpenOption.WRITE);
+            if (lastValidEnd < segment.size()) {
+                System.err.println("Cutting off a damaged match record at the end of " + last.getFileName());
+                segment.truncate(lastValidEnd);
+            }
+            segment.position(lastValidEnd);
+            segmentSize = lastValidEnd;
+        }
+    }
+
+    /**
+     * Adds a finished game. The indexes are updated before this returns;
+     * the record is written to disk in the background.
+     * @param match Result to add
+     */
+    public void append(MatchRecord match) {
+        byte[] payload = encode(match);
+        synchronized (this) {
+            add(match.getEndMillis(), match.getBoardSize(),
+                match.getName(Player.PLAYER_ONE), match.getColor(Player.PLAYER_ONE), match.getScore(Player.PLAYER_ONE),
+                match.getName(Player.PLAYER_TWO), match.getColor(Player.PLAYER_TWO), match.getScore(Player.PLAYER_TWO),
+                match.getDurationSeconds(), match.getMoveCount());
+        }
+        if (!closed) {
+            queue.add(payload);
+        }
+    }
+
+    /**
+     * Gets a player's lifetime statistics.
+     * @param name Player name (case-insensitive, surrounding spaces ignored)
+     * @return Statistics, {@link MatchStats#EMPTY} for an unknown player
+     */
+    public synchronized MatchStats getPlayerStats(String name) {
+        Index index = byPlayer.get(key(name));
+        return index == null ? MatchStats.EMPTY : index.snapshot();
+    }
+
+    /**
+     * Gets a player's statistics on one board size.
+     * @param name Player name (case-insensitive, surrounding spaces ignored)
+     * @param boardSize 3, 5 or 7
+     * @return Statistics, {@link MatchStats#EMPTY} if the player has no games there
+     */
+    public synchronized MatchStats getPlayerStats(String name, int boardSize) {
+        Index[] indexes = byPlayerAndSize.get(key(name));
+        return indexes == null ? MatchStats.EMPTY : indexes[sizeSlot(boardSize)].snapshot();
+    }
+
+    /**
+     * Gets the statistics of a board size, with wins and losses as seen by
+     * Player 1 (the player who moves first).
+     * @param boardSize 3, 5 or 7
+     * @return Statistics of all games on that board
+     */
+    public synchronized MatchStats getBoardStats(int boardSize) {
+        return bySize[sizeSlot(boardSize)].snapshot();
+    }
+
+    /**
+     * Gets a player's most recent matches.
+     * @param name Player name (case-insensitive, surrounding spaces ignored)
+     * @param limit Maximum number of matches
+     * @return Matches, newest first
+     */
+    public synchronized List<MatchRecord> getRecentMatches(String name, int limit) {
+        Index index = byPlayer.get(key(name));
+        List<MatchRecord> matches = new ArrayList<>();
+        if (index != null) {
+            for (int i = index.size - 1; i >= 0 && matches.size() < limit; i--) {
+                matches.add(getMatch(index.matches[i]));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets a stored match.
+     * @param number Match number, 0 for the first game ever stored
+     * @return Match
+     * @throws IllegalArgumentException if there is no such match
+     */
+    public synchronized MatchRecord getMatch(int number) {
+        if (number < 0 || number >= count) {
+            throw new IllegalArgumentException("No match " + number + " (" + count + " stored)");
+        }
+        return new MatchRecord(endMillis[number], boardSizes[number],
+            names.get(nameIds[number * 2]), colors[number * 2], scores[number * 2],
+            names.get(nameIds[number * 2 + 1]), colors[number * 2 + 1], scores[number * 2 + 1],
+            durations[number], moveCounts[number]);
+    }
+
+    /**
+     * Gets the number of stored matches.
+     * @return Match count
+     */
+    public synchronized int getMatchCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of segment files.
+     * @return Segment count
+     */
+    public int getSegmentCount() {
+        return segmentNumber;
+    }
+
+    /**
+     * Waits for queued matches to be written and closes the current segment.
+     * Matches appended afterwards are indexed but not stored.
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return; // Read-only: another instance stores the matches
+        }
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the directory the match history is kept in.
+     * @return Value of {@value #DIRECTORY_PROPERTY}, or "history"
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, "history"));
+    }
+
+    /**
+     * Adds a match to the columns and indexes.
+     */
+    private void add(long end, int size, String name1, int color1, int score1,
+                     String name2, int color2, int score2, int seconds, int moves) {
+        if (count == endMillis.length) {
+            int capacity = count * 2;
+            endMillis = Arrays.copyOf(endMillis, capacity);
+            boardSizes = Arrays.copyOf(boardSizes, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity * 2);
+            colors = Arrays.copyOf(colors, capacity * 2);
+            scores = Arrays.copyOf(scores, capacity * 2);
+            durations = Arrays.copyOf(durations, capacity);
+            moveCounts = Arrays.copyOf(moveCounts, capacity);
+        }
+        int number = count++;
+        endMillis[number] = end;
+        boardSizes[number] = (byte) size;
+        nameIds[number * 2] = nameId(name1);
+        nameIds[number * 2 + 1] = nameId(name2);
+        colors[number * 2] = color1;
+        colors[number * 2 + 1] = color2;
+        scores[number * 2] = score1;
+        scores[number * 2 + 1] = score2;
+        durations[number] = seconds;
+        moveCounts[number] = moves;
+
+        int result = Integer.compare(score1, score2);
+        int slot = sizeSlot(size);
+        bySize[slot].add(number, result, seconds, moves);
+        String key1 = key(name1);
+        String key2 = key(name2);
+        playerIndex(key1).add(number, result, seconds, moves);
+        playerSizeIndex(key1, slot).add(number, result, seconds, moves);
+        if (!key2.equals(key1)) {
+            playerIndex(key2).add(number, -result, seconds, moves);
+            playerSizeIndex(key2, slot).add(number, -result, seconds, moves);
+        }
+    }
+
+    private Index playerIndex(String key) {
+        return byPlayer.computeIfAbsent(key, k -> new Index());
+    }
+
+    private Index playerSizeIndex(String key, int slot) {
+        return byPlayerAndSize.computeIfAbsent(key, k -> new Index[] { new Index(), new Index(), new Index() })[slot];
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIdsByName.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIdsByName.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Reads every valid record of a segment into the store.
+     * @return Length of the valid part of the segment; 0 if it is too
+     *         short to hold its header
+     */
+    private long readSegment(byte[] data, Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < MAGIC.length + 1) {
+            return 0;
+        }
+        for (byte b : MAGIC) {
+            if (in.get() != b) {
+                throw new IOException(path.getFileName() + " is not a match history segment");
+            }
+        }
+        long version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported match history version " + version + " in " + path.getFileName());
+        }
+        CRC32 crc = new CRC32();
+        long valid = in.position();
+        while (in.hasRemaining()) {
+            try {
+                int length = (int) readVarint(in);
+                if (length < 1 || length > MAX_RECORD_LENGTH || in.remaining() < length + 4) {
+                    break;
+                }
+                int start = in.position();
+                crc.reset();
+                crc.update(data, start, length);
+                in.position(start + length);
+                if ((int) crc.getValue() != in.getInt()) {
+                    break;
+                }
+                in.position(start);
+                long end = readVarint(in);
+                int size = in.get();
+                String name1 = readString(in);
+                int color1 = readRgb(in);
+                int score1 = (int) readVarint(in);
+                String name2 = readString(in);
+                int color2 = readRgb(in);
+                int score2 = (int) readVarint(in);
+                int seconds = (int) readVarint(in);
+                int moves = (int) readVarint(in);
+                if (in.position() != start + length || (size != 3 && size != 5 && size != 7)) {
+                    break;
+                }
+                in.position(start + length + 4);
+                add(end, size, name1, color1, score1, name2, color2, score2, seconds, moves);
+                valid = in.position();
+            } catch (RuntimeException e) {
+                break; // Torn or malformed record
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Writer loop: waits for work, then writes and syncs everything queued
+     * as one batch, starting a new segment whenever the current one is full.
+     */
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(4096);
+        CRC32 crc = new CRC32();
+        try {
+            boolean done = false;
+            while (!done) {
+                batch.clear();
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Object item : batch) {
+                    if (item == CLOSE) {
+                        done = true;
+                        continue;
+                    }
+                    byte[] payload = (byte[]) item;
+                    if (segmentSize + frames.size() + payload.length + 9 > segmentBytes) {
+                        flush(frames);
+                        segment.close();
+                        startSegment(segmentNumber + 1);
+                    }
+                    crc.reset();
+                    crc.update(payload, 0, payload.length);
+                    int checksum = (int) crc.getValue();
+                    writeVarint(frames, payload.length);
+                    frames.write(payload, 0, payload.length);
+                    frames.write(checksum >>> 24);
+                    frames.write(checksum >>> 16);
+                    frames.write(checksum >>> 8);
+                    frames.write(checksum);
+                }
+                flush(frames);
+            }
+        } catch (IOException e) {
+            System.err.println("Match history is no longer stored: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            queue.clear();
+            try {
+                segment.close();
+                lockChannel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the match history: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends the framed records to the current segment and syncs it.
+     */
+    private void flush(ByteArrayOutputStream frames) throws IOException {
+        if (frames.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+        frames.reset();
+        while (buffer.hasRemaining()) {
+            segmentSize += segment.write(buffer);
+        }
+        segment.force(false);
+    }
+
+    private void startSegment(int number) throws IOException {
+        Path path = directory.resolve(String.format("matches-%05d%s", number, EXTENSION));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(8);
+        header.write(MAGIC, 0, MAGIC.length);
+        writeVarint(header, VERSION);
+        ByteBuffer buffer = ByteBuffer.wrap(header.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segmentNumber = number;
+        segmentSize = header.size();
+    }
+
+    private static byte[] encode(MatchRecord match) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(48);
+        writeVarint(out, match.getEndMillis());
+        out.write(match.getBoardSize());
+        for (Player player : new Player[] { Player.PLAYER_ONE, Player.PLAYER_TWO }) {
+            byte[] name = match.getName(player).getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, name.length);
+            out.write(name, 0, name.length);
+            int rgb = match.getColor(player);
+            out.write(rgb >>> 16);
+            out.write(rgb >>> 8);
+            out.write(rgb);
+            writeVarint(out, match.getScore(player));
+        }
+        writeVarint(out, match.getDurationSeconds());
+        writeVarint(out, match.getMoveCount());
+        if (out.size() > MAX_RECORD_LENGTH) {
+            throw new IllegalArgumentException("Match record is too large (" + out.size() + " bytes)");
+        }
+        return out.toByteArray();
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int sizeSlot(int boardSize) {
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] == boardSize) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Board size must be 3, 5 or 7: " + boardSize);
+    }
+
+    private static int numberOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring("matches-".length(), name.length() - EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static int readRgb(ByteBuffer in) {
+        return (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 8 | (in.get() & 0xFF);
+    }
+
+    /**
+     * Matches of one player or board size, with running totals.
+     */
+    private static final class Index {
+        int[] matches = new int[4];
+        int size;
+        int wins;
+        int losses;
+        int ties;
+        long totalSeconds;
+        long totalMoves;
+        int currentStreak;
+        int longestWinStreak;
+
+        /**
+         * Adds a match.
+         * @param result 1 for a win, 0 for a tie, -1 for a loss
+         */
+        void add(int number, int result, int seconds, int moves) {
+            if (size == matches.length) {
+                matches = Arrays.copyOf(matches, size * 2);
+            }
+            matches[size++] = number;
+            totalSeconds += seconds;
+            totalMoves += moves;
+            if (result > 0) {
+                wins++;
+                currentStreak = currentStreak > 0 ? currentStreak + 1 : 1;
+                longestWinStreak = Math.max(longestWinStreak, currentStreak);
+            } else if (result < 0) {
+                losses++;
+                currentStreak = currentStreak < 0 ? currentStreak - 1 : -1;
+            } else {
+                ties++;
+                currentStreak = 0;
+            }
+        }
+
+        MatchStats snapshot() {
+            return new MatchStats(wins, losses, ties, totalSeconds, totalMoves, currentStreak, longestWinStreak);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.mycompany.javagrid4.history;
+
+import com.mycompany.javagrid4.Player;
+
+/**
+ * The result of one finished game, as kept by {@link MatchHistory}.
+ *
+ * Colors are RGB ints so the history never touches AWT.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class MatchRecord {
+
+    private final long endMillis;
+    private final int boardSize;
+    private final String[] names;
+    private final int[] colors;
+    private final int[] scores;
+    private final int durationSeconds;
+    private final int moveCount;
+
+    /**
+     * Creates a match record.
+     * @param endMillis When the game ended (epoch millis)
+     * @param boardSize 3, 5 or 7
+     * @param player1Name Player 1's name
+     * @param player1Color Player 1's color as RGB
+     * @param player1Score Player 1's final score
+     * @param player2Name Player 2's name
+     * @param player2Color Player 2's color as RGB
+     * @param player2Score Player 2's final score
+     * @param durationSeconds Game duration
+     * @param moveCount Moves played
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public MatchRecord(long endMillis, int boardSize,
+                       String player1Name, int player1Color, int player1Score,
+                       String player2Name, int player2Color, int player2Score,
+                       int durationSeconds, int moveCount) {
+        if (boardSize != 3 && boardSize != 5 && boardSize != 7) {
+            throw new IllegalArgumentException("Board size must be 3, 5 or 7: " + boardSize);
+        }
+        if (player1Name == null || player2Name == null) {
+            throw new IllegalArgumentException("Player names are required");
+        }
+        if (player1Score < 0 || player2Score < 0 || durationSeconds < 0 || moveCount < 0) {
+            throw new IllegalArgumentException("Scores, duration and move count cannot be negative");
+        }
+        this.endMillis = endMillis;
+        this.boardSize = boardSize;
+        this.names = new String[] { player1Name, player2Name };
+        this.colors = new int[] { player1Color & 0xFFFFFF, player2Color & 0xFFFFFF };
+        this.scores = new int[] { player1Score, player2Score };
+        this.durationSeconds = durationSeconds;
+        this.moveCount = moveCount;
+    }
+
+    /**
+     * Gets when the game ended.
+     * @return Epoch millis
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * Gets the board size.
+     * @return 3, 5 or 7
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Gets a player's name.
+     * @param player Player
+     * @return Name
+     */
+    public String getName(Player player) {
+        return names[index(player)];
+    }
+
+    /**
+     * Gets a player's color.
+     * @param player Player
+     * @return RGB value
+     */
+    public int getColor(Player player) {
+        return colors[index(player)];
+    }
+
+    /**
+     * Gets a player's final score.
+     * @param player Player
+     * @return Score
+     */
+    public int getScore(Player player) {
+        return scores[index(player)];
+    }
+
+    /**
+     * Gets the winner.
+     * @return Player with the higher score, or null for a tie
+     */
+    public Player getWinner() {
+        if (scores[0] == scores[1]) {
+            return null;
+        }
+        return scores[0] > scores[1] ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+    }
+
+    /**
+     * Gets the game duration.
+     * @return Seconds
+     */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Gets the number of moves played.
+     * @return Move count
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    private static int index(Player player) {
+        return player == Player.PLAYER_ONE ? 0 : 1;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mycompany.javagrid4.history;
+
+/**
+ * Lifetime statistics over a set of games, from one side's point of view:
+ * a player's games, or for a board size, the games as seen by Player 1.
+ *
+ * Snapshots are immutable; {@link MatchHistory} keeps them up to date
+ * incrementally, so reading one costs a map lookup.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class MatchStats {
+
+    /** Statistics of no games. */
+    public static final MatchStats EMPTY = new MatchStats(0, 0, 0, 0, 0, 0, 0);
+
+    private final int wins;
+    private final int losses;
+    private final int ties;
+    private final long totalSeconds;
+    private final long totalMoves;
+    private final int currentStreak;
+    private final int longestWinStreak;
+
+    MatchStats(int wins, int losses, int ties, long totalSeconds, long totalMoves,
+               int currentStreak, int longestWinStreak) {
+        this.wins = wins;
+        this.losses = losses;
+        this.ties = ties;
+        this.totalSeconds = totalSeconds;
+        this.totalMoves = totalMoves;
+        this.currentStreak = currentStreak;
+        this.longestWinStreak = longestWinStreak;
+    }
+
+    /**
+     * Gets the number of games.
+     * @return Wins + losses + ties
+     */
+    public int getGames() {
+        return wins + losses + ties;
+    }
+
+    /**
+     * Gets the number of wins.
+     * @return Games won
+     */
+    public int getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the number of losses.
+     * @return Games lost
+     */
+    public int getLosses() {
+        return losses;
+    }
+
+    /**
+     * Gets the number of ties.
+     * @return Games tied
+     */
+    public int getTies() {
+        return ties;
+    }
+
+    /**
+     * Gets the share of games won.
+     * @return 0.0 to 1.0 (0 without games)
+     */
+    public double getWinRate() {
+        int games = getGames();
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    /**
+     * Gets the average game duration.
+     * @return Seconds (0 without games)
+     */
+    public double getAverageSeconds() {
+        int games = getGames();
+        return games == 0 ? 0 : (double) totalSeconds / games;
+    }
+
+    /**
+     * Gets the average number of moves per game.
+     * @return Moves (0 without games)
+     */
+    public double getAverageMoves() {
+        int games = getGames();
+        return games == 0 ? 0 : (double) totalMoves / games;
+    }
+
+    /**
+     * Gets the run of identical results ending with the latest game.
+     * @return Positive for wins in a row, negative for losses in a row,
+     *         0 if the latest game was a tie or there are no games
+     */
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    /**
+     * Gets the most wins in a row.
+     * @return Longest winning streak
+     */
+    public int getLongestWinStreak() {
+        return longestWinStreak;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.javagrid4.history;
+
+/**
+ * A player's rating and record, as kept by {@link PlayerProfiles}.
+ *
+ * Snapshots are immutable; the store updates its own copy as games are
+ * recorded.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PlayerProfile {
+
+    private final String name;
+    private final double rating;
+    private final double peakRating;
+    private final int wins;
+    private final int losses;
+    private final int ties;
+    private final long lastPlayedMillis;
+
+    PlayerProfile(String name, double rating, double peakRating, int wins, int losses, int ties,
+                  long lastPlayedMillis) {
+        this.name = name;
+        this.rating = rating;
+        this.peakRating = peakRating;
+        this.wins = wins;
+        this.losses = losses;
+        this.ties = ties;
+        this.lastPlayedMillis = lastPlayedMillis;
+    }
+
+    /**
+     * Gets the player's name, as written in their latest game.
+     * @return Name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the current Elo rating.
+     * @return Rating, {@link PlayerProfiles#INITIAL_RATING} before any game
+     */
+    public double getRating() {
+        return rating;
+    }
+
+    /**
+     * Gets the highest rating the player has reached.
+     * @return Peak rating
+     */
+    public double getPeakRating() {
+        return peakRating;
+    }
+
+    /**
+     * Gets the number of rated games.
+     * @return Wins, losses and ties together
+     */
+    public int getGames() {
+        return wins + losses + ties;
+    }
+
+    /**
+     * Gets the number of games won.
+     * @return Wins
+     */
+    public int getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the number of games lost.
+     * @return Losses
+     */
+    public int getLosses() {
+        return losses;
+    }
+
+    /**
+     * Gets the number of tied games.
+     * @return Ties
+     */
+    public int getTies() {
+        return ties;
+    }
+
+    /**
+     * Gets when the player last finished a game.
+     * @return Epoch millis
+     */
+    public long getLastPlayedMillis() {
+        return lastPlayedMillis;
+    }
+}
@@ -0,0 +1,418 @@
+package com.mycompany.javagrid4.history;
+
+import com.mycompany.javagrid4.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Elo ratings and records of every player who finished a game, with a
+ * leaderboard that is kept sorted as results come in.
+ *
+ * Each result moves both players' ratings by K times the difference
+ * between the actual score (1, 0.5 or 0) and the expected score
+ * 1 / (1 + 10^((opponent - own) / 400)). K is {@value #PROVISIONAL_K} for
+ * a player's first {@value #PROVISIONAL_GAMES} games and
+ * {@value #ESTABLISHED_K} after. A game against yourself is not rated.
+ *
+ * Profiles live in a tree ordered by rating, so a result costs two
+ * O(log n) re-insertions and the leaderboard is read from the front of
+ * the tree. The store is a single "profiles.jg4p" file next to the match
+ * history:
+ * <pre>
+ * "JG4P", varint version, varint matches applied, varint profile count
+ * per profile: string name, varint rating * 100, varint peak * 100,
+ *              varint wins, losses, ties, varint last played (epoch millis)
+ * 4-byte CRC32 of everything before it
+ * </pre>
+ * It is rewritten atomically by a background thread after each result,
+ * with results that arrive during a write folded into the next one. The
+ * number of matches applied ties the file to the {@link MatchHistory}:
+ * matches the history has beyond that count (say, after a crash between
+ * the two writes) are applied when the store is opened.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class PlayerProfiles implements Closeable {
+
+    /** Name of the profile file in the history directory. */
+    public static final String FILE_NAME = "profiles.jg4p";
+    /** Rating of a player before their first game. */
+    public static final double INITIAL_RATING = 1500;
+    /** K-factor while a player is provisional. */
+    public static final int PROVISIONAL_K = 40;
+    /** K-factor once a player has played {@value #PROVISIONAL_GAMES} games. */
+    public static final int ESTABLISHED_K = 20;
+    /** Games after which a player is no longer provisional. */
+    public static final int PROVISIONAL_GAMES = 30;
+
+    private static final byte[] MAGIC = { 'J', 'G', '4', 'P' };
+    private static final int VERSION = 1;
+    private static final double MIN_RATING = 100;
+    private static final Object SAVE = new Object();
+    private static final Object CLOSE = new Object();
+
+    // Highest rating first; equal ratings in name order
+    private static final Comparator<Entry> BY_RATING = (a, b) -> {
+        int order = Double.compare(b.rating, a.rating);
+        return order != 0 ? order : a.key.compareTo(b.key);
+    };
+
+    private final Path file;
+    private final Map<String, Entry> byKey = new HashMap<>();
+    private final TreeSet<Entry> leaderboard = new TreeSet<>(BY_RATING);
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private long matchesApplied;
+
+    private PlayerProfiles(Path file) {
+        this.file = file;
+        this.writer = new Thread(this::runWriter, "javagrid4-profiles");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the profile store of a match history's directory and applies
+     * any matches of the history it has not seen yet. If the file is
+     * missing or damaged, the ratings are built from the whole history once.
+     * @param directory Directory of the profile file (created if missing)
+     * @param history Match history the profiles follow
+     * @return Open store
+     * @throws IOException if the directory cannot be created
+     */
+    public static PlayerProfiles open(Path directory, MatchHistory history) throws IOException {
+        Files.createDirectories(directory);
+        PlayerProfiles profiles = new PlayerProfiles(directory.resolve(FILE_NAME));
+        try {
+            profiles.read(Files.readAllBytes(profiles.file));
+        } catch (NoSuchFileException e) {
+            // First start: rated from the history below
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Rebuilding player ratings, " + FILE_NAME + " is damaged: " + e.getMessage());
+            profiles.byKey.clear();
+            profiles.leaderboard.clear();
+            profiles.matchesApplied = 0;
+        }
+        int stored = history.getMatchCount();
+        long applied = profiles.matchesApplied;
+        if (applied > stored) {
+            System.err.println("Match history has " + stored + " matches, ratings include " + applied);
+            profiles.matchesApplied = stored;
+        }
+        for (long i = applied; i < stored; i++) {
+            profiles.apply(history.getMatch((int) i));
+        }
+        profiles.writer.start();
+        if (profiles.matchesApplied != applied) {
+            profiles.queue.add(SAVE);
+        }
+        return profiles;
+    }
+
+    /**
+     * Rates a finished game and updates both players' records. Call it for
+     * every match appended to the history, in the same order.
+     * @param match Result to rate
+     */
+    public void record(MatchRecord match) {
+        synchronized (this) {
+            apply(match);
+        }
+        queue.add(SAVE);
+    }
+
+    /**
+     * Gets a player's profile.
+     * @param name Player name (case-insensitive, surrounding spaces ignored)
+     * @return Profile, or null if the player has not finished a game
+     */
+    public synchronized PlayerProfile getProfile(String name) {
+        Entry entry = byKey.get(key(name));
+        return entry == null ? null : entry.snapshot();
+    }
+
+    /**
+     * Gets the highest-rated players.
+     * @param limit Maximum number of players
+     * @return Profiles, best first
+     */
+    public synchronized List<PlayerProfile> getLeaderboard(int limit) {
+        List<PlayerProfile> top = new ArrayList<>(Math.min(limit, leaderboard.size()));
+        Iterator<Entry> entries = leaderboard.iterator();
+        while (entries.hasNext() && top.size() < limit) {
+            top.add(entries.next().snapshot());
+        }
+        return top;
+    }
+
+    /**
+     * Gets the number of players with a profile.
+     * @return Player count
+     */
+    public synchronized int getPlayerCount() {
+        return byKey.size();
+    }
+
+    /**
+     * Gets the number of matches the ratings include.
+     * @return Matches rated or skipped as self-play
+     */
+    public synchronized long getMatchesApplied() {
+        return matchesApplied;
+    }
+
+    /**
+     * Waits for the latest ratings to be written and stops the writer.
+     */
+    @Override
+    public void close() {
+        queue.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies one result to the profiles and the leaderboard.
+     */
+    private void apply(MatchRecord match) {
+        matchesApplied++;
+        String name1 = match.getName(Player.PLAYER_ONE);
+        String name2 = match.getName(Player.PLAYER_TWO);
+        if (key(name1).equals(key(name2))) {
+            return;
+        }
+        Entry first = entry(name1);
+        Entry second = entry(name2);
+        Player winner = match.getWinner();
+        double score = winner == Player.PLAYER_ONE ? 1 : winner == null ? 0.5 : 0;
+        double expected = 1 / (1 + Math.pow(10, (second.rating - first.rating) / 400));
+        leaderboard.remove(first);
+        leaderboard.remove(second);
+        first.update(name1, first.rating + kFactor(first) * (score - expected), score, match.getEndMillis());
+        second.update(name2, second.rating + kFactor(second) * (expected - score), 1 - score, match.getEndMillis());
+        leaderboard.add(first);
+        leaderboard.add(second);
+    }
+
+    private Entry entry(String name) {
+        String key = key(name);
+        Entry entry = byKey.get(key);
+        if (entry == null) {
+            entry = new Entry(key, name.trim(), INITIAL_RATING);
+            byKey.put(key, entry);
+            leaderboard.add(entry);
+        }
+        return entry;
+    }
+
+    private static int kFactor(Entry entry) {
+        return entry.wins + entry.losses + entry.ties < PROVISIONAL_GAMES ? PROVISIONAL_K : ESTABLISHED_K;
+    }
+
+    private void read(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 4) {
+            throw new IOException("file is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if ((int) crc.getValue() != in.getInt(data.length - 4)) {
+            throw new IOException("checksum mismatch");
+        }
+        for (byte b : MAGIC) {
+            if (in.get() != b) {
+                throw new IOException("not a profile file");
+            }
+        }
+        long version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("unsupported version " + version);
+        }
+        matchesApplied = readVarint(in);
+        long count = readVarint(in);
+        for (long i = 0; i < count; i++) {
+            String name = readString(in);
+            Entry entry = new Entry(key(name), name, readVarint(in) / 100.0);
+            entry.peakRating = readVarint(in) / 100.0;
+            entry.wins = (int) readVarint(in);
+            entry.losses = (int) readVarint(in);
+            entry.ties = (int) readVarint(in);
+            entry.lastPlayedMillis = readVarint(in);
+            byKey.put(entry.key, entry);
+            leaderboard.add(entry);
+        }
+    }
+
+    private synchronized byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + byKey.size() * 24);
+        out.write(MAGIC, 0, MAGIC.length);
+        writeVarint(out, VERSION);
+        writeVarint(out, matchesApplied);
+        writeVarint(out, leaderboard.size());
+        for (Entry entry : leaderboard) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, name.length);
+            out.write(name, 0, name.length);
+            writeVarint(out, Math.round(entry.rating * 100));
+            writeVarint(out, Math.round(entry.peakRating * 100));
+            writeVarint(out, entry.wins);
+            writeVarint(out, entry.losses);
+            writeVarint(out, entry.ties);
+            writeVarint(out, entry.lastPlayedMillis);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray(), 0, out.size());
+        int checksum = (int) crc.getValue();
+        out.write(checksum >>> 24);
+        out.write(checksum >>> 16);
+        out.write(checksum >>> 8);
+        out.write(checksum);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writer loop: waits for a change, then writes the current profiles
+     * once for however many changes have queued up.
+     */
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            boolean done = false;
+            while (!done) {
+                batch.clear();
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                done = batch.contains(CLOSE);
+                if (batch.contains(SAVE)) {
+                    try {
+                        save(toBytes());
+                    } catch (IOException e) {
+                        System.err.println("Could not store player ratings: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replaces the profile file through a synced temporary file.
+     */
+    private void save(byte[] data) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), FILE_NAME, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = (int) readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("invalid string length " + length);
+        }
+        String text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    /**
+     * Mutable profile; taken out of the leaderboard while its rating changes.
+     */
+    private static final class Entry {
+        final String key;
+        String name;
+        double rating;
+        double peakRating;
+        int wins;
+        int losses;
+        int ties;
+        long lastPlayedMillis;
+
+        Entry(String key, String name, double rating) {
+            this.key = key;
+            this.name = name;
+            this.rating = rating;
+            this.peakRating = rating;
+        }
+
+        void update(String latestName, double newRating, double score, long endMillis) {
+            name = latestName.trim();
+            rating = Math.max(MIN_RATING, newRating);
+            peakRating = Math.max(peakRating, rating);
+            if (score == 1) {
+                wins++;
+            } else if (score == 0) {
+                losses++;
+            } else {
+                ties++;
+            }
+            lastPlayedMillis = Math.max(lastPlayedMillis, endMillis);
+        }
+
+        PlayerProfile snapshot() {
+            return new PlayerProfile(name, rating, peakRating, wins, losses, ties, lastPlayedMillis);
+        }
+    }
+}
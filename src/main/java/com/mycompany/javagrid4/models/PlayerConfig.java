@@ -13,6 +13,7 @@ public class PlayerConfig {
     private final int playerId;
     private String name;
     private Color color;
+    private String botSpec;
     
     /**
      * Creates a player configuration with default values.
@@ -78,6 +79,30 @@ public class PlayerConfig {
         this.color = color;
     }
     
+    /**
+     * Gets the bot specification controlling this player.
+     * @return Bot specification (see BotSpec), or null for a human player
+     */
+    public String getBotSpec() {
+        return botSpec;
+    }
+    
+    /**
+     * Sets the bot specification controlling this player.
+     * @param botSpec Bot specification, or null for a human player
+     */
+    public void setBotSpec(String botSpec) {
+        this.botSpec = botSpec;
+    }
+    
+    /**
+     * Checks whether this player is controlled by a bot.
+     * @return true if a bot specification is set
+     */
+    public boolean isBot() {
+        return botSpec != null;
+    }
+    
     /**
      * Validates that this configuration is complete and valid.
      * @return true if name is 1-10 characters and color is set
@@ -91,7 +116,7 @@ public class PlayerConfig {
     
     @Override
     public String toString() {
-        return String.format("PlayerConfig[id=%d, name='%s', color=%s]", 
-            playerId, name, color);
+        return String.format("PlayerConfig[id=%d, name='%s', color=%s, bot=%s]", 
+            playerId, name, color, botSpec);
     }
 }
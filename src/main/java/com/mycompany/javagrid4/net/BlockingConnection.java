@@ -0,0 +1,203 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One client socket of a {@link BlockingGameServer}, read by its own
+ * thread with plain blocking I/O.
+ *
+ * Frames are written by whichever thread sends them, under a lock; a
+ * {@link ReentrantLock} rather than a monitor, so that a virtual thread
+ * blocked in a write does not pin its carrier thread. A blocking write
+ * cannot be skipped, so the first {@link #trySend} (a spectator's) starts
+ * a writer thread for the connection, and from then on every frame is
+ * handed to it; a game never waits for a slow spectator.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class BlockingConnection extends Peer implements Runnable {
+
+    // Frames waiting for the writer thread before the client counts as stuck
+    private static final int MAX_QUEUED_FRAMES = 4096;
+
+    private final BlockingGameServer server;
+    private final Lobby lobby;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Frames for the writer thread; null until it is started
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition queued = queueLock.newCondition();
+    private ArrayDeque<ByteBuffer> queue;
+    private boolean writing;
+
+    BlockingConnection(BlockingGameServer server, Lobby lobby, Socket socket) throws IOException {
+        this.server = server;
+        this.lobby = lobby;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), NetProtocol.MAX_FRAME));
+        this.out = socket.getOutputStream();
+    }
+
+    /**
+     * Reads frames and hands them to the lobby until the socket closes.
+     */
+    @Override
+    public void run() {
+        ByteBuffer payload = ByteBuffer.allocate(NetProtocol.MAX_FRAME);
+        try {
+            while (true) {
+                int length = readLength();
+                int type = in.readUnsignedByte();
+                in.readFully(payload.array(), 0, length - 1);
+                payload.clear().limit(length - 1);
+                lobby.dispatch(this, type, payload);
+            }
+        } catch (EOFException e) {
+            // Client hung up
+        } catch (IOException e) {
+            if (!closed.get()) {
+                System.err.println("Closing client connection: " + e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Reads a frame's varint length field.
+     * @return Bytes after the length field
+     * @throws IOException if the length is invalid or the socket fails
+     */
+    private int readLength() throws IOException {
+        int first = in.readUnsignedByte();
+        int length = first < 0x80 ? first : (first & 0x7F) | in.readUnsignedByte() << 7;
+        if (length == 0 || length >= 0x80 * 0x80 || length + (first < 0x80 ? 1 : 2) > NetProtocol.MAX_FRAME) {
+            throw new IOException("Bad frame length " + length);
+        }
+        return length;
+    }
+
+    @Override
+    void send(ByteBuffer frame) {
+        queueLock.lock();
+        try {
+            if (queue != null) {
+                if (queue.size() == MAX_QUEUED_FRAMES) {
+                    close(); // Client is not reading
+                } else {
+                    queue.add(frame);
+                    queued.signal();
+                }
+                return;
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        write(frame);
+    }
+
+    @Override
+    boolean trySend(ByteBuffer frame) {
+        queueLock.lock();
+        try {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                server.newConnectionThread(this::writeQueued).start();
+            }
+            if (writing || !queue.isEmpty() || closed.get()) {
+                return false;
+            }
+            queue.add(frame);
+            queued.signal();
+            return true;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * Writer thread: writes queued frames until the connection closes.
+     */
+    private void writeQueued() {
+        while (true) {
+            ByteBuffer frame;
+            queueLock.lock();
+            try {
+                writing = false;
+                while (queue.isEmpty() && !closed.get()) {
+                    queued.awaitUninterruptibly();
+                }
+                if (closed.get()) {
+                    queue.clear();
+                    return;
+                }
+                frame = queue.poll();
+                writing = true;
+            } finally {
+                queueLock.unlock();
+            }
+            write(frame);
+        }
+    }
+
+    private void write(ByteBuffer frame) {
+        writeLock.lock();
+        try {
+            if (closed.get()) {
+                return;
+            }
+            if (frame.hasArray()) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            } else {
+                byte[] bytes = new byte[frame.remaining()];
+                frame.duplicate().get(bytes);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Closes the socket, which also ends the read loop, and leaves the game.
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        queueLock.lock();
+        try {
+            queued.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        lobby.disconnect(this);
+        server.connectionClosed(this);
+    }
+}
@@ -0,0 +1,204 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread-per-connection variant of {@link GameServer}: same protocol, same
+ * {@link Lobby} and games, but plain blocking sockets.
+ *
+ * Every connection is read by its own thread, and every game runs on its
+ * own thread, which takes the game's messages one at a time. On a JDK
+ * with virtual threads these are virtual threads; on Java 17 they are
+ * platform threads with a small stack (see {@link VirtualThreads}).
+ * Replies are written by the game's thread, so a client that stops
+ * reading stalls its own game but no other.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.net.BlockingGameServer [--port 7171] [--bind ADDR]
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class BlockingGameServer implements Closeable {
+
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket acceptor;
+    private final ThreadFactory connectionThreads;
+    private final ThreadFactory gameThreads;
+    private final Lobby lobby;
+    private final Set<BlockingConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptThread;
+    private volatile boolean running = true;
+
+    private BlockingGameServer(ServerSocket acceptor) {
+        this.acceptor = acceptor;
+        this.connectionThreads = VirtualThreads.factory("javagrid4-client-");
+        this.gameThreads = VirtualThreads.factory("javagrid4-game-");
+        this.lobby = new Lobby(new Lobby.GameRunner() {
+            @Override
+            public Executor open(int gameId) {
+                return Executors.newSingleThreadExecutor(gameThreads);
+            }
+
+            @Override
+            public void close(Executor executor) {
+                ((ExecutorService) executor).shutdown();
+            }
+        });
+        acceptThread = new Thread(this::acceptConnections, "javagrid4-accept");
+        acceptThread.setDaemon(true);
+    }
+
+    /**
+     * Command-line entry point. Serves until the process is stopped.
+     * @param args --port P, --bind ADDR
+     * @throws Exception if the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int port = GameServer.DEFAULT_PORT;
+        String bind = "0.0.0.0";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--bind": bind = args[++i]; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        BlockingGameServer server = start(new InetSocketAddress(bind, port));
+        System.out.printf("JavaGrid4 blocking server listening on %s:%d with %s threads%n",
+            bind, server.getPort(), server.usesVirtualThreads() ? "virtual" : "platform");
+        server.acceptThread.join();
+    }
+
+    /**
+     * Starts a server.
+     * @param address Address to listen on (port 0 picks a free port)
+     * @return Running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static BlockingGameServer start(InetSocketAddress address) throws IOException {
+        ServerSocket acceptor = new ServerSocket();
+        try {
+            acceptor.setReuseAddress(true);
+            acceptor.bind(address, BACKLOG);
+        } catch (IOException e) {
+            acceptor.close();
+            throw e;
+        }
+        BlockingGameServer server = new BlockingGameServer(acceptor);
+        server.acceptThread.start();
+        return server;
+    }
+
+    /**
+     * Checks whether connections and games run on virtual threads.
+     * @return false if this JVM has no virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return Port number
+     */
+    public int getPort() {
+        return acceptor.getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     * @return Connection count
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Gets the number of games in progress (both seats taken).
+     * @return Running game count
+     */
+    public int getRunningGameCount() {
+        return lobby.getRunningGameCount();
+    }
+
+    /**
+     * Gets the number of games waiting for a second player.
+     * @return Open game count
+     */
+    public int getOpenGameCount() {
+        return lobby.getOpenGameCount();
+    }
+
+    /**
+     * Stops accepting and closes every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            acceptor.close();
+        } catch (IOException e) {
+            System.err.println("Could not close game server: " + e.getMessage());
+        }
+        try {
+            acceptThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BlockingConnection connection : connections) {
+            connection.close();
+        }
+        lobby.close();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = acceptor.accept();
+                socket.setTcpNoDelay(true);
+                BlockingConnection connection = new BlockingConnection(this, lobby, socket);
+                connections.add(connection);
+                connectionThreads.newThread(connection).start();
+            } catch (SocketException e) {
+                if (running) {
+                    System.err.println("Game server stopped: " + e.getMessage());
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Could not accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates a thread of the kind connections are read on.
+     * @param task What the thread runs
+     * @return Unstarted thread
+     */
+    Thread newConnectionThread(Runnable task) {
+        return connectionThreads.newThread(task);
+    }
+
+    /**
+     * Forgets a closed connection.
+     * @param connection Connection that closed
+     */
+    void connectionClosed(BlockingConnection connection) {
+        connections.remove(connection);
+    }
+}
@@ -0,0 +1,235 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of the board messages of the {@link NetProtocol}: DELTA
+ * batches, which carry only the cells a move or undo changed, and
+ * KEYFRAMEs, which carry the whole board with a checksum.
+ *
+ * A cell's state is its value and owner in 5 bits, as in the move
+ * journal's checkpoints: value (bits 0-2) | owner (bits 3-4, 0 none,
+ * 1 player 1, 2 player 2). Payloads:
+ * <pre>
+ * DELTA:    flags (u8) | ply | cell | entries...
+ * KEYFRAME: flags (u8) | ply | state (u8) per cell | checksum (u32)
+ * </pre>
+ * Flags are {@link #UNDO_FLAG} (the batch takes back the move at ply),
+ * {@link #PLAYER_TWO_TO_MOVE} and {@link #GAME_OVER_FLAG}; ply is the
+ * number of moves played once the batch is applied, and cell the cell
+ * that was played or taken back. Entries run to the end of the frame,
+ * one varint each, in ascending cell order:
+ * <pre>
+ * (cells skipped since the previous entry) &lt;&lt; 5 | new state
+ * </pre>
+ * so a move costs 8 to 10 bytes on the wire whatever the board size, and
+ * a keyframe 3 bytes plus one per cell.
+ *
+ * Batches are decoded straight into a {@link GameEngine} through its
+ * setters, without building any objects per cell. Scores follow from
+ * ownership: every owned cell scored one point for its owner.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class BoardDelta {
+
+    /** Flag: the batch takes back a move. */
+    public static final int UNDO_FLAG = 1;
+    /** Flag: player 2 moves next. */
+    public static final int PLAYER_TWO_TO_MOVE = 2;
+    /** Flag: the game is over. */
+    public static final int GAME_OVER_FLAG = 4;
+
+    private static final int OWNER_SHIFT = 3;
+    private static final int VALUE_MASK = 0x7;
+    private static final int STATE_BITS = 5;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private BoardDelta() {
+    }
+
+    /**
+     * Encodes the cells that changed since the last batch as a DELTA
+     * frame, and records them as sent.
+     * @param engine Board after the move or undo
+     * @param sent State of every cell as of the last batch; updated
+     * @param undo Whether the change takes back a move
+     * @param ply Moves played after the change
+     * @param cell Cell played or taken back
+     * @return Frame ready to write
+     */
+    static ByteBuffer encodeDelta(GameEngine engine, byte[] sent, boolean undo, int ply, int cell) {
+        int size = engine.getGridSize();
+        ByteBuffer frame = NetProtocol.frame(1 + 5 + 5 + 2 * size * size);
+        frame.put((byte) (flags(engine) | (undo ? UNDO_FLAG : 0)));
+        NetProtocol.putVarint(frame, ply);
+        NetProtocol.putVarint(frame, cell);
+        int previous = -1;
+        for (int index = 0; index < size * size; index++) {
+            int state = stateOf(engine, index / size, index % size);
+            if (state != sent[index]) {
+                NetProtocol.putVarint(frame, (index - previous - 1) << STATE_BITS | state);
+                sent[index] = (byte) state;
+                previous = index;
+            }
+        }
+        return NetProtocol.finish(frame, NetProtocol.DELTA);
+    }
+
+    /**
+     * Encodes the whole board as a KEYFRAME frame.
+     * @param engine Board to send
+     * @param ply Moves played
+     * @return Frame ready to write
+     */
+    static ByteBuffer encodeKeyframe(GameEngine engine, int ply) {
+        int size = engine.getGridSize();
+        ByteBuffer frame = NetProtocol.frame(1 + 5 + size * size + 4);
+        frame.put((byte) flags(engine));
+        NetProtocol.putVarint(frame, ply);
+        for (int index = 0; index < size * size; index++) {
+            frame.put((byte) stateOf(engine, index / size, index % size));
+        }
+        frame.putInt(checksum(engine));
+        return NetProtocol.finish(frame, NetProtocol.KEYFRAME);
+    }
+
+    /**
+     * Applies a DELTA payload to an engine: sets every cell it lists,
+     * adjusts the scores for cells that changed hands, and sets the player
+     * to move and the game-over flag.
+     * @param batch Payload, read from its position to its limit
+     * @param engine Board to update
+     * @return Number of cells whose state actually changed; 0 if the
+     *         engine already showed the batch
+     * @throws java.nio.BufferUnderflowException if the batch is cut off
+     */
+    public static int apply(ByteBuffer batch, GameEngine engine) {
+        int flags = batch.get();
+        NetProtocol.getVarint(batch); // ply
+        NetProtocol.getVarint(batch); // cell
+        int size = engine.getGridSize();
+        int index = -1;
+        int changed = 0;
+        while (batch.hasRemaining()) {
+            int entry = NetProtocol.getVarint(batch);
+            index += (entry >>> STATE_BITS) + 1;
+            if (index >= size * size) {
+                throw new IllegalArgumentException("Delta for cell " + index + " of a " + size + "x" + size + " board");
+            }
+            if (setState(engine, index / size, index % size, entry & STATE_MASK)) {
+                changed++;
+            }
+        }
+        setFlags(engine, flags);
+        return changed;
+    }
+
+    /**
+     * Checks whether an engine shows the board of a KEYFRAME payload, by
+     * comparing checksums. The buffer's position is left unchanged.
+     * @param keyframe Payload, from its position to its limit
+     * @param engine Board to check
+     * @return true if the checksums match
+     */
+    public static boolean matches(ByteBuffer keyframe, GameEngine engine) {
+        return keyframe.getInt(keyframe.limit() - 4) == checksum(engine);
+    }
+
+    /**
+     * Overwrites an engine's board with a KEYFRAME payload.
+     * @param keyframe Payload, read from its position to its limit
+     * @param engine Board to overwrite
+     * @return Number of cells whose state actually changed
+     * @throws java.nio.BufferUnderflowException if the keyframe is cut off
+     */
+    public static int applyKeyframe(ByteBuffer keyframe, GameEngine engine) {
+        int flags = keyframe.get();
+        NetProtocol.getVarint(keyframe); // ply
+        int size = engine.getGridSize();
+        if (keyframe.remaining() != size * size + 4) {
+            throw new IllegalArgumentException("Keyframe does not fit a " + size + "x" + size + " board");
+        }
+        int changed = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (setState(engine, row, col, keyframe.get() & STATE_MASK)) {
+                    changed++;
+                }
+            }
+        }
+        keyframe.getInt(); // checksum
+        setFlags(engine, flags);
+        return changed;
+    }
+
+    /**
+     * Computes the checksum a KEYFRAME carries: a 32-bit FNV-1a hash of
+     * the board size, the flags, both scores and every cell's state.
+     * @param engine Board to hash
+     * @return Checksum
+     */
+    public static int checksum(GameEngine engine) {
+        int size = engine.getGridSize();
+        int hash = FNV_OFFSET;
+        hash = (hash ^ size) * FNV_PRIME;
+        hash = (hash ^ flags(engine)) * FNV_PRIME;
+        hash = (hash ^ engine.getScore(Player.PLAYER_ONE)) * FNV_PRIME;
+        hash = (hash ^ engine.getScore(Player.PLAYER_TWO)) * FNV_PRIME;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                hash = (hash ^ stateOf(engine, row, col)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the packed state of one cell.
+     * @param engine Board
+     * @param row Cell row
+     * @param col Cell column
+     * @return Value | owner &lt;&lt; 3
+     */
+    static int stateOf(GameEngine engine, int row, int col) {
+        Player owner = engine.getCellOwner(row, col);
+        return engine.getCellValue(row, col) | (owner == null ? 0 : owner.getId()) << OWNER_SHIFT;
+    }
+
+    private static int flags(GameEngine engine) {
+        return (engine.getCurrentPlayer() == Player.PLAYER_TWO ? PLAYER_TWO_TO_MOVE : 0)
+            | (engine.isGameOver() ? GAME_OVER_FLAG : 0);
+    }
+
+    private static boolean setState(GameEngine engine, int row, int col, int state) {
+        int ownerId = state >>> OWNER_SHIFT;
+        if (ownerId > 2) {
+            throw new IllegalArgumentException("Bad cell state " + state);
+        }
+        Player owner = ownerId == 0 ? null : ownerId == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+        Player previous = engine.getCellOwner(row, col);
+        boolean changed = previous != owner || engine.getCellValue(row, col) != (state & VALUE_MASK);
+        if (previous != owner) {
+            if (previous != null) {
+                engine.getGameState().addScore(previous, -1);
+            }
+            if (owner != null) {
+                engine.getGameState().addScore(owner, 1);
+            }
+            engine.setCellOwner(row, col, owner);
+        }
+        engine.setCellValue(row, col, state & VALUE_MASK);
+        return changed;
+    }
+
+    private static void setFlags(GameEngine engine, int flags) {
+        engine.setCurrentPlayer((flags & PLAYER_TWO_TO_MOVE) != 0 ? Player.PLAYER_TWO : Player.PLAYER_ONE);
+        engine.setGameOver((flags & GAME_OVER_FLAG) != 0);
+    }
+}
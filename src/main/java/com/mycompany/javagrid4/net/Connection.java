@@ -0,0 +1,199 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * One client socket of a {@link GameServer}.
+ *
+ * Reading and closing happen on the server's selector thread only. Any
+ * thread may send: a frame is written straight away when nothing is
+ * waiting before it, so a game shard answers a move without a round trip
+ * through the selector, and without allocating anything. Whatever the
+ * socket does not take is queued and written by the selector thread once
+ * the socket is writable again.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class Connection extends Peer {
+
+    // Frames waiting for the socket before the client counts as stuck
+    private static final int MAX_QUEUED_FRAMES = 4096;
+    private static final int GATHER = 32;
+
+    private final GameServer server;
+    private final Lobby lobby;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ByteBuffer in = ByteBuffer.allocate(NetProtocol.MAX_FRAME);
+    // Guarded by writeLock
+    private final Object writeLock = new Object();
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+    private boolean flushScheduled;
+    private IOException writeFailure;
+    private volatile boolean closed;
+
+    Connection(GameServer server, Lobby lobby, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.lobby = lobby;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Sends a frame, writing it straight away if nothing is queued before
+     * it. Failures are reported to the selector thread, which closes the
+     * connection.
+     * @param frame Frame positioned at its first byte
+     */
+    @Override
+    void send(ByteBuffer frame) {
+        write(frame, false);
+    }
+
+    @Override
+    boolean trySend(ByteBuffer frame) {
+        return write(frame, true);
+    }
+
+    /**
+     * Writes a frame straight to the socket, or queues it behind frames
+     * still waiting. The frame itself is written and its position put back
+     * afterwards, so a frame shared by many connections is not copied;
+     * only a remainder the socket did not take is queued as a view.
+     * @param frame Frame positioned at its first byte
+     * @param skipIfBusy Skip the frame instead of queueing it
+     * @return false if the frame was skipped
+     */
+    private boolean write(ByteBuffer frame, boolean skipIfBusy) {
+        synchronized (writeLock) {
+            if (closed || writeFailure != null) {
+                return !skipIfBusy;
+            }
+            if (!pending.isEmpty()) {
+                if (skipIfBusy) {
+                    return false;
+                }
+                if (pending.size() == MAX_QUEUED_FRAMES) {
+                    writeFailure = new IOException("Client is not reading");
+                } else {
+                    pending.add(frame.duplicate());
+                }
+            } else {
+                int start = frame.position();
+                try {
+                    channel.write(frame);
+                    if (!frame.hasRemaining()) {
+                        return true;
+                    }
+                    pending.add(frame.duplicate());
+                } catch (IOException e) {
+                    writeFailure = e;
+                } finally {
+                    frame.position(start);
+                }
+            }
+            if (flushScheduled) {
+                return true;
+            }
+            flushScheduled = true;
+        }
+        server.scheduleFlush(this);
+        return true;
+    }
+
+    /**
+     * Reads what the socket has and hands every complete frame to the
+     * server. Selector thread only.
+     * @throws IOException if the socket fails or the client sends a bad frame
+     */
+    void read() throws IOException {
+        if (channel.read(in) < 0) {
+            throw new IOException("Connection closed by client");
+        }
+        in.flip();
+        int end;
+        while ((end = NetProtocol.nextFrame(in)) >= 0) {
+            // Decode in place: the read buffer itself, limited to the frame
+            int limit = in.limit();
+            int type = in.get() & 0xFF;
+            in.limit(end);
+            lobby.dispatch(this, type, in);
+            in.limit(limit).position(end);
+        }
+        in.compact();
+    }
+
+    /**
+     * Writes queued frames until they are all out or the socket is full,
+     * in which case the rest waits for the socket to become writable.
+     * Selector thread only.
+     * @throws IOException if the socket fails or the client stopped reading
+     */
+    void flush() throws IOException {
+        boolean waiting;
+        synchronized (writeLock) {
+            flushScheduled = false;
+            if (writeFailure != null) {
+                throw writeFailure;
+            }
+            while (!pending.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer frame : pending) {
+                    gather[count++] = frame;
+                    if (count == GATHER) {
+                        break;
+                    }
+                }
+                channel.write(gather, 0, count);
+                boolean full = gather[count - 1].hasRemaining();
+                while (!pending.isEmpty() && !pending.peek().hasRemaining()) {
+                    pending.poll();
+                }
+                if (full) {
+                    break; // Socket buffer full
+                }
+            }
+            Arrays.fill(gather, null);
+            waiting = !pending.isEmpty();
+        }
+        if (!waiting) {
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } else if ((key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes the socket and leaves the game. Selector thread only.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        synchronized (writeLock) {
+            closed = true;
+            pending.clear();
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        lobby.disconnect(this);
+    }
+
+    @Override
+    boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,440 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Client side of the {@link NetProtocol}: one connection to a
+ * {@link GameServer}.
+ *
+ * Requests may be sent from any thread. Server messages are read on a
+ * background thread and passed to the {@link Listener}, on that thread;
+ * UI listeners hand them over to the event dispatch thread themselves.
+ * Once a game starts, messages are held back until the next
+ * {@link #setListener} call, so the screen that takes the game over
+ * misses none of them.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class GameClient implements Closeable {
+
+    /**
+     * Receives server messages. Every method does nothing by default.
+     */
+    public interface Listener {
+        /**
+         * The game was opened and waits for an opponent.
+         * @param gameId Code the opponent joins with
+         */
+        default void onHosted(int gameId) {
+        }
+
+        /**
+         * Both seats are taken and the game begins, or a game to watch
+         * was found.
+         * @param match The started game
+         */
+        default void onStart(OnlineMatch match) {
+        }
+
+        /**
+         * The server accepted a move or undo, by either player. The batch
+         * is the connection's read buffer, positioned at the DELTA payload
+         * for {@link BoardDelta#apply}; it is only valid during the call, so
+         * a listener that applies it on another thread copies it first.
+         * @param ply Moves played once the batch is applied
+         * @param cell Cell index (row * size + col) played or taken back
+         * @param undo Whether the batch takes back the move at ply
+         * @param batch Cells the change set
+         */
+        default void onDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+        }
+
+        /**
+         * The server sent the whole board, to check against with
+         * {@link BoardDelta#matches}. Only valid during the call, like a
+         * delta batch.
+         * @param ply Moves played
+         * @param keyframe KEYFRAME payload
+         */
+        default void onKeyframe(int ply, ByteBuffer keyframe) {
+        }
+
+        /**
+         * The server turned down a move or undo of this client.
+         * @param ply Ply the request was sent for
+         * @param reason {@link NetProtocol} reason code
+         */
+        default void onRejected(int ply, int reason) {
+        }
+
+        /**
+         * The opponent left or lost the connection.
+         */
+        default void onOpponentLeft() {
+        }
+
+        /**
+         * A host or join request failed.
+         * @param reason {@link NetProtocol} reason code
+         */
+        default void onError(int reason) {
+        }
+
+        /**
+         * A clock sync was answered.
+         * @param roundTripNanos Time from sending the request to the answer
+         * @param offsetMillis Server clock minus this machine's clock,
+         *                     assuming the answer took half the round trip
+         */
+        default void onClockSync(long roundTripNanos, long offsetMillis) {
+        }
+
+        /**
+         * The connection ended. Not called after {@link GameClient#close}.
+         * @param cause What went wrong
+         */
+        default void onDisconnected(IOException cause) {
+        }
+    }
+
+    private final SocketChannel channel;
+    private final Object writeLock = new Object();
+    private volatile Listener listener;
+    private volatile boolean closed;
+
+    private GameClient(SocketChannel channel, Listener listener) {
+        this.channel = channel;
+        this.listener = listener;
+    }
+
+    /**
+     * Connects to a server and starts reading its messages.
+     * @param host Server host name or address
+     * @param port Server port
+     * @param listener Receiver of server messages
+     * @return Connected client
+     * @throws IOException if the server cannot be reached
+     */
+    public static GameClient connect(String host, int port, Listener listener) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.socket().connect(new InetSocketAddress(host, port), 5000);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        GameClient client = new GameClient(channel, listener);
+        Thread reader = new Thread(client::readMessages, "javagrid4-net-client");
+        reader.setDaemon(true);
+        reader.start();
+        return client;
+    }
+
+    /**
+     * Replaces the receiver of server messages. Messages held back since
+     * the game started are passed to it first.
+     * @param listener New listener
+     */
+    public void setListener(Listener listener) {
+        Listener previous = this.listener;
+        this.listener = listener;
+        if (previous instanceof HeldListener) {
+            ((HeldListener) previous).release(listener);
+        }
+    }
+
+    /**
+     * Opens a game and waits for an opponent.
+     * @param size Board size (3, 5 or 7)
+     * @param name Own name
+     * @param color Own color (0xRRGGBB)
+     * @throws IOException if the connection fails
+     */
+    public void host(int size, String name, int color) throws IOException {
+        write(NetProtocol.host(size, name, color));
+    }
+
+    /**
+     * Takes the second seat of an open game.
+     * @param gameId Code given by the host
+     * @param name Own name
+     * @param color Own color (0xRRGGBB)
+     * @throws IOException if the connection fails
+     */
+    public void join(int gameId, String name, int color) throws IOException {
+        write(NetProtocol.join(gameId, name, color));
+    }
+
+    /**
+     * Follows a started game as a spectator. The game comes through
+     * {@link Listener#onStart} with a spectator's match, then as a
+     * keyframe of the current board followed by the players' batches.
+     * @param gameId Game to follow
+     * @throws IOException if the connection fails
+     */
+    public void watch(int gameId) throws IOException {
+        write(NetProtocol.watch(gameId));
+    }
+
+    /**
+     * Waits to be paired with a player of similar rating. The game comes
+     * through {@link Listener#onStart}; {@link #leave} stops waiting.
+     * @param rating Own rating
+     * @param name Own name
+     * @param color Own color (0xRRGGBB)
+     * @param boardSizes Board sizes accepted
+     * @throws IOException if the connection fails
+     * @throws IllegalArgumentException if a board size is not offered
+     */
+    public void findMatch(int rating, String name, int color, int... boardSizes) throws IOException {
+        write(NetProtocol.queue(Matchmaker.sizeMask(boardSizes), rating, name, color));
+    }
+
+    /**
+     * Sends a move. It counts only once it comes back through
+     * {@link Listener#onDelta}.
+     * @param ply Moves played so far
+     * @param cell Cell index (row * size + col)
+     * @throws IOException if the connection fails
+     */
+    public void sendMove(int ply, int cell) throws IOException {
+        write(NetProtocol.move(ply, cell));
+    }
+
+    /**
+     * Asks to take back this client's last move, which the server allows
+     * until the opponent has replied. The undo comes back through
+     * {@link Listener#onDelta}.
+     * @param ply Moves played so far
+     * @throws IOException if the connection fails
+     */
+    public void requestUndo(int ply) throws IOException {
+        write(NetProtocol.undo(ply));
+    }
+
+    /**
+     * Measures the round trip to the server and the offset of its clock,
+     * answered through {@link Listener#onClockSync}.
+     * @throws IOException if the connection fails
+     */
+    public void syncClock() throws IOException {
+        write(NetProtocol.sync(System.nanoTime()));
+    }
+
+    /**
+     * Leaves the current game, keeping the connection.
+     * @throws IOException if the connection fails
+     */
+    public void leave() throws IOException {
+        write(NetProtocol.simple(NetProtocol.LEAVE, -1));
+    }
+
+    /**
+     * Leaves the current game and closes the connection.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            leave();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close server connection: " + e.getMessage());
+        }
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
+        synchronized (writeLock) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+    }
+
+    private void readMessages() {
+        ByteBuffer in = ByteBuffer.allocate(NetProtocol.MAX_FRAME);
+        try {
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Server closed the connection");
+                }
+                in.flip();
+                int end;
+                while ((end = NetProtocol.nextFrame(in)) >= 0) {
+                    int limit = in.limit();
+                    int type = in.get() & 0xFF;
+                    in.limit(end);
+                    handle(type, in);
+                    in.limit(limit).position(end);
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                closed = true;
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+                listener.onDisconnected(e);
+            }
+        }
+    }
+
+    private void handle(int type, ByteBuffer payload) throws IOException {
+        Listener target = listener;
+        try {
+            switch (type) {
+                case NetProtocol.HOSTED:
+                    target.onHosted(NetProtocol.getVarint(payload));
+                    break;
+                case NetProtocol.SETUP: {
+                    int gameId = NetProtocol.getVarint(payload);
+                    int seat = payload.get();
+                    int size = payload.get();
+                    String[] names = new String[2];
+                    int[] colors = new int[2];
+                    for (int p = 0; p < 2; p++) {
+                        colors[p] = NetProtocol.getColor(payload);
+                        names[p] = NetProtocol.getName(payload);
+                    }
+                    listener = new HeldListener();
+                    target.onStart(new OnlineMatch(this, gameId, seat, size, names, colors));
+                    break;
+                }
+                case NetProtocol.DELTA: {
+                    int start = payload.position();
+                    boolean undo = (payload.get() & BoardDelta.UNDO_FLAG) != 0;
+                    int ply = NetProtocol.getVarint(payload);
+                    int cell = NetProtocol.getVarint(payload);
+                    target.onDelta(ply, cell, undo, payload.position(start));
+                    break;
+                }
+                case NetProtocol.KEYFRAME: {
+                    int start = payload.position();
+                    payload.get();
+                    int ply = NetProtocol.getVarint(payload);
+                    target.onKeyframe(ply, payload.position(start));
+                    break;
+                }
+                case NetProtocol.REJECTED:
+                    target.onRejected(NetProtocol.getVarint(payload), payload.get() & 0xFF);
+                    break;
+                case NetProtocol.LEFT:
+                    target.onOpponentLeft();
+                    break;
+                case NetProtocol.SYNCED: {
+                    long stamp = NetProtocol.getVarlong(payload);
+                    long serverMillis = NetProtocol.getVarlong(payload);
+                    long roundTrip = System.nanoTime() - stamp;
+                    target.onClockSync(roundTrip, serverMillis + roundTrip / 2_000_000 - System.currentTimeMillis());
+                    break;
+                }
+                case NetProtocol.ERROR:
+                    target.onError(payload.get() & 0xFF);
+                    break;
+                default:
+                    throw new IOException("Unknown message type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated message of type " + type);
+        }
+    }
+
+    /**
+     * Holds messages back until a listener is set, then forwards them and
+     * everything after.
+     */
+    private static final class HeldListener implements Listener {
+        private final List<Consumer<Listener>> held = new ArrayList<>();
+        private Listener target;
+
+        synchronized void release(Listener listener) {
+            target = listener;
+            for (Consumer<Listener> message : held) {
+                message.accept(listener);
+            }
+            held.clear();
+        }
+
+        private static ByteBuffer copy(ByteBuffer payload) {
+            ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+            copy.put(payload.duplicate()).flip();
+            return copy;
+        }
+
+        private synchronized void deliver(Consumer<Listener> message) {
+            if (target != null) {
+                message.accept(target);
+            } else {
+                held.add(message);
+            }
+        }
+
+        @Override
+        public void onHosted(int gameId) {
+            deliver(l -> l.onHosted(gameId));
+        }
+
+        @Override
+        public void onStart(OnlineMatch match) {
+            deliver(l -> l.onStart(match));
+        }
+
+        @Override
+        public void onDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+            ByteBuffer copy = copy(batch);
+            deliver(l -> l.onDelta(ply, cell, undo, copy));
+        }
+
+        @Override
+        public void onKeyframe(int ply, ByteBuffer keyframe) {
+            ByteBuffer copy = copy(keyframe);
+            deliver(l -> l.onKeyframe(ply, copy));
+        }
+
+        @Override
+        public void onRejected(int ply, int reason) {
+            deliver(l -> l.onRejected(ply, reason));
+        }
+
+        @Override
+        public void onOpponentLeft() {
+            deliver(Listener::onOpponentLeft);
+        }
+
+        @Override
+        public void onError(int reason) {
+            deliver(l -> l.onError(reason));
+        }
+
+        @Override
+        public void onClockSync(long roundTripNanos, long offsetMillis) {
+            deliver(l -> l.onClockSync(roundTripNanos, offsetMillis));
+        }
+
+        @Override
+        public void onDisconnected(IOException cause) {
+            deliver(l -> l.onDisconnected(cause));
+        }
+    }
+}
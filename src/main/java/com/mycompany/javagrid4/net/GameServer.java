@@ -0,0 +1,300 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LAN game server: hosts many two-player games for {@link GameClient}s
+ * over the {@link NetProtocol}.
+ *
+ * One selector thread does all socket I/O for every connection: it
+ * accepts, reads and decodes frames, and writes replies. Game logic runs
+ * off that thread on a fixed set of single-threaded shards; a game always
+ * runs on the shard picked by its id, so its engine is confined to one
+ * thread and messages of one game are handled in order, while different
+ * games proceed in parallel. Requests are decoded and handed to games by
+ * the {@link Lobby} shared with {@link BlockingGameServer}. Shards write
+ * their replies to the sockets themselves; only what a socket does not
+ * take at once is handed back to the selector thread.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.net.GameServer [--port 7171] [--bind ADDR] [--shards N]
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class GameServer implements Closeable {
+
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 7171;
+
+    private static final int BACKLOG = 4096;
+    // Pause after a failed accept, so a server out of file descriptors does not spin on the backlog
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private final ExecutorService[] shards;
+    private final Lobby lobby;
+    private final Thread selectorThread;
+    private final ConcurrentLinkedQueue<Connection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean running = true;
+    private long acceptResumeNanos; // Selector thread only; 0 while accepting
+
+    private GameServer(Selector selector, ServerSocketChannel acceptor, int shardCount) {
+        this.selector = selector;
+        this.acceptor = acceptor;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            shards[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "javagrid4-game-" + shard);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        lobby = new Lobby(gameId -> shards[Math.floorMod(gameId, shards.length)]);
+        selectorThread = new Thread(this::runSelector, "javagrid4-net");
+        selectorThread.setDaemon(true);
+    }
+
+    /**
+     * Command-line entry point. Serves until the process is stopped.
+     * @param args --port P, --bind ADDR, --shards N
+     * @throws Exception if the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        String bind = "0.0.0.0";
+        int shards = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--bind": bind = args[++i]; break;
+                case "--shards": shards = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        GameServer server = start(new InetSocketAddress(bind, port), shards);
+        System.out.printf("JavaGrid4 server listening on %s:%d with %d game shard%s%n",
+            bind, server.getPort(), shards, shards == 1 ? "" : "s");
+        server.selectorThread.join();
+    }
+
+    /**
+     * Starts a server.
+     * @param address Address to listen on (port 0 picks a free port)
+     * @param shardCount Number of game logic threads
+     * @return Running server
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if shardCount is not positive
+     */
+    public static GameServer start(InetSocketAddress address, int shardCount) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        Selector selector = Selector.open();
+        ServerSocketChannel acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            acceptor.bind(address, BACKLOG);
+            acceptor.configureBlocking(false);
+            acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            acceptor.close();
+            selector.close();
+            throw e;
+        }
+        GameServer server = new GameServer(selector, acceptor, shardCount);
+        server.selectorThread.start();
+        return server;
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return Port number
+     */
+    public int getPort() {
+        return acceptor.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     * @return Connection count
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Gets the number of games in progress (both seats taken).
+     * @return Running game count
+     */
+    public int getRunningGameCount() {
+        return lobby.getRunningGameCount();
+    }
+
+    /**
+     * Gets the number of games waiting for a second player.
+     * @return Open game count
+     */
+    public int getOpenGameCount() {
+        return lobby.getOpenGameCount();
+    }
+
+    /**
+     * Stops accepting, closes every connection and stops the shards.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ExecutorService shard : shards) {
+            shard.shutdownNow();
+        }
+        lobby.close();
+    }
+
+    private void runSelector() {
+        try {
+            while (running) {
+                if (acceptResumeNanos == 0) {
+                    selector.select();
+                } else {
+                    selector.select(Math.max(1, (acceptResumeNanos - System.nanoTime()) / 1_000_000L));
+                    if (System.nanoTime() - acceptResumeNanos >= 0) {
+                        acceptResumeNanos = 0;
+                        acceptor.keyFor(selector).interestOps(SelectionKey.OP_ACCEPT);
+                    }
+                }
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (IOException e) {
+                        closeConnection(connection);
+                    }
+                }
+                Connection connection;
+                while ((connection = pendingFlushes.poll()) != null) {
+                    if (connection.isClosed()) {
+                        continue;
+                    }
+                    try {
+                        connection.flush();
+                    } catch (IOException e) {
+                        closeConnection(connection);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Game server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    closeConnection((Connection) key.attachment());
+                }
+            }
+            try {
+                acceptor.close();
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Could not close game server: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Takes every pending connection. A failure, such as running out of
+     * file descriptors, only costs the connection it happened on; the
+     * games already running carry on.
+     */
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = acceptor.accept();
+            } catch (IOException e) {
+                // Left in the backlog; tried again after a pause
+                System.err.println("Could not accept connection: " + e.getMessage());
+                acceptor.keyFor(selector).interestOps(0);
+                acceptResumeNanos = System.nanoTime() + ACCEPT_RETRY_MILLIS * 1_000_000L;
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, lobby, channel, key));
+                connections.incrementAndGet();
+            } catch (IOException e) {
+                System.err.println("Could not set up connection: " + e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException closeFailure) {
+                    // Nothing more to release
+                }
+            }
+        }
+    }
+
+    private void closeConnection(Connection connection) {
+        if (!connection.isClosed()) {
+            connection.close();
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Hands a connection with unwritten frames, or a failed write, to the
+     * selector thread. Wakes the selector unless a wakeup is on its way.
+     * @param connection Connection to flush
+     */
+    void scheduleFlush(Connection connection) {
+        pendingFlushes.add(connection);
+        if (Thread.currentThread() != selectorThread && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Session layer shared by the game servers: decodes client requests,
+ * keeps the games waiting for a second player and the players waiting
+ * for the {@link Matchmaker}, and hands every request to the game it
+ * belongs to. How sockets are read and written, and which threads games
+ * run on, is left to the server.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class Lobby {
+
+    /**
+     * Decides where games run.
+     */
+    interface GameRunner {
+        /**
+         * Gets the executor a new game runs on. It must run one task at
+         * a time, in submission order.
+         * @param gameId Id of the new game
+         * @return Executor for the game
+         */
+        Executor open(int gameId);
+
+        /**
+         * Called on the game's executor when it has finished.
+         * @param executor Executor returned by {@link #open}
+         */
+        default void close(Executor executor) {
+        }
+    }
+
+    /** A player waiting in the matchmaking queue. */
+    static final class Seeker {
+        final Peer peer;
+        final byte[] name;
+        final int color;
+        final int rating;
+        final int sizes;
+
+        Seeker(Peer peer, byte[] name, int color, int rating, int sizes) {
+            this.peer = peer;
+            this.name = name;
+            this.color = color;
+            this.rating = rating;
+            this.sizes = sizes;
+        }
+    }
+
+    private static final int FIRST_GAME_ID = 1000;
+    // How often waiting players are retried with their widened windows
+    private static final long SWEEP_MILLIS = 250;
+
+    private final GameRunner runner;
+    private final Map<Integer, ServerGame> openGames = new ConcurrentHashMap<>();
+    private final AtomicInteger nextGameId = new AtomicInteger(FIRST_GAME_ID);
+    private final Map<Integer, ServerGame> runningGames = new ConcurrentHashMap<>();
+    private final Matchmaker<Seeker> matchmaker = new Matchmaker<>(this::matched);
+    private final ScheduledExecutorService sweeper;
+
+    Lobby(GameRunner runner) {
+        this.runner = runner;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "javagrid4-matchmaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the matchmaking sweeps. Players still queued stay unmatched.
+     */
+    void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Gets the number of games in progress (both seats taken).
+     * @return Running game count
+     */
+    int getRunningGameCount() {
+        return runningGames.size();
+    }
+
+    /**
+     * Gets the number of games waiting for a second player.
+     * @return Open game count
+     */
+    int getOpenGameCount() {
+        return openGames.size();
+    }
+
+    /**
+     * Gets the number of players waiting to be matched.
+     * @return Queued player count
+     */
+    long getQueuedCount() {
+        return matchmaker.getWaitingCount();
+    }
+
+    /**
+     * Decodes one frame and passes it to the game it belongs to. Runs on
+     * the thread that read the frame, which must not reuse the payload
+     * before this returns.
+     * @param peer Sender
+     * @param type Message type
+     * @param payload Frame payload
+     * @throws IOException if the frame is malformed
+     */
+    void dispatch(Peer peer, int type, ByteBuffer payload) throws IOException {
+        try {
+            switch (type) {
+                case NetProtocol.HOST: {
+                    int size = payload.get() & 0xFF;
+                    int color = NetProtocol.getColor(payload);
+                    byte[] name = NetProtocol.encodeName(NetProtocol.getName(payload));
+                    if (size != 3 && size != 5 && size != 7) {
+                        peer.send(NetProtocol.simple(NetProtocol.ERROR, NetProtocol.BAD_REQUEST));
+                        return;
+                    }
+                    int id = nextGameId.getAndIncrement();
+                    ServerGame game = new ServerGame(this, id, runner.open(id));
+                    openGames.put(id, game);
+                    enterGame(peer, game);
+                    game.execute(() -> game.host(peer, size, name, color));
+                    break;
+                }
+                case NetProtocol.JOIN: {
+                    int id = NetProtocol.getVarint(payload);
+                    int color = NetProtocol.getColor(payload);
+                    byte[] name = NetProtocol.encodeName(NetProtocol.getName(payload));
+                    ServerGame game = openGames.get(id);
+                    if (game == null) {
+                        peer.send(NetProtocol.simple(NetProtocol.ERROR, NetProtocol.NO_SUCH_GAME));
+                        return;
+                    }
+                    enterGame(peer, game);
+                    game.execute(() -> game.join(peer, name, color));
+                    break;
+                }
+                case NetProtocol.MOVE: {
+                    int ply = NetProtocol.getVarint(payload);
+                    int cell = NetProtocol.getVarint(payload);
+                    ServerGame game = peer.game.get();
+                    if (game == null) {
+                        peer.send(NetProtocol.rejected(ply, NetProtocol.NOT_IN_GAME));
+                        return;
+                    }
+                    game.execute(() -> game.move(peer, ply, cell));
+                    break;
+                }
+                case NetProtocol.UNDO: {
+                    int ply = NetProtocol.getVarint(payload);
+                    ServerGame game = peer.game.get();
+                    if (game == null) {
+                        peer.send(NetProtocol.rejected(ply, NetProtocol.NOT_IN_GAME));
+                        return;
+                    }
+                    game.execute(() -> game.undo(peer, ply));
+                    break;
+                }
+                case NetProtocol.WATCH: {
+                    int id = NetProtocol.getVarint(payload);
+                    ServerGame game = runningGames.get(id);
+                    if (game == null) {
+                        peer.send(NetProtocol.simple(NetProtocol.ERROR, NetProtocol.NO_SUCH_GAME));
+                        return;
+                    }
+                    enterGame(peer, game);
+                    game.execute(() -> game.watch(peer));
+                    break;
+                }
+                case NetProtocol.QUEUE: {
+                    int sizes = payload.get() & 0xFF;
+                    int rating = NetProtocol.getVarint(payload);
+                    int color = NetProtocol.getColor(payload);
+                    byte[] name = NetProtocol.encodeName(NetProtocol.getName(payload));
+                    if (!Matchmaker.isValidSizeMask(sizes)) {
+                        peer.send(NetProtocol.simple(NetProtocol.ERROR, NetProtocol.BAD_REQUEST));
+                        return;
+                    }
+                    enterGame(peer, null);
+                    requeue(new Seeker(peer, name, color, rating, sizes));
+                    break;
+                }
+                case NetProtocol.LEAVE:
+                    disconnect(peer);
+                    break;
+                case NetProtocol.SYNC:
+                    peer.send(NetProtocol.synced(NetProtocol.getVarlong(payload), System.currentTimeMillis()));
+                    break;
+                default:
+                    throw new IOException("Unknown message type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated message of type " + type);
+        }
+    }
+
+    /**
+     * Takes a player out of its game, which ends it for the opponent, or
+     * a spectator out of the game it watches, or a player out of the
+     * matchmaking queue.
+     * @param peer Player or spectator that left or lost the connection
+     */
+    void disconnect(Peer peer) {
+        cancelTicket(peer);
+        ServerGame game = peer.game.get();
+        if (game != null) {
+            game.execute(() -> game.leave(peer));
+        }
+    }
+
+    /**
+     * Moves a player or spectator into a game, leaving the one it was in
+     * and the matchmaking queue.
+     * @param game Game to enter, or null to only leave
+     */
+    private void enterGame(Peer peer, ServerGame game) {
+        cancelTicket(peer);
+        ServerGame previous = peer.game.getAndSet(game);
+        if (previous != null) {
+            previous.execute(() -> previous.leave(peer));
+        }
+    }
+
+    /**
+     * Puts a player in the matchmaking queue, or straight into a game if
+     * an opponent in range is waiting.
+     * @param seeker Player and what it asked for
+     */
+    void requeue(Seeker seeker) {
+        Matchmaker.Ticket<Seeker> ticket = matchmaker.enqueue(seeker, seeker.rating, seeker.sizes);
+        if (ticket.isWaiting()) {
+            seeker.peer.ticket.set(ticket);
+        }
+    }
+
+    private void cancelTicket(Peer peer) {
+        Matchmaker.Ticket<Seeker> ticket = peer.ticket.getAndSet(null);
+        if (ticket != null) {
+            matchmaker.cancel(ticket);
+        }
+    }
+
+    /**
+     * Opens a game for two players the matchmaker paired; the one who
+     * waited longer hosts.
+     */
+    private void matched(Seeker first, Seeker second, int size) {
+        int id = nextGameId.getAndIncrement();
+        ServerGame game = new ServerGame(this, id, runner.open(id));
+        enterGame(first.peer, game);
+        enterGame(second.peer, game);
+        game.execute(() -> game.pair(size, first, second));
+    }
+
+    private void sweep() {
+        try {
+            matchmaker.sweep();
+        } catch (RuntimeException e) {
+            System.err.println("Matchmaking sweep failed: " + e);
+        }
+    }
+
+    /**
+     * Called on a game's executor when its second player arrives.
+     * @param game Game that started
+     */
+    void gameStarted(ServerGame game) {
+        openGames.remove(game.getId());
+        runningGames.put(game.getId(), game);
+    }
+
+    /**
+     * Called on a game's executor when it ends or is abandoned.
+     * @param game Game that finished
+     * @param started Whether it had started
+     */
+    void gameFinished(ServerGame game, boolean started) {
+        if (started) {
+            runningGames.remove(game.getId());
+        } else {
+            openGames.remove(game.getId());
+        }
+        runner.close(game.getExecutor());
+    }
+}
@@ -0,0 +1,329 @@
+package com.mycompany.javagrid4.net;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pairs players waiting for an online game by rating and board size.
+ *
+ * Waiting players sit in lock-free queues, one per board size and rating
+ * bucket of {@value #BUCKET_WIDTH} points; a player who accepts several
+ * sizes waits in one queue per size. Joining, leaving and matching touch
+ * only the queues around one rating and never take a lock, so thousands
+ * of players coming and going per second do not line up behind each
+ * other. Each ticket's state says who owns it: a matcher claims a ticket
+ * with a compare-and-set before pairing it, and a matched or cancelled
+ * ticket stays in its queues until the next scan passes over it and
+ * unlinks it.
+ *
+ * A player accepts opponents rated within its window of its own rating,
+ * and two players are only paired when each accepts the other, so a
+ * newcomer is not handed an opponent far outside its own window just
+ * because that opponent has waited long. The window starts narrow and
+ * widens with the time waited, up to a limit, so a player far from
+ * everyone else still gets a game. New players are matched on arrival when
+ * possible; {@link #sweep} retries the waiting ones as their windows widen
+ * and should run a few times a second. Among acceptable opponents the
+ * closest rating bucket wins, and within a bucket the one waiting longest.
+ *
+ * @param <T> Player handle passed back on a match
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Matchmaker<T> {
+
+    /**
+     * Receives the pairs the matchmaker forms. Called on the thread that
+     * formed the pair: an {@link #enqueue} or {@link #sweep} caller.
+     *
+     * @param <T> Player handle
+     */
+    public interface MatchListener<T> {
+        /**
+         * Two players were paired.
+         * @param first Player who waited longer
+         * @param second The other player
+         * @param boardSize Board size both accept
+         */
+        void matched(T first, T second, int boardSize);
+    }
+
+    /** Board sizes players can ask for; bit i of a size mask stands for BOARD_SIZES[i]. */
+    public static final int[] BOARD_SIZES = {3, 5, 7};
+    /** Rating points per queue. */
+    public static final int BUCKET_WIDTH = 50;
+    /** Rating difference accepted right away. */
+    public static final int DEFAULT_INITIAL_WINDOW = 100;
+    /** Rating points the window widens by per second waited. */
+    public static final int DEFAULT_WIDEN_PER_SECOND = 50;
+    /** Widest window; reached after 14 seconds with the defaults. */
+    public static final int DEFAULT_MAX_WINDOW = 800;
+
+    // Ratings are clamped to 0..MAX_RATING for bucketing
+    private static final int MAX_RATING = 4000;
+    private static final int BUCKETS = MAX_RATING / BUCKET_WIDTH + 1;
+
+    private static final int WAITING = 0;
+    private static final int CLAIMED = 1;
+    private static final int MATCHED = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * A player's place in the queue.
+     *
+     * @param <T> Player handle
+     */
+    public static final class Ticket<T> {
+        private final T player;
+        private final int rating;
+        private final int sizes;
+        private final long enqueuedNanos;
+        // Starts claimed by the enqueuing thread until the ticket is queued
+        private final AtomicInteger state = new AtomicInteger(CLAIMED);
+
+        private Ticket(T player, int rating, int sizes, long enqueuedNanos) {
+            this.player = player;
+            this.rating = rating;
+            this.sizes = sizes;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        /**
+         * Gets the player this ticket was taken for.
+         * @return Player handle
+         */
+        public T getPlayer() {
+            return player;
+        }
+
+        /**
+         * Gets the rating the player queued with, clamped to the bucketed range.
+         * @return Rating
+         */
+        public int getRating() {
+            return rating;
+        }
+
+        /**
+         * Checks whether the player still waits for a match.
+         * @return false once matched or cancelled
+         */
+        public boolean isWaiting() {
+            int current = state.get();
+            return current == WAITING || current == CLAIMED;
+        }
+    }
+
+    private final MatchListener<T> listener;
+    private final int initialWindow;
+    private final int widenPerSecond;
+    private final int maxWindow;
+    private final ConcurrentLinkedQueue<Ticket<T>>[][] queues;
+    private final LongAdder waiting = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+
+    /**
+     * Creates a matchmaker with the default windows.
+     * @param listener Receives every pair formed
+     */
+    public Matchmaker(MatchListener<T> listener) {
+        this(listener, DEFAULT_INITIAL_WINDOW, DEFAULT_WIDEN_PER_SECOND, DEFAULT_MAX_WINDOW);
+    }
+
+    /**
+     * Creates a matchmaker.
+     * @param listener Receives every pair formed
+     * @param initialWindow Rating difference accepted right away
+     * @param widenPerSecond Rating points the window widens by per second waited
+     * @param maxWindow Widest window
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Matchmaker(MatchListener<T> listener, int initialWindow, int widenPerSecond, int maxWindow) {
+        if (initialWindow < 0 || widenPerSecond < 0 || maxWindow < initialWindow) {
+            throw new IllegalArgumentException("Invalid rating windows: " + initialWindow
+                + " widening by " + widenPerSecond + "/s up to " + maxWindow);
+        }
+        this.listener = listener;
+        this.initialWindow = initialWindow;
+        this.widenPerSecond = widenPerSecond;
+        this.maxWindow = maxWindow;
+        this.queues = new ConcurrentLinkedQueue[BOARD_SIZES.length][BUCKETS];
+        for (ConcurrentLinkedQueue<Ticket<T>>[] size : queues) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                size[bucket] = new ConcurrentLinkedQueue<>();
+            }
+        }
+    }
+
+    /**
+     * Builds the size mask for a set of board sizes.
+     * @param sizes Board sizes, each one of {@link #BOARD_SIZES}
+     * @return Size mask
+     * @throws IllegalArgumentException if a size is not offered or none is given
+     */
+    public static int sizeMask(int... sizes) {
+        int mask = 0;
+        for (int size : sizes) {
+            int index = 0;
+            while (index < BOARD_SIZES.length && BOARD_SIZES[index] != size) {
+                index++;
+            }
+            if (index == BOARD_SIZES.length) {
+                throw new IllegalArgumentException("Board size " + size + " is not offered");
+            }
+            mask |= 1 << index;
+        }
+        if (mask == 0) {
+            throw new IllegalArgumentException("No board size given");
+        }
+        return mask;
+    }
+
+    /**
+     * Checks whether a size mask is valid.
+     * @param mask Size mask
+     * @return true if it names at least one offered size and nothing else
+     */
+    public static boolean isValidSizeMask(int mask) {
+        return mask != 0 && (mask & ~((1 << BOARD_SIZES.length) - 1)) == 0;
+    }
+
+    /**
+     * Queues a player, or pairs it at once with a waiting player in range.
+     * @param player Player handle
+     * @param rating Player's rating
+     * @param sizes Size mask of the board sizes the player accepts
+     * @return Ticket to cancel the wait with
+     * @throws IllegalArgumentException if the size mask is invalid
+     */
+    public Ticket<T> enqueue(T player, int rating, int sizes) {
+        if (!isValidSizeMask(sizes)) {
+            throw new IllegalArgumentException("Invalid board size mask " + sizes);
+        }
+        Ticket<T> ticket = new Ticket<>(player, Math.max(0, Math.min(MAX_RATING, rating)), sizes, System.nanoTime());
+        waiting.increment();
+        if (!match(ticket, ticket.enqueuedNanos)) {
+            int bucket = ticket.rating / BUCKET_WIDTH;
+            for (int size = 0; size < BOARD_SIZES.length; size++) {
+                if ((sizes & 1 << size) != 0) {
+                    queues[size][bucket].add(ticket);
+                }
+            }
+            ticket.state.set(WAITING);
+        }
+        return ticket;
+    }
+
+    /**
+     * Takes a player out of the queue.
+     * @param ticket Ticket from {@link #enqueue}
+     * @return true if the player was still waiting; false if it was
+     *         already matched or cancelled
+     */
+    public boolean cancel(Ticket<T> ticket) {
+        while (true) {
+            int current = ticket.state.get();
+            if (current == WAITING) {
+                if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                    waiting.decrement();
+                    return true;
+                }
+            } else if (current == CLAIMED) {
+                Thread.onSpinWait(); // A matcher is looking at it; its answer is only moments away
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Retries every waiting player with its current window, and unlinks
+     * the tickets that are no longer waiting. Safe to run alongside
+     * {@link #enqueue} and {@link #cancel}.
+     */
+    public void sweep() {
+        long now = System.nanoTime();
+        for (ConcurrentLinkedQueue<Ticket<T>>[] size : queues) {
+            for (ConcurrentLinkedQueue<Ticket<T>> queue : size) {
+                Iterator<Ticket<T>> tickets = queue.iterator();
+                while (tickets.hasNext()) {
+                    Ticket<T> ticket = tickets.next();
+                    int current = ticket.state.get();
+                    if (current == MATCHED || current == CANCELLED) {
+                        tickets.remove();
+                    } else if (current == WAITING && ticket.state.compareAndSet(WAITING, CLAIMED)
+                            && !match(ticket, now)) {
+                        ticket.state.set(WAITING);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of players waiting.
+     * @return Waiting player count
+     */
+    public long getWaitingCount() {
+        return waiting.sum();
+    }
+
+    /**
+     * Gets the number of pairs formed so far.
+     * @return Match count
+     */
+    public long getMatchCount() {
+        return matches.sum();
+    }
+
+    /**
+     * Looks for an opponent for a ticket the caller has claimed, nearest
+     * rating bucket first, and pairs them.
+     * @return true if a pair was formed; the ticket stays claimed otherwise
+     */
+    private boolean match(Ticket<T> ticket, long now) {
+        int window = window(ticket, now);
+        int center = ticket.rating / BUCKET_WIDTH;
+        int reach = (window + BUCKET_WIDTH - 1) / BUCKET_WIDTH;
+        // Buckets in the order center, -1, +1, -2, +2, ...
+        for (int step = 0; step <= 2 * reach; step++) {
+            int bucket = center + ((step & 1) == 0 ? step / 2 : -(step + 1) / 2);
+            if (bucket < 0 || bucket >= BUCKETS) {
+                continue;
+            }
+            for (int size = 0; size < BOARD_SIZES.length; size++) {
+                if ((ticket.sizes & 1 << size) == 0) {
+                    continue;
+                }
+                Iterator<Ticket<T>> candidates = queues[size][bucket].iterator();
+                while (candidates.hasNext()) {
+                    Ticket<T> other = candidates.next();
+                    int current = other.state.get();
+                    if (current == MATCHED || current == CANCELLED) {
+                        candidates.remove();
+                    } else if (current == WAITING && other != ticket
+                            && Math.abs(other.rating - ticket.rating) <= Math.min(window, window(other, now))
+                            && other.state.compareAndSet(WAITING, MATCHED)) {
+                        ticket.state.set(MATCHED);
+                        waiting.add(-2);
+                        matches.increment();
+                        if (other.enqueuedNanos <= ticket.enqueuedNanos) {
+                            listener.matched(other.player, ticket.player, BOARD_SIZES[size]);
+                        } else {
+                            listener.matched(ticket.player, other.player, BOARD_SIZES[size]);
+                        }
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int window(Ticket<T> ticket, long now) {
+        long widened = initialWindow + (now - ticket.enqueuedNanos) / 1_000_000L * widenPerSecond / 1000L;
+        return (int) Math.min(maxWindow, widened);
+    }
+}
@@ -0,0 +1,305 @@
+package com.mycompany.javagrid4.net;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for the {@link Matchmaker}, against a naive matchmaker that
+ * keeps every waiting player in one list behind one lock.
+ *
+ * Several threads queue players with normally distributed ratings and
+ * random board-size preferences as fast as they can, and take some of
+ * their waiting players out again; a sweeper retries the waiting players
+ * every {@value #SWEEP_MILLIS} ms, as the lobby does. Both matchmakers
+ * use the same windows, so the pairs they form are comparable: the
+ * report gives the operations per second, the matches formed, the mean
+ * rating gap of a match and how long players waited.
+ *
+ * How many players wait at a time depends on how easily an arrival finds
+ * an opponent: with the default windows almost everyone is paired on
+ * arrival and the queue stays short. A narrow --initial-window or a wide
+ * --deviation keeps many players waiting, which is where scanning one
+ * list gets expensive.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.net.MatchmakerBenchmark \
+ *     [--threads 4] [--seconds 5] [--slots 2000] [--leave-percent 30]
+ *     [--matchmaker lockfree|synchronized|both] [--initial-window 100] [--deviation 300]
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class MatchmakerBenchmark {
+
+    private static final long SWEEP_MILLIS = 250;
+    private static final int MEAN_RATING = 1500;
+    // Size masks drawn for players: one size each, or any of them
+    private static final int[] SIZE_CHOICES = {
+        Matchmaker.sizeMask(3), Matchmaker.sizeMask(5), Matchmaker.sizeMask(7),
+        Matchmaker.sizeMask(3, 5, 7)
+    };
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder ratingGaps = new LongAdder();
+    private final LongAdder waitMicros = new LongAdder();
+    private final int initialWindow;
+    private final int deviation;
+
+    private MatchmakerBenchmark(int initialWindow, int deviation) {
+        this.initialWindow = initialWindow;
+        this.deviation = deviation;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --threads N, --seconds S, --slots N (waiting players
+     *             each thread keeps track of), --leave-percent P,
+     *             --matchmaker lockfree|synchronized|both, --initial-window W
+     *             (rating points), --deviation D (of the ratings drawn)
+     * @throws InterruptedException if interrupted while the workers run
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = 4;
+        int seconds = 5;
+        int slots = 2000;
+        int leavePercent = 30;
+        String kind = "both";
+        int initialWindow = Matchmaker.DEFAULT_INITIAL_WINDOW;
+        int deviation = 300;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--slots": slots = Integer.parseInt(args[++i]); break;
+                case "--leave-percent": leavePercent = Integer.parseInt(args[++i]); break;
+                case "--matchmaker": kind = args[++i]; break;
+                case "--initial-window": initialWindow = Integer.parseInt(args[++i]); break;
+                case "--deviation": deviation = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (!kind.equals("lockfree") && !kind.equals("synchronized") && !kind.equals("both")) {
+            throw new IllegalArgumentException("Unknown matchmaker: " + kind);
+        }
+        System.out.printf("%d threads, %d s, %d%% of operations are leaves, ratings %d +- %d,"
+            + " initial window %d, %d cores%n", threads, seconds, leavePercent, MEAN_RATING, deviation,
+            initialWindow, Runtime.getRuntime().availableProcessors());
+        if (!kind.equals("synchronized")) {
+            new MatchmakerBenchmark(initialWindow, deviation).run("lockfree: rating-bucketed lock-free queues", false,
+                threads, seconds, slots, leavePercent);
+        }
+        if (!kind.equals("lockfree")) {
+            new MatchmakerBenchmark(initialWindow, deviation).run("synchronized: one list behind one lock", true,
+                threads, seconds, slots, leavePercent);
+        }
+    }
+
+    private void run(String title, boolean naive, int threads, int seconds, int slots, int leavePercent)
+            throws InterruptedException {
+        System.out.printf("%n== %s%n", title);
+        Service service = naive ? new SynchronizedMatchmaker(this::matched, initialWindow) : lockFree();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = 42 + t;
+            workers[t] = new Thread(() -> work(service, new Random(seed), end, slots, leavePercent),
+                "matchbench-" + t);
+            workers[t].start();
+        }
+        Thread sweeper = new Thread(() -> {
+            while (System.nanoTime() < end) {
+                service.sweep();
+                try {
+                    Thread.sleep(SWEEP_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "matchbench-sweeper");
+        sweeper.start();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        sweeper.join();
+
+        long count = matches.sum();
+        System.out.printf("Operations: %,d (%,.0f/s), matches: %,d (%,.0f/s), still waiting: %,d%n",
+            operations.sum(), operations.sum() / (double) seconds, count, count / (double) seconds,
+            service.waiting());
+        if (count > 0) {
+            System.out.printf("Mean rating gap %.1f, mean wait of the longer-waiting player %.2f ms%n",
+                ratingGaps.sum() / (double) count, waitMicros.sum() / 1000.0 / count);
+        }
+    }
+
+    /**
+     * One worker: queues players and takes some out again until the deadline.
+     */
+    private void work(Service service, Random random, long end, int slots, int leavePercent) {
+        Object[] tickets = new Object[slots];
+        long done = 0;
+        while ((done & 0xFF) != 0 || System.nanoTime() < end) {
+            int slot = random.nextInt(slots);
+            if (random.nextInt(100) < leavePercent) {
+                if (tickets[slot] != null) {
+                    service.cancel(tickets[slot]);
+                    tickets[slot] = null;
+                }
+            } else {
+                int rating = (int) Math.round(MEAN_RATING + random.nextGaussian() * deviation);
+                int sizes = SIZE_CHOICES[random.nextInt(SIZE_CHOICES.length)];
+                tickets[slot] = service.enqueue(new Seeker(rating, System.nanoTime()), rating, sizes);
+            }
+            done++;
+        }
+        operations.add(done);
+    }
+
+    private void matched(Seeker first, Seeker second, int boardSize) {
+        matches.increment();
+        ratingGaps.add(Math.abs(first.rating - second.rating));
+        waitMicros.add((System.nanoTime() - first.queuedNanos) / 1000);
+    }
+
+    private Service lockFree() {
+        Matchmaker<Seeker> matchmaker = new Matchmaker<>(this::matched, initialWindow,
+            Matchmaker.DEFAULT_WIDEN_PER_SECOND, Matchmaker.DEFAULT_MAX_WINDOW);
+        return new Service() {
+            @Override
+            public Object enqueue(Seeker seeker, int rating, int sizes) {
+                return matchmaker.enqueue(seeker, rating, sizes);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void cancel(Object ticket) {
+                matchmaker.cancel((Matchmaker.Ticket<Seeker>) ticket);
+            }
+
+            @Override
+            public void sweep() {
+                matchmaker.sweep();
+            }
+
+            @Override
+            public long waiting() {
+                return matchmaker.getWaitingCount();
+            }
+        };
+    }
+
+    /** A queued test player. */
+    private static final class Seeker {
+        final int rating;
+        final long queuedNanos;
+
+        Seeker(int rating, long queuedNanos) {
+            this.rating = rating;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    /** The operations both matchmakers are driven through. */
+    private interface Service {
+        Object enqueue(Seeker seeker, int rating, int sizes);
+
+        void cancel(Object ticket);
+
+        void sweep();
+
+        long waiting();
+    }
+
+    /**
+     * The naive matchmaker: every waiting player in one list, every
+     * operation under one lock, and each arrival compared with everyone
+     * waiting. Same windows as {@link Matchmaker}; it picks the closest
+     * rating in range.
+     */
+    private static final class SynchronizedMatchmaker implements Service {
+        private final Matchmaker.MatchListener<Seeker> listener;
+        private final int initialWindow;
+        private final ArrayList<Entry> waiting = new ArrayList<>();
+
+        SynchronizedMatchmaker(Matchmaker.MatchListener<Seeker> listener, int initialWindow) {
+            this.listener = listener;
+            this.initialWindow = initialWindow;
+        }
+
+        @Override
+        public synchronized Object enqueue(Seeker seeker, int rating, int sizes) {
+            Entry entry = new Entry(seeker, rating, sizes, System.nanoTime());
+            if (!match(entry, entry.queuedNanos)) {
+                waiting.add(entry);
+            }
+            return entry;
+        }
+
+        @Override
+        public synchronized void cancel(Object ticket) {
+            waiting.remove(ticket);
+        }
+
+        @Override
+        public synchronized void sweep() {
+            long now = System.nanoTime();
+            for (Entry entry : new ArrayList<>(waiting)) {
+                // Gone already if an earlier entry was paired with it
+                if (waiting.remove(entry) && !match(entry, now)) {
+                    waiting.add(entry);
+                }
+            }
+        }
+
+        @Override
+        public synchronized long waiting() {
+            return waiting.size();
+        }
+
+        private boolean match(Entry entry, long now) {
+            int window = window(entry, now);
+            int best = -1;
+            for (int i = 0; i < waiting.size(); i++) {
+                Entry other = waiting.get(i);
+                int gap = Math.abs(other.rating - entry.rating);
+                if ((other.sizes & entry.sizes) != 0 && gap <= Math.min(window, window(other, now))
+                        && (best < 0 || gap < Math.abs(waiting.get(best).rating - entry.rating))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                return false;
+            }
+            Entry other = waiting.remove(best);
+            int common = other.sizes & entry.sizes;
+            listener.matched(other.seeker, entry.seeker,
+                Matchmaker.BOARD_SIZES[Integer.numberOfTrailingZeros(common)]);
+            return true;
+        }
+
+        private int window(Entry entry, long now) {
+            long widened = initialWindow
+                + (now - entry.queuedNanos) / 1_000_000L * Matchmaker.DEFAULT_WIDEN_PER_SECOND / 1000L;
+            return (int) Math.min(Matchmaker.DEFAULT_MAX_WINDOW, widened);
+        }
+
+        /** One waiting player. */
+        private static final class Entry {
+            final Seeker seeker;
+            final int rating;
+            final int sizes;
+            final long queuedNanos;
+
+            Entry(Seeker seeker, int rating, int sizes, long queuedNanos) {
+                this.seeker = seeker;
+                this.rating = rating;
+                this.sizes = sizes;
+                this.queuedNanos = queuedNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.commands.MoveJournal;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+
+/**
+ * Client-side prediction for an online game: the local player's move is
+ * played on the board at once, through the move journal like any other
+ * move, and the server's answer later confirms or overrides it.
+ *
+ * At most one move is predicted at a time, since players alternate. When
+ * the server's next batch is that move, the prediction stands and the
+ * batch only checks the board. When the server did something else first,
+ * for example took back the opponent's move the prediction answered, or
+ * turns the move down, the prediction is rolled back with
+ * {@link MoveJournal#undo()} and the server's batch is played instead.
+ * Either way the batch's cells are then written over the board, so the
+ * board always ends up as the server has it.
+ *
+ * A move that would end the game is not predicted: the game is only over
+ * once the server says so.
+ *
+ * Not thread-safe; a client feeds it from one thread, such as the event
+ * dispatch thread.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class MovePredictor {
+
+    /**
+     * What a server batch did to the board.
+     */
+    public enum Outcome {
+        /** The batch was the predicted move; the board already showed it. */
+        CONFIRMED,
+        /** The batch was played: the opponent's move, an undo, or an own move that was not predicted. */
+        APPLIED,
+        /** The prediction was taken back, then the batch was played. */
+        ROLLED_BACK,
+        /** The batch does not follow the board's position and was dropped. */
+        IGNORED
+    }
+
+    private final GameEngine engine;
+    private final MoveJournal journal;
+    private final IntConsumer player;
+    private int predictedCell = -1;
+    private int correctedCells;
+
+    /**
+     * Creates a predictor that plays moves straight through the journal.
+     * @param engine Board shown to the player
+     * @param journal Journal the board's moves go through
+     */
+    public MovePredictor(GameEngine engine, MoveJournal journal) {
+        this(engine, journal, cell -> {
+            int size = engine.getGridSize();
+            journal.executeMove(cell / size, cell % size, engine.getCurrentPlayer());
+            engine.getGameState().switchPlayer();
+        });
+    }
+
+    /**
+     * Creates a predictor that plays moves through the caller, for
+     * example to animate them.
+     * @param engine Board shown to the player
+     * @param journal Journal the board's moves go through
+     * @param player Plays a move for the player to move through the
+     *               journal and switches players
+     */
+    public MovePredictor(GameEngine engine, MoveJournal journal, IntConsumer player) {
+        this.engine = engine;
+        this.journal = journal;
+        this.player = player;
+    }
+
+    /**
+     * Gets the number of moves the server has confirmed, which is the ply
+     * a move is sent with.
+     * @return Confirmed ply
+     */
+    public int getConfirmedPly() {
+        return (int) journal.getPly() - (isPending() ? 1 : 0);
+    }
+
+    /**
+     * Checks whether a predicted move still waits for the server.
+     * @return true while a prediction is unconfirmed
+     */
+    public boolean isPending() {
+        return predictedCell >= 0;
+    }
+
+    /**
+     * Gets the number of cells the last batch or keyframe had to correct
+     * after the moves were played; anything but 0 means the board had
+     * drifted from the server's.
+     * @return Corrected cells
+     */
+    public int getCorrectedCells() {
+        return correctedCells;
+    }
+
+    /**
+     * Plays the local player's move ahead of the server, unless it would
+     * end the game. Either way the caller sends it with the ply
+     * {@link #getConfirmedPly()} returned before this call.
+     * @param cell Cell index (row * size + col) of a legal move
+     * @return true if the move was played; false if it waits for the server
+     * @throws IllegalStateException if a prediction is already pending
+     */
+    public boolean predict(int cell) {
+        if (isPending()) {
+            throw new IllegalStateException("Move " + predictedCell + " is still waiting for the server");
+        }
+        if (endsGame(cell)) {
+            return false;
+        }
+        player.accept(cell);
+        predictedCell = cell;
+        return true;
+    }
+
+    /**
+     * Reconciles the board with a batch the server accepted.
+     * @param ply Moves played once the batch is applied
+     * @param cell Cell played or taken back
+     * @param undo Whether the batch takes back a move
+     * @param batch DELTA payload, for {@link BoardDelta#apply}
+     * @return What the batch did
+     * @throws java.nio.BufferUnderflowException if the batch is cut off
+     * @throws IllegalArgumentException if the batch names a cell off the board
+     */
+    public Outcome onDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+        correctedCells = 0;
+        boolean rolledBack = false;
+        if (isPending()) {
+            if (!undo && cell == predictedCell && ply == journal.getPly()) {
+                predictedCell = -1;
+                correctedCells = BoardDelta.apply(batch, engine);
+                return Outcome.CONFIRMED;
+            }
+            rollBack();
+            rolledBack = true;
+        }
+        if (ply != journal.getPly() + (undo ? -1 : 1)) {
+            return rolledBack ? Outcome.ROLLED_BACK : Outcome.IGNORED;
+        }
+        if (undo) {
+            journal.undo();
+        } else {
+            player.accept(cell);
+        }
+        correctedCells = BoardDelta.apply(batch, engine);
+        return rolledBack ? Outcome.ROLLED_BACK : Outcome.APPLIED;
+    }
+
+    /**
+     * Takes back the prediction if the server turned it down.
+     * @param ply Ply the rejected request was sent with
+     * @return true if the prediction was rolled back
+     */
+    public boolean onRejected(int ply) {
+        if (!isPending() || ply != getConfirmedPly()) {
+            return false;
+        }
+        rollBack();
+        return true;
+    }
+
+    /**
+     * Checks the board against a keyframe and takes the server's board if
+     * they differ. Skipped while a prediction is pending or the keyframe
+     * is for another ply, since it then describes another position.
+     * @param ply Moves played at the keyframe
+     * @param keyframe KEYFRAME payload
+     * @return Cells reset, 0 if the board matched or the check was skipped
+     * @throws java.nio.BufferUnderflowException if the keyframe is cut off
+     * @throws IllegalArgumentException if the keyframe does not fit the board
+     */
+    public int onKeyframe(int ply, ByteBuffer keyframe) {
+        correctedCells = 0;
+        if (isPending() || ply != journal.getPly() || BoardDelta.matches(keyframe, engine)) {
+            return 0;
+        }
+        correctedCells = BoardDelta.applyKeyframe(keyframe, engine);
+        return correctedCells;
+    }
+
+    private void rollBack() {
+        journal.undo();
+        predictedCell = -1;
+    }
+
+    /**
+     * Checks whether a move would fill the last open cells: every cell it
+     * touches at 3 or more, every other cell full.
+     */
+    private boolean endsGame(int cell) {
+        int size = engine.getGridSize();
+        int row = cell / size;
+        int col = cell % size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                boolean touched = Math.abs(r - row) + Math.abs(c - col) <= 1;
+                if (engine.getCellValue(r, c) < (touched ? 3 : 4)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
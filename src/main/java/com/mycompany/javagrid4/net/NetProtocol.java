@@ -0,0 +1,474 @@
+package com.mycompany.javagrid4.net;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Framed binary protocol between {@link GameServer} and {@link GameClient}.
+ *
+ * Every message is one frame:
+ * <pre>
+ * length (varint, bytes after this field) | type (u8) | payload
+ * </pre>
+ * Numbers are unsigned LEB128 varints (7 bits per byte, low group first,
+ * high bit set on all but the last byte) unless noted, so plies, cells and
+ * counts below 128 cost one byte. Strings are a u8 byte count followed by
+ * UTF-8; colors are 0xRRGGBB in a u24.
+ *
+ * Client to server:
+ * - HOST: size (u8), color, name: open a game and wait for an opponent
+ * - JOIN: game id, color, name: take the second seat of a game
+ * - MOVE: ply, cell: play a move; ply is the number of moves already
+ *   played, so a move sent for an old position is turned down
+ * - UNDO: ply: take back one's own last move, before the opponent replies
+ * - WATCH: game id: follow a started game as a spectator
+ * - QUEUE: sizes (u8, a {@link Matchmaker#sizeMask}), rating, color, name:
+ *   wait to be paired with a player of similar rating; the game starts
+ *   with SETUP, and LEAVE stops waiting
+ * - LEAVE: leave the current game
+ * - SYNC: stamp (varlong): answered with a SYNCED carrying the same stamp
+ *
+ * Server to client:
+ * - HOSTED: game id: the code to give the opponent
+ * - SETUP: game id, seat (u8, {@value #SPECTATOR} for a spectator), then
+ *   the game's configuration: size (u8), color and name of player 1 and
+ *   of player 2
+ * - DELTA: a move or undo the server accepted, sent to both players as
+ *   the cells it changed (see {@link BoardDelta})
+ * - KEYFRAME: the whole board and its checksum, sent after every
+ *   {@value #KEYFRAME_INTERVAL} plies so a client can check it is in sync
+ * - REJECTED: ply, reason (u8): a move or undo the server turned down
+ * - LEFT: the opponent left or lost the connection
+ * - SYNCED: stamp (varlong), server clock (varlong, ms since the epoch)
+ * - ERROR: reason (u8): a HOST, JOIN, WATCH or QUEUE that failed
+ *
+ * The server is authoritative, but a client need not wait for it: it
+ * may play its own move at once as a prediction. The DELTA that comes
+ * back confirms it; a REJECTED, or a DELTA for something the server did
+ * first, makes the client take the move back and play the DELTA instead
+ * (see {@link MovePredictor}). A DELTA's cells are always written over
+ * the client's board, so it ends up as the server has it.
+ *
+ * A spectator gets SETUP, a KEYFRAME of the board as it is, and then the
+ * players' DELTAs and KEYFRAMEs, until the game ends (LEFT if a player
+ * left). A spectator that does not keep up skips DELTAs instead of
+ * having them queued, and gets a KEYFRAME in their place once it has
+ * caught up, so its board may jump several plies at once.
+ *
+ * Frames are encoded into one buffer each, payload first and header
+ * after, so a frame is never copied on its way out and one buffer can be
+ * written to any number of sockets. Readers decode frames in place in
+ * their read buffer (see {@link #nextFrame}).
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class NetProtocol {
+
+    /** Largest frame accepted, length field included. */
+    public static final int MAX_FRAME = 512;
+    /** Longest player name sent, in characters. */
+    public static final int MAX_NAME_CHARS = 32;
+    /** Seat of a spectator in a SETUP message. */
+    public static final int SPECTATOR = 2;
+    /** Plies between two keyframes. */
+    public static final int KEYFRAME_INTERVAL = 16;
+
+    public static final int HOST = 0x01;
+    public static final int JOIN = 0x02;
+    public static final int MOVE = 0x03;
+    public static final int LEAVE = 0x04;
+    public static final int SYNC = 0x05;
+    public static final int UNDO = 0x06;
+    public static final int WATCH = 0x07;
+    public static final int QUEUE = 0x08;
+
+    public static final int HOSTED = 0x81;
+    public static final int SETUP = 0x82;
+    public static final int DELTA = 0x83;
+    public static final int REJECTED = 0x84;
+    public static final int LEFT = 0x85;
+    public static final int SYNCED = 0x86;
+    public static final int ERROR = 0x87;
+    public static final int KEYFRAME = 0x88;
+
+    /** Reason: the frame could not be decoded or the request is invalid. */
+    public static final int BAD_REQUEST = 1;
+    /** Reason: there is no open game with the requested id. */
+    public static final int NO_SUCH_GAME = 2;
+    /** Reason: both seats of the game are taken. */
+    public static final int GAME_FULL = 3;
+    /** Reason: the sender does not play in a started game. */
+    public static final int NOT_IN_GAME = 4;
+    /** Reason: it is the opponent's turn. */
+    public static final int NOT_YOUR_TURN = 5;
+    /** Reason: the move was sent for an earlier position. */
+    public static final int STALE_PLY = 6;
+    /** Reason: the cell is full or off the board. */
+    public static final int ILLEGAL_MOVE = 7;
+    /** Reason: the game is over. */
+    public static final int GAME_OVER = 8;
+    /** Reason: the last move is not the sender's, or nothing was played. */
+    public static final int CANNOT_UNDO = 9;
+
+    // Room for the longest header in front of the payload: two length
+    // bytes (MAX_FRAME needs two varint groups) and the type
+    static final int HEADROOM = 3;
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Encodes a HOST request.
+     * @param size Board size
+     * @param name Host's name
+     * @param color Host's color (0xRRGGBB)
+     * @return Frame ready to write
+     */
+    public static ByteBuffer host(int size, String name, int color) {
+        byte[] nameBytes = encodeName(name);
+        ByteBuffer frame = frame(1 + 3 + 1 + nameBytes.length);
+        frame.put((byte) size);
+        putColor(frame, color);
+        putName(frame, nameBytes);
+        return finish(frame, HOST);
+    }
+
+    /**
+     * Encodes a JOIN request.
+     * @param gameId Game to join
+     * @param name Joining player's name
+     * @param color Joining player's color (0xRRGGBB)
+     * @return Frame ready to write
+     */
+    public static ByteBuffer join(int gameId, String name, int color) {
+        byte[] nameBytes = encodeName(name);
+        ByteBuffer frame = frame(5 + 3 + 1 + nameBytes.length);
+        putVarint(frame, gameId);
+        putColor(frame, color);
+        putName(frame, nameBytes);
+        return finish(frame, JOIN);
+    }
+
+    /**
+     * Encodes a MOVE request.
+     * @param ply Moves played before this one
+     * @param cell Cell index (row * size + col)
+     * @return Frame ready to write
+     */
+    public static ByteBuffer move(int ply, int cell) {
+        ByteBuffer frame = frame(5 + 5);
+        putVarint(frame, ply);
+        putVarint(frame, cell);
+        return finish(frame, MOVE);
+    }
+
+    /**
+     * Encodes an UNDO request.
+     * @param ply Moves played so far, the last of them the sender's
+     * @return Frame ready to write
+     */
+    public static ByteBuffer undo(int ply) {
+        ByteBuffer frame = frame(5);
+        putVarint(frame, ply);
+        return finish(frame, UNDO);
+    }
+
+    /**
+     * Encodes a WATCH request.
+     * @param gameId Game to follow
+     * @return Frame ready to write
+     */
+    public static ByteBuffer watch(int gameId) {
+        ByteBuffer frame = frame(5);
+        putVarint(frame, gameId);
+        return finish(frame, WATCH);
+    }
+
+    /**
+     * Encodes a QUEUE request.
+     * @param sizes Size mask of the board sizes accepted
+     * @param rating Player's rating
+     * @param name Player's name
+     * @param color Player's color (0xRRGGBB)
+     * @return Frame ready to write
+     */
+    public static ByteBuffer queue(int sizes, int rating, String name, int color) {
+        byte[] nameBytes = encodeName(name);
+        ByteBuffer frame = frame(1 + 5 + 3 + 1 + nameBytes.length);
+        frame.put((byte) sizes);
+        putVarint(frame, Math.max(0, rating));
+        putColor(frame, color);
+        putName(frame, nameBytes);
+        return finish(frame, QUEUE);
+    }
+
+    /**
+     * Encodes a SYNC request.
+     * @param stamp Value echoed back, normally the sender's clock
+     * @return Frame ready to write
+     */
+    public static ByteBuffer sync(long stamp) {
+        ByteBuffer frame = frame(10);
+        putVarlong(frame, stamp);
+        return finish(frame, SYNC);
+    }
+
+    /**
+     * Encodes a message without payload (LEAVE or LEFT) or with a single
+     * reason byte (ERROR).
+     * @param type Message type
+     * @param reason Reason code, or -1 for none
+     * @return Frame ready to write
+     */
+    public static ByteBuffer simple(int type, int reason) {
+        ByteBuffer frame = frame(1);
+        if (reason >= 0) {
+            frame.put((byte) reason);
+        }
+        return finish(frame, type);
+    }
+
+    /**
+     * Encodes a HOSTED message.
+     * @param gameId Game id
+     * @return Frame ready to write
+     */
+    static ByteBuffer hosted(int gameId) {
+        ByteBuffer frame = frame(5);
+        putVarint(frame, gameId);
+        return finish(frame, HOSTED);
+    }
+
+    /**
+     * Encodes a SETUP message.
+     * @param gameId Game id
+     * @param seat Receiver's seat (0 = player 1)
+     * @param size Board size
+     * @param names Encoded names of both players
+     * @param colors Colors of both players
+     * @return Frame ready to write
+     */
+    static ByteBuffer setup(int gameId, int seat, int size, byte[][] names, int[] colors) {
+        ByteBuffer frame = frame(5 + 1 + 1 + 2 * (3 + 1) + names[0].length + names[1].length);
+        putVarint(frame, gameId);
+        frame.put((byte) seat).put((byte) size);
+        for (int p = 0; p < 2; p++) {
+            putColor(frame, colors[p]);
+            putName(frame, names[p]);
+        }
+        return finish(frame, SETUP);
+    }
+
+    /**
+     * Encodes a REJECTED message.
+     * @param ply Ply the move or undo was sent for
+     * @param reason Reason code
+     * @return Frame ready to write
+     */
+    static ByteBuffer rejected(int ply, int reason) {
+        ByteBuffer frame = frame(5 + 1);
+        putVarint(frame, ply);
+        frame.put((byte) reason);
+        return finish(frame, REJECTED);
+    }
+
+    /**
+     * Encodes a SYNCED message.
+     * @param stamp Stamp of the SYNC
+     * @param serverMillis Server clock
+     * @return Frame ready to write
+     */
+    static ByteBuffer synced(long stamp, long serverMillis) {
+        ByteBuffer frame = frame(10 + 10);
+        putVarlong(frame, stamp);
+        putVarlong(frame, serverMillis);
+        return finish(frame, SYNCED);
+    }
+
+    /**
+     * Describes a reason code for display.
+     * @param reason Reason from a REJECTED or ERROR
+     * @return Human-readable text
+     */
+    public static String describe(int reason) {
+        switch (reason) {
+            case BAD_REQUEST: return "Invalid request";
+            case NO_SUCH_GAME: return "No open game with that code";
+            case GAME_FULL: return "The game is already full";
+            case NOT_IN_GAME: return "Not in a game";
+            case NOT_YOUR_TURN: return "Not your turn";
+            case STALE_PLY: return "Move sent for an old position";
+            case ILLEGAL_MOVE: return "Illegal move";
+            case GAME_OVER: return "The game is over";
+            case CANNOT_UNDO: return "Only your own last move can be taken back";
+            default: return "Unknown reason " + reason;
+        }
+    }
+
+    /**
+     * Finds the next complete frame in a read buffer, without copying it.
+     * On success the buffer is positioned at the frame's type byte; the
+     * caller limits it to the returned end while decoding, then continues
+     * from there. Otherwise the position is unchanged.
+     * @param in Read buffer in read mode
+     * @return Offset just past the frame, or -1 if it is not complete yet
+     * @throws IOException if the length is invalid
+     */
+    static int nextFrame(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int length = 0;
+        int offset = start;
+        for (int shift = 0; ; shift += 7) {
+            if (offset == in.limit()) {
+                return -1;
+            }
+            int b = in.get(offset++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+            if (shift == 7) {
+                throw new IOException("Bad frame length");
+            }
+        }
+        if (length == 0 || offset - start + length > MAX_FRAME) {
+            throw new IOException("Bad frame length " + length);
+        }
+        if (in.limit() - offset < length) {
+            return -1;
+        }
+        in.position(offset);
+        return offset + length;
+    }
+
+    /**
+     * Writes an unsigned varint.
+     * @param buffer Target buffer
+     * @param value Value, read as unsigned
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     * @param buffer Buffer positioned at the varint
+     * @return Value
+     * @throws BufferUnderflowException if the varint is cut off or too long
+     */
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    /**
+     * Writes an unsigned varint of up to 64 bits.
+     * @param buffer Target buffer
+     * @param value Value, read as unsigned
+     */
+    static void putVarlong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned varint of up to 64 bits.
+     * @param buffer Buffer positioned at the varint
+     * @return Value
+     * @throws BufferUnderflowException if the varint is cut off or too long
+     */
+    static long getVarlong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    /**
+     * Reads a color written as a u24.
+     * @param buffer Buffer positioned at the color
+     * @return Color (0xRRGGBB)
+     */
+    static int getColor(ByteBuffer buffer) {
+        return (buffer.get() & 0xFF) << 16 | (buffer.get() & 0xFF) << 8 | buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads a name written by {@link #putName}.
+     * @param buffer Buffer positioned at the name
+     * @return Decoded name
+     * @throws BufferUnderflowException if the frame is too short
+     */
+    static String getName(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a name, cut to {@value #MAX_NAME_CHARS} characters.
+     * @param name Player name
+     * @return UTF-8 bytes
+     */
+    static byte[] encodeName(String name) {
+        String text = name.length() > MAX_NAME_CHARS ? name.substring(0, MAX_NAME_CHARS) : name;
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Allocates a frame buffer positioned where the payload goes.
+     * @param maxPayloadBytes Upper bound on the payload
+     * @return Buffer to write the payload into, then pass to {@link #finish}
+     */
+    static ByteBuffer frame(int maxPayloadBytes) {
+        return ByteBuffer.allocate(HEADROOM + maxPayloadBytes).position(HEADROOM);
+    }
+
+    /**
+     * Writes the header in front of a payload written after
+     * {@link #frame}, so the frame needs no copy.
+     * @param frame Buffer positioned after the payload
+     * @param type Message type
+     * @return The same buffer, positioned at the frame's first byte and
+     *         limited to its last
+     */
+    static ByteBuffer finish(ByteBuffer frame, int type) {
+        int length = 1 + frame.position() - HEADROOM;
+        int start = length < 0x80 ? HEADROOM - 2 : HEADROOM - 3;
+        frame.limit(frame.position()).position(start);
+        putVarint(frame, length);
+        frame.put((byte) type);
+        return frame.position(start);
+    }
+
+    private static void putColor(ByteBuffer frame, int color) {
+        frame.put((byte) (color >> 16)).put((byte) (color >> 8)).put((byte) color);
+    }
+
+    private static void putName(ByteBuffer frame, byte[] name) {
+        frame.put((byte) name.length).put(name);
+    }
+}
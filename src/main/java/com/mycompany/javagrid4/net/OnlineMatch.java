@@ -0,0 +1,83 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+
+import java.awt.Color;
+
+/**
+ * A started online game: who plays where, and the connection it is
+ * played over.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class OnlineMatch {
+    private final GameClient client;
+    private final int gameId;
+    private final int seat;
+    private final int boardSize;
+    private final String[] names;
+    private final int[] colors;
+
+    OnlineMatch(GameClient client, int gameId, int seat, int boardSize, String[] names, int[] colors) {
+        this.client = client;
+        this.gameId = gameId;
+        this.seat = seat;
+        this.boardSize = boardSize;
+        this.names = names.clone();
+        this.colors = colors.clone();
+    }
+
+    /**
+     * Gets the connection the game is played over.
+     * @return Client
+     */
+    public GameClient getClient() {
+        return client;
+    }
+
+    /**
+     * Gets the code the game was joined with.
+     * @return Game id
+     */
+    public int getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Gets the player id of this side (1 moves first).
+     * @return 1 or 2, or 0 for a spectator
+     */
+    public int getLocalPlayerId() {
+        return isSpectator() ? 0 : seat + 1;
+    }
+
+    /**
+     * Checks whether this side only watches the game.
+     * @return true for a spectator
+     */
+    public boolean isSpectator() {
+        return seat == NetProtocol.SPECTATOR;
+    }
+
+    /**
+     * Gets the board size.
+     * @return Board size
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Builds the configuration to show the game with. Both players are
+     * humans; the remote one is driven by the server.
+     * @return Game configuration
+     */
+    public GameConfig toConfig() {
+        return new GameConfig(
+            new PlayerConfig(1, names[0], new Color(colors[0])),
+            new PlayerConfig(2, names[1], new Color(colors[1])),
+            boardSize);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mycompany.javagrid4.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A connected player as seen by the game logic, independent of how the
+ * server does its socket I/O.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+abstract class Peer {
+
+    /** Game this player plays in or watches; set when a request is decoded, cleared by the game. */
+    final AtomicReference<ServerGame> game = new AtomicReference<>();
+
+    /** Place in the matchmaking queue; null when not queued or already matched. */
+    final AtomicReference<Matchmaker.Ticket<Lobby.Seeker>> ticket = new AtomicReference<>();
+
+    /** A spectator that skipped frames and needs a keyframe; only used on the watched game's executor. */
+    boolean behind;
+
+    /**
+     * Sends a frame. Safe to call from any thread; frames sent by one
+     * thread arrive in the order they were sent.
+     * @param frame Frame positioned at its first byte; its position is the
+     *              same when this returns, so one frame can be sent to
+     *              many peers, but only by one thread at a time
+     */
+    abstract void send(ByteBuffer frame);
+
+    /**
+     * Sends a frame only if nothing sent earlier is still waiting to be
+     * written, so a receiver that does not keep up skips frames instead of
+     * queueing them. Never blocks.
+     * @param frame Frame, as for {@link #send}
+     * @return false if the frame was skipped
+     */
+    abstract boolean trySend(ByteBuffer frame);
+
+    /**
+     * Checks whether the connection has been closed.
+     * @return true once closed
+     */
+    abstract boolean isClosed();
+}
@@ -0,0 +1,613 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.commands.MoveJournal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks client-side prediction against a real {@link GameServer} over a
+ * slow, jittery link, and shows how quickly a move appears with it.
+ *
+ * The server runs in this process on the loopback interface, and every
+ * client connects through a proxy that holds each chunk of bytes for
+ * half the ping plus a random jitter before passing it on. Each direction
+ * of a connection keeps its order, as TCP does, but the two players'
+ * connections are delayed independently, so requests sent in one order
+ * reach the server in another. All delays and choices come from the
+ * seed.
+ *
+ * Two scripted players play every game. Each keeps its own board and
+ * journal behind a {@link MovePredictor} and handles everything on one
+ * thread, as the game window does on the event dispatch thread: a move
+ * is shown at once and sent, and the server's answers are reconciled as
+ * they come. After some of its moves a player asks to take the move back
+ * a moment later, which races the opponent's predicted reply at the
+ * server; whichever the server takes first wins and the other side rolls
+ * back.
+ *
+ * A game passes when both boards finish identical and no batch or
+ * keyframe ever had to correct a cell: prediction and rollback alone kept
+ * each board where the server's was. The exit status is 1 if any game
+ * failed.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.net.ReconciliationHarness \
+ *     [--games 20] [--size 5] [--ping-ms 150] [--jitter-ms 40] [--undo-percent 25] [--seed 42]
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class ReconciliationHarness {
+
+    private static final long GAME_TIMEOUT_SECONDS = 120;
+    // Longest a scripted player thinks before it moves
+    private static final int THINK_MILLIS = 20;
+
+    private final int size;
+    private final int undoPercent;
+    private final LatencyProxy proxy;
+
+    // Totals over both players of every game; only updated on player threads under this lock
+    private final Object totalsLock = new Object();
+    private final List<Long> shownMicros = new ArrayList<>();
+    private final List<Long> confirmedMicros = new ArrayList<>();
+    private int predicted;
+    private int confirmed;
+    private int rolledBack;
+    private int rejected;
+    private int undosAsked;
+    private int undosApplied;
+    private int corrected;
+    private int keyframesChecked;
+
+    private ReconciliationHarness(int size, int undoPercent, LatencyProxy proxy) {
+        this.size = size;
+        this.undoPercent = undoPercent;
+        this.proxy = proxy;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --games N, --size 3|5|7, --ping-ms P (round trip added
+     *             to each connection), --jitter-ms J (most extra delay each
+     *             way), --undo-percent U (of own moves taken back), --seed S
+     * @throws Exception if the server or proxy cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int games = 20;
+        int size = 5;
+        int pingMillis = 150;
+        int jitterMillis = 40;
+        int undoPercent = 25;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--ping-ms": pingMillis = Integer.parseInt(args[++i]); break;
+                case "--jitter-ms": jitterMillis = Integer.parseInt(args[++i]); break;
+                case "--undo-percent": undoPercent = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IllegalArgumentException("Board size must be 3, 5 or 7: " + size);
+        }
+        if (pingMillis < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("Delays cannot be negative");
+        }
+
+        System.out.printf("%d games on %dx%d, ping %d ms + up to %d ms jitter each way, %d%% of moves taken back,"
+            + " seed %d%n", games, size, size, pingMillis, jitterMillis, undoPercent, seed);
+        int failed = 0;
+        try (GameServer server = GameServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+                LatencyProxy proxy = new LatencyProxy(server.getPort(), pingMillis * 1000L / 2, jitterMillis * 1000L,
+                    seed)) {
+            ReconciliationHarness harness = new ReconciliationHarness(size, undoPercent, proxy);
+            Random random = new Random(seed);
+            for (int game = 1; game <= games; game++) {
+                String problem = harness.playGame(random.nextLong());
+                if (problem != null) {
+                    failed++;
+                    System.out.printf("Game %d FAILED: %s%n", game, problem);
+                }
+            }
+            harness.report();
+        }
+        System.out.printf("%d of %d games consistent%n", games - failed, games);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays one game between two scripted players.
+     * @return What went wrong, or null if the game passed
+     */
+    private String playGame(long seed) throws IOException, InterruptedException {
+        CountDownLatch over = new CountDownLatch(2);
+        Side host = new Side("host", new Random(seed), over);
+        Side guest = new Side("guest", new Random(seed * 31 + 1), over);
+        try {
+            host.connect(proxy.getPort());
+            guest.connect(proxy.getPort());
+            host.client.host(size, "host", 0);
+            int gameId = host.hosted.take();
+            guest.client.join(gameId, "guest", 1);
+            if (!over.await(GAME_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return "timed out at move " + host.journal.getPly() + " / " + guest.journal.getPly();
+            }
+            String problem = host.problem != null ? host.problem : guest.problem;
+            if (problem == null && BoardDelta.checksum(host.engine) != BoardDelta.checksum(guest.engine)) {
+                problem = "boards differ at the end";
+            }
+            if (problem == null && host.journal.getPly() != guest.journal.getPly()) {
+                problem = "journals differ at the end: " + host.journal.getPly() + " / " + guest.journal.getPly();
+            }
+            return problem;
+        } finally {
+            host.close();
+            guest.close();
+        }
+    }
+
+    private void report() {
+        System.out.printf("%nMoves predicted: %d, confirmed: %d, rolled back: %d (server took the other player's"
+            + " request first), requests turned down: %d%n", predicted, confirmed, rolledBack, rejected);
+        System.out.printf("Undos asked: %d, applied: %d; keyframes checked: %d; cells corrected: %d%n",
+            undosAsked, undosApplied, keyframesChecked, corrected);
+        report("Own move shown on the board", shownMicros);
+        report("Own move confirmed by the server", confirmedMicros);
+    }
+
+    private static void report(String label, List<Long> micros) {
+        if (micros.isEmpty()) {
+            return;
+        }
+        Collections.sort(micros);
+        System.out.printf("%s: p50 %s, p90 %s, p99 %s, max %s%n", label, format(micros, 0.50),
+            format(micros, 0.90), format(micros, 0.99), format(micros, 1.0));
+    }
+
+    private static String format(List<Long> sorted, double fraction) {
+        long micros = sorted.get((int) Math.max(0, Math.ceil(fraction * sorted.size()) - 1));
+        return micros < 10_000 ? micros + " us" : micros / 1000 + " ms";
+    }
+
+    /**
+     * One scripted player: a client, its own board and a thread that does
+     * everything the event dispatch thread does in the game window.
+     */
+    private final class Side implements GameClient.Listener {
+        final String name;
+        final Random random;
+        final CountDownLatch over;
+        final GameEngine engine = new GameEngine(size);
+        final MoveJournal journal = new MoveJournal(engine);
+        final MovePredictor predictor = new MovePredictor(engine, journal);
+        final ScheduledExecutorService thread;
+        final SynchronousQueue<Integer> hosted = new SynchronousQueue<>();
+        GameClient client;
+        Player local;
+        boolean moveScheduled;
+        boolean waitingForServer;
+        long sentNanos;
+        volatile String problem;
+
+        Side(String name, Random random, CountDownLatch over) {
+            this.name = name;
+            this.random = random;
+            this.over = over;
+            this.thread = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "reconcile-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void connect(int port) throws IOException {
+            client = GameClient.connect(InetAddress.getLoopbackAddress().getHostAddress(), port, this);
+        }
+
+        void close() {
+            if (client != null) {
+                client.close();
+            }
+            thread.shutdownNow();
+        }
+
+        // Called on the client's reader thread
+
+        @Override
+        public void onHosted(int gameId) {
+            try {
+                hosted.put(gameId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onStart(OnlineMatch match) {
+            thread.execute(() -> {
+                local = match.getLocalPlayerId() == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+                client.setListener(this);
+                act();
+            });
+        }
+
+        @Override
+        public void onDelta(int ply, int cell, boolean undo, ByteBuffer batch) {
+            ByteBuffer copy = copy(batch);
+            thread.execute(() -> delta(ply, cell, undo, copy));
+        }
+
+        @Override
+        public void onKeyframe(int ply, ByteBuffer keyframe) {
+            ByteBuffer copy = copy(keyframe);
+            thread.execute(() -> {
+                if (problem == null && !engine.isGameOver()) {
+                    synchronized (totalsLock) {
+                        keyframesChecked++;
+                    }
+                    fail(predictor.onKeyframe(ply, copy), "keyframe at move " + ply + " reset");
+                }
+            });
+        }
+
+        @Override
+        public void onRejected(int ply, int reason) {
+            thread.execute(() -> {
+                boolean rolled = predictor.onRejected(ply);
+                synchronized (totalsLock) {
+                    rejected++;
+                    if (rolled) {
+                        rolledBack++;
+                    }
+                }
+                waitingForServer = false;
+                act();
+            });
+        }
+
+        @Override
+        public void onOpponentLeft() {
+            thread.execute(() -> stop("opponent left"));
+        }
+
+        @Override
+        public void onError(int reason) {
+            thread.execute(() -> stop("server error: " + NetProtocol.describe(reason)));
+        }
+
+        @Override
+        public void onDisconnected(IOException cause) {
+            thread.execute(() -> stop("disconnected: " + cause.getMessage()));
+        }
+
+        // Everything below runs on this player's thread
+
+        private void delta(int ply, int cell, boolean undo, ByteBuffer batch) {
+            if (problem != null || engine.isGameOver()) {
+                return;
+            }
+            MovePredictor.Outcome outcome = predictor.onDelta(ply, cell, undo, batch);
+            synchronized (totalsLock) {
+                if (outcome == MovePredictor.Outcome.CONFIRMED) {
+                    confirmed++;
+                    confirmedMicros.add((System.nanoTime() - sentNanos) / 1000);
+                } else if (outcome == MovePredictor.Outcome.ROLLED_BACK) {
+                    rolledBack++;
+                }
+                if (undo && outcome != MovePredictor.Outcome.IGNORED
+                        && engine.getGameState().getCurrentPlayer() == local) {
+                    undosApplied++; // Own undo: the move taken back was this player's
+                }
+                if (!undo && waitingForServer && outcome == MovePredictor.Outcome.APPLIED) {
+                    confirmedMicros.add((System.nanoTime() - sentNanos) / 1000);
+                }
+            }
+            if (outcome == MovePredictor.Outcome.IGNORED) {
+                fail(1, "batch for move " + ply + " did not follow move " + journal.getPly());
+                return;
+            }
+            waitingForServer = false;
+            fail(predictor.getCorrectedCells(), "batch for move " + ply + " corrected");
+            if (engine.isGameOver()) {
+                stop(null);
+                return;
+            }
+            if (outcome == MovePredictor.Outcome.CONFIRMED && random.nextInt(100) < undoPercent) {
+                // Take the move back a moment later, racing the opponent's reply
+                int undoPly = ply;
+                thread.schedule(() -> askUndo(undoPly), random.nextInt(2 * THINK_MILLIS + 1), TimeUnit.MILLISECONDS);
+            }
+            act();
+        }
+
+        /**
+         * Plays a move after a short think if it is this player's turn
+         * and nothing is waiting for the server.
+         */
+        private void act() {
+            if (problem != null || engine.isGameOver() || moveScheduled || waitingForServer
+                    || predictor.isPending() || engine.getGameState().getCurrentPlayer() != local) {
+                return;
+            }
+            moveScheduled = true;
+            thread.schedule(this::move, random.nextInt(THINK_MILLIS + 1), TimeUnit.MILLISECONDS);
+        }
+
+        private void move() {
+            moveScheduled = false;
+            if (problem != null || engine.isGameOver() || waitingForServer || predictor.isPending()
+                    || engine.getGameState().getCurrentPlayer() != local) {
+                return;
+            }
+            int cell = randomOpenCell();
+            int ply = predictor.getConfirmedPly();
+            long start = System.nanoTime();
+            if (predictor.predict(cell)) {
+                long shown = (System.nanoTime() - start) / 1000;
+                synchronized (totalsLock) {
+                    predicted++;
+                    shownMicros.add(shown);
+                }
+            } else {
+                waitingForServer = true; // The last move: shown once the server ends the game
+            }
+            sentNanos = start;
+            try {
+                client.sendMove(ply, cell);
+            } catch (IOException e) {
+                stop("send failed: " + e.getMessage());
+            }
+        }
+
+        private void askUndo(int ply) {
+            // Only while the opponent's reply has not arrived here
+            if (problem != null || engine.isGameOver() || predictor.isPending() || journal.getPly() != ply
+                    || engine.getGameState().getCurrentPlayer() == local) {
+                return;
+            }
+            synchronized (totalsLock) {
+                undosAsked++;
+            }
+            try {
+                client.requestUndo(ply);
+            } catch (IOException e) {
+                stop("send failed: " + e.getMessage());
+            }
+        }
+
+        private int randomOpenCell() {
+            int open = 0;
+            for (int index = 0; index < size * size; index++) {
+                if (engine.getCellValue(index / size, index % size) < 4) {
+                    open++;
+                }
+            }
+            int pick = random.nextInt(open);
+            for (int index = 0; ; index++) {
+                if (engine.getCellValue(index / size, index % size) < 4 && pick-- == 0) {
+                    return index;
+                }
+            }
+        }
+
+        private void fail(int correctedCells, String what) {
+            if (correctedCells == 0) {
+                return;
+            }
+            synchronized (totalsLock) {
+                corrected += correctedCells;
+            }
+            stop(what + " " + correctedCells + " cells on the " + name + "'s board");
+        }
+
+        private void stop(String why) {
+            if (problem != null || (why != null && engine.isGameOver())) {
+                return;
+            }
+            if (why == null) {
+                over.countDown();
+                return;
+            }
+            problem = why;
+            while (over.getCount() > 0) {
+                over.countDown(); // No point waiting for the other player
+            }
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.duplicate()).flip();
+        return copy;
+    }
+
+    /**
+     * A TCP proxy on the loopback interface that delays every chunk of
+     * bytes by a fixed one-way latency plus a random jitter. Chunks of one
+     * direction of one connection leave in the order they came; those of
+     * different connections overtake each other freely. One thread writes
+     * every chunk when it is due.
+     */
+    private static final class LatencyProxy implements Closeable {
+        private final InetSocketAddress target;
+        private final long delayMicros;
+        private final long jitterMicros;
+        private final long seed;
+        private final ServerSocketChannel listener;
+        private final PriorityQueue<Chunk> due = new PriorityQueue<>();
+        private final List<SocketChannel> channels = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger links = new AtomicInteger();
+        private long sequence;
+        private volatile boolean closed;
+
+        LatencyProxy(int targetPort, long delayMicros, long jitterMicros, long seed) throws IOException {
+            this.target = new InetSocketAddress(InetAddress.getLoopbackAddress(), targetPort);
+            this.delayMicros = delayMicros;
+            this.jitterMicros = jitterMicros;
+            this.seed = seed;
+            this.listener = ServerSocketChannel.open();
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            daemon(this::accept, "reconcile-proxy-accept");
+            daemon(this::deliver, "reconcile-proxy-deliver");
+        }
+
+        int getPort() {
+            return listener.socket().getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            listener.close();
+            synchronized (channels) {
+                for (SocketChannel channel : channels) {
+                    channel.close();
+                }
+            }
+            synchronized (due) {
+                due.notifyAll();
+            }
+        }
+
+        private void accept() {
+            while (!closed) {
+                try {
+                    SocketChannel client = listener.accept();
+                    SocketChannel server = SocketChannel.open(target);
+                    client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    server.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channels.add(client);
+                    channels.add(server);
+                    int link = links.getAndAdd(2);
+                    daemon(() -> pump(client, server, new Random(seed * 1_000_003L + link)), "reconcile-proxy-up");
+                    daemon(() -> pump(server, client, new Random(seed * 1_000_003L + link + 1)), "reconcile-proxy-down");
+                } catch (IOException e) {
+                    if (!closed) {
+                        System.err.println("Proxy stopped accepting: " + e.getMessage());
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Reads one direction of a connection and queues each chunk for
+         * its due time, never before the chunk read ahead of it.
+         */
+        private void pump(SocketChannel from, SocketChannel to, Random random) {
+            long last = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            try {
+                while (true) {
+                    buffer.clear();
+                    int read = from.read(buffer);
+                    long delay = delayMicros + (jitterMicros == 0 ? 0 : (long) (random.nextDouble() * jitterMicros));
+                    last = Math.max(last, System.nanoTime() + delay * 1000);
+                    buffer.flip();
+                    schedule(new Chunk(last, to, read < 0 ? null : copy(buffer)));
+                    if (read < 0) {
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                schedule(new Chunk(System.nanoTime(), to, null));
+            }
+        }
+
+        private void schedule(Chunk chunk) {
+            synchronized (due) {
+                chunk.sequence = sequence++;
+                due.add(chunk);
+                due.notifyAll();
+            }
+        }
+
+        private void deliver() {
+            while (!closed) {
+                Chunk chunk;
+                synchronized (due) {
+                    chunk = due.peek();
+                    long wait = chunk == null ? Long.MAX_VALUE : chunk.dueNanos - System.nanoTime();
+                    if (wait > 0) {
+                        try {
+                            if (chunk == null) {
+                                due.wait();
+                            } else {
+                                TimeUnit.NANOSECONDS.timedWait(due, wait);
+                            }
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        continue;
+                    }
+                    due.poll();
+                }
+                try {
+                    if (chunk.data == null) {
+                        chunk.to.close();
+                    } else {
+                        while (chunk.data.hasRemaining()) {
+                            chunk.to.write(chunk.data);
+                        }
+                    }
+                } catch (IOException e) {
+                    // The receiver is gone; its own pump sees that too
+                }
+            }
+        }
+
+        private static void daemon(Runnable task, String name) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /** Bytes waiting to be passed on; null data closes the receiver. */
+        private static final class Chunk implements Comparable<Chunk> {
+            final long dueNanos;
+            final SocketChannel to;
+            final ByteBuffer data;
+            long sequence;
+
+            Chunk(long dueNanos, SocketChannel to, ByteBuffer data) {
+                this.dueNanos = dueNanos;
+                this.to = to;
+                this.data = data;
+            }
+
+            @Override
+            public int compareTo(Chunk other) {
+                int order = Long.compare(dueNanos, other.dueNanos);
+                return order != 0 ? order : Long.compare(sequence, other.sequence);
+            }
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Load generator for {@link GameServer} and {@link BlockingGameServer}.
+ *
+ * Opens two connections per game and plays random legal moves in every
+ * game at once, waiting a fixed think time between a move's
+ * acknowledgement and the next move. Finished games are hosted again, so
+ * the load stays constant. All connections are driven by one selector
+ * thread. The round trip of a move is the time from writing the MOVE to
+ * reading the mover's DELTA.
+ *
+ * Without --port a server is started in this process: the selector-based
+ * {@link GameServer} ("nio"), the thread-per-connection
+ * {@link BlockingGameServer} ("blocking"), or one after the other ("both")
+ * under the same load and the same random moves. For an in-process server
+ * the memory the connections cost is reported too: heap growth after a
+ * full collection, resident set growth and thread count, divided by the
+ * server's connections. Both figures include this driver's own side of
+ * every connection, which is the same for either server.
+ *
+ * With --spectators N, N more connections watch the games, spread evenly
+ * over them, and follow every game hosted again after the last one ended.
+ * Their lag is the time from writing a MOVE to a spectator reading its
+ * DELTA; a spectator that fell behind gets a catch-up keyframe instead,
+ * and those are counted. Garbage collections during the measured window
+ * are reported, since the server's fan-out should not allocate per
+ * spectator.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.net.ServerBenchmark \
+ *     --games 5000 --think-ms 200 --warmup 5 --seconds 20 [--server nio|blocking|both]
+ *     [--spectators N] [--shards N] [--host H --port P]
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class ServerBenchmark {
+
+    // Latency histograms: 1 us buckets up to 100 ms
+    private static final int HISTOGRAM_MICROS = 100_000;
+
+    private final Selector selector;
+    private final Random random = new Random(42);
+    private final long thinkNanos;
+    private final int size;
+    private final ArrayDeque<BenchGame> due = new ArrayDeque<>();
+    private final Histogram roundTrips = new Histogram();
+    private final Histogram spectatorLag = new Histogram();
+    private final int[] legal = new int[CompactBoard.MAX_CELLS];
+    private boolean measuring;
+    private long moves;
+    private long rejected;
+    private long gamesFinished;
+    private long catchUps;
+    private long gcCount;
+    private long gcMillis;
+
+    private ServerBenchmark(Selector selector, long thinkNanos, int size) {
+        this.selector = selector;
+        this.thinkNanos = thinkNanos;
+        this.size = size;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --games G, --think-ms T, --size S, --warmup W, --seconds S,
+     *             --server nio|blocking|both, --spectators N, --shards N,
+     *             --host H, --port P
+     * @throws Exception if the server cannot be reached
+     */
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        int thinkMillis = 200;
+        int size = 5;
+        int warmup = 5;
+        int seconds = 20;
+        int spectators = 0;
+        String serverKind = "nio";
+        String host = "127.0.0.1";
+        int port = -1;
+        int shards = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--think-ms": thinkMillis = Integer.parseInt(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--server": serverKind = args[++i]; break;
+                case "--spectators": spectators = Integer.parseInt(args[++i]); break;
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--shards": shards = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        String[] kinds;
+        switch (serverKind) {
+            case "nio": kinds = new String[] {"nio"}; break;
+            case "blocking": kinds = new String[] {"blocking"}; break;
+            case "both": kinds = new String[] {"nio", "blocking"}; break;
+            default: throw new IllegalArgumentException("Unknown server: " + serverKind);
+        }
+
+        System.out.printf("%d games on %d connections, %d spectators, %d ms think time, %dx%d boards%n",
+            games, 2 * games, spectators, thinkMillis, size, size);
+        if (port >= 0) {
+            runOnce(new InetSocketAddress(host, port), games, spectators, thinkMillis, size, warmup, seconds);
+            return;
+        }
+        int connections = 2 * games + spectators;
+        for (String kind : kinds) {
+            MemorySample before = MemorySample.take();
+            Closeable server;
+            int serverPort;
+            if (kind.equals("nio")) {
+                GameServer nio = GameServer.start(new InetSocketAddress(host, 0), shards);
+                System.out.printf("%n== nio: selector server with %d shard%s%n", shards, shards == 1 ? "" : "s");
+                server = nio;
+                serverPort = nio.getPort();
+            } else {
+                BlockingGameServer blocking = BlockingGameServer.start(new InetSocketAddress(host, 0));
+                System.out.printf("%n== blocking: thread per connection and per game, %s threads%n",
+                    blocking.usesVirtualThreads() ? "virtual" : "platform");
+                server = blocking;
+                serverPort = blocking.getPort();
+            }
+            try {
+                runOnce(new InetSocketAddress(host, serverPort), games, spectators, thinkMillis, size, warmup, seconds,
+                    () -> MemorySample.take().reportGrowth(before, connections));
+            } finally {
+                server.close();
+            }
+        }
+    }
+
+    private static void runOnce(InetSocketAddress address, int games, int spectators, int thinkMillis, int size,
+                                int warmup, int seconds) throws IOException {
+        runOnce(address, games, spectators, thinkMillis, size, warmup, seconds, () -> { });
+    }
+
+    /**
+     * Plays one measured run against a server, then closes every connection.
+     * @param beforeClose Called once the run is over, while all connections are still open
+     */
+    private static void runOnce(InetSocketAddress address, int games, int spectators, int thinkMillis, int size,
+                                int warmup, int seconds, Runnable beforeClose) throws IOException {
+        try (Selector selector = Selector.open()) {
+            try {
+                ServerBenchmark benchmark = new ServerBenchmark(selector, thinkMillis * 1_000_000L, size);
+                benchmark.connect(address, games, spectators);
+                benchmark.run(warmup, seconds);
+                beforeClose.run();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+            }
+        }
+    }
+
+    private void connect(InetSocketAddress address, int games, int spectators) throws IOException {
+        BenchGame[] all = new BenchGame[games];
+        for (int g = 0; g < games; g++) {
+            BenchGame game = new BenchGame();
+            for (int seat = 0; seat < 2; seat++) {
+                game.seats[seat] = open(address, game, seat);
+            }
+            all[g] = game;
+        }
+        for (int s = 0; s < spectators; s++) {
+            BenchGame game = all[s % games];
+            game.spectators.add(open(address, game, NetProtocol.SPECTATOR));
+        }
+        for (BenchGame game : all) {
+            game.seats[0].send(NetProtocol.host(size, "host", 0xFF0000));
+        }
+    }
+
+    private Seat open(InetSocketAddress address, BenchGame game, int seat) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.connect(address);
+        channel.configureBlocking(false);
+        return new Seat(game, seat, channel, channel.register(selector, SelectionKey.OP_READ));
+    }
+
+    private void run(int warmupSeconds, int seconds) throws IOException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        long nextReport = start + 1_000_000_000L;
+        long reportedMoves = 0;
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            if (!measuring && now >= measureFrom) {
+                measuring = true;
+                gcCount = -collections();
+                gcMillis = -collectionMillis();
+            }
+            if (now >= nextReport) {
+                System.out.printf("%3d s  %,d moves/s%n",
+                    (now - start) / 1_000_000_000L, moves - reportedMoves);
+                reportedMoves = moves;
+                nextReport += 1_000_000_000L;
+            }
+            while (!due.isEmpty() && due.peek().dueAt <= now) {
+                sendNextMove(due.poll());
+            }
+            // Round the wait up: spinning on selectNow() would starve the
+            // server when both share a core
+            long wait = due.isEmpty() ? 100 : (due.peek().dueAt - now + 999_999L) / 1_000_000L;
+            selector.select(Math.max(1, Math.min(wait, 100)));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Seat seat = (Seat) key.attachment();
+                if (key.isWritable()) {
+                    seat.flush();
+                }
+                if (key.isReadable()) {
+                    seat.read();
+                }
+            }
+        }
+        gcCount += collections();
+        gcMillis += collectionMillis();
+        report(seconds);
+    }
+
+    private void report(int seconds) {
+        System.out.printf("Moves: %,d (%.0f/s), rejected: %d, games finished: %,d%n",
+            moves, moves / (double) seconds, rejected, gamesFinished);
+        roundTrips.report("Round trip");
+        if (spectatorLag.count > 0 || catchUps > 0) {
+            System.out.printf("Spectator deltas: %,d (%.0f/s), catch-up keyframes: %,d%n",
+                spectatorLag.count, spectatorLag.count / (double) seconds, catchUps);
+            spectatorLag.report("Spectator lag");
+        }
+        System.out.printf("Garbage collections: %d, %d ms%n", gcCount, gcMillis);
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long collectionMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private void sendNextMove(BenchGame game) throws IOException {
+        int count = game.board.legalMoves(legal);
+        int cell = legal[random.nextInt(count)];
+        game.sentAt = System.nanoTime();
+        game.seats[game.board.getSide()].send(NetProtocol.move(game.board.getPly(), cell));
+    }
+
+    private void handle(Seat seat, int type, ByteBuffer payload) throws IOException {
+        BenchGame game = seat.game;
+        switch (type) {
+            case NetProtocol.HOSTED:
+                game.seats[1].send(NetProtocol.join(NetProtocol.getVarint(payload), "guest", 0x0000FF));
+                break;
+            case NetProtocol.SETUP:
+                if (seat.seat == 0) {
+                    int id = NetProtocol.getVarint(payload);
+                    game.board.reset();
+                    schedule(game);
+                    for (Seat spectator : game.spectators) {
+                        spectator.send(NetProtocol.watch(id));
+                    }
+                } else if (seat.seat == NetProtocol.SPECTATOR) {
+                    seat.joined = false;
+                }
+                break;
+            case NetProtocol.KEYFRAME:
+                if (seat.seat == NetProtocol.SPECTATOR) {
+                    // The first keyframe after SETUP is the starting board
+                    if (seat.joined && measuring) {
+                        payload.get(); // flags
+                        if (NetProtocol.getVarint(payload) % NetProtocol.KEYFRAME_INTERVAL != 0) {
+                            catchUps++;
+                        }
+                    }
+                    seat.joined = true;
+                }
+                break;
+            case NetProtocol.DELTA: {
+                payload.get(); // flags
+                int ply = NetProtocol.getVarint(payload);
+                int cell = NetProtocol.getVarint(payload);
+                if (seat.seat == NetProtocol.SPECTATOR) {
+                    // Either side of the mover's own DELTA
+                    if (measuring && (ply == game.board.getPly() || ply == game.board.getPly() + 1)) {
+                        spectatorLag.record((System.nanoTime() - game.sentAt) / 1000);
+                    }
+                    break;
+                }
+                if (seat.seat != game.board.getSide() || ply != game.board.getPly() + 1) {
+                    break; // Opponent's copy
+                }
+                if (measuring) {
+                    roundTrips.record((System.nanoTime() - game.sentAt) / 1000);
+                    moves++;
+                }
+                game.board.applyMove(cell);
+                if (game.board.isGameOver()) {
+                    gamesFinished++;
+                    game.seats[0].send(NetProtocol.host(size, "host", 0xFF0000));
+                } else {
+                    schedule(game);
+                }
+                break;
+            }
+            case NetProtocol.REJECTED:
+                rejected++;
+                break;
+            case NetProtocol.LEFT:
+            case NetProtocol.ERROR:
+                throw new IOException("Game " + type + " failed");
+            default:
+                break;
+        }
+    }
+
+    private void schedule(BenchGame game) {
+        game.dueAt = System.nanoTime() + thinkNanos;
+        due.add(game);
+    }
+
+    /** Client-side state of one game. */
+    private final class BenchGame {
+        final Seat[] seats = new Seat[2];
+        final ArrayList<Seat> spectators = new ArrayList<>();
+        final CompactBoard board = new CompactBoard(size);
+        long sentAt;
+        long dueAt;
+    }
+
+    /** One connection of a game: a player or a spectator. */
+    private final class Seat {
+        final BenchGame game;
+        final int seat;
+        boolean joined;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(NetProtocol.MAX_FRAME);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+
+        Seat(BenchGame game, int seat, SocketChannel channel, SelectionKey key) {
+            this.game = game;
+            this.seat = seat;
+            this.channel = channel;
+            this.key = key;
+            key.attach(this);
+        }
+
+        void send(ByteBuffer frame) throws IOException {
+            out.add(frame);
+            flush();
+        }
+
+        void flush() throws IOException {
+            while (!out.isEmpty()) {
+                channel.write(out.peek());
+                if (out.peek().hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                out.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                throw new IOException("Server closed a connection");
+            }
+            in.flip();
+            int end;
+            while ((end = NetProtocol.nextFrame(in)) >= 0) {
+                int limit = in.limit();
+                int type = in.get() & 0xFF;
+                in.limit(end);
+                handle(this, type, in);
+                in.limit(limit).position(end);
+            }
+            in.compact();
+        }
+    }
+
+    /** Latency histogram: 1 us buckets up to 100 ms. */
+    private static final class Histogram {
+        final long[] buckets = new long[HISTOGRAM_MICROS + 1];
+        long count;
+        long maxMicros;
+
+        void record(long micros) {
+            buckets[(int) Math.min(micros, HISTOGRAM_MICROS)]++;
+            maxMicros = Math.max(maxMicros, micros);
+            count++;
+        }
+
+        void report(String label) {
+            if (count == 0) {
+                return;
+            }
+            System.out.printf("%s: p50 %s, p90 %s, p99 %s, p99.9 %s, max %d us%n", label,
+                percentile(0.50), percentile(0.90), percentile(0.99), percentile(0.999), maxMicros);
+        }
+
+        private String percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int micros = 0; micros <= HISTOGRAM_MICROS; micros++) {
+                seen += buckets[micros];
+                if (seen >= rank) {
+                    return micros == HISTOGRAM_MICROS ? ">" + HISTOGRAM_MICROS + " us" : micros + " us";
+                }
+            }
+            return "?";
+        }
+    }
+
+    /** Process memory at one point in time. */
+    private static final class MemorySample {
+        final long heapBytes;
+        final long rssKib;
+        final int threads;
+
+        private MemorySample(long heapBytes, long rssKib, int threads) {
+            this.heapBytes = heapBytes;
+            this.rssKib = rssKib;
+            this.threads = threads;
+        }
+
+        /**
+         * Measures the heap after a full collection, and the resident set
+         * and thread count the kernel reports (-1 where /proc is missing).
+         */
+        static MemorySample take() {
+            Runtime runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            long heap = runtime.totalMemory() - runtime.freeMemory();
+            long rss = -1;
+            int threads = -1;
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        rss = Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    } else if (line.startsWith("Threads:")) {
+                        threads = Integer.parseInt(line.replaceAll("[^0-9]", ""));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not Linux: heap figures only
+            }
+            return new MemorySample(heap, rss, threads);
+        }
+
+        void reportGrowth(MemorySample before, int connections) {
+            System.out.printf("Memory per connection: heap %,d bytes", (heapBytes - before.heapBytes) / connections);
+            if (rssKib >= 0 && before.rssKib >= 0) {
+                System.out.printf(", resident %.1f KiB, OS threads %d -> %d",
+                    (rssKib - before.rssKib) / (double) connections, before.threads, threads);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.mycompany.javagrid4.net;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.commands.MoveJournal;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * One game hosted by a {@link GameServer} or {@link BlockingGameServer}.
+ *
+ * All methods except {@link #execute} run on the game's executor, which
+ * runs one task at a time, so the engine is only ever touched by one
+ * thread at a time and needs no locking. Every message of a game is
+ * handled in the order it arrived.
+ *
+ * Moves go through a {@link MoveJournal}, so a player can take back its
+ * last move. Each accepted move or undo is sent to both players as one
+ * DELTA batch of the cells it changed, diffed against the board as last
+ * sent, and every {@value NetProtocol#KEYFRAME_INTERVAL} plies the whole
+ * board follows as a KEYFRAME.
+ *
+ * Spectators get the same frames: each batch is encoded once and the one
+ * buffer is written to every socket. Players are sent everything, but a
+ * spectator only gets a frame when its socket has nothing else waiting;
+ * one that falls behind skips batches, and once it can take a frame
+ * again it gets a single keyframe of the current board instead of all
+ * it missed. A slow spectator thus costs one flag, not a queue.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class ServerGame {
+
+    private final Lobby lobby;
+    private final int id;
+    private final Executor executor;
+    private final Peer[] seats = new Peer[2];
+    private final byte[][] names = new byte[2][];
+    private final int[] colors = new int[2];
+    private final ArrayList<Peer> spectators = new ArrayList<>();
+    private GameEngine engine;
+    private MoveJournal journal;
+    private byte[] sent;
+    private boolean finished;
+
+    ServerGame(Lobby lobby, int id, Executor executor) {
+        this.lobby = lobby;
+        this.id = id;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the game id players join with.
+     * @return Game id
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the executor the game runs on.
+     * @return Executor
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs a task on this game's executor. Safe to call from any thread.
+     * Tasks for a game whose executor was shut down when it finished are
+     * dropped.
+     * @param task Game logic to run
+     */
+    void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Game over; its players have already been released
+        }
+    }
+
+    /**
+     * Seats the host and tells it the game id.
+     */
+    void host(Peer host, int size, byte[] name, int color) {
+        if (host.isClosed()) {
+            finish();
+            return;
+        }
+        seatHost(host, size, name, color);
+        host.send(NetProtocol.hosted(id));
+    }
+
+    /**
+     * Seats two players the matchmaker paired and starts the game. If
+     * either has gone meanwhile, the game is dropped and the other one
+     * goes back into the queue.
+     */
+    void pair(int size, Lobby.Seeker first, Lobby.Seeker second) {
+        if (first.peer.isClosed() || second.peer.isClosed()) {
+            finish();
+            for (Lobby.Seeker seeker : new Lobby.Seeker[] {first, second}) {
+                if (!seeker.peer.isClosed() && seeker.peer.game.compareAndSet(this, null)) {
+                    lobby.requeue(seeker);
+                }
+            }
+            return;
+        }
+        seatHost(first.peer, size, first.name, first.color);
+        join(second.peer, second.name, second.color);
+    }
+
+    private void seatHost(Peer host, int size, byte[] name, int color) {
+        engine = new GameEngine(size);
+        journal = new MoveJournal(engine);
+        sent = new byte[size * size];
+        seats[0] = host;
+        names[0] = name;
+        colors[0] = color;
+    }
+
+    /**
+     * Seats the second player and starts the game for both.
+     */
+    void join(Peer guest, byte[] name, int color) {
+        if (finished || seats[1] != null) {
+            releaseSeat(guest);
+            guest.send(NetProtocol.simple(NetProtocol.ERROR, finished ? NetProtocol.NO_SUCH_GAME : NetProtocol.GAME_FULL));
+            return;
+        }
+        seats[1] = guest;
+        names[1] = name;
+        colors[1] = color;
+        lobby.gameStarted(this);
+        for (int seat = 0; seat < 2; seat++) {
+            seats[seat].send(NetProtocol.setup(id, seat, engine.getGridSize(), names, colors));
+        }
+    }
+
+    /**
+     * Adds a spectator to the running game and sends it the setup and the
+     * board as it is.
+     */
+    void watch(Peer spectator) {
+        if (finished || spectator.isClosed()) {
+            releaseSeat(spectator);
+            spectator.send(NetProtocol.simple(NetProtocol.ERROR, NetProtocol.NO_SUCH_GAME));
+            return;
+        }
+        spectator.behind = false;
+        spectators.add(spectator);
+        spectator.send(NetProtocol.setup(id, NetProtocol.SPECTATOR, engine.getGridSize(), names, colors));
+        spectator.send(BoardDelta.encodeKeyframe(engine, (int) journal.getPly()));
+    }
+
+    /**
+     * Plays a move if it is legal and the sender's turn, and sends it to
+     * both players; otherwise turns it down.
+     */
+    void move(Peer sender, int movePly, int cell) {
+        int seat = seatOf(sender);
+        int reason = 0;
+        if (seat < 0 || seats[1] == null) {
+            reason = NetProtocol.NOT_IN_GAME;
+        } else if (finished || engine.isGameOver()) {
+            reason = NetProtocol.GAME_OVER;
+        } else if (seat != seatToMove()) {
+            reason = NetProtocol.NOT_YOUR_TURN;
+        } else if (movePly != journal.getPly()) {
+            reason = NetProtocol.STALE_PLY;
+        } else {
+            int size = engine.getGridSize();
+            if (cell < 0 || cell >= size * size || engine.getCellValue(cell / size, cell % size) >= 4) {
+                reason = NetProtocol.ILLEGAL_MOVE;
+            }
+        }
+        if (reason != 0) {
+            sender.send(NetProtocol.rejected(movePly, reason));
+            return;
+        }
+
+        int size = engine.getGridSize();
+        journal.executeMove(cell / size, cell % size, engine.getCurrentPlayer());
+        engine.getGameState().switchPlayer();
+        broadcast(false, cell);
+        if (engine.isGameOver()) {
+            finish();
+        }
+    }
+
+    /**
+     * Takes back the sender's last move if the opponent has not replied
+     * to it yet, and sends the change to both players; otherwise turns
+     * the request down.
+     */
+    void undo(Peer sender, int undoPly) {
+        int seat = seatOf(sender);
+        int reason = 0;
+        if (seat < 0 || seats[1] == null) {
+            reason = NetProtocol.NOT_IN_GAME;
+        } else if (finished || engine.isGameOver()) {
+            reason = NetProtocol.GAME_OVER;
+        } else if (undoPly != journal.getPly()) {
+            reason = NetProtocol.STALE_PLY;
+        } else if (undoPly == 0 || seat == seatToMove()) {
+            reason = NetProtocol.CANNOT_UNDO;
+        }
+        if (reason != 0) {
+            sender.send(NetProtocol.rejected(undoPly, reason));
+            return;
+        }
+
+        int cell = journal.getMove(undoPly - 1);
+        journal.undo();
+        broadcast(true, cell);
+    }
+
+    /**
+     * Sends the cells the last move or undo changed to both players and
+     * the spectators that keep up, a keyframe when one is due, and a
+     * catch-up keyframe to the spectators that fell behind.
+     */
+    private void broadcast(boolean undo, int cell) {
+        int ply = (int) journal.getPly();
+        ByteBuffer delta = BoardDelta.encodeDelta(engine, sent, undo, ply, cell);
+        ByteBuffer keyframe = !undo && ply % NetProtocol.KEYFRAME_INTERVAL == 0
+            ? BoardDelta.encodeKeyframe(engine, ply) : null;
+        for (Peer seat : seats) {
+            seat.send(delta);
+            if (keyframe != null) {
+                seat.send(keyframe);
+            }
+        }
+        for (int index = 0; index < spectators.size(); index++) {
+            Peer spectator = spectators.get(index);
+            if (spectator.behind) {
+                if (keyframe == null) {
+                    keyframe = BoardDelta.encodeKeyframe(engine, ply);
+                }
+                spectator.behind = !spectator.trySend(keyframe);
+            } else if (!spectator.trySend(delta)) {
+                spectator.behind = true;
+            } else if (keyframe != null) {
+                spectator.trySend(keyframe); // Only a check; the delta is already out
+            }
+        }
+    }
+
+    /**
+     * Removes a player, which ends the game and tells the opponent and
+     * the spectators, or a spectator.
+     */
+    void leave(Peer player) {
+        int seat = seatOf(player);
+        if (seat < 0) {
+            int index = spectators.indexOf(player);
+            if (index >= 0) {
+                // Order does not matter; move the last one into the gap
+                Peer last = spectators.remove(spectators.size() - 1);
+                if (last != player) {
+                    spectators.set(index, last);
+                }
+                releaseSeat(player);
+            }
+            return;
+        }
+        releaseSeat(player);
+        if (finished) {
+            return;
+        }
+        ByteBuffer left = NetProtocol.simple(NetProtocol.LEFT, -1);
+        Peer opponent = seats[1 - seat];
+        if (opponent != null) {
+            opponent.send(left);
+        }
+        finish(left);
+    }
+
+    private void finish() {
+        finish(null);
+    }
+
+    /**
+     * Ends the game, releasing players and spectators.
+     * @param farewell Frame for the spectators once they have the final
+     *                 board, or null
+     */
+    private void finish(ByteBuffer farewell) {
+        if (!finished) {
+            finished = true;
+            for (Peer seat : seats) {
+                if (seat != null) {
+                    releaseSeat(seat);
+                }
+            }
+            ByteBuffer last = null;
+            for (int index = 0; index < spectators.size(); index++) {
+                Peer spectator = spectators.get(index);
+                if (spectator.behind) {
+                    // The final position must arrive even if it has to wait
+                    if (last == null) {
+                        last = BoardDelta.encodeKeyframe(engine, (int) journal.getPly());
+                    }
+                    spectator.send(last);
+                }
+                if (farewell != null) {
+                    spectator.send(farewell);
+                }
+                releaseSeat(spectator);
+            }
+            spectators.clear();
+            lobby.gameFinished(this, seats[1] != null);
+        }
+    }
+
+    private void releaseSeat(Peer player) {
+        player.game.compareAndSet(this, null);
+    }
+
+    private int seatToMove() {
+        return engine.getCurrentPlayer() == Player.PLAYER_ONE ? 0 : 1;
+    }
+
+    private int seatOf(Peer player) {
+        return seats[0] == player ? 0 : seats[1] == player ? 1 : -1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.javagrid4.net;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread factories for servers that spend a thread on every connection
+ * and every game.
+ *
+ * On a JDK with virtual threads (21 or later) the factories make virtual
+ * threads, found by reflection so that the code still builds and runs on
+ * Java 17. Elsewhere they fall back to daemon platform threads with a
+ * small stack.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class VirtualThreads {
+
+    // Stack of fallback platform threads; the read loops are shallow
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether this JVM has virtual threads.
+     * @return true if {@link #factory} makes virtual threads
+     */
+    static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a factory for numbered threads.
+     * @param prefix Thread name prefix
+     * @return Virtual thread factory, or a platform thread factory on older JDKs
+     */
+    static ThreadFactory factory(String prefix) {
+        if (OF_VIRTUAL != null) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("Virtual threads unavailable, using platform threads: " + e);
+            }
+        }
+        AtomicLong next = new AtomicLong();
+        return task -> {
+            Thread thread = new Thread(null, task, prefix + next.getAndIncrement(), PLATFORM_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null); // Fails where virtual threads are a disabled preview
+            return ofVirtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
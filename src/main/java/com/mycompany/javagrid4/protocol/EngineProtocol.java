@@ -0,0 +1,169 @@
+package com.mycompany.javagrid4.protocol;
+
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line-based engine protocol, modelled on UCI.
+ *
+ * Commands sent to an engine (one per line, tokens separated by spaces):
+ * <pre>
+ * jg4                                  handshake; engine answers id lines then jg4ok
+ * isready                              engine answers readyok at once, also while searching
+ * newgame                              forget state from earlier games
+ * position startpos SIZE [moves C...]
+ * position board SIZE CELLS SIDE S1 S2 [moves C...]
+ * go [movetime MS] [time1 MS] [time2 MS] [inc1 MS] [inc2 MS] [depth N] [infinite]
+ * stop                                 finish the current search now
+ * quit
+ * </pre>
+ * CELLS is one character per cell in row-major order: '0'-'3' for a cell
+ * value, '4' for a cell claimed by Player 1 and '5' for Player 2. SIDE is
+ * 1 or 2, S1/S2 are the scores, and moves are cell indexes (row * SIZE + col).
+ *
+ * Engine replies:
+ * <pre>
+ * id name NAME
+ * jg4ok
+ * readyok
+ * info depth D score SCORE nodes N time MS   (SCORE in hundredths of a point)
+ * bestmove CELL
+ * </pre>
+ * Every go gets exactly one bestmove, also after stop; the move is -1
+ * when the position has no legal move. A position, newgame or go sent
+ * while a search runs stops it first, so its bestmove comes before
+ * anything the new command causes. Malformed commands are answered
+ * with an {@code info string} line describing the problem.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class EngineProtocol {
+
+    static final byte[] JG4 = ascii("jg4");
+    static final byte[] JG4_OK = ascii("jg4ok");
+    static final byte[] ID = ascii("id");
+    static final byte[] NAME = ascii("name");
+    static final byte[] ID_NAME = ascii("id name ");
+    static final byte[] ISREADY = ascii("isready");
+    static final byte[] READYOK = ascii("readyok");
+    static final byte[] NEWGAME = ascii("newgame");
+    static final byte[] POSITION = ascii("position");
+    static final byte[] STARTPOS = ascii("startpos");
+    static final byte[] BOARD = ascii("board");
+    static final byte[] MOVES = ascii("moves");
+    static final byte[] GO = ascii("go");
+    static final byte[] MOVETIME = ascii("movetime");
+    static final byte[] TIME1 = ascii("time1");
+    static final byte[] TIME2 = ascii("time2");
+    static final byte[] INC1 = ascii("inc1");
+    static final byte[] INC2 = ascii("inc2");
+    static final byte[] DEPTH = ascii("depth");
+    static final byte[] INFINITE = ascii("infinite");
+    static final byte[] STOP = ascii("stop");
+    static final byte[] QUIT = ascii("quit");
+    static final byte[] INFO = ascii("info");
+    static final byte[] INFO_DEPTH = ascii("info depth ");
+    static final byte[] SCORE = ascii(" score ");
+    static final byte[] NODES = ascii(" nodes ");
+    static final byte[] TIME = ascii(" time ");
+    static final byte[] BESTMOVE = ascii("bestmove");
+    static final byte[] BESTMOVE_SPACE = ascii("bestmove ");
+    static final byte[] STRING = ascii("string");
+    static final byte[] INFO_STRING = ascii("info string ");
+
+    private EngineProtocol() {
+    }
+
+    /**
+     * Appends a full position command for a board.
+     * @param out Line being built
+     * @param board Position
+     */
+    static void writePosition(LineWriter out, CompactBoard board) {
+        out.append(POSITION).append(' ').append(BOARD).append(' ').append(board.getSize()).append(' ');
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            out.append((char) ('0' + board.getCode(cell)));
+        }
+        out.append(' ').append(board.getSide() + 1)
+           .append(' ').append(board.getScore(0))
+           .append(' ').append(board.getScore(1));
+    }
+
+    /**
+     * Parses the arguments of a position command (the reader is positioned
+     * on "position") into a reusable board of the right size.
+     *
+     * @param in Reader on the current line
+     * @param boards Reusable boards indexed by size (entries created on demand)
+     * @return Board holding the position, with no move history
+     * @throws IllegalArgumentException if the command is malformed or a move is illegal
+     */
+    static CompactBoard readPosition(LineReader in, CompactBoard[] boards) {
+        if (!in.nextToken()) {
+            throw new IllegalArgumentException("position needs startpos or board");
+        }
+        boolean startpos = in.tokenIs(STARTPOS);
+        if (!startpos && !in.tokenIs(BOARD)) {
+            throw new IllegalArgumentException("Unknown position type '" + in.token() + "'");
+        }
+        int size = nextInt(in, "size");
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IllegalArgumentException("Grid size must be 3, 5, or 7");
+        }
+        CompactBoard board = boards[size];
+        if (board == null) {
+            board = new CompactBoard(size);
+            boards[size] = board;
+        }
+        board.reset();
+
+        if (!startpos) {
+            if (!in.nextToken() || in.tokenLength() != board.getCellCount()) {
+                throw new IllegalArgumentException("Expected " + board.getCellCount() + " cell codes");
+            }
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                board.setCode(cell, in.tokenByte(cell) - '0');
+            }
+            int side = nextInt(in, "side");
+            if (side != 1 && side != 2) {
+                throw new IllegalArgumentException("Side must be 1 or 2");
+            }
+            board.setSideToMove(side == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO);
+            int score1 = nextInt(in, "score1");
+            int score2 = nextInt(in, "score2");
+            board.setScores(score1, score2);
+        }
+
+        if (in.nextToken()) {
+            if (!in.tokenIs(MOVES)) {
+                throw new IllegalArgumentException("Expected 'moves' but got '" + in.token() + "'");
+            }
+            while (in.nextToken()) {
+                int move = in.tokenInt();
+                if (move < 0 || move >= board.getCellCount() || !board.isLegal(move)) {
+                    throw new IllegalArgumentException("Illegal move " + move);
+                }
+                board.applyMove(move);
+            }
+        }
+        board.clearHistory();
+        return board;
+    }
+
+    /**
+     * Reads the next token as an int.
+     */
+    static int nextInt(LineReader in, String what) {
+        if (!in.nextToken()) {
+            throw new IllegalArgumentException("Missing " + what);
+        }
+        return in.tokenInt();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
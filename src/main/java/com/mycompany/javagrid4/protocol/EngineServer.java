@@ -0,0 +1,313 @@
+package com.mycompany.javagrid4.protocol;
+
+import com.mycompany.javagrid4.ai.AlphaBetaSearch;
+import com.mycompany.javagrid4.ai.EvalWeights;
+import com.mycompany.javagrid4.ai.PatternEvaluator;
+import com.mycompany.javagrid4.ai.PatternTable;
+import com.mycompany.javagrid4.ai.SearchResult;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+/**
+ * Serves the JavaGrid4 search over the {@link EngineProtocol}.
+ *
+ * Commands are read on the calling thread; searches run on a dedicated
+ * search thread so that stop and isready are answered while thinking.
+ * The reader never waits for a search to run out: position, newgame and
+ * go stop the running search first, which still sends its bestmove.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.protocol.EngineServer [--depth N] [--weights FILE]
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.protocol.EngineServer --port 7070
+ * </pre>
+ * Without --port the engine talks over stdin/stdout. With --port it
+ * listens on the loopback interface and serves one connection at a time.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class EngineServer {
+
+    private static final String NAME = "JavaGrid4";
+    // Reserve for reading the command and writing the reply
+    private static final long OVERHEAD_MILLIS = 2;
+
+    private final AlphaBetaSearch search;
+    private final int maxDepth;
+    private final CompactBoard[] boards = new CompactBoard[8];
+    private final Object lock = new Object();
+
+    private LineWriter out;
+    private CompactBoard position;
+    private boolean searching;
+    private boolean goPending;
+    private int goDepth;
+    private long goMillis;
+    private boolean quit;
+
+    /**
+     * Creates an engine.
+     * @param search Search to run (owned by this engine)
+     * @param maxDepth Depth limit when go does not give one
+     */
+    public EngineServer(AlphaBetaSearch search, int maxDepth) {
+        this.search = search;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --depth N, --weights FILE, --port P
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        int depth = 64;
+        String weights = null;
+        int port = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--weights": weights = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        PatternTable table = weights == null ? PatternTable.getDefault()
+                : PatternTable.build(EvalWeights.load(Paths.get(weights)));
+        EngineServer engine = new EngineServer(new AlphaBetaSearch(new PatternEvaluator(table)), depth);
+
+        if (port < 0) {
+            engine.serve(System.in, System.out);
+            return;
+        }
+        try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+            System.err.println(NAME + " engine listening on " + server.getLocalSocketAddress());
+            while (true) {
+                try (Socket socket = server.accept()) {
+                    socket.setTcpNoDelay(true);
+                    engine.serve(socket.getInputStream(), socket.getOutputStream());
+                } catch (IOException e) {
+                    System.err.println("Connection ended: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves one session until quit or end of input.
+     * @param input Command stream
+     * @param output Reply stream
+     * @throws IOException if reading or writing fails
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        LineReader in = new LineReader(input);
+        out = new LineWriter(output);
+        quit = false;
+        Thread searcher = new Thread(this::searchLoop, "engine-search");
+        searcher.setDaemon(true);
+        searcher.start();
+        try {
+            while (!quit && in.readLine()) {
+                if (in.nextToken()) {
+                    try {
+                        handle(in);
+                    } catch (IllegalArgumentException e) {
+                        reply(EngineProtocol.INFO_STRING, e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                quit = true;
+                search.stop();
+                lock.notifyAll();
+            }
+            try {
+                searcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handle(LineReader in) throws IOException {
+        if (in.tokenIs(EngineProtocol.GO)) {
+            go(in);
+        } else if (in.tokenIs(EngineProtocol.POSITION)) {
+            stopAndWait();
+            // Cleared first so a malformed command cannot leave a half-loaded position
+            position = null;
+            position = EngineProtocol.readPosition(in, boards);
+        } else if (in.tokenIs(EngineProtocol.STOP)) {
+            search.stop();
+        } else if (in.tokenIs(EngineProtocol.ISREADY)) {
+            // Answered at once, as in UCI: the reader is never busy
+            reply(EngineProtocol.READYOK, null);
+        } else if (in.tokenIs(EngineProtocol.JG4)) {
+            reply(EngineProtocol.ID_NAME, NAME);
+            reply(EngineProtocol.JG4_OK, null);
+        } else if (in.tokenIs(EngineProtocol.NEWGAME)) {
+            stopAndWait();
+            position = null;
+        } else if (in.tokenIs(EngineProtocol.QUIT)) {
+            quit = true;
+        } else {
+            throw new IllegalArgumentException("Unknown command '" + in.token() + "'");
+        }
+    }
+
+    /**
+     * Parses go and hands the search to the search thread.
+     */
+    private void go(LineReader in) {
+        stopAndWait();
+        if (position == null) {
+            throw new IllegalArgumentException("go without position");
+        }
+        long moveTime = 0;
+        long time1 = -1;
+        long time2 = -1;
+        long inc1 = 0;
+        long inc2 = 0;
+        int depth = maxDepth;
+        boolean infinite = false;
+        while (in.nextToken()) {
+            if (in.tokenIs(EngineProtocol.MOVETIME)) {
+                moveTime = EngineProtocol.nextInt(in, "movetime");
+            } else if (in.tokenIs(EngineProtocol.TIME1)) {
+                time1 = EngineProtocol.nextInt(in, "time1");
+            } else if (in.tokenIs(EngineProtocol.TIME2)) {
+                time2 = EngineProtocol.nextInt(in, "time2");
+            } else if (in.tokenIs(EngineProtocol.INC1)) {
+                inc1 = EngineProtocol.nextInt(in, "inc1");
+            } else if (in.tokenIs(EngineProtocol.INC2)) {
+                inc2 = EngineProtocol.nextInt(in, "inc2");
+            } else if (in.tokenIs(EngineProtocol.DEPTH)) {
+                depth = EngineProtocol.nextInt(in, "depth");
+            } else if (in.tokenIs(EngineProtocol.INFINITE)) {
+                infinite = true;
+            } else {
+                throw new IllegalArgumentException("Unknown go option '" + in.token() + "'");
+            }
+        }
+
+        long millis = 0;
+        if (!infinite) {
+            long remaining = position.getSide() == 0 ? time1 : time2;
+            long increment = position.getSide() == 0 ? inc1 : inc2;
+            if (moveTime > 0) {
+                millis = moveTime;
+            } else if (remaining >= 0) {
+                millis = allocate(position, remaining, increment);
+            }
+            if (millis > 0) {
+                millis = Math.max(1, millis - OVERHEAD_MILLIS);
+            }
+        }
+        synchronized (lock) {
+            // Cleared here, not when the search starts, so a stop sent right after go is kept
+            search.clearStop();
+            goDepth = depth;
+            goMillis = millis;
+            goPending = true;
+            searching = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Splits the remaining clock over the moves the side still has to make.
+     * Headroom bounds the plies left; games usually end well before it.
+     */
+    static long allocate(CompactBoard board, long remaining, long increment) {
+        long movesLeft = Math.max(2, board.getHeadroom() / 6);
+        long share = remaining / movesLeft + increment * 3 / 4;
+        return Math.max(1, Math.min(share, remaining / 2));
+    }
+
+    private void searchLoop() {
+        while (true) {
+            int depth;
+            long millis;
+            synchronized (lock) {
+                while (!goPending && !quit) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (quit) {
+                    return;
+                }
+                goPending = false;
+                depth = goDepth;
+                millis = goMillis;
+            }
+            SearchResult result = search.search(position, depth, millis);
+            try {
+                synchronized (out) {
+                    out.append(EngineProtocol.INFO_DEPTH).append(result.getDepth())
+                       .append(EngineProtocol.SCORE).append(result.getScore())
+                       .append(EngineProtocol.NODES).append(result.getNodes())
+                       .append(EngineProtocol.TIME).append(result.getElapsedMillis())
+                       .endLine();
+                    out.append(EngineProtocol.BESTMOVE_SPACE).append(result.getMove()).endLine();
+                }
+            } catch (IOException e) {
+                System.err.println("Could not send bestmove: " + e.getMessage());
+            }
+            synchronized (lock) {
+                searching = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops a running search and waits for it to send its bestmove, which
+     * takes no longer than the search's next stop check.
+     */
+    private void stopAndWait() {
+        synchronized (lock) {
+            if (searching) {
+                search.stop();
+            }
+        }
+        waitIdle();
+    }
+
+    /**
+     * Blocks until no search is running.
+     */
+    private void waitIdle() {
+        synchronized (lock) {
+            while (searching && !quit) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void reply(byte[] keyword, String text) throws IOException {
+        synchronized (out) {
+            out.append(keyword);
+            if (text != null) {
+                out.append(text);
+            }
+            out.endLine();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mycompany.javagrid4.protocol;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.bots.TimedBot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bot that asks an external engine for its moves over the
+ * {@link EngineProtocol}, either as a child process or over a local socket.
+ *
+ * Each move sends the full position and {@code go movetime}. If no
+ * bestmove arrives within the move time plus a grace period, the engine
+ * is told to stop; if it still does not answer, a fallback move is played
+ * and the late reply is discarded when it arrives.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class ExternalEngineBot implements Bot, AutoCloseable {
+
+    private static final long HANDSHAKE_MILLIS = 10_000;
+    private static final long MIN_GRACE_MILLIS = 50;
+
+    private final Process process;
+    private final Closeable connection;
+    private final LineWriter out;
+    private final long moveTimeMillis;
+    private final BlockingQueue<Integer> bestMoves = new ArrayBlockingQueue<>(16);
+    private volatile String name = "engine";
+    private final CountDownLatch handshakeDone = new CountDownLatch(1);
+    private volatile boolean closed;
+    private int unanswered;
+    private long timeouts;
+
+    private ExternalEngineBot(Process process, Closeable connection, InputStream input,
+                              OutputStream output, long moveTimeMillis) throws IOException {
+        this.process = process;
+        this.connection = connection;
+        this.out = new LineWriter(output);
+        this.moveTimeMillis = moveTimeMillis;
+        Thread reader = new Thread(() -> readReplies(input), "engine-reader");
+        reader.setDaemon(true);
+        reader.start();
+        handshake();
+    }
+
+    /**
+     * Starts an engine process.
+     * @param command Program and arguments
+     * @param moveTimeMillis Thinking time per move
+     * @return Connected bot
+     * @throws IOException if the process cannot be started or does not answer the handshake
+     */
+    public static ExternalEngineBot launch(List<String> command, long moveTimeMillis) throws IOException {
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        try {
+            return new ExternalEngineBot(process, null, process.getInputStream(),
+                process.getOutputStream(), moveTimeMillis);
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to an engine listening on a local socket.
+     * @param port Port on the loopback interface
+     * @param moveTimeMillis Thinking time per move
+     * @return Connected bot
+     * @throws IOException if the connection or handshake fails
+     */
+    public static ExternalEngineBot connect(int port, long moveTimeMillis) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.setTcpNoDelay(true);
+            return new ExternalEngineBot(null, socket, socket.getInputStream(),
+                socket.getOutputStream(), moveTimeMillis);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized int chooseMove(CompactBoard board) {
+        long grace = Math.max(MIN_GRACE_MILLIS, moveTimeMillis / 2);
+        try {
+            // Drop replies to earlier searches that ran over time
+            while (unanswered > 0) {
+                if (bestMoves.poll(grace, TimeUnit.MILLISECONDS) == null) {
+                    timeouts++;
+                    return TimedBot.fallbackMove(board);
+                }
+                unanswered--;
+            }
+            synchronized (out) {
+                EngineProtocol.writePosition(out, board);
+                out.endLine();
+                out.append(EngineProtocol.GO).append(' ').append(EngineProtocol.MOVETIME).append(' ')
+                   .append(moveTimeMillis).endLine();
+            }
+            unanswered++;
+            Integer move = bestMoves.poll(moveTimeMillis + grace, TimeUnit.MILLISECONDS);
+            if (move == null) {
+                send(EngineProtocol.STOP);
+                move = bestMoves.poll(grace, TimeUnit.MILLISECONDS);
+            }
+            if (move == null) {
+                timeouts++;
+                return TimedBot.fallbackMove(board);
+            }
+            unanswered--;
+            return board.isLegal(move) ? move : TimedBot.fallbackMove(board);
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println(name + " is not responding: " + e.getMessage());
+            }
+            return TimedBot.fallbackMove(board);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TimedBot.fallbackMove(board);
+        }
+    }
+
+    /**
+     * Gets the number of moves the engine failed to deliver in time.
+     * @return Timeout count
+     */
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Sends quit and releases the process or socket.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            send(EngineProtocol.QUIT);
+        } catch (IOException e) {
+            // Already gone
+        }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+            if (process != null && !process.waitFor(500, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not close engine connection: " + e.getMessage());
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handshake() throws IOException {
+        send(EngineProtocol.JG4);
+        try {
+            if (!handshakeDone.await(HANDSHAKE_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Engine did not complete the jg4 handshake");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during handshake");
+        }
+    }
+
+    private void send(byte[] command) throws IOException {
+        synchronized (out) {
+            out.append(command).endLine();
+        }
+    }
+
+    /**
+     * Reader thread: parses engine replies and hands bestmoves over.
+     */
+    private void readReplies(InputStream input) {
+        LineReader in = new LineReader(input);
+        try {
+            while (in.readLine()) {
+                if (!in.nextToken()) {
+                    continue;
+                }
+                try {
+                    readReply(in);
+                } catch (IllegalArgumentException e) {
+                    // One bad line; a move it answered falls back when its time runs out
+                    System.err.println(name + " sent a malformed reply: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println(name + " connection lost: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Handles one reply line, positioned on its first token.
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    private void readReply(LineReader in) {
+        if (in.tokenIs(EngineProtocol.BESTMOVE)) {
+            // A missing or unreadable move still answers its search, so later replies stay
+            // paired with theirs; -1 is never legal and falls back
+            int move = -1;
+            try {
+                if (in.nextToken()) {
+                    move = in.tokenInt();
+                }
+            } finally {
+                bestMoves.offer(move);
+            }
+        } else if (in.tokenIs(EngineProtocol.JG4_OK)) {
+            handshakeDone.countDown();
+        } else if (in.tokenIs(EngineProtocol.ID) && in.nextToken()
+                && in.tokenIs(EngineProtocol.NAME)) {
+            name = in.rest();
+        } else if (in.tokenIs(EngineProtocol.INFO) && in.nextToken()
+                && in.tokenIs(EngineProtocol.STRING)) {
+            System.err.println(name + ": " + in.rest());
+        }
+    }
+}
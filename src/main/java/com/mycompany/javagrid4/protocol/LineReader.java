@@ -0,0 +1,176 @@
+package com.mycompany.javagrid4.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads protocol lines into a reusable byte buffer and walks their tokens.
+ *
+ * Lines and tokens are never turned into Strings on the hot path: tokens
+ * are compared against pre-encoded keywords and numbers are parsed in
+ * place, so reading a command allocates nothing.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class LineReader {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int bufferPos;
+    private int bufferEnd;
+
+    private byte[] line = new byte[256];
+    private int length;
+    private int pos;
+    private int tokenStart;
+    private int tokenEnd;
+
+    /**
+     * Creates a reader over a stream.
+     * @param in Source stream
+     */
+    LineReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next line (without its terminator) into the line buffer.
+     * @return false at end of stream
+     * @throws IOException if reading fails
+     */
+    boolean readLine() throws IOException {
+        length = 0;
+        pos = 0;
+        tokenStart = 0;
+        tokenEnd = 0;
+        boolean any = false;
+        while (true) {
+            if (bufferPos == bufferEnd) {
+                bufferEnd = in.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferEnd <= 0) {
+                    bufferEnd = 0;
+                    return any;
+                }
+            }
+            any = true;
+            byte b = buffer[bufferPos++];
+            if (b == '\n') {
+                return true;
+            }
+            if (b == '\r') {
+                continue;
+            }
+            if (length == line.length) {
+                line = java.util.Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+    }
+
+    /**
+     * Advances to the next whitespace-separated token.
+     * @return false if the line has no more tokens
+     */
+    boolean nextToken() {
+        while (pos < length && line[pos] <= ' ') {
+            pos++;
+        }
+        if (pos == length) {
+            tokenStart = tokenEnd = pos;
+            return false;
+        }
+        tokenStart = pos;
+        while (pos < length && line[pos] > ' ') {
+            pos++;
+        }
+        tokenEnd = pos;
+        return true;
+    }
+
+    /**
+     * Checks whether the current token equals a keyword.
+     * @param word ASCII keyword
+     * @return true on an exact match
+     */
+    boolean tokenIs(byte[] word) {
+        if (tokenEnd - tokenStart != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (line[tokenStart + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the current token as a decimal number.
+     * @return Value
+     * @throws IllegalArgumentException if the token is not a number
+     */
+    long tokenLong() {
+        int i = tokenStart;
+        boolean negative = i < tokenEnd && line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == tokenEnd) {
+            throw new IllegalArgumentException("Expected a number but got '" + token() + "'");
+        }
+        long value = 0;
+        for (; i < tokenEnd; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Expected a number but got '" + token() + "'");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the current token as an int.
+     * @return Value
+     * @throws IllegalArgumentException if the token is not a number
+     */
+    int tokenInt() {
+        return (int) tokenLong();
+    }
+
+    /**
+     * Gets the length of the current token.
+     * @return Token length in bytes
+     */
+    int tokenLength() {
+        return tokenEnd - tokenStart;
+    }
+
+    /**
+     * Gets a byte of the current token.
+     * @param index Offset within the token
+     * @return Byte value
+     */
+    int tokenByte(int index) {
+        return line[tokenStart + index];
+    }
+
+    /**
+     * Decodes the current token (for error messages and names only).
+     * @return Token text
+     */
+    String token() {
+        return new String(line, tokenStart, tokenEnd - tokenStart, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Decodes the rest of the line after the current token.
+     * @return Remaining text, trimmed
+     */
+    String rest() {
+        return new String(line, tokenEnd, length - tokenEnd, StandardCharsets.UTF_8).trim();
+    }
+}
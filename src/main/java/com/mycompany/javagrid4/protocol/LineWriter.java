@@ -0,0 +1,104 @@
+package com.mycompany.javagrid4.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds protocol lines in a reusable byte buffer.
+ *
+ * Numbers are written digit by digit, so composing a reply allocates
+ * nothing. Callers that share a writer between threads must synchronize
+ * on it around each line.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+final class LineWriter {
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    /**
+     * Creates a writer over a stream.
+     * @param out Destination stream
+     */
+    LineWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Appends pre-encoded ASCII bytes, such as a keyword.
+     * @param word Bytes to append
+     * @return This writer
+     */
+    LineWriter append(byte[] word) {
+        ensure(word.length);
+        System.arraycopy(word, 0, buffer, length, word.length);
+        length += word.length;
+        return this;
+    }
+
+    /**
+     * Appends a single ASCII character.
+     * @param c Character
+     * @return This writer
+     */
+    LineWriter append(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends a decimal number.
+     * @param value Number
+     * @return This writer
+     */
+    LineWriter append(long value) {
+        ensure(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte t = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = t;
+        }
+        return this;
+    }
+
+    /**
+     * Appends text (for names and diagnostics, not the hot path).
+     * @param text Text
+     * @return This writer
+     */
+    LineWriter append(String text) {
+        return append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Terminates the line and flushes it to the stream.
+     * @throws IOException if writing fails
+     */
+    void endLine() throws IOException {
+        ensure(1);
+        buffer[length++] = '\n';
+        out.write(buffer, 0, length);
+        out.flush();
+        length = 0;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = java.util.Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.mycompany.javagrid4.replay;
+
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A recorded game: the setup from the menu plus the move list, with board
+ * checkpoints every few moves so a {@link ReplayPlayer} can seek quickly.
+ *
+ * File format (".jg4r"):
+ * <pre>
+ * "JG4R", varint version
+ * byte size, varint checkpoint interval K
+ * varint start time (epoch millis), varint duration (seconds)
+ * per player: string name, 3 bytes RGB, string bot spec ("" for a human)
+ * varint move count, one varint cell index per move
+ * per checkpoint (after move K, 2K, ...): cell codes packed 3 bits each,
+ *     varint Player 1 score, varint Player 2 score
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8. The side to move at
+ * a checkpoint follows from the move number, since turns always alternate.
+ * A 5x5 game takes two to three bytes per move.
+ *
+ * Color values are kept as RGB ints, so reading a replay does not touch
+ * AWT until {@link #toConfig()} is called.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Replay {
+
+    /** File name extension for replays. */
+    public static final String EXTENSION = ".jg4r";
+    /** System property naming the replay directory. */
+    public static final String DIRECTORY_PROPERTY = "javagrid4.replays";
+    /** Moves between checkpoints unless configured otherwise. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+    private static final byte[] MAGIC = { 'J', 'G', '4', 'R' };
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final String[] names;
+    private final int[] colors;
+    private final String[] botSpecs;
+    private final long startMillis;
+    private final int elapsedSeconds;
+    private final int[] moves;
+    private final int interval;
+    private final byte[] checkpointCodes;
+    private final int[] checkpointScores;
+
+    private Replay(int size, String[] names, int[] colors, String[] botSpecs, long startMillis,
+                   int elapsedSeconds, int[] moves, int interval, byte[] checkpointCodes, int[] checkpointScores) {
+        this.size = size;
+        this.names = names;
+        this.colors = colors;
+        this.botSpecs = botSpecs;
+        this.startMillis = startMillis;
+        this.elapsedSeconds = elapsedSeconds;
+        this.moves = moves;
+        this.interval = interval;
+        this.checkpointCodes = checkpointCodes;
+        this.checkpointScores = checkpointScores;
+    }
+
+    /**
+     * Records a game from its configuration and moves.
+     * @param config Game setup
+     * @param moves Cell indexes (row * size + col) in play order
+     * @param moveCount Number of moves to take from the array
+     * @param startMillis Game start time
+     * @param elapsedSeconds Game duration
+     * @return Replay with checkpoints every {@value #DEFAULT_CHECKPOINT_INTERVAL} moves
+     * @throws IllegalArgumentException if a move is illegal
+     */
+    public static Replay record(GameConfig config, int[] moves, int moveCount, long startMillis, int elapsedSeconds) {
+        PlayerConfig p1 = config.getPlayer1();
+        PlayerConfig p2 = config.getPlayer2();
+        return record(config.getBoardSize(),
+            new String[] { p1.getName(), p2.getName() },
+            new int[] { p1.getColor().getRGB(), p2.getColor().getRGB() },
+            new String[] { p1.getBotSpec(), p2.getBotSpec() },
+            moves, moveCount, startMillis, elapsedSeconds);
+    }
+
+    /**
+     * Records a game from a setup given as plain values, without touching
+     * AWT (for importers that run headless).
+     * @param size Board size (3, 5 or 7)
+     * @param names Player names, Player 1 first
+     * @param colors Player colors as RGB
+     * @param botSpecs Bot specs, null entries for humans
+     * @param moves Cell indexes (row * size + col) in play order
+     * @param moveCount Number of moves to take from the array
+     * @param startMillis Game start time
+     * @param elapsedSeconds Game duration
+     * @return Replay with checkpoints every {@value #DEFAULT_CHECKPOINT_INTERVAL} moves
+     * @throws IllegalArgumentException if the size is unsupported or a move is illegal
+     */
+    public static Replay record(int size, String[] names, int[] colors, String[] botSpecs,
+                                int[] moves, int moveCount, long startMillis, int elapsedSeconds) {
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IllegalArgumentException("Board size must be 3, 5 or 7: " + size);
+        }
+        int[] line = Arrays.copyOf(moves, moveCount);
+        int interval = DEFAULT_CHECKPOINT_INTERVAL;
+
+        CompactBoard board = new CompactBoard(size);
+        int cells = board.getCellCount();
+        int checkpoints = moveCount / interval;
+        byte[] codes = new byte[checkpoints * cells];
+        int[] scores = new int[checkpoints * 2];
+        for (int i = 0; i < moveCount; i++) {
+            if (line[i] < 0 || line[i] >= cells || !board.isLegal(line[i])) {
+                throw new IllegalArgumentException("Illegal move " + line[i] + " at ply " + i);
+            }
+            board.applyMove(line[i]);
+            if ((i + 1) % interval == 0) {
+                int k = (i + 1) / interval - 1;
+                for (int cell = 0; cell < cells; cell++) {
+                    codes[k * cells + cell] = (byte) board.getCode(cell);
+                }
+                scores[k * 2] = board.getScore(0);
+                scores[k * 2 + 1] = board.getScore(1);
+            }
+        }
+        return new Replay(size,
+            new String[] { names[0], names[1] },
+            new int[] { colors[0] & 0xFFFFFF, colors[1] & 0xFFFFFF },
+            new String[] { botSpecs[0], botSpecs[1] },
+            startMillis, elapsedSeconds, line, interval, codes, scores);
+    }
+
+    /**
+     * Rebuilds the game setup (player names, colors, bots and board size).
+     * @return New configuration
+     */
+    public GameConfig toConfig() {
+        PlayerConfig p1 = new PlayerConfig(1, names[0], new Color(colors[0]));
+        PlayerConfig p2 = new PlayerConfig(2, names[1], new Color(colors[1]));
+        p1.setBotSpec(botSpecs[0]);
+        p2.setBotSpec(botSpecs[1]);
+        return new GameConfig(p1, p2, size);
+    }
+
+    /**
+     * Gets the board size.
+     * @return 3, 5 or 7
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets a player's name.
+     * @param sideIndex 0 for Player 1, 1 for Player 2
+     * @return Name
+     */
+    public String getName(int sideIndex) {
+        return names[sideIndex];
+    }
+
+    /**
+     * Gets a player's color.
+     * @param sideIndex 0 for Player 1, 1 for Player 2
+     * @return Color as RGB
+     */
+    public int getColor(int sideIndex) {
+        return colors[sideIndex];
+    }
+
+    /**
+     * Gets a player's bot spec.
+     * @param sideIndex 0 for Player 1, 1 for Player 2
+     * @return Bot spec, or null for a human
+     */
+    public String getBotSpec(int sideIndex) {
+        return botSpecs[sideIndex];
+    }
+
+    /**
+     * Gets the game start time.
+     * @return Epoch milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Gets the game duration.
+     * @return Seconds
+     */
+    public int getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Gets the number of moves.
+     * @return Move count
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move.
+     * @param ply Move number (0-based)
+     * @return Cell index
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Gets the number of moves between checkpoints.
+     * @return Interval K
+     */
+    public int getCheckpointInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the number of stored checkpoints.
+     * @return Checkpoint count (checkpoint k is the position after (k + 1) * K moves)
+     */
+    int getCheckpointCount() {
+        return checkpointScores.length / 2;
+    }
+
+    /**
+     * Loads a checkpoint position into a board.
+     * @param k Checkpoint index
+     * @param board Board of the replay's size (history is cleared)
+     */
+    void loadCheckpoint(int k, CompactBoard board) {
+        int cells = board.getCellCount();
+        board.reset();
+        for (int cell = 0; cell < cells; cell++) {
+            board.setCode(cell, checkpointCodes[k * cells + cell]);
+        }
+        board.setScores(checkpointScores[k * 2], checkpointScores[k * 2 + 1]);
+        // Turns alternate, so the side to move follows from the move number
+        if (((k + 1) * interval & 1) != 0) {
+            board.setSideToMove(Player.PLAYER_TWO);
+        }
+        board.clearHistory();
+    }
+
+    /**
+     * Writes the replay.
+     * @param out Destination (not closed)
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + moves.length * 3);
+        bytes.write(MAGIC);
+        writeVarint(bytes, VERSION);
+        bytes.write(size);
+        writeVarint(bytes, interval);
+        writeVarint(bytes, startMillis);
+        writeVarint(bytes, elapsedSeconds);
+        for (int p = 0; p < 2; p++) {
+            writeString(bytes, names[p]);
+            bytes.write(colors[p] >>> 16);
+            bytes.write(colors[p] >>> 8);
+            bytes.write(colors[p]);
+            writeString(bytes, botSpecs[p] == null ? "" : botSpecs[p]);
+        }
+        writeVarint(bytes, moves.length);
+        for (int move : moves) {
+            writeVarint(bytes, move);
+        }
+        int cells = size * size;
+        for (int k = 0; k < getCheckpointCount(); k++) {
+            int acc = 0;
+            int bits = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                acc |= checkpointCodes[k * cells + cell] << bits;
+                bits += 3;
+                while (bits >= 8) {
+                    bytes.write(acc);
+                    acc >>>= 8;
+                    bits -= 8;
+                }
+            }
+            if (bits > 0) {
+                bytes.write(acc);
+            }
+            writeVarint(bytes, checkpointScores[k * 2]);
+            writeVarint(bytes, checkpointScores[k * 2 + 1]);
+        }
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Reads a replay.
+     * @param in Source (not closed)
+     * @return Replay
+     * @throws IOException if reading fails or the data is not a valid replay
+     */
+    public static Replay read(InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) readByte(in);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a JavaGrid4 replay");
+        }
+        int version = (int) readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        int size = readByte(in);
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IOException("Invalid board size " + size);
+        }
+        int interval = (int) readVarint(in);
+        if (interval <= 0) {
+            throw new IOException("Invalid checkpoint interval " + interval);
+        }
+        long startMillis = readVarint(in);
+        int elapsed = (int) readVarint(in);
+        String[] names = new String[2];
+        int[] colors = new int[2];
+        String[] bots = new String[2];
+        for (int p = 0; p < 2; p++) {
+            names[p] = readString(in);
+            colors[p] = readByte(in) << 16 | readByte(in) << 8 | readByte(in);
+            String bot = readString(in);
+            bots[p] = bot.isEmpty() ? null : bot;
+        }
+        int cells = size * size;
+        int moveCount = (int) readVarint(in);
+        if (moveCount < 0 || moveCount > cells * CompactBoard.MAX_VALUE) {
+            throw new IOException("Invalid move count " + moveCount);
+        }
+        int[] moves = new int[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            moves[i] = (int) readVarint(in);
+            if (moves[i] >= cells) {
+                throw new IOException("Invalid move " + moves[i] + " at ply " + i);
+            }
+        }
+        int checkpoints = moveCount / interval;
+        byte[] codes = new byte[checkpoints * cells];
+        int[] scores = new int[checkpoints * 2];
+        for (int k = 0; k < checkpoints; k++) {
+            int acc = 0;
+            int bits = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (bits < 3) {
+                    acc |= readByte(in) << bits;
+                    bits += 8;
+                }
+                int code = acc & 7;
+                if (code >= CompactBoard.CODE_COUNT) {
+                    throw new IOException("Invalid cell code in checkpoint " + k);
+                }
+                codes[k * cells + cell] = (byte) code;
+                acc >>>= 3;
+                bits -= 3;
+            }
+            scores[k * 2] = (int) readVarint(in);
+            scores[k * 2 + 1] = (int) readVarint(in);
+        }
+        return new Replay(size, names, colors, bots, startMillis, elapsed, moves, interval, codes, scores);
+    }
+
+    /**
+     * Saves the replay under a time-stamped name in a directory.
+     * @param directory Target directory (created if missing)
+     * @return Path of the written file
+     * @throws IOException if writing fails
+     */
+    public Path save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startMillis));
+        Path file = directory.resolve(stamp + "-" + safe(names[0]) + "-vs-" + safe(names[1]) + EXTENSION);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out);
+        }
+        return file;
+    }
+
+    /**
+     * Loads a replay file.
+     * @param file Replay file
+     * @return Replay
+     * @throws IOException if the file cannot be read or is not a replay
+     */
+    public static Replay load(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Gets the directory finished games are saved to.
+     * @return Value of {@value #DIRECTORY_PROPERTY}, or "replays"
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, "replays"));
+    }
+
+    private static String safe(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Replay is truncated");
+        }
+        return b;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in replay");
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarint(in);
+        if (length < 0 || length > 4096) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte(in);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
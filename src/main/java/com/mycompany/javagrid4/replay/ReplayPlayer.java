@@ -0,0 +1,99 @@
+package com.mycompany.javagrid4.replay;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Steps through a {@link Replay} on a {@link CompactBoard}.
+ *
+ * Seeking costs at most K moves for checkpoint interval K: short hops
+ * forward apply moves, short hops back undo them, and anything further
+ * restarts from the nearest checkpoint at or before the target.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class ReplayPlayer {
+
+    private final Replay replay;
+    private final CompactBoard board;
+    private int position;
+    // Move number the board's undo history starts at
+    private int historyBase;
+
+    /**
+     * Creates a player positioned at the start of the game.
+     * @param replay Replay to play
+     */
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        this.board = new CompactBoard(replay.getSize());
+    }
+
+    /**
+     * Gets the replay being played.
+     * @return Replay
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Gets the board at the current position. Callers must not modify it.
+     * @return Current board
+     */
+    public CompactBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the number of moves played so far.
+     * @return Current move number (0 = start position)
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the last valid position.
+     * @return Number of moves in the replay
+     */
+    public int getLength() {
+        return replay.getMoveCount();
+    }
+
+    /**
+     * Moves to the position after a number of moves.
+     * @param target Move number, 0 to {@link #getLength()}
+     * @throws IllegalArgumentException if the target is out of range or the
+     *         replay contains an illegal move
+     */
+    public void seek(int target) {
+        if (target < 0 || target > replay.getMoveCount()) {
+            throw new IllegalArgumentException("Move " + target + " is outside 0.." + replay.getMoveCount());
+        }
+        int interval = replay.getCheckpointInterval();
+        if (target < historyBase || target < position - interval || target > position + interval) {
+            int k = Math.min(target / interval, replay.getCheckpointCount());
+            if (k == 0) {
+                board.reset();
+                position = 0;
+            } else {
+                replay.loadCheckpoint(k - 1, board);
+                position = k * interval;
+            }
+            historyBase = position;
+        }
+        while (position > target) {
+            board.undoMove();
+            position--;
+        }
+        while (position < target) {
+            int move = replay.getMove(position);
+            if (!board.isLegal(move)) {
+                throw new IllegalArgumentException("Replay has illegal move " + move + " at ply " + position);
+            }
+            board.applyMove(move);
+            position++;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.mycompany.javagrid4.session;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.commands.MoveJournal;
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An unfinished game read back from a {@link WriteAheadLog}: the setup
+ * plus the operations that were safely on disk.
+ *
+ * Operations are checked by replaying them on a scratch board when the log
+ * is read, and the game is cut off at the first one that does not apply,
+ * so {@link #apply(GameEngine, MoveJournal)} always succeeds.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class RecoveredGame {
+
+    // Largest record accepted; snapshots of big histories take a few MB
+    private static final int MAX_RECORD_LENGTH = 1 << 26;
+
+    private final Path file;
+    private final int size;
+    private final long startMillis;
+    private final String[] names = new String[2];
+    private final int[] colors = new int[2];
+    private final String[] botSpecs = new String[2];
+    private final List<byte[]> operations = new ArrayList<>();
+    private int elapsedSeconds;
+    private long ply;
+    private boolean resumable;
+
+    private RecoveredGame(Path file, InputStream setup) throws IOException {
+        this.file = file;
+        this.size = readByte(setup);
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IOException("Unsupported board size " + size);
+        }
+        this.startMillis = readVarint(setup);
+        for (int p = 0; p < 2; p++) {
+            names[p] = readString(setup);
+            colors[p] = readByte(setup) << 16 | readByte(setup) << 8 | readByte(setup);
+            String spec = readString(setup);
+            botSpecs[p] = spec.isEmpty() ? null : spec;
+        }
+    }
+
+    /**
+     * Reads the contents of a log file.
+     * @param file Log file
+     * @param data File contents
+     * @param length Number of bytes in data
+     * @return Recovered game, or null if the log does not even hold a setup
+     */
+    static RecoveredGame parse(Path file, byte[] data, int length) {
+        ByteArrayInputStream in = new ByteArrayInputStream(data, 0, length);
+        RecoveredGame game = null;
+        try {
+            for (byte b : WriteAheadLog.MAGIC) {
+                if (readByte(in) != b) {
+                    return null;
+                }
+            }
+            if (readVarint(in) != WriteAheadLog.VERSION) {
+                return null;
+            }
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                if (game == null) {
+                    if (payload.length == 0 || payload[0] != WriteAheadLog.SETUP) {
+                        return null;
+                    }
+                    game = new RecoveredGame(file, new ByteArrayInputStream(payload, 1, payload.length - 1));
+                } else {
+                    game.operations.add(payload);
+                }
+            }
+        } catch (IOException e) {
+            // Torn tail: keep what was read before it
+        }
+        if (game != null) {
+            game.validate();
+        }
+        return game;
+    }
+
+    /**
+     * Replays the operations on a fresh board and history. Moves do not
+     * switch the player in {@link MoveJournal}, so it is done here, as the
+     * game screen does after each move.
+     * @param engine Engine with an empty board of {@link #getSize()}
+     * @param journal History of the engine
+     */
+    public void apply(GameEngine engine, MoveJournal journal) {
+        for (byte[] payload : operations) {
+            try {
+                applyOperation(payload, engine, journal);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Operation failed validation: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the game setup (player names, colors, bots and board size).
+     * @return New configuration
+     */
+    public GameConfig toConfig() {
+        PlayerConfig p1 = new PlayerConfig(1, names[0], new Color(colors[0]));
+        PlayerConfig p2 = new PlayerConfig(2, names[1], new Color(colors[1]));
+        p1.setBotSpec(botSpecs[0]);
+        p2.setBotSpec(botSpecs[1]);
+        return new GameConfig(p1, p2, size);
+    }
+
+    /**
+     * Gets the log file the game was read from.
+     * @return Path of the log
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the board size.
+     * @return 3, 5 or 7
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets a player's name.
+     * @param player Player
+     * @return Name from the setup
+     */
+    public String getName(Player player) {
+        return names[player == Player.PLAYER_ONE ? 0 : 1];
+    }
+
+    /**
+     * Gets the game start time.
+     * @return Epoch millis
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Gets the game clock at the last recovered move.
+     * @return Elapsed seconds
+     */
+    public int getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Gets the ply the game is at after all operations.
+     * @return Moves played on the current line
+     */
+    public long getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets the recovered operations, without the setup.
+     * @return Record payloads in order
+     */
+    public List<byte[]> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Checks whether there is anything worth resuming: at least one move,
+     * and the game not already over.
+     * @return true if the game can be resumed
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    /**
+     * Deletes the log, when the user chose not to resume.
+     * @throws IOException if the file cannot be deleted
+     */
+    public void discard() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Replays the operations on a scratch board, drops everything from the
+     * first one that does not apply, and records the resulting state.
+     */
+    private void validate() {
+        GameEngine engine = new GameEngine(size);
+        MoveJournal journal = new MoveJournal(engine);
+        int valid = 0;
+        for (byte[] payload : operations) {
+            try {
+                applyOperation(payload, engine, journal);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring log of " + file.getFileName() + " after operation " + valid + ": " + e.getMessage());
+                break;
+            }
+            valid++;
+        }
+        operations.subList(valid, operations.size()).clear();
+        ply = journal.getPly();
+        resumable = journal.getMoveCount() > 0 && !engine.isGameOver();
+    }
+
+    private void applyOperation(byte[] payload, GameEngine engine, MoveJournal journal) throws IOException {
+        InputStream in = new ByteArrayInputStream(payload, 1, payload.length - 1);
+        switch (payload[0]) {
+            case WriteAheadLog.MOVE: {
+                int cell = (int) readVarint(in);
+                Player player = readByte(in) == 1 ? Player.PLAYER_ONE : Player.PLAYER_TWO;
+                int seconds = (int) readVarint(in);
+                if (cell < 0 || cell >= size * size || engine.isGameOver()
+                        || engine.getCellValue(cell / size, cell % size) >= 4
+                        || player != engine.getCurrentPlayer()) {
+                    throw new IOException("illegal move " + cell);
+                }
+                journal.executeMove(cell / size, cell % size, player);
+                engine.getGameState().switchPlayer();
+                elapsedSeconds = seconds;
+                break;
+            }
+            case WriteAheadLog.JUMP: {
+                long target = readVarint(in);
+                if (target < journal.getFirstPly() || target > journal.getLastPly()) {
+                    throw new IOException("ply " + target + " is not in the history");
+                }
+                journal.jumpTo(target);
+                break;
+            }
+            case WriteAheadLog.VARIATION: {
+                long zigzag = readVarint(in);
+                int offset = (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+                if (!journal.switchVariation(offset)) {
+                    throw new IOException("no other line at ply " + journal.getPly());
+                }
+                break;
+            }
+            case WriteAheadLog.SNAPSHOT: {
+                int seconds = (int) readVarint(in);
+                journal.read(in);
+                elapsedSeconds = seconds;
+                break;
+            }
+            case WriteAheadLog.RESTART:
+                engine.resetBoard();
+                journal.clear();
+                elapsedSeconds = 0;
+                break;
+            default:
+                throw new IOException("unknown record type " + payload[0]);
+        }
+    }
+
+    /**
+     * Reads one framed record.
+     * @return Payload, or null at the end of the log
+     * @throws IOException if the record is truncated or fails its checksum
+     */
+    private static byte[] readRecord(InputStream in) throws IOException {
+        if (in.available() == 0) {
+            return null;
+        }
+        long length = readVarint(in);
+        if (length < 1 || length > MAX_RECORD_LENGTH) {
+            throw new IOException("Invalid record length " + length);
+        }
+        byte[] payload = new byte[(int) length];
+        if (in.read(payload) != payload.length) {
+            throw new EOFException("Record is truncated");
+        }
+        int checksum = readByte(in) << 24 | readByte(in) << 16 | readByte(in) << 8 | readByte(in);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Record fails its checksum");
+        }
+        return payload;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Log is truncated");
+        }
+        return b;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in log");
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarint(in);
+        if (length < 0 || length > 4096) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        if (in.read(bytes, 0, length) != length && length > 0) {
+            throw new EOFException("Log is truncated");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,433 @@
+package com.mycompany.javagrid4.session;
+
+import com.mycompany.javagrid4.GameEngine;
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.commands.MoveJournal;
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+/**
+ * A game in progress saved by the player: the setup, the position, the
+ * clock and the whole move history with its variations.
+ *
+ * File format (".jg4s"):
+ * <pre>
+ * "JG4S", varint version
+ * byte size, varint start time (epoch millis), varint elapsed seconds
+ * per player: string name, 3 bytes RGB, string bot spec ("" for a human)
+ * one byte per cell: value | owner (0 none, 1, 2) &lt;&lt; 3
+ * varint Player 1 score, varint Player 2 score,
+ *     byte flags (bit 0: Player 2 to move, bit 1: game over)
+ * varint history length, history in the {@link MoveJournal} tree format
+ * 4-byte CRC32 of everything before it
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8. The position is
+ * stored next to the history so a file can be described without replaying
+ * it; loading checks that the two agree.
+ *
+ * Files are written to a temporary file in the same directory, synced and
+ * renamed over the target, so a crash never leaves a half-written save.
+ * Reading a file rebuilds the engine and history as part of checking it,
+ * needs no Swing and can run off the EDT; the game screen then takes over
+ * the rebuilt engine, so a large history never replays on the EDT.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class SavedGame {
+
+    /** File name extension for saved games. */
+    public static final String EXTENSION = ".jg4s";
+    /** System property naming the directory for saved games. */
+    public static final String DIRECTORY_PROPERTY = "javagrid4.saves";
+
+    private static final byte[] MAGIC = { 'J', 'G', '4', 'S' };
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final long startMillis;
+    private final int elapsedSeconds;
+    private final String[] names = new String[2];
+    private final int[] colors = new int[2];
+    private final String[] botSpecs = new String[2];
+    private final byte[] cells;
+    private final int[] scores = new int[2];
+    private final int flags;
+    private final byte[] history;
+    // Rebuilt when read from a file (null for a captured game)
+    private GameEngine engine;
+    private MoveJournal journal;
+
+    private SavedGame(int size, long startMillis, int elapsedSeconds, byte[] cells, int flags, byte[] history) {
+        this.size = size;
+        this.startMillis = startMillis;
+        this.elapsedSeconds = elapsedSeconds;
+        this.cells = cells;
+        this.flags = flags;
+        this.history = history;
+    }
+
+    /**
+     * Captures a game in progress. Call on the thread that owns the engine;
+     * the result is immutable and can be written from any thread.
+     * @param config Game setup
+     * @param engine Engine at the current position
+     * @param journal History of the engine
+     * @param startMillis Game start time (epoch millis)
+     * @param elapsedSeconds Game clock
+     * @return Snapshot of the game
+     */
+    public static SavedGame capture(GameConfig config, GameEngine engine, MoveJournal journal,
+                                    long startMillis, int elapsedSeconds) {
+        ByteArrayOutputStream history = new ByteArrayOutputStream(256);
+        try {
+            journal.write(history);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        SavedGame game = new SavedGame(engine.getGridSize(), startMillis, elapsedSeconds,
+            cellsOf(engine), flagsOf(engine), history.toByteArray());
+        PlayerConfig[] players = { config.getPlayer1(), config.getPlayer2() };
+        for (int p = 0; p < 2; p++) {
+            game.names[p] = players[p].getName();
+            game.colors[p] = players[p].getColor().getRGB() & 0xFFFFFF;
+            game.botSpecs[p] = players[p].getBotSpec();
+        }
+        game.scores[0] = engine.getScore(Player.PLAYER_ONE);
+        game.scores[1] = engine.getScore(Player.PLAYER_TWO);
+        return game;
+    }
+
+    /**
+     * Encodes the game in the file format.
+     * @return File contents
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96 + cells.length + history.length);
+        out.write(MAGIC, 0, MAGIC.length);
+        writeVarint(out, VERSION);
+        out.write(size);
+        writeVarint(out, startMillis);
+        writeVarint(out, elapsedSeconds);
+        for (int p = 0; p < 2; p++) {
+            writeString(out, names[p]);
+            out.write(colors[p] >>> 16);
+            out.write(colors[p] >>> 8);
+            out.write(colors[p]);
+            writeString(out, botSpecs[p] == null ? "" : botSpecs[p]);
+        }
+        out.write(cells, 0, cells.length);
+        writeVarint(out, scores[0]);
+        writeVarint(out, scores[1]);
+        out.write(flags);
+        writeVarint(out, history.length);
+        out.write(history, 0, history.length);
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        int checksum = (int) crc.getValue();
+        out.write(checksum >>> 24);
+        out.write(checksum >>> 16);
+        out.write(checksum >>> 8);
+        out.write(checksum);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes and checks a saved game: the checksum, and that the history
+     * leads to the stored position.
+     * @param data File contents
+     * @return Saved game
+     * @throws IOException if the data is not a valid saved game
+     */
+    public static SavedGame fromBytes(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 4) {
+            throw new EOFException("Saved game is truncated");
+        }
+        int end = data.length - 4;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, end);
+        int checksum = (data[end] & 0xFF) << 24 | (data[end + 1] & 0xFF) << 16
+            | (data[end + 2] & 0xFF) << 8 | (data[end + 3] & 0xFF);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Saved game is damaged (checksum mismatch)");
+        }
+        InputStream in = new ByteArrayInputStream(data, 0, end);
+        for (byte b : MAGIC) {
+            if (readByte(in) != b) {
+                throw new IOException("Not a JavaGrid4 saved game");
+            }
+        }
+        long version = readVarint(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported saved game version " + version);
+        }
+        int size = readByte(in);
+        if (size != 3 && size != 5 && size != 7) {
+            throw new IOException("Unsupported board size " + size);
+        }
+        long startMillis = readVarint(in);
+        int elapsedSeconds = (int) readVarint(in);
+        String[] names = new String[2];
+        int[] colors = new int[2];
+        String[] botSpecs = new String[2];
+        for (int p = 0; p < 2; p++) {
+            names[p] = readString(in);
+            colors[p] = readByte(in) << 16 | readByte(in) << 8 | readByte(in);
+            String spec = readString(in);
+            botSpecs[p] = spec.isEmpty() ? null : spec;
+        }
+        byte[] cells = new byte[size * size];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) readByte(in);
+        }
+        int score1 = (int) readVarint(in);
+        int score2 = (int) readVarint(in);
+        int flags = readByte(in);
+        int length = (int) readVarint(in);
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid history length " + length);
+        }
+        byte[] history = new byte[length];
+        in.read(history, 0, length);
+
+        SavedGame game = new SavedGame(size, startMillis, elapsedSeconds, cells, flags, history);
+        System.arraycopy(names, 0, game.names, 0, 2);
+        System.arraycopy(colors, 0, game.colors, 0, 2);
+        System.arraycopy(botSpecs, 0, game.botSpecs, 0, 2);
+        game.scores[0] = score1;
+        game.scores[1] = score2;
+
+        GameEngine engine = new GameEngine(size);
+        MoveJournal journal = new MoveJournal(engine);
+        journal.read(new ByteArrayInputStream(history));
+        if (!Arrays.equals(cellsOf(engine), cells) || flagsOf(engine) != flags
+                || engine.getScore(Player.PLAYER_ONE) != score1 || engine.getScore(Player.PLAYER_TWO) != score2) {
+            throw new IOException("Saved game history does not match its position");
+        }
+        game.engine = engine;
+        game.journal = journal;
+        return game;
+    }
+
+    /**
+     * Writes the game to a file atomically: a temporary file is written
+     * and synced, then renamed over the target.
+     * @param file Destination (its directory is created if missing)
+     * @throws IOException if writing fails; an existing file is then left as it was
+     */
+    public void save(Path file) throws IOException {
+        byte[] data = toBytes();
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Loads and checks a saved game file.
+     * @param file Saved game file
+     * @return Saved game
+     * @throws IOException if the file cannot be read or is not a valid saved game
+     */
+    public static SavedGame load(Path file) throws IOException {
+        return fromBytes(Files.readAllBytes(file));
+    }
+
+    /**
+     * Gets the engine rebuilt from the history when the game was read. It
+     * belongs to whoever resumes the game.
+     * @return Engine at the saved position, or null for a captured game
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the history rebuilt when the game was read, bound to
+     * {@link #getEngine()}.
+     * @return Move journal, or null for a captured game
+     */
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Rebuilds the game setup (player names, colors, bots and board size).
+     * @return New configuration
+     */
+    public GameConfig toConfig() {
+        PlayerConfig p1 = new PlayerConfig(1, names[0], new Color(colors[0]));
+        PlayerConfig p2 = new PlayerConfig(2, names[1], new Color(colors[1]));
+        p1.setBotSpec(botSpecs[0]);
+        p2.setBotSpec(botSpecs[1]);
+        return new GameConfig(p1, p2, size);
+    }
+
+    /**
+     * Gets the history in the {@link MoveJournal} tree format.
+     * @return Copy of the history bytes
+     */
+    public byte[] getHistory() {
+        return history.clone();
+    }
+
+    /**
+     * Gets the board size.
+     * @return 3, 5 or 7
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets a player's name.
+     * @param player Player
+     * @return Name from the setup
+     */
+    public String getName(Player player) {
+        return names[player == Player.PLAYER_ONE ? 0 : 1];
+    }
+
+    /**
+     * Gets a player's score in the saved position.
+     * @param player Player
+     * @return Score
+     */
+    public int getScore(Player player) {
+        return scores[player == Player.PLAYER_ONE ? 0 : 1];
+    }
+
+    /**
+     * Gets the game start time.
+     * @return Epoch millis
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Gets the game clock when the game was saved.
+     * @return Elapsed seconds
+     */
+    public int getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Gets a file name for the game in a directory.
+     * @param directory Directory for saved games
+     * @return Path named after the start time and the players
+     */
+    public Path suggestFile(Path directory) {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startMillis));
+        return directory.resolve(stamp + "-" + safe(names[0]) + "-vs-" + safe(names[1]) + EXTENSION);
+    }
+
+    /**
+     * Gets the directory games are saved to.
+     * @return Value of {@value #DIRECTORY_PROPERTY}, or "saves"
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, "saves"));
+    }
+
+    private static byte[] cellsOf(GameEngine engine) {
+        int size = engine.getGridSize();
+        byte[] cells = new byte[size * size];
+        for (int i = 0; i < cells.length; i++) {
+            Player owner = engine.getCellOwner(i / size, i % size);
+            int ownerCode = owner == null ? 0 : owner == Player.PLAYER_ONE ? 1 : 2;
+            cells[i] = (byte) (engine.getCellValue(i / size, i % size) | ownerCode << 3);
+        }
+        return cells;
+    }
+
+    private static int flagsOf(GameEngine engine) {
+        return (engine.getCurrentPlayer() == Player.PLAYER_TWO ? 1 : 0) | (engine.isGameOver() ? 2 : 0);
+    }
+
+    private static String safe(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Saved game is truncated");
+        }
+        return b;
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in saved game");
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarint(in);
+        if (length < 0 || length > 4096) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte(in);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
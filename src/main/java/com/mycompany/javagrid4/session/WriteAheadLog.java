@@ -0,0 +1,429 @@
+package com.mycompany.javagrid4.session;
+
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the game in progress, so a game survives the JVM
+ * dying and can be resumed on the next start.
+ *
+ * The game thread only encodes a record payload of a few bytes and puts it
+ * on a queue. A single writer thread frames and checksums whatever has
+ * queued up, appends it with one write and makes it durable with one
+ * {@link FileChannel#force} (group commit), so a burst of moves costs one
+ * disk sync and a slow disk never stalls the caller.
+ *
+ * File format (".jg4w"):
+ * <pre>
+ * "JG4W", varint version
+ * records: varint payload length, payload, 4-byte CRC32 of the payload
+ * payload: byte type, then
+ *     SETUP      byte size, varint start time (epoch millis),
+ *                per player: string name, 3 bytes RGB, string bot spec
+ *     MOVE       varint cell index, byte player (1 or 2), varint elapsed seconds
+ *     JUMP       varint ply
+ *     VARIATION  zigzag varint offset
+ *     RESTART
+ *     SNAPSHOT   varint elapsed seconds, whole history in the
+ *                {@link com.mycompany.javagrid4.commands.MoveJournal} tree format
+ * </pre>
+ * The first record is always SETUP; a game loaded from a save starts with
+ * a SNAPSHOT of its history. Undo and redo are logged as the jump
+ * to the ply they land on, since that is how the history applies them.
+ * Reading stops at the first truncated or corrupt record, which is where
+ * a crash interrupted the last write.
+ *
+ * Each game writes its own file, locked while the game is open, so a log
+ * still being finished or deleted never collides with the next game's.
+ * The file is locked before it gets its ".jg4w" name, so recovery never
+ * mistakes a log that is just being created for an abandoned one.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class WriteAheadLog {
+
+    /** File name extension for write-ahead logs. */
+    public static final String EXTENSION = ".jg4w";
+    /** System property naming the directory for logs of unfinished games. */
+    public static final String DIRECTORY_PROPERTY = "javagrid4.recovery";
+
+    static final byte[] MAGIC = { 'J', 'G', '4', 'W' };
+    static final int VERSION = 1;
+
+    static final int SETUP = 0;
+    static final int MOVE = 1;
+    static final int JUMP = 2;
+    static final int VARIATION = 3;
+    static final int RESTART = 4;
+    static final int SNAPSHOT = 5;
+
+    // Queue marker that makes the writer finish
+    private static final Object CLOSE = new Object();
+
+    private final Path file;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private volatile boolean closed;
+
+    private WriteAheadLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Starts a log for a new game in the default directory. The file is
+     * created by the writer thread, so this returns at once.
+     * @param config Game setup
+     * @param startMillis Game start time (epoch millis)
+     * @return Open log
+     */
+    public static WriteAheadLog start(GameConfig config, long startMillis) {
+        return start(getDefaultDirectory(), config, startMillis);
+    }
+
+    /**
+     * Starts a log for a new game. The file is created by the writer
+     * thread, so this returns at once.
+     * @param directory Directory for the log file (created if missing)
+     * @param config Game setup
+     * @param startMillis Game start time (epoch millis)
+     * @return Open log
+     */
+    public static WriteAheadLog start(Path directory, GameConfig config, long startMillis) {
+        Path file = directory.resolve("game-" + startMillis + "-" + System.nanoTime() + EXTENSION);
+        WriteAheadLog log = new WriteAheadLog(file);
+        log.append(setupRecord(config, startMillis));
+
+        Thread writer = new Thread(log::runWriter, "javagrid4-wal");
+        writer.setDaemon(true);
+        writer.start();
+        return log;
+    }
+
+    /**
+     * Logs a move.
+     * @param cell Cell index (row * size + column)
+     * @param player Player who moved
+     * @param elapsedSeconds Game clock after the move
+     */
+    public void logMove(int cell, Player player, int elapsedSeconds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8);
+        out.write(MOVE);
+        writeVarint(out, cell);
+        out.write(player == Player.PLAYER_ONE ? 1 : 2);
+        writeVarint(out, elapsedSeconds);
+        append(out.toByteArray());
+    }
+
+    /**
+     * Logs a jump to another ply of the move history (undo, redo, slider).
+     * @param ply Ply jumped to
+     */
+    public void logJump(long ply) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8);
+        out.write(JUMP);
+        writeVarint(out, ply);
+        append(out.toByteArray());
+    }
+
+    /**
+     * Logs a switch to another line at the current ply.
+     * @param offset Lines to move by, as passed to the move journal
+     */
+    public void logVariation(int offset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8);
+        out.write(VARIATION);
+        writeVarint(out, (offset << 1) ^ (offset >> 31));
+        append(out.toByteArray());
+    }
+
+    /**
+     * Logs a restart: an empty board and an empty history.
+     */
+    public void logRestart() {
+        append(new byte[] { RESTART });
+    }
+
+    /**
+     * Logs the whole history at once, for a game that starts from a save.
+     * @param history History in the move journal tree format
+     * @param elapsedSeconds Game clock
+     */
+    public void logSnapshot(byte[] history, int elapsedSeconds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(history.length + 8);
+        out.write(SNAPSHOT);
+        writeVarint(out, elapsedSeconds);
+        out.write(history, 0, history.length);
+        append(out.toByteArray());
+    }
+
+    /**
+     * Copies the operations of a recovered game into this log, so the
+     * resumed game stays recoverable, and deletes the recovered file once
+     * they are on disk.
+     * @param game Game recovered from an earlier log
+     */
+    public void adopt(RecoveredGame game) {
+        for (byte[] payload : game.getOperations()) {
+            append(payload);
+        }
+        if (!closed) {
+            queue.add(game.getFile());
+        }
+    }
+
+    /**
+     * Finishes the log and deletes it, because the game ended or was
+     * abandoned. Does nothing if the log is already closed.
+     */
+    public void discard() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(file);
+        queue.add(CLOSE);
+    }
+
+    /**
+     * Gets the log file.
+     * @return Path of the log
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of records written to disk so far.
+     * @return Record count, including the setup record
+     */
+    public long getRecordCount() {
+        return records.get();
+    }
+
+    /**
+     * Gets the number of disk syncs so far; each covers every record that
+     * was queued when it started.
+     * @return Sync count
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * Gets the directory for logs of unfinished games.
+     * @return Value of {@value #DIRECTORY_PROPERTY}, or "recovery"
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty(DIRECTORY_PROPERTY, "recovery"));
+    }
+
+    /**
+     * Finds the most recent unfinished game in a directory. Logs of older,
+     * finished or unreadable games are deleted; logs still open by a
+     * running game are left alone.
+     * @param directory Directory to search
+     * @return Recovered game, or null if there is nothing to resume
+     * @throws IOException if the directory cannot be listed
+     */
+    public static RecoveredGame recover(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> modified = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                files.add(path);
+                modified.put(path, Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        files.sort((a, b) -> Long.compare(modified.get(b), modified.get(a)));
+        RecoveredGame found = null;
+        for (Path path : files) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock;
+                try {
+                    lock = channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    lock = null;
+                }
+                if (lock == null) {
+                    continue; // Still being written
+                }
+                RecoveredGame game = null;
+                if (found == null) {
+                    ByteBuffer data = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+                    while (data.hasRemaining() && channel.read(data) >= 0) {
+                        // Read the whole file
+                    }
+                    game = RecoveredGame.parse(path, data.array(), data.position());
+                }
+                lock.release();
+                if (game != null && game.isResumable()) {
+                    found = game;
+                    continue;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read " + path + ": " + e.getMessage());
+            }
+            Files.deleteIfExists(path);
+        }
+        return found;
+    }
+
+    /**
+     * Queues a record payload for the writer.
+     */
+    private void append(byte[] payload) {
+        if (!closed) {
+            queue.add(payload);
+        }
+    }
+
+    /**
+     * Writer loop: waits for work, then writes and syncs everything queued
+     * as one batch. Paths in the queue are deleted after the batch is on
+     * disk.
+     */
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(4096);
+        CRC32 crc = new CRC32();
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            // Created and locked under a name recover() does not look at, then renamed into place,
+            // so recover() never sees the log unlocked
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                Files.deleteIfExists(temp);
+                throw new IOException("log is locked by another process");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            frames.write(MAGIC, 0, MAGIC.length);
+            writeVarint(frames, VERSION);
+            boolean done = false;
+            while (!done) {
+                batch.clear();
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                int count = 0;
+                for (Object item : batch) {
+                    if (item instanceof byte[]) {
+                        byte[] payload = (byte[]) item;
+                        crc.reset();
+                        crc.update(payload, 0, payload.length);
+                        int checksum = (int) crc.getValue();
+                        writeVarint(frames, payload.length);
+                        frames.write(payload, 0, payload.length);
+                        frames.write(checksum >>> 24);
+                        frames.write(checksum >>> 16);
+                        frames.write(checksum >>> 8);
+                        frames.write(checksum);
+                        count++;
+                    }
+                }
+                if (frames.size() > 0) {
+                    ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+                    frames.reset();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                    syncs.incrementAndGet();
+                }
+                records.addAndGet(count);
+                for (Object item : batch) {
+                    if (item == CLOSE) {
+                        done = true;
+                    } else if (item instanceof Path) {
+                        if (item.equals(file)) {
+                            channel.close();
+                        }
+                        Files.deleteIfExists((Path) item);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Write-ahead log disabled: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            queue.clear();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static byte[] setupRecord(GameConfig config, long startMillis) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(SETUP);
+        out.write(config.getBoardSize());
+        writeVarint(out, startMillis);
+        for (PlayerConfig player : new PlayerConfig[] { config.getPlayer1(), config.getPlayer2() }) {
+            writeString(out, player.getName());
+            int rgb = player.getColor().getRGB();
+            out.write(rgb >>> 16);
+            out.write(rgb >>> 8);
+            out.write(rgb);
+            writeString(out, player.getBotSpec() == null ? "" : player.getBotSpec());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,192 @@
+package com.mycompany.javagrid4.tournament;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.ai.EvalWeights;
+import com.mycompany.javagrid4.ai.Evaluator;
+import com.mycompany.javagrid4.ai.OpeningBook;
+import com.mycompany.javagrid4.ai.PatternEvaluator;
+import com.mycompany.javagrid4.ai.PatternTable;
+import com.mycompany.javagrid4.ai.SearchBot;
+import com.mycompany.javagrid4.bots.BotProvider;
+import com.mycompany.javagrid4.bots.BotRegistry;
+import com.mycompany.javagrid4.bots.TimedBot;
+import com.mycompany.javagrid4.protocol.EngineProtocol;
+import com.mycompany.javagrid4.protocol.ExternalEngineBot;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Textual description of a bot configuration, used to create fresh bot
+ * instances for each worker thread.
+ *
+ * Format: {@code search:depth=6,time=100,eval=pattern,weights=file,book=file}
+ * - depth: maximum search depth (default 4)
+ * - time: milliseconds per move, 0 for none (default 0)
+ * - eval: "pattern" (default) or "margin"
+ * - weights: evaluation weights file (default: built-in/startup weights)
+ * - book: opening book file, or "none" to play without one (default: the
+ *   default book, see {@link OpeningBook#loadDefault()})
+ *
+ * {@code engine:cmd=program args,time=100} runs an external engine process
+ * speaking the {@link EngineProtocol}; {@code engine:port=7070} connects to
+ * one listening on the loopback interface instead. time is the move time in
+ * milliseconds (default 100). External engines enforce their own move time
+ * and are never wrapped in a {@link TimedBot}.
+ *
+ * Any other kind names a plugin bot from the {@link BotRegistry}, e.g.
+ * {@code greedy:budget=500}; its options are passed to the provider.
+ * For every kind, {@code budget=ms} runs the bot through a {@link TimedBot}
+ * with that per-move budget. Plugin bots always get a budget
+ * (default {@value #DEFAULT_BUDGET} ms).
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class BotSpec {
+
+    /** Per-move budget in milliseconds for bots that need one but do not set it. */
+    public static final long DEFAULT_BUDGET = 1000;
+
+    private final String text;
+    private final String kind;
+    private final Map<String, String> options;
+    private volatile PatternTable patternTable;
+    private volatile OpeningBook book;
+
+    /**
+     * Parses a bot specification.
+     * @param text Specification string
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public BotSpec(String text) {
+        this.text = text;
+        int colon = text.indexOf(':');
+        this.kind = colon < 0 ? text : text.substring(0, colon);
+        this.options = new HashMap<>();
+        if (colon >= 0 && colon < text.length() - 1) {
+            for (String pair : text.substring(colon + 1).split(",")) {
+                int eq = pair.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Malformed bot option '" + pair + "' in " + text);
+                }
+                options.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        if (!"search".equals(kind) && !"engine".equals(kind) && BotRegistry.getDefault().find(kind) == null) {
+            throw new IllegalArgumentException("Unknown bot kind: " + kind
+                + " (available: search, engine" + (BotRegistry.getDefault().getIds().isEmpty() ? ""
+                : ", " + String.join(", ", BotRegistry.getDefault().getIds())) + ")");
+        }
+    }
+
+    /**
+     * Creates a new bot instance. Each thread should use its own instance.
+     * Bots with a budget are {@link TimedBot}s and should be closed after use,
+     * as should {@link ExternalEngineBot}s.
+     * @return Fresh bot
+     */
+    public Bot create() {
+        String budget = options.get("budget");
+        if ("search".equals(kind)) {
+            int depth = Integer.parseInt(options.getOrDefault("depth", "4"));
+            long time = Long.parseLong(options.getOrDefault("time", "0"));
+            Bot bot = new SearchBot(depth, time, book(), evaluator());
+            return budget == null ? bot : new TimedBot(bot, Long.parseLong(budget));
+        }
+        if ("engine".equals(kind)) {
+            return engine();
+        }
+        BotProvider provider = BotRegistry.getDefault().find(kind);
+        Map<String, String> pluginOptions = new HashMap<>(options);
+        pluginOptions.remove("budget");
+        return new TimedBot(provider.create(pluginOptions),
+            budget == null ? DEFAULT_BUDGET : Long.parseLong(budget));
+    }
+
+    /**
+     * Gets the bot kind ("search", "engine" or a plugin id).
+     * @return Kind
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the specification string.
+     * @return Original text
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private Bot engine() {
+        long time = Long.parseLong(options.getOrDefault("time", "100"));
+        String cmd = options.get("cmd");
+        String port = options.get("port");
+        try {
+            if (cmd != null) {
+                return ExternalEngineBot.launch(Arrays.asList(cmd.trim().split("\\s+")), time);
+            }
+            if (port != null) {
+                return ExternalEngineBot.connect(Integer.parseInt(port), time);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot start engine " + text + ": " + e.getMessage(), e);
+        }
+        throw new IllegalArgumentException("engine needs cmd= or port=: " + text);
+    }
+
+    private Evaluator evaluator() {
+        String eval = options.getOrDefault("eval", "pattern");
+        if ("margin".equals(eval)) {
+            return Evaluator.MARGIN;
+        }
+        if (!"pattern".equals(eval)) {
+            throw new IllegalArgumentException("Unknown evaluator: " + eval);
+        }
+        return new PatternEvaluator(patternTable());
+    }
+
+    private PatternTable patternTable() {
+        PatternTable table = patternTable;
+        if (table == null) {
+            synchronized (this) {
+                if (patternTable == null) {
+                    String weights = options.get("weights");
+                    try {
+                        patternTable = weights == null ? PatternTable.getDefault()
+                                : PatternTable.build(EvalWeights.load(Paths.get(weights)));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot read weights " + weights, e);
+                    }
+                }
+                table = patternTable;
+            }
+        }
+        return table;
+    }
+
+    private OpeningBook book() {
+        OpeningBook result = book;
+        if (result == null) {
+            synchronized (this) {
+                if (book == null) {
+                    String file = options.get("book");
+                    try {
+                        book = file == null ? OpeningBook.loadDefault()
+                                : "none".equals(file) ? OpeningBook.empty() : OpeningBook.open(Paths.get(file));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot open book " + file, e);
+                    }
+                }
+                result = book;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mycompany.javagrid4.tournament;
+
+/**
+ * Win/draw/loss tally with Elo difference, confidence interval and
+ * likelihood of superiority, all from the first bot's point of view.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class EloStats {
+
+    private static final double Z_95 = 1.959964;
+
+    private final long wins;
+    private final long draws;
+    private final long losses;
+
+    /**
+     * Creates a tally.
+     * @param wins Games won
+     * @param draws Games drawn
+     * @param losses Games lost
+     */
+    public EloStats(long wins, long draws, long losses) {
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    /**
+     * Gets the number of wins.
+     * @return Games won
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the number of draws.
+     * @return Games drawn
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the number of losses.
+     * @return Games lost
+     */
+    public long getLosses() {
+        return losses;
+    }
+
+    /**
+     * Gets the total number of games.
+     * @return Games played
+     */
+    public long getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Gets the mean score per game (win = 1, draw = 0.5).
+     * @return Score fraction in [0, 1]
+     */
+    public double getScore() {
+        long games = getGames();
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /**
+     * Gets the per-game variance of the score.
+     * @return Variance
+     */
+    public double getVariance() {
+        long games = getGames();
+        if (games == 0) {
+            return 0;
+        }
+        double s = getScore();
+        return (wins * sq(1 - s) + draws * sq(0.5 - s) + losses * sq(s)) / games;
+    }
+
+    /**
+     * Gets the Elo difference implied by the score.
+     * @return Elo difference (infinite for a clean sweep)
+     */
+    public double getElo() {
+        return scoreToElo(getScore());
+    }
+
+    /**
+     * Gets the 95% confidence margin of the Elo difference.
+     * @return Half-width of the interval in Elo
+     */
+    public double getEloMargin() {
+        long games = getGames();
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double s = getScore();
+        double deviation = Math.sqrt(getVariance() / games);
+        double low = scoreToElo(s - Z_95 * deviation);
+        double high = scoreToElo(s + Z_95 * deviation);
+        double margin = (high - low) / 2;
+        return Double.isNaN(margin) ? Double.POSITIVE_INFINITY : margin;
+    }
+
+    /**
+     * Gets the likelihood of superiority: probability the first bot is
+     * genuinely stronger, ignoring draws.
+     * @return Probability in [0, 1]
+     */
+    public double getLikelihoodOfSuperiority() {
+        if (wins + losses == 0) {
+            return 0.5;
+        }
+        return 0.5 * (1 + erf((wins - losses) / Math.sqrt(2.0 * (wins + losses))));
+    }
+
+    /**
+     * Converts a score fraction to an Elo difference.
+     * @param score Score in [0, 1]
+     * @return Elo difference
+     */
+    public static double scoreToElo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400.0 * Math.log10(1.0 / score - 1.0);
+    }
+
+    /**
+     * Converts an Elo difference to an expected score.
+     * @param elo Elo difference
+     * @return Expected score in (0, 1)
+     */
+    public static double eloToScore(double elo) {
+        return 1.0 / (1.0 + Math.pow(10.0, -elo / 400.0));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("W %d  D %d  L %d  Elo %+.1f +/- %.1f  LOS %.1f%%",
+            wins, draws, losses, getElo(), getEloMargin(), 100 * getLikelihoodOfSuperiority());
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+
+    /**
+     * Error function (Abramowitz and Stegun 7.1.26, max error 1.5e-7).
+     */
+    private static double erf(double x) {
+        double t = 1.0 / (1.0 + 0.3275911 * Math.abs(x));
+        double y = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t
+                - 0.284496736) * t + 0.254829592) * t * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+}
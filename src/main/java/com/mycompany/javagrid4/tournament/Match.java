@@ -0,0 +1,41 @@
+package com.mycompany.javagrid4.tournament;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+/**
+ * Plays a single bot-vs-bot game on a {@link CompactBoard}.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Match {
+
+    private Match() {
+    }
+
+    /**
+     * Plays a game to the end from a starting position.
+     * A bot that returns an illegal move loses immediately.
+     *
+     * @param start Starting position (not modified)
+     * @param player1 Bot playing Player 1
+     * @param player2 Bot playing Player 2
+     * @return Final margin from Player 1's point of view; a forfeit counts
+     *         as a margin of -(cells) or +(cells)
+     */
+    public static int play(CompactBoard start, Bot player1, Bot player2) {
+        CompactBoard board = start.copy();
+        board.clearHistory();
+        while (!board.isGameOver()) {
+            Bot mover = board.getSide() == 0 ? player1 : player2;
+            int move = mover.chooseMove(board);
+            if (!board.isLegal(move)) {
+                int forfeit = board.getCellCount();
+                return board.getSide() == 0 ? -forfeit : forfeit;
+            }
+            board.applyMove(move);
+        }
+        return board.getScore(0) - board.getScore(1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.javagrid4.tournament;
+
+import com.mycompany.javagrid4.board.BoardSymmetry;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Fixed set of distinct opening positions generated from a seed.
+ * Every run with the same seed plays exactly the same openings, so
+ * results of different bot versions are comparable.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class OpeningSuite {
+
+    private final List<CompactBoard> positions;
+
+    private OpeningSuite(List<CompactBoard> positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Generates openings by playing random legal moves.
+     * Openings that are symmetric to one already chosen are skipped.
+     *
+     * @param size Board size
+     * @param count Number of openings wanted
+     * @param plies Random moves per opening
+     * @param seed Random seed
+     * @return Opening suite (may be smaller than count on tiny boards)
+     */
+    public static OpeningSuite generate(int size, int count, int plies, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<CompactBoard> positions = new ArrayList<>(count);
+        Set<Long> seen = new HashSet<>();
+        int[] moves = new int[size * size];
+        int attempts = 0;
+        while (positions.size() < count && attempts++ < count * 100) {
+            CompactBoard board = new CompactBoard(size);
+            for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+                int n = board.legalMoves(moves);
+                board.applyMove(moves[random.nextInt(n)]);
+            }
+            if (!board.isGameOver() && seen.add(BoardSymmetry.canonicalHash(board))) {
+                board.clearHistory();
+                positions.add(board);
+            }
+        }
+        return new OpeningSuite(positions);
+    }
+
+    /**
+     * Gets the number of openings.
+     * @return Opening count
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Gets an opening position.
+     * @param index Opening index
+     * @return Shared position; copy before modifying
+     */
+    public CompactBoard get(int index) {
+        return positions.get(index);
+    }
+}
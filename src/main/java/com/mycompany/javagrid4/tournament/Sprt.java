@@ -0,0 +1,95 @@
+package com.mycompany.javagrid4.tournament;
+
+/**
+ * Sequential probability ratio test between two Elo hypotheses.
+ *
+ * H0: the Elo difference is elo0; H1: it is elo1. The log-likelihood
+ * ratio uses the usual normal approximation of the trinomial (W/D/L)
+ * model, so the test can be evaluated after every game in O(1).
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class Sprt {
+
+    /** Outcome of a test evaluation. */
+    public enum Decision {
+        CONTINUE, ACCEPT_H0, ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * Creates a test.
+     * @param elo0 Elo difference under H0
+     * @param elo1 Elo difference under H1
+     * @param alpha False-positive rate
+     * @param beta False-negative rate
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Computes the log-likelihood ratio for the current tally.
+     * @param stats Current results
+     * @return LLR (positive favours H1)
+     */
+    public double llr(EloStats stats) {
+        long games = stats.getGames();
+        if (games == 0) {
+            return 0;
+        }
+        // A clean sweep has zero sample variance; floor it at the variance
+        // one dissenting game would add so lopsided matches still stop early
+        double variance = Math.max(stats.getVariance(), 0.25 / games);
+        double s0 = EloStats.eloToScore(elo0);
+        double s1 = EloStats.eloToScore(elo1);
+        double s = stats.getScore();
+        return games * (s1 - s0) * (2 * s - s0 - s1) / (2 * variance);
+    }
+
+    /**
+     * Evaluates the test.
+     * @param stats Current results
+     * @return Decision
+     */
+    public Decision evaluate(EloStats stats) {
+        double llr = llr(stats);
+        if (llr >= upperBound) {
+            return Decision.ACCEPT_H1;
+        }
+        if (llr <= lowerBound) {
+            return Decision.ACCEPT_H0;
+        }
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * Gets the LLR bound for accepting H0.
+     * @return Lower bound
+     */
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Gets the LLR bound for accepting H1.
+     * @return Upper bound
+     */
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SPRT[elo0=%.1f, elo1=%.1f, bounds=(%.2f, %.2f)]",
+            elo0, elo1, lowerBound, upperBound);
+    }
+}
@@ -0,0 +1,235 @@
+package com.mycompany.javagrid4.tournament;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.bots.TimedBot;
+import com.mycompany.javagrid4.protocol.ExternalEngineBot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless bot-vs-bot tournament between two bot configurations.
+ *
+ * Games are played in pairs on a fixed opening suite: each opening is
+ * played once with each bot as Player 1, which cancels out any first-move
+ * advantage. Worker threads pull game numbers from a shared counter, so
+ * all cores stay busy until the game budget is used or the SPRT decides.
+ *
+ * Uses only {@link CompactBoard} and never touches Swing or AWT.
+ * Bots with a move budget run on their own threads (see {@link TimedBot}),
+ * so a slow plugin bot loses moves to the fallback instead of stalling
+ * the worker; their CPU time and timeouts are reported at the end.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.tournament.TournamentRunner \
+ *     --a search:depth=4 --b search:depth=3 --size 5 --games 2000 \
+ *     --sprt 0,10 --alpha 0.05 --beta 0.05
+ * </pre>
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class TournamentRunner {
+
+    private final BotSpec botA;
+    private final BotSpec botB;
+    private final OpeningSuite openings;
+    private final int maxGames;
+    private final int threads;
+    private final Sprt sprt;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private long wins;
+    private long draws;
+    private long losses;
+    private volatile boolean stopped;
+    private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+    private final long[] cpuNanos = new long[2];
+    private final long[] timeouts = new long[2];
+    private final long[] failures = new long[2];
+    private boolean timedBots;
+
+    /**
+     * Creates a tournament.
+     * @param botA First bot (results are reported from its point of view)
+     * @param botB Second bot
+     * @param openings Opening suite
+     * @param maxGames Maximum number of games (rounded up to an even number)
+     * @param threads Worker threads
+     * @param sprt Early-stopping test, or null to play all games
+     */
+    public TournamentRunner(BotSpec botA, BotSpec botB, OpeningSuite openings,
+                            int maxGames, int threads, Sprt sprt) {
+        if (openings.size() == 0) {
+            throw new IllegalArgumentException("Opening suite is empty");
+        }
+        this.botA = botA;
+        this.botB = botB;
+        this.openings = openings;
+        this.maxGames = maxGames + (maxGames & 1);
+        this.threads = threads;
+        this.sprt = sprt;
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args See class documentation
+     * @throws Exception if the tournament fails
+     */
+    public static void main(String[] args) throws Exception {
+        String a = "search:depth=4";
+        String b = "search:depth=3";
+        int size = 5;
+        int games = 1000;
+        int openingCount = 100;
+        int openingPlies = 4;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Sprt sprt = null;
+        double alpha = 0.05;
+        double beta = 0.05;
+        String sprtBounds = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--a": a = args[++i]; break;
+                case "--b": b = args[++i]; break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--openings": openingCount = Integer.parseInt(args[++i]); break;
+                case "--opening-plies": openingPlies = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--sprt": sprtBounds = args[++i]; break;
+                case "--alpha": alpha = Double.parseDouble(args[++i]); break;
+                case "--beta": beta = Double.parseDouble(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (sprtBounds != null) {
+            String[] bounds = sprtBounds.split(",");
+            sprt = new Sprt(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), alpha, beta);
+        }
+
+        OpeningSuite suite = OpeningSuite.generate(size, openingCount, openingPlies, seed);
+        TournamentRunner runner = new TournamentRunner(new BotSpec(a), new BotSpec(b),
+            suite, games, threads, sprt);
+        System.out.printf("%s vs %s on %dx%d, %d openings, up to %d games, %d threads%n",
+            a, b, size, size, suite.size(), runner.maxGames, threads);
+        if (sprt != null) {
+            System.out.println(sprt);
+        }
+        runner.run();
+    }
+
+    /**
+     * Runs the tournament, printing progress and a final report.
+     * @return Final results from the first bot's point of view
+     * @throws Exception if a worker fails
+     */
+    public EloStats run() throws Exception {
+        long start = System.nanoTime();
+        int reportEvery = Math.max(2, maxGames / 20);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> work(start, reportEvery)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        EloStats stats = snapshot();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Final: " + stats);
+        System.out.printf("%d games in %.1f s (%.1f games/s)%n",
+            stats.getGames(), seconds, stats.getGames() / seconds);
+        if (sprt != null) {
+            System.out.printf("SPRT: LLR %.2f %s%n", sprt.llr(stats), decision);
+        }
+        if (timedBots) {
+            System.out.printf("A: %.1f s CPU, %d timeouts, %d failures%n", cpuNanos[0] / 1e9, timeouts[0], failures[0]);
+            System.out.printf("B: %.1f s CPU, %d timeouts, %d failures%n", cpuNanos[1] / 1e9, timeouts[1], failures[1]);
+        }
+        return stats;
+    }
+
+    /**
+     * Worker loop: plays games until the budget is used or the test stops.
+     */
+    private void work(long start, int reportEvery) {
+        Bot a = botA.create();
+        Bot b = botB.create();
+        try {
+            while (!stopped) {
+                int game = nextGame.getAndIncrement();
+                if (game >= maxGames) {
+                    return;
+                }
+                CompactBoard opening = openings.get((game / 2) % openings.size());
+                boolean aFirst = (game & 1) == 0;
+                int margin = aFirst ? Match.play(opening, a, b) : -Match.play(opening, b, a);
+                record(margin, start, reportEvery);
+            }
+        } finally {
+            retire(a, 0);
+            retire(b, 1);
+        }
+    }
+
+    /**
+     * Closes a worker's timed or external bot and adds its accounting to the totals.
+     * CPU time of an external engine runs in another process and is not counted.
+     */
+    private synchronized void retire(Bot bot, int index) {
+        if (bot instanceof TimedBot) {
+            TimedBot timed = (TimedBot) bot;
+            timed.close();
+            timedBots = true;
+            cpuNanos[index] += timed.getCpuNanos();
+            timeouts[index] += timed.getTimeouts();
+            failures[index] += timed.getFailures();
+        } else if (bot instanceof ExternalEngineBot) {
+            ExternalEngineBot engine = (ExternalEngineBot) bot;
+            engine.close();
+            timedBots = true;
+            timeouts[index] += engine.getTimeouts();
+        }
+    }
+
+    private synchronized void record(int margin, long start, int reportEvery) {
+        if (margin > 0) {
+            wins++;
+        } else if (margin < 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        EloStats stats = snapshot();
+        long played = stats.getGames();
+        if (played % reportEvery == 0) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%6d  %s  %.1f games/s%n", played, stats, played / seconds);
+        }
+        if (sprt != null && !stopped) {
+            decision = sprt.evaluate(stats);
+            if (decision != Sprt.Decision.CONTINUE) {
+                stopped = true;
+            }
+        }
+    }
+
+    private synchronized EloStats snapshot() {
+        return new EloStats(wins, draws, losses);
+    }
+}
@@ -0,0 +1,258 @@
+package com.mycompany.javagrid4.tuning;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by {@link DatasetWriter}.
+ *
+ * Opening the file walks the block headers once to build a block index.
+ * Blocks are then handed out to worker threads, each with its own
+ * buffers, inflater and record view, and read with positional channel
+ * reads, so decoding scales with cores and allocates nothing per record.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class DatasetReader implements Closeable {
+
+    /**
+     * Receives decoded records. The record view is reused, so visitors must
+     * copy anything they keep.
+     */
+    public interface Visitor {
+        /**
+         * Handles one record.
+         * @param record Decoded record (valid only during the call)
+         */
+        void visit(DatasetRecord record);
+    }
+
+    private final FileChannel channel;
+    private final int blockRecords;
+    private final long[] offsets;
+    private final long recordCount;
+
+    /**
+     * Opens a dataset and indexes its blocks.
+     * @param path Dataset file
+     * @throws IOException if the file cannot be read or is not a dataset
+     */
+    public DatasetReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(DatasetWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            if (header.getInt(0) != DatasetWriter.MAGIC) {
+                throw new IOException("Not a JavaGrid4 dataset: " + path);
+            }
+            if (header.getShort(4) != DatasetWriter.VERSION || header.get(7) != DatasetRecord.SIZE) {
+                throw new IOException("Unsupported dataset version " + header.getShort(4));
+            }
+            blockRecords = header.getInt(8);
+
+            List<Long> index = new ArrayList<>();
+            ByteBuffer blockHeader = ByteBuffer.allocate(DatasetWriter.BLOCK_HEADER_SIZE)
+                                               .order(ByteOrder.LITTLE_ENDIAN);
+            long position = DatasetWriter.HEADER_SIZE;
+            long size = channel.size();
+            long total = 0;
+            while (position < size) {
+                blockHeader.clear();
+                readFully(blockHeader, position);
+                int count = blockHeader.getInt(0);
+                int stored = blockHeader.getInt(8);
+                if (count <= 0 || count > blockRecords || stored < 0
+                        || position + DatasetWriter.BLOCK_HEADER_SIZE + stored > size) {
+                    throw new IOException("Truncated or corrupt block at offset " + position);
+                }
+                index.add(position);
+                total += count;
+                position += DatasetWriter.BLOCK_HEADER_SIZE + stored;
+            }
+            offsets = new long[index.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.get(i);
+            }
+            recordCount = total;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of records in the file.
+     * @return Record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the number of blocks in the file.
+     * @return Block count
+     */
+    public int getBlockCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Visits every record in file order on the calling thread.
+     * @param visitor Record handler
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    public void forEach(Visitor visitor) throws IOException {
+        BlockDecoder decoder = new BlockDecoder();
+        try {
+            for (int b = 0; b < offsets.length; b++) {
+                decoder.decode(b, visitor);
+            }
+        } finally {
+            decoder.end();
+        }
+    }
+
+    /**
+     * Visits every record using several threads. Each thread gets its own
+     * visitor from the factory; blocks are visited in no particular order.
+     *
+     * @param threads Worker threads
+     * @param visitors Creates one visitor per thread
+     * @param <V> Visitor type
+     * @return The visitors used, for the caller to merge
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    public <V extends Visitor> List<V> read(int threads, Supplier<V> visitors) throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<V> used = new ArrayList<>(threads);
+            List<Future<?>> parts = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                V visitor = visitors.get();
+                used.add(visitor);
+                parts.add(pool.submit(() -> {
+                    BlockDecoder decoder = new BlockDecoder();
+                    try {
+                        int b;
+                        while ((b = next.getAndIncrement()) < offsets.length) {
+                            decoder.decode(b, visitor);
+                        }
+                    } finally {
+                        decoder.end();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> part : parts) {
+                try {
+                    part.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading dataset", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Dataset reader failed", e.getCause());
+                }
+            }
+            return used;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of dataset at offset " + position);
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Per-thread block buffers and decoder state.
+     */
+    private final class BlockDecoder {
+        private final ByteBuffer stored = ByteBuffer.allocate(
+            DatasetWriter.BLOCK_HEADER_SIZE + blockRecords * DatasetRecord.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final byte[] raw = new byte[blockRecords * DatasetRecord.SIZE];
+        private final ByteBuffer rawView = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        private final Inflater inflater = new Inflater();
+        private final CRC32 crc = new CRC32();
+        private final DatasetRecord record = new DatasetRecord();
+
+        void decode(int b, Visitor visitor) throws IOException {
+            stored.clear();
+            readFully(stored.limit(DatasetWriter.BLOCK_HEADER_SIZE), offsets[b]);
+            int count = stored.getInt(0);
+            int method = stored.getInt(4);
+            int storedLength = stored.getInt(8);
+            int checksum = stored.getInt(12);
+            int length = count * DatasetRecord.SIZE;
+            if (storedLength > raw.length) {
+                throw new IOException("Corrupt block " + b);
+            }
+
+            stored.clear();
+            readFully(stored.limit(storedLength), offsets[b] + DatasetWriter.BLOCK_HEADER_SIZE);
+            if (method == DatasetWriter.METHOD_STORED) {
+                System.arraycopy(stored.array(), 0, raw, 0, length);
+            } else if (method == DatasetWriter.METHOD_DEFLATE) {
+                inflater.reset();
+                inflater.setInput(stored.array(), 0, storedLength);
+                try {
+                    if (inflater.inflate(raw, 0, length) != length) {
+                        throw new IOException("Block " + b + " is shorter than its record count");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Block " + b + " is not valid deflate data", e);
+                }
+            } else {
+                throw new IOException("Unknown block method " + method);
+            }
+            crc.reset();
+            crc.update(raw, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in block " + b);
+            }
+
+            for (int offset = 0; offset < length; offset += DatasetRecord.SIZE) {
+                record.load(rawView, offset);
+                visitor.visit(record);
+            }
+        }
+
+        /**
+         * Frees the inflater's native memory; the decoder is unusable after.
+         */
+        void end() {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.Player;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary encoding of one dataset position.
+ *
+ * Layout ({@value #SIZE} bytes, little-endian):
+ * <pre>
+ * 0   3 longs   cell codes, 3 bits each, 21 cells per long (row-major)
+ * 24  byte      board size
+ * 25  byte      side to move (0 = Player 1, 1 = Player 2)
+ * 26  byte      Player 1 score
+ * 27  byte      Player 2 score
+ * 28  byte      result for the side to move ({@link #LOSS}, {@link #DRAW}, {@link #WIN})
+ * 29  byte      reserved (0)
+ * 30  short     search eval for the side to move in hundredths of a point,
+ *               or {@link #NO_EVAL}
+ * </pre>
+ *
+ * The static methods encode straight into a buffer; an instance is a
+ * reusable view that decodes one record at a time, so neither direction
+ * allocates per position.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class DatasetRecord {
+
+    /** Record size in bytes. */
+    public static final int SIZE = 32;
+    /** Result codes, from the side to move's point of view. */
+    public static final int LOSS = 0;
+    public static final int DRAW = 1;
+    public static final int WIN = 2;
+    /** Eval value for positions that were not searched. */
+    public static final int NO_EVAL = Short.MIN_VALUE;
+
+    private static final int CELLS_PER_WORD = 21;
+    private static final int WORDS = 3;
+    private static final int SIZE_OFFSET = 24;
+    private static final int RESULT_OFFSET = 28;
+    private static final int EVAL_OFFSET = 30;
+
+    private final long[] words = new long[WORDS];
+    private int size;
+    private int side;
+    private int score1;
+    private int score2;
+    private int result;
+    private int eval;
+
+    /**
+     * Appends a position at the buffer's position and advances it.
+     * The result is left as {@link #DRAW} until {@link #setResult} is called.
+     * @param board Position
+     * @param eval Eval for the side to move, or {@link #NO_EVAL}
+     * @param out Little-endian buffer with at least {@value #SIZE} bytes remaining
+     */
+    public static void encode(CompactBoard board, int eval, ByteBuffer out) {
+        int cellCount = board.getCellCount();
+        for (int w = 0; w < WORDS; w++) {
+            long word = 0;
+            int first = w * CELLS_PER_WORD;
+            int last = Math.min(cellCount, first + CELLS_PER_WORD);
+            for (int cell = first; cell < last; cell++) {
+                word |= (long) board.getCode(cell) << ((cell - first) * 3);
+            }
+            out.putLong(word);
+        }
+        out.put((byte) board.getSize());
+        out.put((byte) board.getSide());
+        out.put((byte) board.getScore(0));
+        out.put((byte) board.getScore(1));
+        out.put((byte) DRAW);
+        out.put((byte) 0);
+        out.putShort(clampEval(eval));
+    }
+
+    /**
+     * Overwrites the result of an encoded record.
+     * @param buffer Buffer holding the record
+     * @param offset Record start
+     * @param result {@link #LOSS}, {@link #DRAW} or {@link #WIN}
+     */
+    public static void setResult(ByteBuffer buffer, int offset, int result) {
+        buffer.put(offset + RESULT_OFFSET, (byte) result);
+    }
+
+    /**
+     * Overwrites the eval of an encoded record.
+     * @param buffer Buffer holding the record
+     * @param offset Record start
+     * @param eval Eval for the side to move, or {@link #NO_EVAL}
+     */
+    public static void setEval(ByteBuffer buffer, int offset, int eval) {
+        buffer.putShort(offset + EVAL_OFFSET, clampEval(eval));
+    }
+
+    /**
+     * Decodes the record at an absolute offset into this view.
+     * @param buffer Little-endian buffer
+     * @param offset Record start
+     */
+    public void load(ByteBuffer buffer, int offset) {
+        for (int w = 0; w < WORDS; w++) {
+            words[w] = buffer.getLong(offset + w * 8);
+        }
+        size = buffer.get(offset + SIZE_OFFSET);
+        side = buffer.get(offset + SIZE_OFFSET + 1);
+        score1 = buffer.get(offset + SIZE_OFFSET + 2);
+        score2 = buffer.get(offset + SIZE_OFFSET + 3);
+        result = buffer.get(offset + RESULT_OFFSET);
+        eval = buffer.getShort(offset + EVAL_OFFSET);
+    }
+
+    /**
+     * Gets the board size.
+     * @return 3, 5 or 7
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the side to move.
+     * @return 0 for Player 1, 1 for Player 2
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * Gets a player's score.
+     * @param sideIndex 0 for Player 1, 1 for Player 2
+     * @return Score
+     */
+    public int getScore(int sideIndex) {
+        return sideIndex == 0 ? score1 : score2;
+    }
+
+    /**
+     * Gets the game result for the side to move.
+     * @return {@link #LOSS}, {@link #DRAW} or {@link #WIN}
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the search eval for the side to move.
+     * @return Eval in hundredths of a point, or {@link #NO_EVAL}
+     */
+    public int getEval() {
+        return eval;
+    }
+
+    /**
+     * Gets a cell code.
+     * @param cell Cell index
+     * @return Code as in {@link CompactBoard#getCode(int)}
+     */
+    public int getCode(int cell) {
+        return (int) (words[cell / CELLS_PER_WORD] >>> ((cell % CELLS_PER_WORD) * 3)) & 7;
+    }
+
+    /**
+     * Loads the position into a board of the same size.
+     * @param board Board to overwrite (history is cleared)
+     * @throws IllegalArgumentException if the board has a different size
+     */
+    public void toBoard(CompactBoard board) {
+        if (board.getSize() != size) {
+            throw new IllegalArgumentException("Record is " + size + "x" + size
+                + " but board is " + board.getSize() + "x" + board.getSize());
+        }
+        board.reset();
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            board.setCode(cell, getCode(cell));
+        }
+        board.setScores(score1, score2);
+        board.setSideToMove(side == 0 ? Player.PLAYER_ONE : Player.PLAYER_TWO);
+        board.clearHistory();
+    }
+
+    private static short clampEval(int eval) {
+        if (eval == NO_EVAL) {
+            return Short.MIN_VALUE;
+        }
+        return (short) Math.max(Short.MIN_VALUE + 1, Math.min(Short.MAX_VALUE, eval));
+    }
+}
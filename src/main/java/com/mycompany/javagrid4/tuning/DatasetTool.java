@@ -0,0 +1,133 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.tournament.BotSpec;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Command-line front end for self-play datasets.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.tuning.DatasetTool \
+ *     --out selfplay.jg4d --size 5 --games 100000 --bot search:depth=3 [--no-compress]
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.tuning.DatasetTool --read selfplay.jg4d
+ * </pre>
+ * Writing plays the games and streams every position to the file;
+ * reading decodes the file in parallel and prints a summary.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class DatasetTool {
+
+    /**
+     * Command-line entry point.
+     * @param args --out FILE | --read FILE, --size N, --games G, --bot SPEC,
+     *             --random-plies P, --threads T, --seed S, --no-compress
+     * @throws Exception if generation, writing or reading fails
+     */
+    public static void main(String[] args) throws Exception {
+        int size = 5;
+        int games = 10000;
+        String bot = "search:depth=2";
+        int randomPlies = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        boolean compress = true;
+        Path out = null;
+        Path in = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out": out = Paths.get(args[++i]); break;
+                case "--read": in = Paths.get(args[++i]); break;
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--bot": bot = args[++i]; break;
+                case "--random-plies": randomPlies = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--no-compress": compress = false; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if ((out == null) == (in == null)) {
+            throw new IllegalArgumentException("Give exactly one of --out FILE or --read FILE");
+        }
+
+        if (out != null) {
+            System.out.println("Writing " + games + " games of " + bot + " on " + size + "x" + size
+                + " to " + out + (compress ? " (deflate)" : ""));
+            long start = System.nanoTime();
+            long positions;
+            DatasetWriter writer = new DatasetWriter(out, compress);
+            try (writer) {
+                positions = new SelfPlayGenerator(new BotSpec(bot), size, randomPlies, threads, seed)
+                    .generate(games, writer);
+            }
+            // Read once closed, so the last block is counted
+            long bytes = writer.getBytesWritten();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d positions, %.1f bytes each, in %.1f s (%.0f positions/s)%n",
+                positions, (double) bytes / Math.max(1, positions), seconds, positions / seconds);
+        } else {
+            summarize(in, threads);
+        }
+    }
+
+    /**
+     * Reads a dataset in parallel and prints result and eval statistics.
+     */
+    private static void summarize(Path path, int threads) throws Exception {
+        long start = System.nanoTime();
+        try (DatasetReader reader = new DatasetReader(path)) {
+            List<Summary> parts = reader.read(threads, Summary::new);
+            Summary total = new Summary();
+            for (Summary part : parts) {
+                total.add(part);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d positions in %d blocks, read in %.2f s (%.0f positions/s)%n",
+                total.count, reader.getBlockCount(), seconds, total.count / seconds);
+            System.out.printf("Results for side to move: %d wins, %d draws, %d losses%n",
+                total.results[DatasetRecord.WIN], total.results[DatasetRecord.DRAW],
+                total.results[DatasetRecord.LOSS]);
+            if (total.evaluated > 0) {
+                System.out.printf("Mean eval %.2f points over %d searched positions%n",
+                    total.evalSum / 100.0 / total.evaluated, total.evaluated);
+            }
+        }
+    }
+
+    /**
+     * Per-thread totals.
+     */
+    private static final class Summary implements DatasetReader.Visitor {
+        long count;
+        final long[] results = new long[3];
+        long evaluated;
+        long evalSum;
+
+        @Override
+        public void visit(DatasetRecord record) {
+            count++;
+            results[record.getResult()]++;
+            if (record.getEval() != DatasetRecord.NO_EVAL) {
+                evaluated++;
+                evalSum += record.getEval();
+            }
+        }
+
+        void add(Summary other) {
+            count += other.count;
+            for (int i = 0; i < results.length; i++) {
+                results[i] += other.results[i];
+            }
+            evaluated += other.evaluated;
+            evalSum += other.evalSum;
+        }
+    }
+}
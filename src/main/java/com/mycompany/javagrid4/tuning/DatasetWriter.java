@@ -0,0 +1,198 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streams {@link DatasetRecord}s to a block file.
+ *
+ * File layout (little-endian):
+ * <pre>
+ * header  int magic 'JG4D', short version, byte flags, byte record size,
+ *         int records per block, int reserved
+ * block   int record count, int method (0 stored, 1 deflate),
+ *         int stored length, int CRC32 of the raw records, stored bytes
+ * </pre>
+ * Records collect in one block buffer that is written with a single
+ * channel write when full, deflated first if compression is on. A block
+ * that does not shrink is stored raw. Blocks are independent, which lets
+ * {@link DatasetReader} decode them in parallel.
+ *
+ * Writes are synchronized, so self-play workers can share one writer;
+ * they should hand over whole games with {@link #write(ByteBuffer)}.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class DatasetWriter implements Closeable {
+
+    static final int MAGIC = 0x4434474A; // "JG4D" little-endian
+    static final short VERSION = 1;
+    static final int FLAG_DEFLATE = 1;
+    static final int HEADER_SIZE = 16;
+    static final int BLOCK_HEADER_SIZE = 16;
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATE = 1;
+
+    /** Records per block unless configured otherwise (128 KiB raw). */
+    public static final int DEFAULT_BLOCK_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final byte[] raw;
+    private final ByteBuffer block;
+    private final byte[] packed;
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private long records;
+    private long bytesWritten;
+
+    /**
+     * Creates a writer with the default block size, replacing any existing file.
+     * @param path Output file
+     * @param compress Whether to deflate blocks
+     * @throws IOException if the file cannot be created
+     */
+    public DatasetWriter(Path path, boolean compress) throws IOException {
+        this(path, compress, DEFAULT_BLOCK_RECORDS);
+    }
+
+    /**
+     * Creates a writer, replacing any existing file.
+     * @param path Output file
+     * @param compress Whether to deflate blocks
+     * @param blockRecords Records per block
+     * @throws IOException if the file cannot be created
+     */
+    public DatasetWriter(Path path, boolean compress, int blockRecords) throws IOException {
+        if (blockRecords <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.raw = new byte[blockRecords * DatasetRecord.SIZE];
+        this.block = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.packed = compress ? new byte[raw.length] : null;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).put((byte) (compress ? FLAG_DEFLATE : 0))
+              .put((byte) DatasetRecord.SIZE).putInt(blockRecords).putInt(0).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Appends one position.
+     * @param board Position
+     * @param eval Eval for the side to move, or {@link DatasetRecord#NO_EVAL}
+     * @param result Result for the side to move
+     * @throws IOException if a full block cannot be written
+     */
+    public synchronized void write(CompactBoard board, int eval, int result) throws IOException {
+        int offset = block.position();
+        DatasetRecord.encode(board, eval, block);
+        DatasetRecord.setResult(block, offset, result);
+        records++;
+        if (!block.hasRemaining()) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Appends pre-encoded records (from position to limit of the buffer).
+     * @param encoded Buffer holding whole records; its position is advanced to the limit
+     * @throws IOException if a full block cannot be written
+     */
+    public synchronized void write(ByteBuffer encoded) throws IOException {
+        if (encoded.remaining() % DatasetRecord.SIZE != 0) {
+            throw new IllegalArgumentException("Buffer does not hold whole records");
+        }
+        records += encoded.remaining() / DatasetRecord.SIZE;
+        while (encoded.hasRemaining()) {
+            int n = Math.min(encoded.remaining(), block.remaining());
+            encoded.get(raw, block.position(), n);
+            block.position(block.position() + n);
+            if (!block.hasRemaining()) {
+                flushBlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of records written so far.
+     * @return Record count
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Gets the number of file bytes written so far (excluding the open block).
+     * @return Byte count
+     */
+    public synchronized long getBytesWritten() {
+        return HEADER_SIZE + bytesWritten;
+    }
+
+    /**
+     * Writes the last partial block and closes the file.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (block.position() > 0) {
+                flushBlock();
+            }
+        } finally {
+            channel.close();
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int length = block.position();
+        crc.reset();
+        crc.update(raw, 0, length);
+
+        int method = METHOD_STORED;
+        byte[] payload = raw;
+        int stored = length;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            int n = deflater.deflate(packed, 0, packed.length);
+            if (deflater.finished() && n < length) {
+                method = METHOD_DEFLATE;
+                payload = packed;
+                stored = n;
+            }
+        }
+
+        blockHeader.clear();
+        blockHeader.putInt(length / DatasetRecord.SIZE).putInt(method).putInt(stored)
+                   .putInt((int) crc.getValue()).flip();
+        writeFully(blockHeader, ByteBuffer.wrap(payload, 0, stored));
+        bytesWritten += BLOCK_HEADER_SIZE + stored;
+        block.clear();
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+}
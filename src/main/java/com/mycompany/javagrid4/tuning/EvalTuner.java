@@ -0,0 +1,216 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.ai.EvalWeights;
+import com.mycompany.javagrid4.tournament.BotSpec;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Texel-style tuner for {@link EvalWeights}.
+ *
+ * The evaluation is linear in its weights, so predicting a game result is
+ * logistic regression: result ≈ sigmoid(K · w·x). The tuner first fits the
+ * scale K for the starting weights, then minimises the mean squared
+ * prediction error with Adam. Loss and gradient are computed in parallel
+ * over fixed-size chunks of the primitive dataset.
+ *
+ * Usage:
+ * <pre>
+ * java -cp JavaGrid4.jar com.mycompany.javagrid4.tuning.EvalTuner \
+ *     --size 5 --games 5000 --bot search:depth=2 --out javagrid4-weights.properties
+ * </pre>
+ * The evaluator picks the written file up at startup.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class EvalTuner {
+
+    private static final int CHUNK = 4096;
+    private static final int WIDTH = EvalWeights.COUNT;
+
+    private final TrainingSet data;
+    private final ForkJoinPool pool;
+    private double scale;
+
+    /**
+     * Creates a tuner over a dataset.
+     * @param data Labelled positions
+     * @param threads Threads used for the loss computation
+     */
+    public EvalTuner(TrainingSet data, int threads) {
+        this.data = data;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Command-line entry point.
+     * @param args --size N, --games G, --bot SPEC, --random-plies P,
+     *             --iterations I, --rate R, --threads T, --seed S, --out FILE
+     * @throws Exception if generation, tuning or writing fails
+     */
+    public static void main(String[] args) throws Exception {
+        int size = 5;
+        int games = 2000;
+        String bot = "search:depth=2";
+        int randomPlies = 4;
+        int iterations = 2000;
+        double rate = 1.0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        Path out = Paths.get("javagrid4-weights.properties");
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(args[++i]); break;
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--bot": bot = args[++i]; break;
+                case "--random-plies": randomPlies = Integer.parseInt(args[++i]); break;
+                case "--iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "--rate": rate = Double.parseDouble(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        SelfPlayGenerator generator = new SelfPlayGenerator(new BotSpec(bot), size, randomPlies, threads, seed);
+        TrainingSet data = generator.generate(games);
+        System.out.printf("Generated %d positions from %d games in %.1f s%n",
+            data.size(), games, (System.nanoTime() - start) / 1e9);
+
+        EvalTuner tuner = new EvalTuner(data, threads);
+        EvalWeights initial = EvalWeights.loadDefault();
+        double k = tuner.fitScale(initial.toArray());
+        System.out.printf("Scale K = %.6f, initial loss %.6f%n", k, tuner.loss(initial.toArray(), null));
+
+        EvalWeights tuned = tuner.tune(initial, iterations, rate);
+        System.out.printf("Tuned loss %.6f: %s%n", tuner.loss(tuned.toArray(), null), tuned);
+        tuned.save(out, String.format("Tuned on %d positions (%dx%d, %s)", data.size(), size, size, bot));
+        System.out.println("Wrote " + out);
+    }
+
+    /**
+     * Fits the sigmoid scale K for fixed weights by golden-section search.
+     * @param weights Weights to score positions with
+     * @return Fitted scale (also used by later loss calls)
+     */
+    public double fitScale(double[] weights) {
+        double low = 1e-5;
+        double high = 1e-1;
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        // Search in log space: sensible scales span several orders of magnitude
+        double a = Math.log(low);
+        double b = Math.log(high);
+        for (int i = 0; i < 60; i++) {
+            double c = b - ratio * (b - a);
+            double d = a + ratio * (b - a);
+            scale = Math.exp(c);
+            double lossC = loss(weights, null);
+            scale = Math.exp(d);
+            double lossD = loss(weights, null);
+            if (lossC < lossD) {
+                b = d;
+            } else {
+                a = c;
+            }
+        }
+        scale = Math.exp((a + b) / 2);
+        return scale;
+    }
+
+    /**
+     * Minimises the prediction error with Adam.
+     * @param initial Starting weights
+     * @param iterations Optimisation steps
+     * @param rate Learning rate
+     * @return Tuned weights
+     */
+    public EvalWeights tune(EvalWeights initial, int iterations, double rate) {
+        double[] w = initial.toArray();
+        double[] gradient = new double[WIDTH];
+        double[] m = new double[WIDTH];
+        double[] v = new double[WIDTH];
+        double beta1 = 0.9;
+        double beta2 = 0.999;
+        for (int step = 1; step <= iterations; step++) {
+            double loss = loss(w, gradient);
+            for (int f = 0; f < WIDTH; f++) {
+                m[f] = beta1 * m[f] + (1 - beta1) * gradient[f];
+                v[f] = beta2 * v[f] + (1 - beta2) * gradient[f] * gradient[f];
+                double mHat = m[f] / (1 - Math.pow(beta1, step));
+                double vHat = v[f] / (1 - Math.pow(beta2, step));
+                w[f] -= rate * mHat / (Math.sqrt(vHat) + 1e-12);
+            }
+            if (step % 200 == 0 || step == iterations) {
+                System.out.printf("  step %5d  loss %.6f%n", step, loss);
+            }
+        }
+        return new EvalWeights(w);
+    }
+
+    /**
+     * Computes the mean squared error of sigmoid(K · w·x) against the labels,
+     * and optionally its gradient, in parallel over chunks.
+     *
+     * @param weights Weights
+     * @param gradient Output gradient, or null to skip it
+     * @return Mean squared error
+     */
+    public double loss(double[] weights, double[] gradient) {
+        int rows = data.size();
+        if (rows == 0) {
+            return 0;
+        }
+        int chunks = (rows + CHUNK - 1) / CHUNK;
+        boolean wantGradient = gradient != null;
+        double[] total = pool.submit(() -> IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> lossChunk(weights, chunk * CHUNK, Math.min(rows, (chunk + 1) * CHUNK), wantGradient))
+            .reduce(new double[WIDTH + 1], EvalTuner::sum)).join();
+        if (wantGradient) {
+            for (int f = 0; f < WIDTH; f++) {
+                gradient[f] = total[f + 1] / rows;
+            }
+        }
+        return total[0] / rows;
+    }
+
+    /**
+     * Sums squared error (index 0) and gradient (indexes 1..) over a row range.
+     */
+    private double[] lossChunk(double[] weights, int from, int to, boolean wantGradient) {
+        float[] features = data.features();
+        float[] labels = data.labels();
+        double[] partial = new double[WIDTH + 1];
+        for (int row = from; row < to; row++) {
+            int base = row * WIDTH;
+            double eval = 0;
+            for (int f = 0; f < WIDTH; f++) {
+                eval += weights[f] * features[base + f];
+            }
+            double predicted = 1.0 / (1.0 + Math.exp(-scale * eval));
+            double error = predicted - labels[row];
+            partial[0] += error * error;
+            if (wantGradient) {
+                double factor = 2 * error * predicted * (1 - predicted) * scale;
+                for (int f = 0; f < WIDTH; f++) {
+                    partial[f + 1] += factor * features[base + f];
+                }
+            }
+        }
+        return partial;
+    }
+
+    private static double[] sum(double[] a, double[] b) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+}
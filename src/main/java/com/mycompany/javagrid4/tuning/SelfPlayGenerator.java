@@ -0,0 +1,191 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.ai.Bot;
+import com.mycompany.javagrid4.ai.EvalWeights;
+import com.mycompany.javagrid4.ai.SearchBot;
+import com.mycompany.javagrid4.board.CompactBoard;
+import com.mycompany.javagrid4.tournament.BotSpec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates labelled positions from parallel self-play.
+ *
+ * Each game starts with a few random moves for variety, then the bot
+ * plays both sides. Every position after the random prefix is recorded
+ * and, once the game ends, labelled with the final result for the side
+ * that was to move. Positions go either into an in-memory
+ * {@link TrainingSet} for tuning or, with search evals attached, to a
+ * {@link DatasetWriter} file for offline analysis.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class SelfPlayGenerator {
+
+    private final BotSpec bot;
+    private final int size;
+    private final int randomPlies;
+    private final int threads;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     * @param bot Bot playing both sides
+     * @param size Board size
+     * @param randomPlies Random moves at the start of each game
+     * @param threads Worker threads
+     * @param seed Base random seed
+     */
+    public SelfPlayGenerator(BotSpec bot, int size, int randomPlies, int threads, long seed) {
+        this.bot = bot;
+        this.size = size;
+        this.randomPlies = randomPlies;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays games and collects their positions.
+     * @param games Number of games
+     * @return Labelled positions
+     * @throws Exception if a worker fails
+     */
+    public TrainingSet generate(int games) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TrainingSet>> parts = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                parts.add(pool.submit(() -> {
+                    Bot player = bot.create();
+                    TrainingSet local = new TrainingSet(1024);
+                    int game;
+                    while ((game = next.getAndIncrement()) < games) {
+                        playGame(player, new SplittableRandom(seed + game), local);
+                    }
+                    return local;
+                }));
+            }
+            TrainingSet all = new TrainingSet(games * size * size);
+            for (Future<TrainingSet> part : parts) {
+                all.addAll(part.get());
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays games and streams their positions to a dataset file. Each
+     * worker encodes a whole game into its own buffer, fills in the result
+     * once the game ends and hands the records to the shared writer.
+     *
+     * @param games Number of games
+     * @param out Dataset writer (not closed)
+     * @return Number of positions written
+     * @throws Exception if a worker or the writer fails
+     */
+    public long generate(int games, DatasetWriter out) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> parts = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                parts.add(pool.submit(() -> {
+                    Bot player = bot.create();
+                    int maxRecords = size * size * CompactBoard.MAX_VALUE;
+                    ByteBuffer records = ByteBuffer.allocate(maxRecords * DatasetRecord.SIZE)
+                                                   .order(ByteOrder.LITTLE_ENDIAN);
+                    int[] sides = new int[maxRecords];
+                    long written = 0;
+                    int game;
+                    while ((game = next.getAndIncrement()) < games) {
+                        records.clear();
+                        playGame(player, new SplittableRandom(seed + game), records, sides);
+                        written += records.remaining() / DatasetRecord.SIZE;
+                        out.write(records);
+                    }
+                    return written;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> part : parts) {
+                total += part.get();
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game and encodes its positions with evals and results.
+     * The buffer is left flipped, ready to be written.
+     */
+    private void playGame(Bot player, SplittableRandom random, ByteBuffer records, int[] sides) {
+        CompactBoard board = new CompactBoard(size);
+        int[] moves = new int[board.getCellCount()];
+        for (int ply = 0; ply < randomPlies && !board.isGameOver(); ply++) {
+            int count = board.legalMoves(moves);
+            board.applyMove(moves[random.nextInt(count)]);
+        }
+
+        int recorded = 0;
+        while (!board.isGameOver()) {
+            int offset = records.position();
+            DatasetRecord.encode(board, DatasetRecord.NO_EVAL, records);
+            sides[recorded++] = board.getSide();
+            board.applyMove(player.chooseMove(board));
+            if (player instanceof SearchBot && ((SearchBot) player).getLastResult() != null) {
+                DatasetRecord.setEval(records, offset, ((SearchBot) player).getLastResult().getScore());
+            }
+        }
+
+        int margin = board.getScore(0) - board.getScore(1);
+        int player1Result = margin > 0 ? DatasetRecord.WIN : (margin < 0 ? DatasetRecord.LOSS : DatasetRecord.DRAW);
+        for (int i = 0; i < recorded; i++) {
+            DatasetRecord.setResult(records, i * DatasetRecord.SIZE,
+                sides[i] == 0 ? player1Result : DatasetRecord.WIN - player1Result);
+        }
+        records.flip();
+    }
+
+    /**
+     * Plays one game and appends its labelled positions.
+     */
+    private void playGame(Bot player, SplittableRandom random, TrainingSet out) {
+        CompactBoard board = new CompactBoard(size);
+        int[] moves = new int[board.getCellCount()];
+        for (int ply = 0; ply < randomPlies && !board.isGameOver(); ply++) {
+            int count = board.legalMoves(moves);
+            board.applyMove(moves[random.nextInt(count)]);
+        }
+
+        int maxRows = board.getLiveCells() * CompactBoard.MAX_VALUE;
+        float[][] rows = new float[maxRows][EvalWeights.COUNT];
+        int[] sides = new int[maxRows];
+        int[] scratch = new int[EvalWeights.COUNT];
+        int recorded = 0;
+        while (!board.isGameOver()) {
+            TrainingSet.extract(board, rows[recorded], scratch);
+            sides[recorded++] = board.getSide();
+            board.applyMove(player.chooseMove(board));
+        }
+
+        int margin = board.getScore(0) - board.getScore(1);
+        float player1Result = margin > 0 ? 1f : (margin < 0 ? 0f : 0.5f);
+        for (int i = 0; i < recorded; i++) {
+            out.add(rows[i], sides[i] == 0 ? player1Result : 1f - player1Result);
+        }
+    }
+}
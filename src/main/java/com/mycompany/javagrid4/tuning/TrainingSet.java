@@ -0,0 +1,107 @@
+package com.mycompany.javagrid4.tuning;
+
+import com.mycompany.javagrid4.ai.EvalWeights;
+import com.mycompany.javagrid4.ai.PatternTable;
+import com.mycompany.javagrid4.board.CompactBoard;
+
+import java.util.Arrays;
+
+/**
+ * Labelled positions stored as flat primitive arrays.
+ *
+ * Each row holds the evaluator's feature vector for one position, seen
+ * from the side to move, plus the game result for that side
+ * (1 = win, 0.5 = draw, 0 = loss). Keeping rows in one float array
+ * avoids an object per position and lets the loss run as a tight loop.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public final class TrainingSet {
+
+    private static final int WIDTH = EvalWeights.COUNT;
+
+    private float[] features;
+    private float[] labels;
+    private int size;
+
+    /**
+     * Creates an empty set.
+     * @param capacity Initial row capacity
+     */
+    public TrainingSet(int capacity) {
+        this.features = new float[Math.max(1, capacity) * WIDTH];
+        this.labels = new float[Math.max(1, capacity)];
+    }
+
+    /**
+     * Extracts the feature vector of a position.
+     * @param board Position (pattern indexes are computed on demand)
+     * @param out Destination (length {@link EvalWeights#COUNT})
+     * @param scratch Scratch buffer (length {@link EvalWeights#COUNT})
+     */
+    public static void extract(CompactBoard board, float[] out, int[] scratch) {
+        Arrays.fill(out, 0f);
+        out[EvalWeights.SCORE] = board.getMargin();
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (PatternTable.extractFeatures(board.getPatternIndex(cell), scratch)) {
+                for (int f = 1; f < WIDTH; f++) {
+                    out[f] += scratch[f];
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a row.
+     * @param row Feature vector
+     * @param label Result for the side to move
+     */
+    public void add(float[] row, float label) {
+        if (size == labels.length) {
+            labels = Arrays.copyOf(labels, size * 2);
+            features = Arrays.copyOf(features, size * 2 * WIDTH);
+        }
+        System.arraycopy(row, 0, features, size * WIDTH, WIDTH);
+        labels[size++] = label;
+    }
+
+    /**
+     * Appends all rows of another set.
+     * @param other Rows to append
+     */
+    public void addAll(TrainingSet other) {
+        int needed = size + other.size;
+        if (needed > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(needed, labels.length * 2));
+            features = Arrays.copyOf(features, labels.length * WIDTH);
+        }
+        System.arraycopy(other.features, 0, features, size * WIDTH, other.size * WIDTH);
+        System.arraycopy(other.labels, 0, labels, size, other.size);
+        size = needed;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return Row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the feature array (row-major, {@link EvalWeights#COUNT} per row).
+     * @return Backing array; only the first size() rows are valid
+     */
+    float[] features() {
+        return features;
+    }
+
+    /**
+     * Gets the label array.
+     * @return Backing array; only the first size() entries are valid
+     */
+    float[] labels() {
+        return labels;
+    }
+}
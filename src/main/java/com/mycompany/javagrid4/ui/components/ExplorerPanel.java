@@ -0,0 +1,123 @@
+package com.mycompany.javagrid4.ui.components;
+
+import com.mycompany.javagrid4.archive.GameRecordFormat;
+import com.mycompany.javagrid4.archive.PositionStats;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.RoundRectangle2D;
+import java.util.List;
+
+/**
+ * Opening explorer card showing how often the current position occurred
+ * in the game archive and how each move played from it scored, as win,
+ * tie and loss percentages for the player making the move.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class ExplorerPanel extends JPanel {
+    private static final int CORNER_RADIUS = 16;
+    private static final int PADDING = 14;
+    private static final int WIDTH = 230;
+    private static final Color TEXT_COLOR = new Color(60, 60, 80);
+    private static final Color MUTED_COLOR = new Color(120, 120, 140);
+
+    /** Number of moves listed. */
+    public static final int MAX_MOVES = 8;
+
+    private final JLabel summaryLabel;
+    private final JLabel movesLabel;
+
+    /**
+     * Creates an empty explorer card.
+     */
+    public ExplorerPanel() {
+        setOpaque(false);
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setBorder(BorderFactory.createEmptyBorder(PADDING, PADDING, PADDING, PADDING));
+        setPreferredSize(new Dimension(WIDTH, 0));
+
+        JLabel titleLabel = new JLabel("📖 Explorer");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        titleLabel.setForeground(TEXT_COLOR);
+
+        summaryLabel = new JLabel();
+        summaryLabel.setFont(new Font("Arial", Font.ITALIC, 12));
+        summaryLabel.setForeground(MUTED_COLOR);
+
+        movesLabel = new JLabel();
+        movesLabel.setFont(new Font("Arial", Font.PLAIN, 13));
+        movesLabel.setForeground(TEXT_COLOR);
+        movesLabel.setVerticalAlignment(SwingConstants.TOP);
+
+        add(titleLabel);
+        add(Box.createVerticalStrut(6));
+        add(summaryLabel);
+        add(Box.createVerticalStrut(8));
+        add(movesLabel);
+        add(Box.createVerticalGlue());
+    }
+
+    /**
+     * Shows the archive statistics of a position.
+     *
+     * @param stats Statistics from the position index, or null if the position never occurred
+     * @param boardSize Board size, for naming moves
+     * @param archiveGames Number of games in the index
+     */
+    public void showPosition(PositionStats stats, int boardSize, int archiveGames) {
+        if (stats == null) {
+            summaryLabel.setText("Not seen in " + String.format("%,d", archiveGames) + " games");
+            movesLabel.setText("");
+            return;
+        }
+        int occurrences = stats.getOccurrences();
+        summaryLabel.setText("Seen " + String.format("%,d", occurrences)
+            + (occurrences == 1 ? " time" : " times"));
+
+        List<PositionStats.Continuation> continuations = stats.getContinuations();
+        if (continuations.isEmpty()) {
+            movesLabel.setText("<html>No moves recorded from here</html>");
+            return;
+        }
+        StringBuilder html = new StringBuilder("<html><table cellspacing=0 cellpadding=1>");
+        html.append("<tr><th align=left>Move</th><th align=right>Games</th>")
+            .append("<th align=right>W / T / L</th></tr>");
+        for (int i = 0; i < Math.min(MAX_MOVES, continuations.size()); i++) {
+            PositionStats.Continuation move = continuations.get(i);
+            int games = move.getGames();
+            html.append("<tr><td><b>").append(GameRecordFormat.moveName(move.getMove(), boardSize))
+                .append("</b></td><td align=right>").append(String.format("%,d", games))
+                .append("</td><td align=right>")
+                .append(percent(move.getWins(), games)).append(" / ")
+                .append(percent(move.getOthers(), games)).append(" / ")
+                .append(percent(move.getLosses(), games))
+                .append("</td></tr>");
+        }
+        if (continuations.size() > MAX_MOVES) {
+            html.append("<tr><td colspan=3><i>+").append(continuations.size() - MAX_MOVES)
+                .append(" more</i></td></tr>");
+        }
+        movesLabel.setText(html.append("</table></html>").toString());
+    }
+
+    private static String percent(int part, int whole) {
+        return Math.round(part * 100.0 / whole) + "%";
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Translucent card background
+        g2d.setColor(new Color(255, 255, 255, 200));
+        g2d.fill(new RoundRectangle2D.Float(0, 0, getWidth() - 1, getHeight() - 1, CORNER_RADIUS, CORNER_RADIUS));
+        g2d.setColor(new Color(0, 0, 0, 30));
+        g2d.draw(new RoundRectangle2D.Float(0, 0, getWidth() - 1, getHeight() - 1, CORNER_RADIUS, CORNER_RADIUS));
+
+        g2d.dispose();
+    }
+}
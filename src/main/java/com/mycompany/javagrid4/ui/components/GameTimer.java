@@ -47,16 +47,16 @@ public class GameTimer extends JPanel {
     }
     
     /**
-     * Starts the timer.
+     * Starts the timer, counting on from the elapsed time (00:00 unless
+     * set with {@link #setElapsedSeconds(int)}).
      */
     public void start() {
         if (updateTimer != null && updateTimer.isRunning()) {
             return; // Already running
         }
         
-        startTime = System.currentTimeMillis();
+        startTime = System.currentTimeMillis() - elapsedSeconds * 1000L;
         isPaused = false;
-        elapsedSeconds = 0;
         
         updateTimer = new Timer(1000, e -> updateDisplay());
         updateTimer.start();
@@ -114,6 +114,23 @@ public class GameTimer extends JPanel {
         return elapsedSeconds;
     }
     
+    /**
+     * Sets the elapsed time, e.g. for a resumed game. A running timer
+     * continues counting from the new value.
+     * @param seconds Elapsed seconds
+     */
+    public void setElapsedSeconds(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Elapsed time cannot be negative: " + seconds);
+        }
+        long now = System.currentTimeMillis();
+        startTime = now - seconds * 1000L;
+        if (isPaused) {
+            pausedTime = now;
+        }
+        updateDisplay();
+    }
+    
     /**
      * Updates the timer display.
      */
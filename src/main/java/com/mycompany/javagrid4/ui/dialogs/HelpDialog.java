@@ -183,6 +183,7 @@ public class HelpDialog extends JDialog {
         panel.add(createBulletPoint("• Pause: Freeze the game (resume with same button)"));
         panel.add(createBulletPoint("• Menu: Return to main menu (with confirmation)"));
         panel.add(createBulletPoint("• Undo/Redo: Take back or replay moves"));
+        panel.add(createBulletPoint("• 🌐 in the menu: Host or join a game on a server (Menu is the only control online)"));
         panel.add(Box.createVerticalStrut(15));
         
         // End of game
@@ -216,8 +217,11 @@ public class HelpDialog extends JDialog {
         panel.add(createControlRow("ESC", "Return to main menu (with confirmation)"));
         panel.add(createControlRow("R", "Restart game (with confirmation)"));
         panel.add(createControlRow("P", "Pause/Resume game"));
+        panel.add(createControlRow("Ctrl+S", "Save the game to continue later"));
         panel.add(createControlRow("Ctrl+Z", "Undo last move"));
         panel.add(createControlRow("Ctrl+Y", "Redo last undone move"));
+        panel.add(createControlRow("Alt+←/→", "Switch between lines tried for the last move"));
+        panel.add(createControlRow("E", "Show/hide the opening explorer (needs a position index)"));
         panel.add(createControlRow("F1", "Open this help dialog"));
         panel.add(Box.createVerticalStrut(15));
         
@@ -225,6 +229,7 @@ public class HelpDialog extends JDialog {
         panel.add(createSectionTitle("🎚️ Button Controls"));
         panel.add(createControlRow("Restart Button", "Begin a new game with same configuration"));
         panel.add(createControlRow("Pause Button", "Freeze/unfreeze the game"));
+        panel.add(createControlRow("Save Button", "Save the game; load it from the menu's 📂 button"));
         panel.add(createControlRow("Menu Button", "Return to menu (prompts for confirmation)"));
         panel.add(createControlRow("Undo Button", "Take back your last move"));
         panel.add(createControlRow("Redo Button", "Replay a move you undid"));
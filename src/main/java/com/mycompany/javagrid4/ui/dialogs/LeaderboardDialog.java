@@ -0,0 +1,156 @@
+package com.mycompany.javagrid4.ui.dialogs;
+
+import com.mycompany.javagrid4.history.PlayerProfile;
+import com.mycompany.javagrid4.history.PlayerProfiles;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Leaderboard dialog listing the highest-rated players with their Elo
+ * rating and record, read from the sorted profiles in one pass.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class LeaderboardDialog extends JDialog {
+    private static final Color HEADER_COLOR = new Color(50, 50, 100);
+    private static final Color ACCENT_COLOR = new Color(100, 150, 255);
+    private static final Color BACKGROUND_COLOR = new Color(245, 245, 250);
+    private static final String[] COLUMNS = { "#", "Player", "Rating", "Peak", "Games", "W-L-T" };
+
+    /** Number of players shown. */
+    public static final int SIZE = 20;
+
+    /**
+     * Creates the leaderboard dialog.
+     * @param parent Owner frame
+     * @param profiles Player ratings to list
+     */
+    public LeaderboardDialog(Frame parent, PlayerProfiles profiles) {
+        super(parent, "JavaGrid4 - Leaderboard", true);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        getContentPane().setBackground(BACKGROUND_COLOR);
+        setLayout(new BorderLayout(10, 10));
+
+        add(createHeader(profiles.getPlayerCount()), BorderLayout.NORTH);
+        add(createTable(profiles.getLeaderboard(SIZE)), BorderLayout.CENTER);
+        add(createFooter(), BorderLayout.SOUTH);
+
+        // ESC closes the dialog
+        getRootPane().registerKeyboardAction(
+            e -> dispose(),
+            KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_ESCAPE, 0),
+            JComponent.WHEN_IN_FOCUSED_WINDOW
+        );
+
+        setSize(560, 480);
+        setMinimumSize(new Dimension(460, 300));
+        setLocationRelativeTo(parent);
+    }
+
+    private JPanel createHeader(int playerCount) {
+        JPanel headerPanel = new JPanel(new GridLayout(2, 1, 0, 2));
+        headerPanel.setBackground(HEADER_COLOR);
+        headerPanel.setBorder(new EmptyBorder(10, 15, 10, 15));
+
+        JLabel titleLabel = new JLabel("🏆 Leaderboard", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        titleLabel.setForeground(Color.WHITE);
+
+        JLabel subtitleLabel = new JLabel(playerCount + " rated player" + (playerCount == 1 ? "" : "s")
+            + " · Elo, starting at " + (int) PlayerProfiles.INITIAL_RATING, SwingConstants.CENTER);
+        subtitleLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+        subtitleLabel.setForeground(new Color(200, 200, 255));
+
+        headerPanel.add(titleLabel);
+        headerPanel.add(subtitleLabel);
+        return headerPanel;
+    }
+
+    private Component createTable(List<PlayerProfile> top) {
+        if (top.isEmpty()) {
+            JLabel emptyLabel = new JLabel("No rated games yet. Finish a game to get on the board!",
+                SwingConstants.CENTER);
+            emptyLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+            emptyLabel.setForeground(new Color(100, 100, 120));
+            return emptyLabel;
+        }
+
+        DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        int rank = 1;
+        for (PlayerProfile profile : top) {
+            model.addRow(new Object[] {
+                rank++,
+                profile.getName(),
+                Math.round(profile.getRating()),
+                Math.round(profile.getPeakRating()),
+                profile.getGames(),
+                profile.getWins() + "-" + profile.getLosses() + "-" + profile.getTies()
+            });
+        }
+
+        JTable table = new JTable(model);
+        table.setFont(new Font("Arial", Font.PLAIN, 14));
+        table.setRowHeight(26);
+        table.setFillsViewportHeight(true);
+        table.setFocusable(false);
+        table.setRowSelectionAllowed(false);
+        table.getTableHeader().setFont(new Font("Arial", Font.BOLD, 13));
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getColumnModel().getColumn(0).setMaxWidth(40);
+        table.getColumnModel().getColumn(1).setPreferredWidth(160);
+        DefaultTableCellRenderer centered = new DefaultTableCellRenderer();
+        centered.setHorizontalAlignment(SwingConstants.CENTER);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i != 1) {
+                table.getColumnModel().getColumn(i).setCellRenderer(centered);
+            }
+        }
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(new EmptyBorder(0, 15, 0, 15));
+        scrollPane.getViewport().setBackground(Color.WHITE);
+        return scrollPane;
+    }
+
+    private JPanel createFooter() {
+        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 8));
+        footerPanel.setBackground(BACKGROUND_COLOR);
+
+        JButton closeButton = new JButton("Close (ESC)");
+        closeButton.setFont(new Font("Arial", Font.BOLD, 14));
+        closeButton.setForeground(Color.WHITE);
+        closeButton.setBackground(HEADER_COLOR);
+        closeButton.setFocusPainted(false);
+        closeButton.setBorderPainted(false);
+        closeButton.setPreferredSize(new Dimension(130, 35));
+        closeButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        closeButton.addActionListener(e -> dispose());
+
+        // Hover effect
+        closeButton.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseEntered(java.awt.event.MouseEvent evt) {
+                closeButton.setBackground(ACCENT_COLOR);
+            }
+
+            @Override
+            public void mouseExited(java.awt.event.MouseEvent evt) {
+                closeButton.setBackground(HEADER_COLOR);
+            }
+        });
+
+        footerPanel.add(closeButton);
+        return footerPanel;
+    }
+}
@@ -0,0 +1,341 @@
+package com.mycompany.javagrid4.ui.dialogs;
+
+import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.models.PlayerConfig;
+import com.mycompany.javagrid4.net.GameClient;
+import com.mycompany.javagrid4.net.GameServer;
+import com.mycompany.javagrid4.net.NetProtocol;
+import com.mycompany.javagrid4.net.OnlineMatch;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Dialog for starting an online game on a {@link GameServer}: hosts a new
+ * game and shows its code, joins a game by code, or asks the server's
+ * matchmaker for an opponent of similar rating, and closes once the
+ * opponent is there.
+ *
+ * The host plays as Player 1 with the board size chosen in the menu; the
+ * player who joins plays as Player 2. A quick match is played as Player 1
+ * of the menu on the chosen board size, in whichever seat the server
+ * gives. Names and colors come from the menu's player setup.
+ *
+ * @author JavaGrid4 Team
+ * @version 1.0
+ */
+public class OnlineDialog extends JDialog {
+    private static final Color HEADER_COLOR = new Color(50, 50, 100);
+    private static final Color ACCENT_COLOR = new Color(100, 150, 255);
+    private static final Color BACKGROUND_COLOR = new Color(245, 245, 250);
+    private static final Color ERROR_COLOR = new Color(200, 60, 60);
+
+    private final GameConfig config;
+    private final JTextField serverField;
+    private final JTextField codeField;
+    private final JLabel statusLabel;
+    private final JButton hostButton;
+    private final JButton joinButton;
+    private final JButton matchButton;
+    private final int rating;
+    private GameClient client;
+    private OnlineMatch match;
+
+    /**
+     * Creates the online game dialog.
+     * @param parent Owner frame
+     * @param config Menu setup the local player's name, color and board size are taken from
+     * @param rating Player 1's rating, for quick matches
+     */
+    public OnlineDialog(Frame parent, GameConfig config, int rating) {
+        super(parent, "JavaGrid4 - Play Online", true);
+        this.config = config;
+        this.rating = rating;
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        getContentPane().setBackground(BACKGROUND_COLOR);
+        setLayout(new BorderLayout(10, 10));
+
+        serverField = new JTextField("localhost:" + GameServer.DEFAULT_PORT, 18);
+        codeField = new JTextField(8);
+        statusLabel = new JLabel(" ", SwingConstants.CENTER);
+        statusLabel.setFont(new Font("Arial", Font.ITALIC, 13));
+        hostButton = createButton("Host " + config.getBoardSize() + "×" + config.getBoardSize());
+        hostButton.addActionListener(e -> handleHost());
+        joinButton = createButton("Join");
+        joinButton.addActionListener(e -> handleJoin());
+        matchButton = createButton("Quick match");
+        matchButton.setToolTipText("Play the next player rated near " + rating + " on "
+            + config.getBoardSize() + "×" + config.getBoardSize());
+        matchButton.addActionListener(e -> handleQuickMatch());
+
+        add(createHeader(), BorderLayout.NORTH);
+        add(createForm(), BorderLayout.CENTER);
+        add(createFooter(), BorderLayout.SOUTH);
+
+        // ESC and the close box cancel
+        getRootPane().registerKeyboardAction(
+            e -> handleCancel(),
+            KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_ESCAPE, 0),
+            JComponent.WHEN_IN_FOCUSED_WINDOW
+        );
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                handleCancel();
+            }
+        });
+
+        setSize(440, 370);
+        setResizable(false);
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * Gets the game that started while the dialog was open.
+     * @return Started game, or null if the dialog was cancelled
+     */
+    public OnlineMatch getMatch() {
+        return match;
+    }
+
+    private JPanel createHeader() {
+        JPanel headerPanel = new JPanel(new GridLayout(2, 1, 0, 2));
+        headerPanel.setBackground(HEADER_COLOR);
+        headerPanel.setBorder(new EmptyBorder(10, 15, 10, 15));
+
+        JLabel titleLabel = new JLabel("🌐 Play Online", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        titleLabel.setForeground(Color.WHITE);
+
+        JLabel subtitleLabel = new JLabel("Host as " + config.getPlayer1().getName()
+            + " or join as " + config.getPlayer2().getName(), SwingConstants.CENTER);
+        subtitleLabel.setFont(new Font("Arial", Font.ITALIC, 11));
+        subtitleLabel.setForeground(new Color(200, 200, 255));
+
+        headerPanel.add(titleLabel);
+        headerPanel.add(subtitleLabel);
+        return headerPanel;
+    }
+
+    private JPanel createForm() {
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(BACKGROUND_COLOR);
+        formPanel.setBorder(new EmptyBorder(5, 20, 5, 20));
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(6, 6, 6, 6);
+        c.anchor = GridBagConstraints.WEST;
+
+        c.gridx = 0;
+        c.gridy = 0;
+        formPanel.add(createLabel("Server"), c);
+        c.gridx = 1;
+        formPanel.add(serverField, c);
+        c.gridx = 2;
+        formPanel.add(hostButton, c);
+
+        c.gridx = 0;
+        c.gridy = 1;
+        formPanel.add(createLabel("Game code"), c);
+        c.gridx = 1;
+        formPanel.add(codeField, c);
+        c.gridx = 2;
+        formPanel.add(joinButton, c);
+
+        c.gridx = 0;
+        c.gridy = 2;
+        formPanel.add(createLabel("Rating " + rating), c);
+        c.gridx = 2;
+        formPanel.add(matchButton, c);
+
+        c.gridx = 0;
+        c.gridy = 3;
+        c.gridwidth = 3;
+        c.anchor = GridBagConstraints.CENTER;
+        formPanel.add(statusLabel, c);
+        return formPanel;
+    }
+
+    private JPanel createFooter() {
+        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 8));
+        footerPanel.setBackground(BACKGROUND_COLOR);
+        JButton cancelButton = createButton("Cancel (ESC)");
+        cancelButton.addActionListener(e -> handleCancel());
+        footerPanel.add(cancelButton);
+        return footerPanel;
+    }
+
+    private JLabel createLabel(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(new Font("Arial", Font.BOLD, 14));
+        label.setForeground(HEADER_COLOR);
+        return label;
+    }
+
+    private JButton createButton(String text) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Arial", Font.BOLD, 14));
+        button.setForeground(Color.WHITE);
+        button.setBackground(HEADER_COLOR);
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);
+        button.setPreferredSize(new Dimension(120, 32));
+        button.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+
+        // Hover effect
+        button.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseEntered(java.awt.event.MouseEvent evt) {
+                button.setBackground(ACCENT_COLOR);
+            }
+
+            @Override
+            public void mouseExited(java.awt.event.MouseEvent evt) {
+                button.setBackground(HEADER_COLOR);
+            }
+        });
+        return button;
+    }
+
+    private void handleHost() {
+        PlayerConfig host = config.getPlayer1();
+        int size = config.getBoardSize();
+        connect("Opening game...", () -> client.host(size, host.getName(), host.getColor().getRGB()));
+    }
+
+    private void handleJoin() {
+        int gameId;
+        try {
+            gameId = Integer.parseInt(codeField.getText().trim());
+        } catch (NumberFormatException e) {
+            showStatus("Enter the code the host was given", true);
+            return;
+        }
+        PlayerConfig guest = config.getPlayer2();
+        connect("Joining game " + gameId + "...", () -> client.join(gameId, guest.getName(), guest.getColor().getRGB()));
+    }
+
+    private void handleQuickMatch() {
+        PlayerConfig player = config.getPlayer1();
+        int size = config.getBoardSize();
+        connect("Looking for an opponent rated about " + rating + "...",
+            () -> client.findMatch(rating, player.getName(), player.getColor().getRGB(), size));
+    }
+
+    /**
+     * Connects to the server in the background and sends a request. Any
+     * earlier connection of this dialog is closed first.
+     * @param status Status shown meanwhile
+     * @param request Request to send once connected
+     */
+    private void connect(String status, Request request) {
+        String server = serverField.getText().trim();
+        int colon = server.lastIndexOf(':');
+        String host = colon < 0 ? server : server.substring(0, colon);
+        int port;
+        try {
+            port = colon < 0 ? GameServer.DEFAULT_PORT : Integer.parseInt(server.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            showStatus("Invalid server port", true);
+            return;
+        }
+        closeClient();
+        setButtonsEnabled(false);
+        showStatus(status, false);
+        new SwingWorker<GameClient, Void>() {
+            @Override
+            protected GameClient doInBackground() throws IOException {
+                return GameClient.connect(host, port, new DialogListener());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    client = get();
+                    if (!isDisplayable()) {
+                        closeClient(); // Cancelled meanwhile
+                        return;
+                    }
+                    request.send();
+                } catch (InterruptedException | ExecutionException | IOException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    showStatus("Could not reach " + server + ": " + cause.getMessage(), true);
+                    closeClient();
+                    setButtonsEnabled(true);
+                }
+            }
+        }.execute();
+    }
+
+    private void handleCancel() {
+        closeClient();
+        dispose();
+    }
+
+    private void closeClient() {
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+
+    private void setButtonsEnabled(boolean enabled) {
+        hostButton.setEnabled(enabled);
+        joinButton.setEnabled(enabled);
+        matchButton.setEnabled(enabled);
+    }
+
+    private void showStatus(String text, boolean error) {
+        statusLabel.setText(text);
+        statusLabel.setForeground(error ? ERROR_COLOR : HEADER_COLOR);
+    }
+
+    /** A request sent once the connection is up. */
+    private interface Request {
+        void send() throws IOException;
+    }
+
+    /** Moves server replies onto the event dispatch thread. */
+    private final class DialogListener implements GameClient.Listener {
+        @Override
+        public void onHosted(int gameId) {
+            SwingUtilities.invokeLater(() -> {
+                codeField.setText(Integer.toString(gameId));
+                showStatus("Waiting for an opponent · game code " + gameId, false);
+            });
+        }
+
+        @Override
+        public void onStart(OnlineMatch started) {
+            SwingUtilities.invokeLater(() -> {
+                if (!isDisplayable()) {
+                    started.getClient().close(); // Cancelled meanwhile
+                    return;
+                }
+                match = started;
+                client = null; // Now owned by the game screen
+                dispose();
+            });
+        }
+
+        @Override
+        public void onError(int reason) {
+            SwingUtilities.invokeLater(() -> {
+                showStatus(NetProtocol.describe(reason), true);
+                closeClient();
+                setButtonsEnabled(true);
+            });
+        }
+
+        @Override
+        public void onDisconnected(IOException cause) {
+            SwingUtilities.invokeLater(() -> {
+                showStatus("Lost connection: " + cause.getMessage(), true);
+                client = null;
+                setButtonsEnabled(true);
+            });
+        }
+    }
+}
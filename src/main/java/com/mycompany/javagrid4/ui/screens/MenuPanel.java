@@ -1,18 +1,31 @@
 package com.mycompany.javagrid4.ui.screens;
 
 import com.mycompany.javagrid4.audio.SoundManager;
+import com.mycompany.javagrid4.bots.BotRegistry;
+import com.mycompany.javagrid4.history.MatchHistory;
+import com.mycompany.javagrid4.history.PlayerProfile;
+import com.mycompany.javagrid4.history.PlayerProfiles;
 import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.replay.Replay;
+import com.mycompany.javagrid4.session.SavedGame;
 import com.mycompany.javagrid4.ui.components.ColorPickerButton;
 import com.mycompany.javagrid4.ui.components.BoardSizeCard;
 import com.mycompany.javagrid4.ui.components.SoundControlPanel;
 import com.mycompany.javagrid4.ui.dialogs.HelpDialog;
+import com.mycompany.javagrid4.ui.dialogs.LeaderboardDialog;
+import com.mycompany.javagrid4.ui.dialogs.OnlineDialog;
+import com.mycompany.javagrid4.ui.dialogs.SimpleDialog;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
 import javax.imageio.ImageIO;
 
 /**
@@ -20,7 +33,11 @@ import javax.imageio.ImageIO;
  * Features:
  * - Player name input (max 10 characters)
  * - Color picker for each player
+ * - Human or computer control for each player (built-in and plugin bots)
  * - Board size selection (3×3, 5×5, 7×7)
+ * - Lifetime statistics and Elo rating of each named player
+ * - Leaderboard of the highest-rated players
+ * - Online games against a player on another machine
  * - Real-time form validation
  * - Start game button (enabled when valid)
  * 
@@ -29,18 +46,34 @@ import javax.imageio.ImageIO;
  */
 public class MenuPanel extends JPanel {
     
+    // Built-in computer opponents; plugin bots are appended at runtime
+    private static final String[] PRESET_LABELS = {
+        "Human", "Computer (Easy)", "Computer (Medium)", "Computer (Hard)"
+    };
+    private static final String[] PRESET_SPECS = {
+        null, "search:depth=2,budget=2000", "search:depth=4,time=500,budget=2000",
+        "search:depth=10,time=1500,budget=3000"
+    };
+    
     private final PropertyChangeSupport propertyChangeSupport;
     private final GameConfig gameConfig;
+    private final java.util.List<String> controlSpecs = new java.util.ArrayList<>();
+    private MatchHistory matchHistory;
+    private PlayerProfiles playerProfiles;
     
     // Player 1 components
     private JTextField player1NameField;
     private ColorPickerButton player1ColorButton;
     private JLabel player1CharCountLabel;
+    private JComboBox<String> player1ControlBox;
+    private JLabel player1StatsLabel;
     
     // Player 2 components
     private JTextField player2NameField;
     private ColorPickerButton player2ColorButton;
     private JLabel player2CharCountLabel;
+    private JComboBox<String> player2ControlBox;
+    private JLabel player2StatsLabel;
     
     // Board size components
     private BoardSizeCard card3x3;
@@ -70,9 +103,40 @@ public class MenuPanel extends JPanel {
         updateStartButton();
     }
     
+    /**
+     * Sets the match history the players' lifetime statistics are read from.
+     * @param matchHistory Open history, or null to hide the statistics
+     */
+    public void setMatchHistory(MatchHistory matchHistory) {
+        this.matchHistory = matchHistory;
+        updateMatchStats();
+    }
+    
+    /**
+     * Sets the player ratings shown next to the statistics and in the
+     * leaderboard.
+     * @param playerProfiles Open profile store, or null while unavailable
+     */
+    public void setPlayerProfiles(PlayerProfiles playerProfiles) {
+        this.playerProfiles = playerProfiles;
+        updateMatchStats();
+    }
+    
+    /**
+     * Refreshes both players' lifetime statistics, for example after a game
+     * was added to the history.
+     */
+    public void updateMatchStats() {
+        updatePlayerStats(player1StatsLabel, gameConfig.getPlayer1().getName());
+        updatePlayerStats(player2StatsLabel, gameConfig.getPlayer2().getName());
+    }
+    
     /**
      * Adds a property change listener for screen transitions.
-     * Event "startGame" fired with GameConfig when user clicks Start.
+     * Event "startGame" fired with GameConfig when user clicks Start,
+     * "watchReplay" with a Replay when the user opens a saved replay,
+     * "loadGame" with a SavedGame when the user loads a saved game,
+     * "playOnline" with an OnlineMatch when an online game starts.
      */
     @Override
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -98,6 +162,7 @@ public class MenuPanel extends JPanel {
         player1CharCountLabel = new JLabel("0/10");
         player1CharCountLabel.setFont(new Font("Arial", Font.PLAIN, 11));
         player1CharCountLabel.setForeground(Color.GRAY);
+        player1StatsLabel = createStatsLabel();
         
         // Player 2 components with enhanced styling
         player2NameField = createStyledTextField(gameConfig.getPlayer2().getName());
@@ -105,6 +170,19 @@ public class MenuPanel extends JPanel {
         player2CharCountLabel = new JLabel("0/10");
         player2CharCountLabel.setFont(new Font("Arial", Font.PLAIN, 11));
         player2CharCountLabel.setForeground(Color.GRAY);
+        player2StatsLabel = createStatsLabel();
+        
+        // Human/computer selectors
+        java.util.List<String> controlLabels = new java.util.ArrayList<>(java.util.Arrays.asList(PRESET_LABELS));
+        controlSpecs.addAll(java.util.Arrays.asList(PRESET_SPECS));
+        for (String id : BotRegistry.getDefault().getIds()) {
+            controlLabels.add("Plugin: " + id);
+            controlSpecs.add(id);
+        }
+        player1ControlBox = new JComboBox<>(controlLabels.toArray(new String[0]));
+        player1ControlBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        player2ControlBox = new JComboBox<>(controlLabels.toArray(new String[0]));
+        player2ControlBox.setFont(new Font("Arial", Font.PLAIN, 14));
         
         // Board size cards
         card3x3 = new BoardSizeCard(3);
@@ -145,6 +223,18 @@ public class MenuPanel extends JPanel {
         });
     }
     
+    /**
+     * Creates a label for a player's lifetime statistics, hidden until there
+     * is a match history.
+     */
+    private JLabel createStatsLabel() {
+        JLabel label = new JLabel();
+        label.setFont(new Font("Arial", Font.PLAIN, 11));
+        label.setForeground(new Color(90, 90, 110));
+        label.setVisible(false);
+        return label;
+    }
+    
     /**
      * Creates a styled text field with focus effects and placeholder.
      */
@@ -202,13 +292,13 @@ public class MenuPanel extends JPanel {
         gbc.insets = new Insets(10, 10, 10, 5);
         gbc.weightx = 1.0;
         mainPanel.add(createPlayerPanel("Player 1", player1NameField, player1ColorButton, 
-            new Color(255, 100, 100)), gbc);
+            player1ControlBox, new Color(255, 100, 100)), gbc);
         
         // Player 2 panel
         gbc.gridx = 1;
         gbc.insets = new Insets(10, 5, 10, 10);
         mainPanel.add(createPlayerPanel("Player 2", player2NameField, player2ColorButton, 
-            new Color(100, 150, 255)), gbc);
+            player2ControlBox, new Color(100, 150, 255)), gbc);
         
         // Board size panel
         gbc.gridx = 0;
@@ -307,6 +397,66 @@ public class MenuPanel extends JPanel {
         
         helpBtn.addActionListener(e -> handleHelp());
         
+        // Replay browser button
+        JButton replayBtn = new JButton("🎞");
+        replayBtn.setFont(new Font("Dialog", Font.PLAIN, 22));
+        replayBtn.setPreferredSize(new Dimension(45, 45));
+        replayBtn.setMinimumSize(new Dimension(45, 45));
+        replayBtn.setMaximumSize(new Dimension(45, 45));
+        replayBtn.setForeground(new Color(100, 150, 255));
+        replayBtn.setFocusPainted(false);
+        replayBtn.setBorderPainted(false);
+        replayBtn.setContentAreaFilled(false);
+        replayBtn.setOpaque(false);
+        replayBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        replayBtn.setToolTipText("<html><b>Replays</b><br>Watch a saved game</html>");
+        replayBtn.addActionListener(e -> handleOpenReplay());
+        
+        // Saved game button
+        JButton loadBtn = new JButton("📂");
+        loadBtn.setFont(new Font("Dialog", Font.PLAIN, 22));
+        loadBtn.setPreferredSize(new Dimension(45, 45));
+        loadBtn.setMinimumSize(new Dimension(45, 45));
+        loadBtn.setMaximumSize(new Dimension(45, 45));
+        loadBtn.setForeground(new Color(100, 150, 255));
+        loadBtn.setFocusPainted(false);
+        loadBtn.setBorderPainted(false);
+        loadBtn.setContentAreaFilled(false);
+        loadBtn.setOpaque(false);
+        loadBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        loadBtn.setToolTipText("<html><b>Load Game</b><br>Continue a saved game</html>");
+        loadBtn.addActionListener(e -> handleLoadGame());
+        
+        // Leaderboard button
+        JButton leaderboardBtn = new JButton("🏆");
+        leaderboardBtn.setFont(new Font("Dialog", Font.PLAIN, 22));
+        leaderboardBtn.setPreferredSize(new Dimension(45, 45));
+        leaderboardBtn.setMinimumSize(new Dimension(45, 45));
+        leaderboardBtn.setMaximumSize(new Dimension(45, 45));
+        leaderboardBtn.setForeground(new Color(100, 150, 255));
+        leaderboardBtn.setFocusPainted(false);
+        leaderboardBtn.setBorderPainted(false);
+        leaderboardBtn.setContentAreaFilled(false);
+        leaderboardBtn.setOpaque(false);
+        leaderboardBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        leaderboardBtn.setToolTipText("<html><b>Leaderboard</b><br>Top players by rating</html>");
+        leaderboardBtn.addActionListener(e -> handleLeaderboard());
+        
+        // Online game button
+        JButton onlineBtn = new JButton("🌐");
+        onlineBtn.setFont(new Font("Dialog", Font.PLAIN, 22));
+        onlineBtn.setPreferredSize(new Dimension(45, 45));
+        onlineBtn.setMinimumSize(new Dimension(45, 45));
+        onlineBtn.setMaximumSize(new Dimension(45, 45));
+        onlineBtn.setForeground(new Color(100, 150, 255));
+        onlineBtn.setFocusPainted(false);
+        onlineBtn.setBorderPainted(false);
+        onlineBtn.setContentAreaFilled(false);
+        onlineBtn.setOpaque(false);
+        onlineBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        onlineBtn.setToolTipText("<html><b>Play Online</b><br>Host or join a game on a server</html>");
+        onlineBtn.addActionListener(e -> handlePlayOnline());
+        
         // Vertical separator
         JPanel separator = new JPanel();
         separator.setBackground(new Color(200, 210, 230));
@@ -321,6 +471,14 @@ public class MenuPanel extends JPanel {
         soundPanel.setOpaque(false);
         
         container.add(helpBtn);
+        container.add(Box.createHorizontalStrut(4));
+        container.add(replayBtn);
+        container.add(Box.createHorizontalStrut(4));
+        container.add(loadBtn);
+        container.add(Box.createHorizontalStrut(4));
+        container.add(leaderboardBtn);
+        container.add(Box.createHorizontalStrut(4));
+        container.add(onlineBtn);
         container.add(Box.createHorizontalStrut(10));
         container.add(separator);
         container.add(Box.createHorizontalStrut(10));
@@ -335,7 +493,8 @@ public class MenuPanel extends JPanel {
      * Creates a player configuration panel with themed accent color.
      */
     private JPanel createPlayerPanel(String title, JTextField nameField, 
-                                     ColorPickerButton colorButton, Color accentColor) {
+                                     ColorPickerButton colorButton, JComboBox<String> controlBox,
+                                     Color accentColor) {
         JPanel panel = new JPanel(new GridBagLayout());
         panel.setBackground(Color.WHITE);
         panel.setBorder(BorderFactory.createCompoundBorder(
@@ -395,6 +554,26 @@ public class MenuPanel extends JPanel {
         gbc.insets = new Insets(15, 8, 8, 8);
         panel.add(colorButton, gbc);
         
+        // Human or computer control
+        JLabel controlLabel = new JLabel("Plays as:");
+        controlLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.insets = new Insets(8, 8, 8, 8);
+        panel.add(controlLabel, gbc);
+        
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(controlBox, gbc);
+        
+        // Lifetime statistics
+        JLabel statsLabel = (nameField == player1NameField) ? player1StatsLabel : player2StatsLabel;
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        gbc.gridwidth = 2;
+        gbc.insets = new Insets(8, 8, 0, 8);
+        panel.add(statsLabel, gbc);
+        
         return panel;
     }
     
@@ -476,6 +655,12 @@ public class MenuPanel extends JPanel {
             }
         });
         
+        // Human/computer selector listeners
+        player1ControlBox.addActionListener(e -> 
+            gameConfig.getPlayer1().setBotSpec(controlSpecs.get(player1ControlBox.getSelectedIndex())));
+        player2ControlBox.addActionListener(e -> 
+            gameConfig.getPlayer2().setBotSpec(controlSpecs.get(player2ControlBox.getSelectedIndex())));
+        
         // Board size card listeners
         card3x3.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseClicked(java.awt.event.MouseEvent evt) {
@@ -522,6 +707,7 @@ public class MenuPanel extends JPanel {
             player1NameField.setBackground(Color.WHITE);
         }
         
+        updatePlayerStats(player1StatsLabel, name);
         updateStartButton();
     }
     
@@ -548,6 +734,7 @@ public class MenuPanel extends JPanel {
             player2NameField.setBackground(Color.WHITE);
         }
         
+        updatePlayerStats(player2StatsLabel, name);
         updateStartButton();
     }
     
@@ -562,6 +749,26 @@ public class MenuPanel extends JPanel {
         
         // Update config
         gameConfig.setBoardSize(size);
+        updateMatchStats();
+    }
+    
+    /**
+     * Shows a player's lifetime record and their record on the selected
+     * board size, answered by the indexes of the match history.
+     */
+    private void updatePlayerStats(JLabel statsLabel, String name) {
+        if (matchHistory == null || name.trim().isEmpty()) {
+            statsLabel.setVisible(false);
+            return;
+        }
+        int size = gameConfig.getBoardSize();
+        PlayerProfile profile = playerProfiles == null ? null : playerProfiles.getProfile(name);
+        String rating = profile == null ? "" : "Rating " + Math.round(profile.getRating())
+            + " (best " + Math.round(profile.getPeakRating()) + ")<br/>";
+        statsLabel.setText("<html>" + rating + "Lifetime: " + ResultsPanel.formatStats(matchHistory.getPlayerStats(name))
+            + "<br/>On " + size + "×" + size + ": "
+            + ResultsPanel.formatStats(matchHistory.getPlayerStats(name, size)) + "</html>");
+        statsLabel.setVisible(true);
     }
     
     /**
@@ -592,6 +799,97 @@ public class MenuPanel extends JPanel {
         }
     }
     
+    /**
+     * Handles the replay button click.
+     * Lets the user pick a saved replay and fires "watchReplay" with it.
+     */
+    private void handleOpenReplay() {
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        
+        JFileChooser chooser = new JFileChooser(Replay.getDefaultDirectory().toFile());
+        chooser.setDialogTitle("Open Replay");
+        chooser.setFileFilter(new FileNameExtensionFilter("JavaGrid4 replays", Replay.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Replay replay = Replay.load(chooser.getSelectedFile().toPath());
+            propertyChangeSupport.firePropertyChange("watchReplay", null, replay);
+        } catch (IOException e) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            SimpleDialog.showMessageDialog(this, "Could not open replay: " + e.getMessage(), "Replay");
+        }
+    }
+    
+    /**
+     * Handles the load game button click.
+     * Lets the user pick a saved game, reads it in the background and
+     * fires "loadGame" with it.
+     */
+    private void handleLoadGame() {
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        
+        JFileChooser chooser = new JFileChooser(SavedGame.getDefaultDirectory().toFile());
+        chooser.setDialogTitle("Load Game");
+        chooser.setFileFilter(new FileNameExtensionFilter("JavaGrid4 saved games", SavedGame.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        new SwingWorker<SavedGame, Void>() {
+            @Override
+            protected SavedGame doInBackground() throws IOException {
+                return SavedGame.load(file);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    propertyChangeSupport.firePropertyChange("loadGame", null, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    SimpleDialog.showMessageDialog(MenuPanel.this, "Could not load game: " + cause.getMessage(), "Load Game");
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Handles the leaderboard button click.
+     * Opens the leaderboard dialog once the ratings are loaded.
+     */
+    private void handleLeaderboard() {
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        if (playerProfiles == null) {
+            SimpleDialog.showMessageDialog(this, "Player ratings are still loading.", "Leaderboard");
+            return;
+        }
+        Frame parentFrame = (Frame) SwingUtilities.getWindowAncestor(this);
+        new LeaderboardDialog(parentFrame, playerProfiles).setVisible(true);
+    }
+    
+    /**
+     * Handles the online game button click.
+     * Opens the online dialog and fires "playOnline" once a game starts.
+     */
+    private void handlePlayOnline() {
+        if (!gameConfig.isValid()) {
+            SoundManager.getInstance().playSound(SoundManager.SOUND_ERROR);
+            SimpleDialog.showMessageDialog(this, "Enter both player names first.", "Play Online");
+            return;
+        }
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        Frame parentFrame = (Frame) SwingUtilities.getWindowAncestor(this);
+        PlayerProfile profile = playerProfiles == null ? null : playerProfiles.getProfile(gameConfig.getPlayer1().getName());
+        int rating = (int) Math.round(profile == null ? PlayerProfiles.INITIAL_RATING : profile.getRating());
+        OnlineDialog dialog = new OnlineDialog(parentFrame, gameConfig, rating);
+        dialog.setVisible(true);
+        if (dialog.getMatch() != null) {
+            propertyChangeSupport.firePropertyChange("playOnline", null, dialog.getMatch());
+        }
+    }
+    
     /**
      * Handles the help button click.
      * Opens the help/rules dialog.
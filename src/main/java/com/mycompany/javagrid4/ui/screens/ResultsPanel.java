@@ -2,7 +2,10 @@ package com.mycompany.javagrid4.ui.screens;
 
 import com.mycompany.javagrid4.Player;
 import com.mycompany.javagrid4.audio.SoundManager;
+import com.mycompany.javagrid4.history.MatchHistory;
+import com.mycompany.javagrid4.history.MatchStats;
 import com.mycompany.javagrid4.models.GameConfig;
+import com.mycompany.javagrid4.replay.Replay;
 import com.mycompany.javagrid4.ui.effects.ConfettiEffect;
 import javax.swing.*;
 import java.awt.*;
@@ -36,6 +39,8 @@ public class ResultsPanel extends JPanel {
     private int player1Score;
     private int player2Score;
     private int elapsedSeconds;
+    private Replay replay;
+    private MatchHistory matchHistory;
     
     // UI Components
     private JLabel titleLabel;
@@ -45,11 +50,13 @@ public class ResultsPanel extends JPanel {
     private JLabel timerLabel;
     private JButton playAgainButton;
     private JButton backToMenuButton;
+    private JButton replayButton;
     
     // Stats labels (for updating)
     private JLabel durationValueLabel;
     private JLabel cellsValueLabel;
     private JLabel marginValueLabel;
+    private JLabel lifetimeLabel;
     
     /**
      * Creates the professional results panel.
@@ -82,9 +89,29 @@ public class ResultsPanel extends JPanel {
         updateDisplay();
     }
     
+    /**
+     * Sets the replay of the finished game, offered through the replay button.
+     * @param replay Recorded game, or null to hide the button
+     */
+    public void setReplay(Replay replay) {
+        this.replay = replay;
+        replayButton.setVisible(replay != null);
+    }
+    
+    /**
+     * Sets the match history the lifetime statistics of both players are
+     * read from.
+     * @param matchHistory Open history, or null to hide the statistics
+     */
+    public void setMatchHistory(MatchHistory matchHistory) {
+        this.matchHistory = matchHistory;
+        updateLifetimeStats();
+    }
+    
     /**
      * Adds a property change listener for screen transitions.
-     * Events: "playAgain" (with GameConfig), "backToMenu" (no value)
+     * Events: "playAgain" (with GameConfig), "backToMenu" (no value),
+     * "watchReplay" (with Replay)
      */
     @Override
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -129,6 +156,13 @@ public class ResultsPanel extends JPanel {
         timerLabel.setForeground(new Color(100, 100, 120));
         timerLabel.setHorizontalAlignment(SwingConstants.CENTER);
         
+        // Lifetime statistics from the match history
+        lifetimeLabel = new JLabel();
+        lifetimeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        lifetimeLabel.setForeground(new Color(90, 90, 110));
+        lifetimeLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        lifetimeLabel.setVisible(false);
+        
         // Play Again button
         playAgainButton = createStyledButton("Play Again", new Color(70, 160, 70));
         playAgainButton.addActionListener(e -> handlePlayAgain());
@@ -136,6 +170,12 @@ public class ResultsPanel extends JPanel {
         // Back to Menu button
         backToMenuButton = createStyledButton("Back to Menu", new Color(100, 130, 200));
         backToMenuButton.addActionListener(e -> handleBackToMenu());
+        
+        // Watch Replay button
+        replayButton = createStyledButton("Watch Replay", new Color(150, 100, 200));
+        replayButton.setPreferredSize(new Dimension(220, 65));
+        replayButton.addActionListener(e -> handleWatchReplay());
+        replayButton.setVisible(false);
     }
     
     /**
@@ -217,13 +257,19 @@ public class ResultsPanel extends JPanel {
         JPanel statsPanel = createGameStatsPanel();
         statsPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
         centerPanel.add(statsPanel);
-        centerPanel.add(Box.createVerticalStrut(40));
+        centerPanel.add(Box.createVerticalStrut(20));
+        
+        // Lifetime statistics
+        lifetimeLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        centerPanel.add(lifetimeLabel);
+        centerPanel.add(Box.createVerticalStrut(20));
         
         // Buttons panel
         JPanel buttonsPanel = new JPanel();
         buttonsPanel.setLayout(new FlowLayout(FlowLayout.CENTER, 20, 0));
         buttonsPanel.setBackground(new Color(240, 240, 245));
         buttonsPanel.add(playAgainButton);
+        buttonsPanel.add(replayButton);
         buttonsPanel.add(backToMenuButton);
         
         centerPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -383,10 +429,59 @@ public class ResultsPanel extends JPanel {
             marginValueLabel.setText(marginText);
         }
         
+        updateLifetimeStats();
+        
         revalidate();
         repaint();
     }
     
+    /**
+     * Shows both players' lifetime statistics, answered by the indexes of
+     * the match history.
+     */
+    private void updateLifetimeStats() {
+        if (gameConfig == null || matchHistory == null) {
+            lifetimeLabel.setVisible(false);
+            return;
+        }
+        String player1Name = gameConfig.getPlayer1().getName();
+        String player2Name = gameConfig.getPlayer2().getName();
+        lifetimeLabel.setText("<html><center>"
+            + "<span style='color: " + toHex(gameConfig.getPlayer1().getColor()) + ";'><b>"
+            + escape(player1Name) + "</b></span> " + formatStats(matchHistory.getPlayerStats(player1Name)) + "<br/>"
+            + "<span style='color: " + toHex(gameConfig.getPlayer2().getColor()) + ";'><b>"
+            + escape(player2Name) + "</b></span> " + formatStats(matchHistory.getPlayerStats(player2Name))
+            + "</center></html>");
+        lifetimeLabel.setVisible(true);
+    }
+    
+    /**
+     * Formats a player's lifetime statistics on one line, for this screen
+     * and the menu.
+     * @param stats Statistics from the match history
+     * @return Text such as "12 games · 58% won · avg 3:05 · streak W3 · best 5"
+     */
+    static String formatStats(MatchStats stats) {
+        if (stats.getGames() == 0) {
+            return "No games yet";
+        }
+        int average = (int) Math.round(stats.getAverageSeconds());
+        int streak = stats.getCurrentStreak();
+        String streakText = streak > 0 ? "W" + streak : streak < 0 ? "L" + -streak : "-";
+        return String.format("%d game%s · %d%% won · avg %d:%02d · streak %s · best %d",
+            stats.getGames(), stats.getGames() == 1 ? "" : "s",
+            Math.round(stats.getWinRate() * 100), average / 60, average % 60,
+            streakText, stats.getLongestWinStreak());
+    }
+    
+    private static String toHex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+    }
+    
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+    
     /**
      * Shows victory confetti animation.
      */
@@ -430,6 +525,15 @@ public class ResultsPanel extends JPanel {
         propertyChangeSupport.firePropertyChange("playAgain", null, gameConfig);
     }
     
+    /**
+     * Handles Watch Replay button click.
+     * Fires "watchReplay" event with the game's Replay.
+     */
+    private void handleWatchReplay() {
+        SoundManager.getInstance().playSound(SoundManager.SOUND_BUTTON);
+        propertyChangeSupport.firePropertyChange("watchReplay", null, replay);
+    }
+    
     /**
      * Handles Back to Menu button click.
      * Fires "backToMenu" event.